@@ -18,6 +18,7 @@ import javax.annotation.Nullable;
 import java.net.InetSocketAddress;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -184,6 +185,16 @@ public interface ProxyServer {
     @Nonnull
     Optional<Player> getPlayer(@Nonnull String username);
 
+    /**
+     * Get the players whose username starts with a prefix, e.g. for tab completion.
+     *
+     * @param prefix the start of the username (case-insensitive)
+     * @param limit the maximum number of players to return
+     * @return an unmodifiable list of matching players, ordered by username
+     */
+    @Nonnull
+    List<Player> matchPlayers(@Nonnull String prefix, int limit);
+
     /**
      * Get the number of currently connected players.
      *
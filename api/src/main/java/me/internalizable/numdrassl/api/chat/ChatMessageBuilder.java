@@ -274,6 +274,13 @@ public final class ChatMessageBuilder {
 
     // ==================== Internal ====================
 
+    /**
+     * Appends an existing part as-is. Used by {@link ChatMessageTemplate} to rebuild resolved messages.
+     */
+    void append(@Nonnull FormattedMessagePart part) {
+        parts.add(Objects.requireNonNull(part, "part"));
+    }
+
     private FormattedMessagePart createPart(
             String text, String color,
             Boolean bold, Boolean italic,
@@ -0,0 +1,171 @@
+package me.internalizable.numdrassl.api.chat;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable chat message with named placeholders.
+ *
+ * <p>Placeholders are written as {@code {name}} inside the text of a part.
+ * Create a template once and send it many times: the proxy pre-encodes every part
+ * without placeholders, so each send only encodes the parts that change.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * ChatMessageTemplate welcome = ChatMessageTemplate.of(ChatMessageBuilder.create()
+ *     .gold("[Server] ")
+ *     .white("Welcome, {player}!"));
+ *
+ * player.sendMessage(welcome, Map.of("player", player.getUsername()));
+ * }</pre>
+ *
+ * @see ChatMessageBuilder
+ */
+public final class ChatMessageTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z0-9_.-]+)}");
+
+    private final List<FormattedMessagePart> parts;
+    private final Set<String> placeholders;
+
+    private ChatMessageTemplate(@Nonnull List<FormattedMessagePart> parts) {
+        this.parts = Collections.unmodifiableList(new ArrayList<>(parts));
+        Set<String> names = new LinkedHashSet<>();
+        for (FormattedMessagePart part : this.parts) {
+            collectPlaceholders(part, names);
+        }
+        this.placeholders = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Creates a template from the current parts of a builder.
+     * Later changes to the builder do not affect the template.
+     *
+     * @param builder the builder whose parts form the template
+     * @return the template
+     */
+    @Nonnull
+    public static ChatMessageTemplate of(@Nonnull ChatMessageBuilder builder) {
+        Objects.requireNonNull(builder, "builder");
+        return new ChatMessageTemplate(builder.getParts());
+    }
+
+    /**
+     * Gets the template parts, with placeholders unresolved.
+     *
+     * @return an unmodifiable list of parts
+     */
+    @Nonnull
+    public List<FormattedMessagePart> getParts() {
+        return parts;
+    }
+
+    /**
+     * Gets the names of all placeholders used in this template, in order of appearance.
+     *
+     * @return an unmodifiable set of placeholder names
+     */
+    @Nonnull
+    public Set<String> getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * Checks whether a part or any of its children contains a placeholder.
+     *
+     * @param part the part to check
+     * @return true if the part must be resolved per send
+     */
+    public static boolean hasPlaceholders(@Nonnull FormattedMessagePart part) {
+        Objects.requireNonNull(part, "part");
+        String text = part.getText();
+        if (text != null && PLACEHOLDER.matcher(text).find()) {
+            return true;
+        }
+        for (FormattedMessagePart child : part.getChildren()) {
+            if (hasPlaceholders(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the placeholders in a part and its children.
+     * Placeholders without a value are left as written.
+     *
+     * @param part the part to resolve
+     * @param values placeholder values by name
+     * @return the resolved part, or {@code part} itself if it has no placeholders
+     */
+    @Nonnull
+    public static FormattedMessagePart resolve(@Nonnull FormattedMessagePart part, @Nonnull Map<String, String> values) {
+        Objects.requireNonNull(part, "part");
+        Objects.requireNonNull(values, "values");
+        if (!hasPlaceholders(part)) {
+            return part;
+        }
+        List<FormattedMessagePart> children = new ArrayList<>(part.getChildren().size());
+        for (FormattedMessagePart child : part.getChildren()) {
+            children.add(resolve(child, values));
+        }
+        return new SimpleFormattedMessagePart(
+            substitute(part.getText(), values), part.getColor(),
+            part.isBold(), part.isItalic(), part.isUnderlined(), part.isStrikethrough(),
+            children
+        );
+    }
+
+    /**
+     * Resolves all placeholders into a regular builder.
+     *
+     * @param values placeholder values by name
+     * @return a new builder holding the resolved parts
+     */
+    @Nonnull
+    public ChatMessageBuilder resolve(@Nonnull Map<String, String> values) {
+        Objects.requireNonNull(values, "values");
+        ChatMessageBuilder builder = ChatMessageBuilder.create();
+        for (FormattedMessagePart part : parts) {
+            builder.append(resolve(part, values));
+        }
+        return builder;
+    }
+
+    // ==================== Internal ====================
+
+    private static String substitute(String text, Map<String, String> values) {
+        if (text == null) {
+            return null;
+        }
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        while (matcher.find()) {
+            String value = values.get(matcher.group(1));
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(value != null ? value : matcher.group()));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static void collectPlaceholders(FormattedMessagePart part, Set<String> names) {
+        String text = part.getText();
+        if (text != null) {
+            Matcher matcher = PLACEHOLDER.matcher(text);
+            while (matcher.find()) {
+                names.add(matcher.group(1));
+            }
+        }
+        for (FormattedMessagePart child : part.getChildren()) {
+            collectPlaceholders(child, names);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package me.internalizable.numdrassl.api.player;
+
+/**
+ * Latency and transport statistics of a player's connection.
+ *
+ * <p>This record is immutable and represents a snapshot taken when it was requested.
+ * Values that have not been measured yet are {@code -1}.</p>
+ *
+ * @param pingMillis smoothed round-trip time between the proxy and the client, measured
+ *                   with the game's Ping/Pong packets
+ * @param clientRttMillis round-trip time of the client's QUIC connection
+ * @param clientLossRate fraction of packets lost on the client connection, 0.0 to 1.0
+ * @param clientCongestionWindow congestion window of the client connection, in bytes
+ * @param backendRttMillis round-trip time of the QUIC connection to the current backend
+ * @param backendLossRate fraction of packets lost on the backend connection, 0.0 to 1.0
+ * @param backendCongestionWindow congestion window of the backend connection, in bytes
+ */
+public record ConnectionQuality(
+        long pingMillis,
+        long clientRttMillis,
+        double clientLossRate,
+        long clientCongestionWindow,
+        long backendRttMillis,
+        double backendLossRate,
+        long backendCongestionWindow
+) {
+
+    /**
+     * A connection with nothing measured yet.
+     */
+    public static final ConnectionQuality UNKNOWN = new ConnectionQuality(-1, -1, -1, -1, -1, -1, -1);
+
+    /**
+     * Get the total latency from the client through the proxy to the backend.
+     *
+     * @return the sum of the client ping and the backend round-trip time, or -1 if either is unknown
+     */
+    public long totalLatencyMillis() {
+        if (pingMillis < 0 || backendRttMillis < 0) {
+            return -1;
+        }
+        return pingMillis + backendRttMillis;
+    }
+}
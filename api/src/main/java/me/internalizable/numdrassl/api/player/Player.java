@@ -1,12 +1,14 @@
 package me.internalizable.numdrassl.api.player;
 
 import me.internalizable.numdrassl.api.chat.ChatMessageBuilder;
+import me.internalizable.numdrassl.api.chat.ChatMessageTemplate;
 import me.internalizable.numdrassl.api.command.CommandSource;
 import me.internalizable.numdrassl.api.server.RegisteredServer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.net.InetSocketAddress;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -68,6 +70,15 @@ public interface Player extends CommandSource {
      */
     long getPing();
 
+    /**
+     * Get latency and transport statistics of the player's connection, including
+     * the connection from the proxy to the player's current backend.
+     *
+     * @return a snapshot of the connection quality
+     */
+    @Nonnull
+    ConnectionQuality getConnectionQuality();
+
     /**
      * Send a packet to the player's client.
      *
@@ -103,6 +114,19 @@ public interface Player extends CommandSource {
      */
     void sendMessage(@Nonnull ChatMessageBuilder builder);
 
+    /**
+     * Send a chat message template to the player, filling in its placeholders.
+     *
+     * <p>Prefer this over building a new message per player when the same message is
+     * sent to many players: only the parts containing placeholders are encoded per send.</p>
+     *
+     * @param template the message template
+     * @param placeholders placeholder values by name
+     */
+    default void sendMessage(@Nonnull ChatMessageTemplate template, @Nonnull Map<String, String> placeholders) {
+        sendMessage(template.resolve(placeholders));
+    }
+
     /**
      * Disconnect the player with a reason.
      *
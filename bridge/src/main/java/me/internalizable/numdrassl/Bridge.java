@@ -18,12 +18,15 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import me.internalizable.numdrassl.common.RandomUtil;
+import me.internalizable.numdrassl.common.ReferralKeyRing;
+import me.internalizable.numdrassl.common.ReferralReplayCache;
 import me.internalizable.numdrassl.common.SecretMessageUtil;
 import me.internalizable.numdrassl.packet.ProxyPing;
 import me.internalizable.numdrassl.packet.ProxyPong;
 
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.function.BiFunction;
 import java.util.logging.Level;
 
@@ -47,6 +50,9 @@ public class Bridge extends JavaPlugin {
 
     private static final String PACKET_REGISTRY = "com.hypixel.hytale.protocol.PacketRegistry";
 
+    private final ReferralReplayCache referralReplayCache = new ReferralReplayCache();
+    private volatile ReferralKeyRing referralKeys;
+
     public Bridge(JavaPluginInit init) {
         super(init);
     }
@@ -61,6 +67,7 @@ public class Bridge extends JavaPlugin {
         );
 
         this.config.save();
+        this.referralKeys = createReferralKeyRing();
 
         this.registerCustomPacket(ProxyPing.PACKET_ID, "ProxyPing", ProxyPing.class, 16, 16, false, ProxyPing::validateStructure, ProxyPing::deserialize);
         this.registerCustomPacket(ProxyPong.PACKET_ID, "ProxyPong", ProxyPong.class, 16, 16, false, ProxyPong::validateStructure, ProxyPong::deserialize);
@@ -156,8 +163,7 @@ public class Bridge extends JavaPlugin {
      */
     private void verifyPlayerReferral(PlayerSetupConnectEvent event, byte[] data) {
         try {
-            ByteBuf buf = Unpooled.copiedBuffer(data);
-            byte[] secret = getProxySecret();
+            ByteBuf buf = Unpooled.wrappedBuffer(data);
             String serverName = this.getServerName();
             
             getLogger().at(Level.INFO).log("Validating referral for " + event.getUsername() + " -> server: " + serverName);
@@ -167,7 +173,8 @@ public class Bridge extends JavaPlugin {
                     event.getUuid(),
                     event.getUsername(),
                     serverName,
-                    secret
+                    referralKeys,
+                    referralReplayCache
             );
 
             if (message == null) {
@@ -187,6 +194,29 @@ public class Bridge extends JavaPlugin {
 
     // ==================== Configuration ====================
 
+    /**
+     * Builds the keys accepted for referral verification: the proxy secret, plus any
+     * previous secrets still accepted while a rotation is rolled out.
+     */
+    private ReferralKeyRing createReferralKeyRing() {
+        String previous = System.getenv("NUMDRASSL_PREVIOUS_SECRETS");
+        if (previous == null || previous.isEmpty()) {
+            previous = config.get().getPreviousProxySecrets();
+        }
+
+        byte[][] previousSecrets = previous == null ? new byte[0][] : Arrays.stream(previous.split(","))
+                .map(String::trim)
+                .filter(secret -> !secret.isEmpty())
+                .map(secret -> secret.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+
+        ReferralKeyRing keys = ReferralKeyRing.of(getProxySecret(), previousSecrets);
+        if (keys.size() > 1) {
+            getLogger().at(Level.INFO).log("Accepting " + (keys.size() - 1) + " previous proxy secret(s) for referrals");
+        }
+        return keys;
+    }
+
     /**
      * Gets the proxy secret for HMAC verification.
      */
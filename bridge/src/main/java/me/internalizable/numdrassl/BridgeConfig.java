@@ -16,6 +16,12 @@ public class BridgeConfig {
      */
     private String proxySecret = RandomUtil.generateSecureRandomString(32);
 
+    /**
+     * Comma-separated secrets still accepted after a secret rotation, until every proxy
+     * signs with the new one.
+     */
+    private String previousProxySecrets = "";
+
     /**
      * Name of this backend server (must match the name configured in the proxy).
      */
@@ -27,6 +33,11 @@ public class BridgeConfig {
                     (config, str) -> config.proxySecret = str,
                     (config) -> config.proxySecret
             ).add()
+            .append(
+                    new KeyedCodec<>("PreviousSecretKeys", Codec.STRING),
+                    (config, str) -> config.previousProxySecrets = str,
+                    (config) -> config.previousProxySecrets
+            ).add()
             .append(
                     new KeyedCodec<>("ServerName", Codec.STRING),
                     (config, str) -> config.serverName = str,
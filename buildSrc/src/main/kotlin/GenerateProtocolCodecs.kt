@@ -0,0 +1,188 @@
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Generates static packet decoders from a compact schema (see `proxy/src/main/protocol/packets.schema`).
+ *
+ * For every packet the task writes a `<Packet>Codec` class with:
+ *  - `deserialize(ByteBuf, int)`: bounds-checked decode that doubles as structure validation
+ *  - `validateStructure(ByteBuf, int)`: a bounds-only walk over the same offsets and lengths
+ *    that reads no field values, reported as a `ValidationResult`
+ *
+ * The schema only describes nullable string and byte-array fields, which covers the auth
+ * packets. Encoding stays with the hand-written protocol classes. `GeneratedCodecsTest` checks
+ * that the generated decoders read what those classes write.
+ */
+abstract class GenerateProtocolCodecs : DefaultTask() {
+
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val schema: RegularFileProperty
+
+    @get:Input
+    abstract val codecPackage: Property<String>
+
+    @get:OutputDirectory
+    abstract val outputDirectory: DirectoryProperty
+
+    @TaskAction
+    fun generate() {
+        val packets = parse(schema.get().asFile.readLines())
+        val packageName = codecPackage.get()
+        val dir = outputDirectory.get().asFile.resolve(packageName.replace('.', '/'))
+        dir.deleteRecursively()
+        dir.mkdirs()
+        for (packet in packets) {
+            dir.resolve("${packet.name}Codec.java").writeText(render(packageName, packet))
+        }
+    }
+
+    // ==================== Schema ====================
+
+    private enum class Kind {
+        STRING,
+        BYTES
+    }
+
+    private data class Field(val kind: Kind, val name: String, val max: Int) {
+        val display: String get() = name.replaceFirstChar { it.uppercaseChar() }
+    }
+
+    private data class Packet(val name: String, val packageName: String, val id: Int, val fields: MutableList<Field> = mutableListOf()) {
+        val slotted: Boolean get() = fields.size > 1
+        val variableBlockStart: Int get() = 1 + if (slotted) 4 * fields.size else 0
+    }
+
+    private fun parse(lines: List<String>): List<Packet> {
+        val packets = mutableListOf<Packet>()
+        lines.forEachIndexed { index, raw ->
+            val line = raw.substringBefore('#').trim()
+            if (line.isEmpty()) {
+                return@forEachIndexed
+            }
+            val parts = line.split(Regex("\\s+"))
+            fun fail(message: String): Nothing = throw GradleException("packets.schema:${index + 1}: $message")
+            when (parts[0]) {
+                "packet" -> {
+                    if (parts.size != 4) fail("expected 'packet <Class> <package> <id>'")
+                    packets += Packet(parts[1], parts[2], parts[3].toIntOrNull() ?: fail("invalid packet id '${parts[3]}'"))
+                }
+                "string", "bytes" -> {
+                    val packet = packets.lastOrNull() ?: fail("field declared before any packet")
+                    if (parts.size != 3) fail("expected '${parts[0]} <field> <max>'")
+                    if (packet.fields.size >= 8) fail("at most 8 nullable fields fit in the null-bit byte")
+                    val kind = if (parts[0] == "string") Kind.STRING else Kind.BYTES
+                    packet.fields += Field(kind, parts[1], parts[2].toIntOrNull() ?: fail("invalid max '${parts[2]}'"))
+                }
+                else -> fail("unknown declaration '${parts[0]}'")
+            }
+        }
+        packets.filter { it.fields.isEmpty() }.forEach {
+            throw GradleException("packets.schema: packet ${it.name} declares no fields")
+        }
+        return packets
+    }
+
+    // ==================== Rendering ====================
+
+    private fun render(packageName: String, packet: Packet): String {
+        val out = StringBuilder()
+        val type = packet.name
+        val start = packet.variableBlockStart
+
+        out.appendLine("/*")
+        out.appendLine(" * Generated by :proxy:generateProtocolCodecs from packets.schema. Do not edit.")
+        out.appendLine(" */")
+        out.appendLine("package $packageName;")
+        out.appendLine()
+        out.appendLine("import com.hypixel.hytale.protocol.io.ProtocolException;")
+        out.appendLine("import com.hypixel.hytale.protocol.io.ValidationResult;")
+        out.appendLine("import com.hypixel.hytale.protocol.io.VarInt;")
+        out.appendLine("import ${packet.packageName}.$type;")
+        out.appendLine("import io.netty.buffer.ByteBuf;")
+        out.appendLine("import javax.annotation.Nonnull;")
+        out.appendLine()
+        out.appendLine("public final class ${type}Codec {")
+        out.appendLine("    public static final int PACKET_ID = ${packet.id};")
+        out.appendLine("    public static final int VARIABLE_BLOCK_START = $start;")
+        out.appendLine()
+        out.appendLine("    private ${type}Codec() {")
+        out.appendLine("    }")
+        out.appendLine()
+
+        // deserialize: validation and decoding in a single pass
+        out.appendLine("    @Nonnull")
+        out.appendLine("    public static $type deserialize(@Nonnull ByteBuf buf, int offset) {")
+        out.appendLine("        if (buf.writerIndex() - offset < $start) {")
+        out.appendLine("            throw ProtocolException.bufferTooSmall(\"$type\", $start, buf.writerIndex() - offset);")
+        out.appendLine("        }")
+        out.appendLine("        $type obj = new $type();")
+        out.appendLine("        byte nullBits = buf.getByte(offset);")
+        packet.fields.forEachIndexed { i, field ->
+            val position = if (packet.slotted) {
+                "CodecSupport.variablePosition(buf, offset, ${1 + 4 * i}, $start, \"${field.display}\")"
+            } else {
+                "offset + $start"
+            }
+            val reader = if (field.kind == Kind.STRING) "readString" else "readBytes"
+            out.appendLine("        if ((nullBits & ${1 shl i}) != 0) {")
+            out.appendLine("            obj.${field.name} = CodecSupport.$reader(buf, $position, ${field.max}, \"${field.display}\");")
+            out.appendLine("        }")
+        }
+        out.appendLine("        return obj;")
+        out.appendLine("    }")
+        out.appendLine()
+
+        // validateStructure: the registry's validator, checking bounds without decoding
+        out.appendLine("    @Nonnull")
+        out.appendLine("    public static ValidationResult validateStructure(@Nonnull ByteBuf buf, int offset) {")
+        out.appendLine("        if (buf.writerIndex() - offset < $start) {")
+        out.appendLine("            return ValidationResult.error(\"Buffer too small: expected at least $start bytes\");")
+        out.appendLine("        }")
+        out.appendLine("        byte nullBits = buf.getByte(offset);")
+        out.appendLine("        int pos;")
+        packet.fields.forEachIndexed { i, field ->
+            val name = field.display
+            val local = field.name
+            out.appendLine("        if ((nullBits & ${1 shl i}) != 0) {")
+            if (packet.slotted) {
+                out.appendLine("            int ${local}Offset = buf.getIntLE(offset + ${1 + 4 * i});")
+                out.appendLine("            if (${local}Offset < 0) {")
+                out.appendLine("                return ValidationResult.error(\"Invalid offset for $name\");")
+                out.appendLine("            }")
+                out.appendLine("            pos = offset + $start + ${local}Offset;")
+                out.appendLine("            if (pos >= buf.writerIndex()) {")
+                out.appendLine("                return ValidationResult.error(\"Offset out of bounds for $name\");")
+                out.appendLine("            }")
+            } else {
+                out.appendLine("            pos = offset + $start;")
+            }
+            val what = if (field.kind == Kind.STRING) "string length" else "array count"
+            out.appendLine("            int ${local}Length = VarInt.peek(buf, pos);")
+            out.appendLine("            if (${local}Length < 0) {")
+            out.appendLine("                return ValidationResult.error(\"Invalid $what for $name\");")
+            out.appendLine("            }")
+            out.appendLine("            if (${local}Length > ${field.max}) {")
+            out.appendLine("                return ValidationResult.error(\"$name exceeds max length ${field.max}\");")
+            out.appendLine("            }")
+            out.appendLine("            pos += VarInt.length(buf, pos) + ${local}Length;")
+            out.appendLine("            if (pos > buf.writerIndex()) {")
+            out.appendLine("                return ValidationResult.error(\"Buffer overflow reading $name\");")
+            out.appendLine("            }")
+            out.appendLine("        }")
+        }
+        out.appendLine("        return ValidationResult.OK;")
+        out.appendLine("    }")
+        out.appendLine("}")
+        return out.toString()
+    }
+}
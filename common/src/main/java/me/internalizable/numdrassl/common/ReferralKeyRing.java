@@ -0,0 +1,122 @@
+package me.internalizable.numdrassl.common;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The shared secrets used to sign and verify referral messages.
+ *
+ * <p>The first secret signs new messages; all secrets are accepted when verifying. To
+ * rotate a secret without downtime, add the new secret to every backend as an
+ * additional key, switch the proxy to it, then remove the old one.</p>
+ *
+ * <p>Each key has a one byte ID derived from its secret, so IDs never need to be
+ * configured. The ID is written into signed messages and lets the verifier pick the
+ * right key without trying all of them.</p>
+ *
+ * <p>Every key keeps one pre-initialized {@link Mac} per thread, so signing and
+ * verifying neither looks up the provider nor re-keys the MAC.</p>
+ */
+public final class ReferralKeyRing {
+
+    static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final List<Key> keys;
+
+    private ReferralKeyRing(List<Key> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Creates a key ring.
+     *
+     * @param signingSecret the secret that signs new messages
+     * @param additionalSecrets further secrets accepted when verifying
+     * @return the key ring
+     */
+    @Nonnull
+    public static ReferralKeyRing of(@Nonnull byte[] signingSecret, @Nonnull byte[]... additionalSecrets) {
+        Objects.requireNonNull(signingSecret, "signingSecret");
+        List<Key> keys = new ArrayList<>(1 + additionalSecrets.length);
+        keys.add(new Key(signingSecret));
+        for (byte[] secret : additionalSecrets) {
+            if (secret != null && secret.length > 0) {
+                keys.add(new Key(secret));
+            }
+        }
+        return new ReferralKeyRing(Collections.unmodifiableList(keys));
+    }
+
+    /**
+     * Gets the number of accepted keys.
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    // ==================== Internal ====================
+
+    @Nonnull
+    Key signingKey() {
+        return keys.get(0);
+    }
+
+    @Nonnull
+    List<Key> keys() {
+        return keys;
+    }
+
+    /**
+     * Derives the key ID from a secret: the first byte of its SHA-256 hash.
+     */
+    static byte keyId(@Nonnull byte[] secret) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(secret)[0];
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * A single secret with its ID and per-thread MAC.
+     */
+    static final class Key {
+
+        private final byte id;
+        private final ThreadLocal<Mac> mac;
+
+        Key(byte[] secret) {
+            this.id = keyId(secret);
+            SecretKeySpec spec = new SecretKeySpec(secret.clone(), HMAC_ALGORITHM);
+            this.mac = ThreadLocal.withInitial(() -> {
+                try {
+                    Mac instance = Mac.getInstance(HMAC_ALGORITHM);
+                    instance.init(spec);
+                    return instance;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Failed to initialize " + HMAC_ALGORITHM, e);
+                }
+            });
+        }
+
+        byte id() {
+            return id;
+        }
+
+        /**
+         * Gets this thread's MAC for the key, reset and ready for use.
+         */
+        Mac mac() {
+            Mac instance = mac.get();
+            instance.reset();
+            return instance;
+        }
+    }
+}
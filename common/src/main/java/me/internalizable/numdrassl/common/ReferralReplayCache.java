@@ -0,0 +1,69 @@
+package me.internalizable.numdrassl.common;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the nonces of accepted referral messages so each one is accepted once.
+ *
+ * <p>A nonce only needs to be remembered until its message expires, since expired
+ * messages are rejected anyway. The cache is bounded: when it is full of unexpired
+ * nonces, the oldest are dropped first.</p>
+ */
+public final class ReferralReplayCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 65_536;
+
+    private final int maxEntries;
+
+    // Nonce -> expiry (unix seconds), in insertion order; guarded by this
+    private final LinkedHashMap<Long, Long> nonces = new LinkedHashMap<>();
+
+    public ReferralReplayCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public ReferralReplayCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Records a nonce if it has not been seen.
+     *
+     * @param nonce the message nonce
+     * @param expiresAt when the message expires, in unix seconds
+     * @param now the current time, in unix seconds
+     * @return true if the nonce is new, false if it is a replay
+     */
+    public synchronized boolean markUsed(long nonce, long expiresAt, long now) {
+        evictExpired(now);
+        if (nonces.putIfAbsent(nonce, expiresAt) != null) {
+            return false;
+        }
+        if (nonces.size() > maxEntries) {
+            Iterator<Long> oldest = nonces.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return nonces.size();
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Map.Entry<Long, Long>> it = nonces.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue() >= now) {
+                // Entries are roughly ordered by expiry, stop at the first live one
+                return;
+            }
+            it.remove();
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package me.internalizable.numdrassl.common;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.SecretKeySpec;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -20,9 +23,11 @@ import java.util.logging.Logger;
  * Uses HMAC-SHA256 to sign player information, allowing backends to trust
  * the proxy without JWT certificate validation.
  *
- * <p>Message format:</p>
+ * <p>Message format (version 2):</p>
  * <pre>
  * [4 bytes] Protocol version (int LE)
+ * [1 byte]  Key ID, see {@link ReferralKeyRing}
+ * [8 bytes] Random nonce (long LE)
  * [8 bytes] UUID most significant bits (long LE)
  * [8 bytes] UUID least significant bits (long LE)
  * [4 bytes] Username length (int LE)
@@ -34,18 +39,37 @@ import java.util.logging.Logger;
  * [4 bytes] Timestamp (unix seconds, int LE)
  * [32 bytes] HMAC-SHA256 signature
  * </pre>
+ *
+ * <p>Version 1 messages have no key ID and nonce. They are still accepted, checked
+ * against every key, so backends can be upgraded before the proxy; they are not
+ * protected against replay. A proxy can also keep writing them, signed with its
+ * signing key, until every backend runs a Bridge that accepts version 2.</p>
+ *
+ * <p>Messages are signed straight into the output buffer and verified in place,
+ * without intermediate copies.</p>
  */
 public class SecretMessageUtil {
 
     private static final Logger LOGGER = Logger.getLogger(SecretMessageUtil.class.getName());
 
-    private static final int PROTOCOL_VERSION = 1;
-    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    /** Current message version, with a key ID and a nonce. */
+    public static final int PROTOCOL_VERSION = 2;
+    /** Message version understood by Bridges that predate key IDs. */
+    public static final int LEGACY_PROTOCOL_VERSION = 1;
     private static final int HMAC_LENGTH = 32;
+    private static final int MAX_STRING_LENGTH = 256;
+
+    // Version, key ID and nonce, UUID, three string lengths, timestamp
+    private static final int FIXED_LENGTH = 4 + 1 + 8 + 16 + 4 + 4 + 4 + 4 + HMAC_LENGTH;
+    private static final int LEGACY_FIXED_LENGTH = FIXED_LENGTH - 1 - 8;
 
     // Message validity window (5 minutes)
     private static final long MESSAGE_VALIDITY_SECONDS = 300;
 
+    private static final SecureRandom NONCE_RANDOM = new SecureRandom();
+
+    private static final ThreadLocal<byte[]> HMAC_SCRATCH = ThreadLocal.withInitial(() -> new byte[HMAC_LENGTH]);
+
     /**
      * Create a signed player info message to be sent in Connect packet's referralData.
      *
@@ -53,7 +77,7 @@ public class SecretMessageUtil {
      * @param username Player's username
      * @param backendName Target backend server name
      * @param remoteAddress Player's remote address
-     * @param secret Shared secret between proxy and backend
+     * @param keys Key ring whose signing key signs the message
      * @return Encoded and signed message bytes
      */
     public static byte[] createPlayerInfoReferral(
@@ -61,54 +85,109 @@ public class SecretMessageUtil {
             @Nonnull String username,
             @Nonnull String backendName,
             @Nullable InetSocketAddress remoteAddress,
-            @Nonnull byte[] secret) {
-
-        ByteBuf buf = Unpooled.buffer();
-        try {
-            // Write protocol version
-            buf.writeIntLE(PROTOCOL_VERSION);
-
-            // Write UUID
-            buf.writeLongLE(uuid.getMostSignificantBits());
-            buf.writeLongLE(uuid.getLeastSignificantBits());
-
-            // Write username
-            byte[] usernameBytes = username.getBytes(StandardCharsets.UTF_8);
-            buf.writeIntLE(usernameBytes.length);
-            buf.writeBytes(usernameBytes);
-
-            // Write backend name
-            byte[] backendBytes = backendName.getBytes(StandardCharsets.UTF_8);
-            buf.writeIntLE(backendBytes.length);
-            buf.writeBytes(backendBytes);
+            @Nonnull ReferralKeyRing keys) {
+        return createPlayerInfoReferral(uuid, username, backendName, remoteAddress, keys, PROTOCOL_VERSION);
+    }
 
-            // Write remote address
-            String remoteStr = remoteAddress != null ? remoteAddress.toString() : "unknown";
-            byte[] remoteBytes = remoteStr.getBytes(StandardCharsets.UTF_8);
-            buf.writeIntLE(remoteBytes.length);
-            buf.writeBytes(remoteBytes);
+    /**
+     * Create a signed player info message in the given message version.
+     *
+     * @param uuid Player's UUID
+     * @param username Player's username
+     * @param backendName Target backend server name
+     * @param remoteAddress Player's remote address
+     * @param keys Key ring whose signing key signs the message
+     * @param version {@link #PROTOCOL_VERSION} or {@link #LEGACY_PROTOCOL_VERSION}
+     * @return Encoded and signed message bytes
+     */
+    public static byte[] createPlayerInfoReferral(
+            @Nonnull UUID uuid,
+            @Nonnull String username,
+            @Nonnull String backendName,
+            @Nullable InetSocketAddress remoteAddress,
+            @Nonnull ReferralKeyRing keys,
+            int version) {
+
+        checkVersion(version);
+        String remoteStr = remoteAddress != null ? remoteAddress.toString() : "unknown";
+        int length = (version == LEGACY_PROTOCOL_VERSION ? LEGACY_FIXED_LENGTH : FIXED_LENGTH)
+            + ByteBufUtil.utf8Bytes(username)
+            + ByteBufUtil.utf8Bytes(backendName)
+            + ByteBufUtil.utf8Bytes(remoteStr);
+
+        // Write straight into the result array
+        byte[] result = new byte[length];
+        ByteBuf buf = Unpooled.wrappedBuffer(result).writerIndex(0);
+        writePlayerInfoReferral(buf, uuid, username, backendName, remoteStr, keys, version);
+
+        LOGGER.fine("Created player info referral for " + username + " (" + uuid + ") -> " + backendName);
+        return result;
+    }
 
-            // Write timestamp
-            long timestamp = System.currentTimeMillis() / 1000;
-            buf.writeIntLE((int) timestamp);
+    /**
+     * Write a signed player info message to a buffer.
+     *
+     * @param out Buffer to write to
+     * @param uuid Player's UUID
+     * @param username Player's username
+     * @param backendName Target backend server name
+     * @param remoteAddress Player's remote address, as text
+     * @param keys Key ring whose signing key signs the message
+     */
+    public static void writePlayerInfoReferral(
+            @Nonnull ByteBuf out,
+            @Nonnull UUID uuid,
+            @Nonnull String username,
+            @Nonnull String backendName,
+            @Nonnull String remoteAddress,
+            @Nonnull ReferralKeyRing keys) {
+        writePlayerInfoReferral(out, uuid, username, backendName, remoteAddress, keys, PROTOCOL_VERSION);
+    }
 
-            // Calculate HMAC over the data written so far
-            byte[] dataToSign = new byte[buf.readableBytes()];
-            buf.getBytes(0, dataToSign);
+    /**
+     * Write a signed player info message to a buffer in the given message version.
+     *
+     * @param out Buffer to write to
+     * @param uuid Player's UUID
+     * @param username Player's username
+     * @param backendName Target backend server name
+     * @param remoteAddress Player's remote address, as text
+     * @param keys Key ring whose signing key signs the message
+     * @param version {@link #PROTOCOL_VERSION} or {@link #LEGACY_PROTOCOL_VERSION}
+     */
+    public static void writePlayerInfoReferral(
+            @Nonnull ByteBuf out,
+            @Nonnull UUID uuid,
+            @Nonnull String username,
+            @Nonnull String backendName,
+            @Nonnull String remoteAddress,
+            @Nonnull ReferralKeyRing keys,
+            int version) {
+
+        checkVersion(version);
+        ReferralKeyRing.Key key = keys.signingKey();
+        int start = out.writerIndex();
+
+        out.writeIntLE(version);
+        if (version == PROTOCOL_VERSION) {
+            out.writeByte(key.id());
+            out.writeLongLE(NONCE_RANDOM.nextLong());
+        }
 
-            byte[] hmac = calculateHmac(dataToSign, secret);
-            buf.writeBytes(hmac);
+        out.writeLongLE(uuid.getMostSignificantBits());
+        out.writeLongLE(uuid.getLeastSignificantBits());
 
-            // Extract final bytes
-            byte[] result = new byte[buf.readableBytes()];
-            buf.readBytes(result);
+        writeString(out, username);
+        writeString(out, backendName);
+        writeString(out, remoteAddress);
 
-            LOGGER.fine("Created player info referral for " + username + " (" + uuid + ") -> " + backendName);
-            return result;
+        long timestamp = System.currentTimeMillis() / 1000;
+        out.writeIntLE((int) timestamp);
 
-        } finally {
-            buf.release();
-        }
+        // Calculate HMAC over the data written so far
+        byte[] hmac = HMAC_SCRATCH.get();
+        computeHmac(key, out, start, out.writerIndex() - start, hmac);
+        out.writeBytes(hmac);
     }
 
     /**
@@ -118,7 +197,8 @@ public class SecretMessageUtil {
      * @param expectedUuid Expected player UUID
      * @param expectedUsername Expected player username
      * @param expectedBackend Expected backend name
-     * @param secret Shared secret
+     * @param keys Accepted keys
+     * @param replayCache Nonces of messages already accepted, or null to skip the replay check
      * @return Decoded message info, or null if validation failed
      */
     @Nullable
@@ -127,10 +207,11 @@ public class SecretMessageUtil {
             @Nonnull UUID expectedUuid,
             @Nonnull String expectedUsername,
             @Nonnull String expectedBackend,
-            @Nonnull byte[] secret) {
+            @Nonnull ReferralKeyRing keys,
+            @Nullable ReferralReplayCache replayCache) {
 
         try {
-            if (data.readableBytes() < 4 + 16 + 4 + 4 + 4 + 4 + HMAC_LENGTH) {
+            if (data.readableBytes() < LEGACY_FIXED_LENGTH) {
                 LOGGER.warning("Referral data too short: " + data.readableBytes() + " bytes");
                 return null;
             }
@@ -139,45 +220,30 @@ public class SecretMessageUtil {
 
             // Read protocol version
             int version = data.readIntLE();
-            if (version != PROTOCOL_VERSION) {
+            if (version != PROTOCOL_VERSION && version != LEGACY_PROTOCOL_VERSION) {
                 LOGGER.warning("Invalid protocol version: " + version + " (expected " + PROTOCOL_VERSION + ")");
                 return null;
             }
 
+            boolean legacy = version == LEGACY_PROTOCOL_VERSION;
+            if (!legacy && data.readableBytes() < FIXED_LENGTH - 4) {
+                LOGGER.warning("Referral data too short: " + (data.readableBytes() + 4) + " bytes");
+                return null;
+            }
+            byte keyId = legacy ? 0 : data.readByte();
+            long nonce = legacy ? 0 : data.readLongLE();
+
             // Read UUID
             long uuidMsb = data.readLongLE();
             long uuidLsb = data.readLongLE();
             UUID uuid = new UUID(uuidMsb, uuidLsb);
 
-            // Read username
-            int usernameLen = data.readIntLE();
-            if (usernameLen < 0 || usernameLen > 256) {
-                LOGGER.warning("Invalid username length: " + usernameLen);
-                return null;
-            }
-            byte[] usernameBytes = new byte[usernameLen];
-            data.readBytes(usernameBytes);
-            String username = new String(usernameBytes, StandardCharsets.UTF_8);
-
-            // Read backend name
-            int backendLen = data.readIntLE();
-            if (backendLen < 0 || backendLen > 256) {
-                LOGGER.warning("Invalid backend name length: " + backendLen);
-                return null;
-            }
-            byte[] backendBytes = new byte[backendLen];
-            data.readBytes(backendBytes);
-            String backendName = new String(backendBytes, StandardCharsets.UTF_8);
-
-            // Read remote address
-            int remoteLen = data.readIntLE();
-            if (remoteLen < 0 || remoteLen > 256) {
-                LOGGER.warning("Invalid remote address length: " + remoteLen);
+            String username = readString(data, "username");
+            String backendName = username != null ? readString(data, "backend name") : null;
+            String remoteAddress = backendName != null ? readString(data, "remote address") : null;
+            if (remoteAddress == null || data.readableBytes() < 4 + HMAC_LENGTH) {
                 return null;
             }
-            byte[] remoteBytes = new byte[remoteLen];
-            data.readBytes(remoteBytes);
-            String remoteAddress = new String(remoteBytes, StandardCharsets.UTF_8);
 
             // Read timestamp
             int timestamp = data.readIntLE();
@@ -189,19 +255,11 @@ public class SecretMessageUtil {
                 return null;
             }
 
-            // Read HMAC
-            byte[] receivedHmac = new byte[HMAC_LENGTH];
-            data.readBytes(receivedHmac);
-
-            // Calculate expected HMAC
-            int dataLength = data.readerIndex() - startIndex - HMAC_LENGTH;
-            byte[] dataToVerify = new byte[dataLength];
-            data.getBytes(startIndex, dataToVerify);
-
-            byte[] expectedHmac = calculateHmac(dataToVerify, secret);
-
-            // Constant-time comparison
-            if (!constantTimeEquals(receivedHmac, expectedHmac)) {
+            // Verify the HMAC in place
+            int signedLength = data.readerIndex() - startIndex;
+            int hmacIndex = data.readerIndex();
+            data.skipBytes(HMAC_LENGTH);
+            if (!verifyHmac(keys, legacy, keyId, data, startIndex, signedLength, hmacIndex)) {
                 LOGGER.warning("HMAC verification failed for player " + username);
                 return null;
             }
@@ -222,7 +280,14 @@ public class SecretMessageUtil {
                 LOGGER.warning("Backend mismatch: got '" + backendName + "', expected '" + expectedBackend + "'");
                 return null;
             }
-            
+
+            // Only signed messages reach the replay cache, so it cannot be filled by forgeries
+            if (!legacy && replayCache != null
+                    && !replayCache.markUsed(nonce, (long) timestamp + MESSAGE_VALIDITY_SECONDS, now)) {
+                LOGGER.warning("Replayed referral message for player " + username);
+                return null;
+            }
+
             LOGGER.info("Referral validation successful for " + username + " -> " + backendName);
 
             return new BackendPlayerInfoMessage(uuid, username, backendName, remoteAddress, timestamp);
@@ -242,25 +307,78 @@ public class SecretMessageUtil {
      */
     public static byte[] calculateHmac(byte[] data, byte[] secret) {
         try {
-            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
-            SecretKeySpec keySpec = new SecretKeySpec(secret, HMAC_ALGORITHM);
-            mac.init(keySpec);
+            Mac mac = Mac.getInstance(ReferralKeyRing.HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ReferralKeyRing.HMAC_ALGORITHM));
             return mac.doFinal(data);
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+        } catch (GeneralSecurityException e) {
             throw new RuntimeException("Failed to calculate HMAC", e);
         }
     }
 
+    // ==================== Internal ====================
+
+    private static void checkVersion(int version) {
+        if (version != PROTOCOL_VERSION && version != LEGACY_PROTOCOL_VERSION) {
+            throw new IllegalArgumentException("Unsupported referral version: " + version);
+        }
+    }
+
+    private static void writeString(ByteBuf out, String value) {
+        int length = ByteBufUtil.utf8Bytes(value);
+        out.writeIntLE(length);
+        ByteBufUtil.reserveAndWriteUtf8(out, value, length);
+    }
+
+    @Nullable
+    private static String readString(ByteBuf data, String field) {
+        int length = data.readableBytes() >= 4 ? data.readIntLE() : -1;
+        if (length < 0 || length > MAX_STRING_LENGTH || data.readableBytes() < length) {
+            LOGGER.warning("Invalid " + field + " length: " + length);
+            return null;
+        }
+        String value = data.toString(data.readerIndex(), length, StandardCharsets.UTF_8);
+        data.skipBytes(length);
+        return value;
+    }
+
+    private static boolean verifyHmac(ReferralKeyRing keys, boolean legacy, byte keyId,
+                                      ByteBuf data, int index, int length, int hmacIndex) {
+        byte[] expected = HMAC_SCRATCH.get();
+        for (ReferralKeyRing.Key key : keys.keys()) {
+            if (!legacy && key.id() != keyId) {
+                continue;
+            }
+            computeHmac(key, data, index, length, expected);
+            if (constantTimeEquals(data, hmacIndex, expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void computeHmac(ReferralKeyRing.Key key, ByteBuf data, int index, int length, byte[] out) {
+        Mac mac = key.mac();
+        if (data.nioBufferCount() == 1) {
+            mac.update(data.nioBuffer(index, length));
+        } else {
+            for (ByteBuffer buffer : data.nioBuffers(index, length)) {
+                mac.update(buffer);
+            }
+        }
+        try {
+            mac.doFinal(out, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException("HMAC output buffer too small", e);
+        }
+    }
+
     /**
-     * Constant-time byte array comparison to prevent timing attacks.
+     * Constant-time comparison against bytes in a buffer, to prevent timing attacks.
      */
-    private static boolean constantTimeEquals(byte[] a, byte[] b) {
-        if (a.length != b.length) {
-            return false;
-        }
+    private static boolean constantTimeEquals(ByteBuf data, int index, byte[] expected) {
         int result = 0;
-        for (int i = 0; i < a.length; i++) {
-            result |= a[i] ^ b[i];
+        for (int i = 0; i < expected.length; i++) {
+            result |= data.getByte(index + i) ^ expected[i];
         }
         return result == 0;
     }
@@ -0,0 +1,46 @@
+package me.internalizable.numdrassl.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReferralKeyRingTest {
+
+    private static final byte[] SIGNING = "signing".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PREVIOUS = "previous".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void firstSecretSigns() {
+        ReferralKeyRing keys = ReferralKeyRing.of(SIGNING, PREVIOUS);
+
+        assertEquals(2, keys.size());
+        assertEquals(ReferralKeyRing.keyId(SIGNING), keys.signingKey().id());
+    }
+
+    @Test
+    void emptyAdditionalSecretsAreSkipped() {
+        assertEquals(1, ReferralKeyRing.of(SIGNING, new byte[0], null).size());
+    }
+
+    @Test
+    void keyIdDependsOnlyOnSecret() {
+        assertEquals(ReferralKeyRing.keyId(PREVIOUS), ReferralKeyRing.of(SIGNING, PREVIOUS).keys().get(1).id());
+        assertEquals(ReferralKeyRing.of(PREVIOUS).signingKey().id(), ReferralKeyRing.of(PREVIOUS, SIGNING).signingKey().id());
+    }
+
+    @Test
+    void macMatchesOneShotHmac() {
+        byte[] data = "payload".getBytes(StandardCharsets.UTF_8);
+        ReferralKeyRing.Key key = ReferralKeyRing.of(SIGNING).signingKey();
+
+        // Reused per thread, so a second use must not see state from the first
+        key.mac().update(data);
+        byte[] reused = key.mac().doFinal(data);
+
+        assertEquals(HexFormat.of().formatHex(SecretMessageUtil.calculateHmac(data, SIGNING)),
+            HexFormat.of().formatHex(reused));
+    }
+}
@@ -0,0 +1,41 @@
+package me.internalizable.numdrassl.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReferralReplayCacheTest {
+
+    @Test
+    void nonceIsAcceptedOnce() {
+        ReferralReplayCache cache = new ReferralReplayCache();
+
+        assertTrue(cache.markUsed(1, 400, 100));
+        assertFalse(cache.markUsed(1, 400, 200));
+        assertTrue(cache.markUsed(2, 400, 200));
+    }
+
+    @Test
+    void expiredNoncesAreForgotten() {
+        ReferralReplayCache cache = new ReferralReplayCache();
+        cache.markUsed(1, 400, 100);
+        cache.markUsed(2, 500, 100);
+
+        assertTrue(cache.markUsed(3, 900, 450));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void fullCacheDropsOldestNonce() {
+        ReferralReplayCache cache = new ReferralReplayCache(2);
+        cache.markUsed(1, 400, 100);
+        cache.markUsed(2, 400, 100);
+        cache.markUsed(3, 400, 100);
+
+        assertEquals(2, cache.size());
+        assertFalse(cache.markUsed(3, 400, 100));
+        assertTrue(cache.markUsed(1, 400, 100));
+    }
+}
@@ -0,0 +1,124 @@
+package me.internalizable.numdrassl.common;
+
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SecretMessageUtilTest {
+
+    private static final UUID PLAYER = UUID.fromString("1b671a64-40d5-491e-99b0-da01ff1f3341");
+    private static final String USERNAME = "Alice";
+    private static final String BACKEND = "lobby";
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 40000);
+
+    private static final byte[] OLD_SECRET = "old-secret".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEW_SECRET = "new-secret".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void signedMessageVerifies() {
+        ReferralKeyRing keys = ReferralKeyRing.of(NEW_SECRET);
+        byte[] message = referral(keys, SecretMessageUtil.PROTOCOL_VERSION);
+
+        SecretMessageUtil.BackendPlayerInfoMessage info = validate(message, keys, new ReferralReplayCache());
+
+        assertNotNull(info);
+        assertEquals(PLAYER, info.uuid());
+        assertEquals(USERNAME, info.username());
+        assertEquals(BACKEND, info.backendName());
+        assertEquals(ADDRESS.toString(), info.remoteAddress());
+    }
+
+    @Test
+    void tamperedMessageIsRejected() {
+        ReferralKeyRing keys = ReferralKeyRing.of(NEW_SECRET);
+        byte[] message = referral(keys, SecretMessageUtil.PROTOCOL_VERSION);
+
+        // Every byte is covered: fields by the HMAC, the HMAC by itself
+        for (int i = 0; i < message.length; i++) {
+            byte[] tampered = message.clone();
+            tampered[i] ^= 0x01;
+            assertNull(validate(tampered, keys, null), "flipped byte " + i);
+        }
+    }
+
+    @Test
+    void wrongSecretIsRejected() {
+        byte[] message = referral(ReferralKeyRing.of(OLD_SECRET), SecretMessageUtil.PROTOCOL_VERSION);
+
+        assertNull(validate(message, ReferralKeyRing.of(NEW_SECRET), null));
+    }
+
+    @Test
+    void mismatchedPlayerOrBackendIsRejected() {
+        ReferralKeyRing keys = ReferralKeyRing.of(NEW_SECRET);
+        byte[] message = referral(keys, SecretMessageUtil.PROTOCOL_VERSION);
+
+        assertNull(SecretMessageUtil.validateAndDecodePlayerInfoReferral(
+            Unpooled.wrappedBuffer(message), UUID.randomUUID(), USERNAME, BACKEND, keys, null));
+        assertNull(SecretMessageUtil.validateAndDecodePlayerInfoReferral(
+            Unpooled.wrappedBuffer(message), PLAYER, "Mallory", BACKEND, keys, null));
+        assertNull(SecretMessageUtil.validateAndDecodePlayerInfoReferral(
+            Unpooled.wrappedBuffer(message), PLAYER, USERNAME, "survival", keys, null));
+    }
+
+    @Test
+    void replayIsRejected() {
+        ReferralKeyRing keys = ReferralKeyRing.of(NEW_SECRET);
+        ReferralReplayCache replays = new ReferralReplayCache();
+        byte[] message = referral(keys, SecretMessageUtil.PROTOCOL_VERSION);
+
+        assertNotNull(validate(message, keys, replays));
+        assertNull(validate(message, keys, replays));
+        // A fresh message for the same player has a new nonce
+        assertNotNull(validate(referral(keys, SecretMessageUtil.PROTOCOL_VERSION), keys, replays));
+    }
+
+    @Test
+    void previousSecretIsAcceptedDuringRotation() {
+        byte[] signedBeforeRotation = referral(ReferralKeyRing.of(OLD_SECRET), SecretMessageUtil.PROTOCOL_VERSION);
+        ReferralKeyRing rotating = ReferralKeyRing.of(NEW_SECRET, OLD_SECRET);
+
+        assertNotNull(validate(signedBeforeRotation, rotating, null));
+        assertNotNull(validate(referral(rotating, SecretMessageUtil.PROTOCOL_VERSION), ReferralKeyRing.of(NEW_SECRET), null));
+
+        // Once the old secret is dropped, its messages are no longer accepted
+        assertNull(validate(signedBeforeRotation, ReferralKeyRing.of(NEW_SECRET), null));
+    }
+
+    @Test
+    void legacyMessageVerifies() {
+        byte[] legacy = referral(ReferralKeyRing.of(OLD_SECRET), SecretMessageUtil.LEGACY_PROTOCOL_VERSION);
+
+        // Version 1 has no key ID, so every accepted key is tried
+        assertNotNull(validate(legacy, ReferralKeyRing.of(NEW_SECRET, OLD_SECRET), new ReferralReplayCache()));
+        assertNull(validate(legacy, ReferralKeyRing.of(NEW_SECRET), null));
+    }
+
+    @Test
+    void legacyMessageIsShorterThanCurrent() {
+        ReferralKeyRing keys = ReferralKeyRing.of(NEW_SECRET);
+        byte[] legacy = referral(keys, SecretMessageUtil.LEGACY_PROTOCOL_VERSION);
+        byte[] current = referral(keys, SecretMessageUtil.PROTOCOL_VERSION);
+
+        // No key ID and nonce
+        assertEquals(current.length - 9, legacy.length);
+        assertEquals(SecretMessageUtil.LEGACY_PROTOCOL_VERSION, Unpooled.wrappedBuffer(legacy).readIntLE());
+    }
+
+    private static byte[] referral(ReferralKeyRing keys, int version) {
+        return SecretMessageUtil.createPlayerInfoReferral(PLAYER, USERNAME, BACKEND, ADDRESS, keys, version);
+    }
+
+    private static SecretMessageUtil.BackendPlayerInfoMessage validate(
+            byte[] message, ReferralKeyRing keys, ReferralReplayCache replays) {
+        return SecretMessageUtil.validateAndDecodePlayerInfoReferral(
+            Unpooled.wrappedBuffer(message), PLAYER, USERNAME, BACKEND, keys, replays);
+    }
+}
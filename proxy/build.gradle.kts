@@ -68,6 +68,17 @@ dependencies {
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
+// Packet codecs generated from src/main/protocol/packets.schema (see buildSrc/GenerateProtocolCodecs.kt)
+val generateProtocolCodecs by tasks.registering(GenerateProtocolCodecs::class) {
+    schema.set(layout.projectDirectory.file("src/main/protocol/packets.schema"))
+    codecPackage.set("com.hypixel.hytale.protocol.codec")
+    outputDirectory.set(layout.buildDirectory.dir("generated/sources/protocol/java/main"))
+}
+
+sourceSets.main {
+    java.srcDir(generateProtocolCodecs)
+}
+
 application {
     mainClass.set("me.internalizable.numdrassl.Main")
 }
@@ -76,6 +87,33 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// JMH benchmarks in src/jmh/java. Not part of build; run with ./gradlew :proxy:jmh,
+// select benchmarks with -Pjmh.include=ChatSend and pass JMH options with -Pjmh.args="-prof gc"
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    val jmhVersion = "1.37"
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args(listOfNotNull(findProperty("jmh.include")?.toString()))
+    args(findProperty("jmh.args")?.toString()?.split(" ")?.filter { it.isNotBlank() } ?: emptyList<String>())
+    args("-rf", "json", "-rff", layout.buildDirectory.file("reports/jmh/results.json").get().asFile.path)
+    doFirst { layout.buildDirectory.dir("reports/jmh").get().asFile.mkdirs() }
+}
+
 tasks.withType<JavaCompile> {
     options.compilerArgs.addAll(listOf("-Xlint:-unchecked", "-Xlint:-deprecation"))
 }
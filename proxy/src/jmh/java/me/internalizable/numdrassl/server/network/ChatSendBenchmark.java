@@ -0,0 +1,84 @@
+package me.internalizable.numdrassl.server.network;
+
+import com.hypixel.hytale.protocol.packets.interface_.ChatType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import me.internalizable.numdrassl.api.chat.ChatMessageBuilder;
+import me.internalizable.numdrassl.api.chat.ChatMessageTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Send cost of a repeated chat message: converting and encoding it on every send, a hit
+ * in the encoded message cache, and rendering a compiled template for one recipient.
+ * Each operation ends with the bytes written to an outbound buffer, as sendToClient does.
+ *
+ * <p>Run with {@code ./gradlew :proxy:jmh -Pjmh.include=ChatSend}; add
+ * {@code -Pjmh.args="-prof gc"} to see bytes allocated per send.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatSendBenchmark {
+
+    private ChatMessageBuilder motd;
+    private ChatMessageTemplate welcome;
+    private Map<String, String> values;
+    private ByteBuf out;
+
+    @Setup
+    public void setUp() {
+        motd = ChatMessageBuilder.create()
+            .gold("Welcome to ")
+            .bold("Numdrassl", "#55FFFF")
+            .white("! Type /help to get started.");
+        welcome = ChatMessageTemplate.of(ChatMessageBuilder.create()
+            .gold("[{server}] ")
+            .white("Welcome, {player}")
+            .gray(" - have fun"));
+        values = Map.of("player", "Alice", "server", "lobby");
+        out = Unpooled.buffer(256);
+    }
+
+    @Benchmark
+    public ByteBuf convertOnEverySend() {
+        out.clear();
+        ChatMessageConverter.toServerMessage(motd, ChatType.Chat).serialize(out);
+        return out;
+    }
+
+    @Benchmark
+    public ByteBuf encodedCacheHit() {
+        out.clear();
+        ChatMessageConverter.toCachedServerMessage(motd, ChatType.Chat).serialize(out);
+        return out;
+    }
+
+    @Benchmark
+    public ByteBuf resolveTemplateOnEverySend() {
+        out.clear();
+        ChatMessageConverter.toServerMessage(welcome.resolve(values), ChatType.Chat).serialize(out);
+        return out;
+    }
+
+    @Benchmark
+    public ByteBuf renderCompiledTemplate() {
+        out.clear();
+        ChatMessageConverter.toServerMessage(welcome, values).serialize(out);
+        return out;
+    }
+}
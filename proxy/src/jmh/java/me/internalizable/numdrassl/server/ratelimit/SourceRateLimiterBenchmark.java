@@ -0,0 +1,91 @@
+package me.internalizable.numdrassl.server.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-packet cost of the source rate limiter in the client pipeline: a game packet that
+ * is only counted against the total budget, a chat packet that is also counted against
+ * its type budget, and the limiter with every budget disabled as the baseline. The
+ * contended variant runs four threads on the same sketches, like four event loops.
+ *
+ * <p>Sources are drawn from a fixed pool, so the sketches see as many distinct
+ * addresses as a busy proxy. The budgets are high enough that every packet is
+ * allowed, as for well-behaved clients. Run with
+ * {@code ./gradlew :proxy:jmh -Pjmh.include=SourceRateLimiter}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SourceRateLimiterBenchmark {
+
+    private static final int SOURCES = 1 << 14;
+
+    private SourceRateLimiter limiter;
+    private SourceRateLimiter disabled;
+    private long[] sources;
+
+    @Setup
+    public void setUp() {
+        limiter = new SourceRateLimiter(0, Integer.MAX_VALUE, Map.of("ChatMessage", Integer.MAX_VALUE));
+        disabled = new SourceRateLimiter(0, 0, Map.of());
+        sources = new long[SOURCES];
+        SplittableRandom random = new SplittableRandom(36);
+        for (int i = 0; i < SOURCES; i++) {
+            sources[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Each benchmark thread walks the source pool from its own offset.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = new SplittableRandom().nextInt(SOURCES);
+
+        long source(long[] sources) {
+            next = (next + 1) & (SOURCES - 1);
+            return sources[next];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public SourceRateLimiter.Verdict disabledBudgets(Cursor cursor) {
+        return disabled.tryAcquirePacket(cursor.source(sources), "ClientMovement");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public SourceRateLimiter.Verdict gamePacket(Cursor cursor) {
+        return limiter.tryAcquirePacket(cursor.source(sources), "ClientMovement");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public SourceRateLimiter.Verdict chatPacket(Cursor cursor) {
+        return limiter.tryAcquirePacket(cursor.source(sources), "ChatMessage");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SourceRateLimiter.Verdict gamePacketContended(Cursor cursor) {
+        return limiter.tryAcquirePacket(cursor.source(sources), "ClientMovement");
+    }
+}
@@ -0,0 +1,120 @@
+package me.internalizable.numdrassl.session;
+
+import com.hypixel.hytale.protocol.packets.connection.Connect;
+import io.netty.incubator.codec.quic.QuicChannel;
+import me.internalizable.numdrassl.config.ProxyConfig;
+import me.internalizable.numdrassl.server.ProxyCore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up an online player by name: the linear {@code equalsIgnoreCase} scan that
+ * {@code getPlayer(String)} used to do, against the {@link SessionManager} username
+ * index, plus a tab-completion prefix lookup.
+ *
+ * <p>Names are looked up with their case changed, as players type them. The sessions
+ * never connect: their client channels are inert stand-ins, since only the identity
+ * and the index are exercised. Run with
+ * {@code ./gradlew :proxy:jmh -Pjmh.include=UsernameLookup}.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsernameLookupBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"100", "1000", "5000"})
+    public int players;
+
+    private SessionManager sessions;
+    private String[] lookups;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ProxyCore core = new ProxyCore(new ProxyConfig());
+        sessions = core.getSessionManager();
+        String[] names = new String[players];
+        for (int i = 0; i < players; i++) {
+            names[i] = "Player" + i;
+            ProxySession session = new ProxySession(core, inertChannel());
+            sessions.addSession(session);
+            Connect connect = new Connect();
+            connect.username = names[i];
+            connect.uuid = UUID.randomUUID();
+            session.handleConnectPacket(connect);
+            sessions.registerUsername(session);
+        }
+
+        SplittableRandom random = new SplittableRandom(40);
+        lookups = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = names[random.nextInt(players)].toUpperCase(Locale.ROOT);
+        }
+    }
+
+    @Benchmark
+    public Optional<ProxySession> scan() {
+        String username = nextName();
+        for (ProxySession session : sessions.getAllSessions()) {
+            if (username.equalsIgnoreCase(session.getUsername())) {
+                return Optional.of(session);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Benchmark
+    public Optional<ProxySession> index() {
+        return sessions.findByUsername(nextName());
+    }
+
+    @Benchmark
+    public List<ProxySession> prefix() {
+        String username = nextName();
+        return sessions.findByUsernamePrefix(username.substring(0, username.length() - 1), 10);
+    }
+
+    private String nextName() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return lookups[next];
+    }
+
+    /**
+     * A client channel that answers every call with null, false or zero.
+     */
+    private static QuicChannel inertChannel() {
+        return (QuicChannel) Proxy.newProxyInstance(QuicChannel.class.getClassLoader(),
+            new Class<?>[] {QuicChannel.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "inert-channel";
+                default -> {
+                    Class<?> type = method.getReturnType();
+                    yield type.isPrimitive() && type != void.class ? Array.get(Array.newInstance(type, 1), 0) : null;
+                }
+            });
+    }
+}
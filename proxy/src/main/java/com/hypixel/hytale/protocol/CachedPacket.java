@@ -4,6 +4,7 @@
 package com.hypixel.hytale.protocol;
 
 import com.hypixel.hytale.protocol.Packet;
+import com.hypixel.hytale.protocol.io.UnpooledAllocations;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import javax.annotation.Nonnull;
@@ -27,9 +28,17 @@ AutoCloseable {
         }
         ByteBuf buf = Unpooled.buffer();
         packet.serialize(buf);
+        UnpooledAllocations.record(UnpooledAllocations.Site.CACHED_PACKET, false, buf.capacity());
         return new CachedPacket(packet.getClass(), packet.getId(), buf);
     }
 
+    /**
+     * Wraps an already serialized payload. The cached packet takes ownership of {@code payload}.
+     */
+    public static <T extends Packet> CachedPacket<T> wrap(@Nonnull Class<T> packetType, int packetId, @Nonnull ByteBuf payload) {
+        return new CachedPacket<T>(packetType, packetId, payload);
+    }
+
     @Override
     public int getId() {
         return this.packetId;
@@ -631,6 +631,29 @@ public class FormattedMessage {
         return ValidationResult.OK;
     }
 
+    /**
+     * Concatenates the raw text of this message and all of its children, depth first,
+     * the same way as {@link FormattedMessageView#plainText()}.
+     * Translated ({@code messageId}) parts contribute nothing.
+     */
+    @Nonnull
+    public String plainText() {
+        StringBuilder sb = new StringBuilder();
+        this.appendPlainText(sb);
+        return sb.toString();
+    }
+
+    private void appendPlainText(StringBuilder sb) {
+        if (this.rawText != null) {
+            sb.append(this.rawText);
+        }
+        if (this.children != null) {
+            for (FormattedMessage child : this.children) {
+                child.appendPlainText(sb);
+            }
+        }
+    }
+
     public FormattedMessage clone() {
         FormattedMessage copy = new FormattedMessage();
         copy.rawText = this.rawText;
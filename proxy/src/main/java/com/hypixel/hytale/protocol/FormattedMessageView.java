@@ -0,0 +1,179 @@
+package com.hypixel.hytale.protocol;
+
+import com.hypixel.hytale.protocol.io.PacketIO;
+import com.hypixel.hytale.protocol.io.VarInt;
+import io.netty.buffer.ByteBuf;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Read-only flyweight over an encoded {@link FormattedMessage}.
+ *
+ * <p>Fields are decoded from the underlying buffer on access, so checking a style bit
+ * or reading one text field does not build the recursive {@code children} array or the
+ * {@code params}/{@code messageParams} maps. Call {@link #materialize()} to obtain a full,
+ * mutable {@link FormattedMessage}.</p>
+ *
+ * <p>The layout mirrors {@link FormattedMessage#serialize(ByteBuf)}: a null-bit byte,
+ * five fixed bytes, seven little-endian offset slots and the variable block starting at
+ * {@link FormattedMessage#VARIABLE_BLOCK_START}.</p>
+ */
+public final class FormattedMessageView {
+    private static final int RAW_TEXT_BIT = 1;
+    private static final int MESSAGE_ID_BIT = 2;
+    private static final int CHILDREN_BIT = 4;
+    private static final int PARAMS_BIT = 8;
+    private static final int MESSAGE_PARAMS_BIT = 0x10;
+    private static final int COLOR_BIT = 0x20;
+    private static final int LINK_BIT = 0x40;
+
+    private static final int RAW_TEXT_SLOT = 6;
+    private static final int MESSAGE_ID_SLOT = 10;
+    private static final int CHILDREN_SLOT = 14;
+    private static final int COLOR_SLOT = 26;
+    private static final int LINK_SLOT = 30;
+
+    private final ByteBuf buf;
+    private final int offset;
+
+    private FormattedMessageView(ByteBuf buf, int offset) {
+        this.buf = buf;
+        this.offset = offset;
+    }
+
+    @Nonnull
+    public static FormattedMessageView of(@Nonnull ByteBuf buf, int offset) {
+        Objects.requireNonNull(buf, "buf");
+        return new FormattedMessageView(buf, offset);
+    }
+
+    @Nullable
+    public String rawText() {
+        return this.readString(RAW_TEXT_BIT, RAW_TEXT_SLOT);
+    }
+
+    @Nullable
+    public String messageId() {
+        return this.readString(MESSAGE_ID_BIT, MESSAGE_ID_SLOT);
+    }
+
+    @Nullable
+    public String color() {
+        return this.readString(COLOR_BIT, COLOR_SLOT);
+    }
+
+    @Nullable
+    public String link() {
+        return this.readString(LINK_BIT, LINK_SLOT);
+    }
+
+    @Nonnull
+    public MaybeBool bold() {
+        return MaybeBool.fromValue(this.buf.getByte(this.offset + 1));
+    }
+
+    @Nonnull
+    public MaybeBool italic() {
+        return MaybeBool.fromValue(this.buf.getByte(this.offset + 2));
+    }
+
+    @Nonnull
+    public MaybeBool monospace() {
+        return MaybeBool.fromValue(this.buf.getByte(this.offset + 3));
+    }
+
+    @Nonnull
+    public MaybeBool underlined() {
+        return MaybeBool.fromValue(this.buf.getByte(this.offset + 4));
+    }
+
+    public boolean markupEnabled() {
+        return this.buf.getByte(this.offset + 5) != 0;
+    }
+
+    public boolean hasParams() {
+        return (this.nullBits() & PARAMS_BIT) != 0;
+    }
+
+    public boolean hasMessageParams() {
+        return (this.nullBits() & MESSAGE_PARAMS_BIT) != 0;
+    }
+
+    public int childCount() {
+        if ((this.nullBits() & CHILDREN_BIT) == 0) {
+            return 0;
+        }
+        return VarInt.peek(this.buf, this.variablePosition(CHILDREN_SLOT));
+    }
+
+    @Nonnull
+    public FormattedMessageView child(int index) {
+        int count = this.childCount();
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Child index " + index + " out of range for " + count + " children");
+        }
+        int pos = this.variablePosition(CHILDREN_SLOT);
+        pos += VarInt.length(this.buf, pos);
+        for (int i = 0; i < index; ++i) {
+            pos += FormattedMessage.computeBytesConsumed(this.buf, pos);
+        }
+        return new FormattedMessageView(this.buf, pos);
+    }
+
+    /**
+     * Concatenates the raw text of this message and all of its children, depth first.
+     * Translated ({@code messageId}) parts contribute nothing.
+     */
+    @Nonnull
+    public String plainText() {
+        StringBuilder sb = new StringBuilder();
+        this.appendPlainText(sb);
+        return sb.toString();
+    }
+
+    private void appendPlainText(StringBuilder sb) {
+        String text = this.rawText();
+        if (text != null) {
+            sb.append(text);
+        }
+        int count = this.childCount();
+        if (count <= 0) {
+            return;
+        }
+        int pos = this.variablePosition(CHILDREN_SLOT);
+        pos += VarInt.length(this.buf, pos);
+        for (int i = 0; i < count; ++i) {
+            new FormattedMessageView(this.buf, pos).appendPlainText(sb);
+            pos += FormattedMessage.computeBytesConsumed(this.buf, pos);
+        }
+    }
+
+    public int encodedSize() {
+        return FormattedMessage.computeBytesConsumed(this.buf, this.offset);
+    }
+
+    /**
+     * Decodes the full object graph. Each call returns a new, independent instance.
+     */
+    @Nonnull
+    public FormattedMessage materialize() {
+        return FormattedMessage.deserialize(this.buf, this.offset);
+    }
+
+    private byte nullBits() {
+        return this.buf.getByte(this.offset);
+    }
+
+    private int variablePosition(int slot) {
+        return this.offset + FormattedMessage.VARIABLE_BLOCK_START + this.buf.getIntLE(this.offset + slot);
+    }
+
+    @Nullable
+    private String readString(int bit, int slot) {
+        if ((this.nullBits() & bit) == 0) {
+            return null;
+        }
+        return PacketIO.readVarString(this.buf, this.variablePosition(slot), PacketIO.UTF8);
+    }
+}
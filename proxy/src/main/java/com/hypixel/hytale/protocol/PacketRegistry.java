@@ -3,6 +3,11 @@
  */
 package com.hypixel.hytale.protocol;
 
+import com.hypixel.hytale.protocol.codec.AuthGrantCodec;
+import com.hypixel.hytale.protocol.codec.AuthTokenCodec;
+import com.hypixel.hytale.protocol.codec.ConnectAcceptCodec;
+import com.hypixel.hytale.protocol.codec.PasswordResponseCodec;
+import com.hypixel.hytale.protocol.codec.ServerAuthTokenCodec;
 import com.hypixel.hytale.protocol.io.ValidationResult;
 import com.hypixel.hytale.protocol.packets.auth.AuthGrant;
 import com.hypixel.hytale.protocol.packets.auth.AuthToken;
@@ -19,6 +24,7 @@ import com.hypixel.hytale.protocol.packets.connection.Ping;
 import com.hypixel.hytale.protocol.packets.connection.Pong;
 import com.hypixel.hytale.protocol.packets.interface_.ChatMessage;
 import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
+import com.hypixel.hytale.protocol.packets.interface_.ServerMessageView;
 import io.netty.buffer.ByteBuf;
 import me.internalizable.numdrassl.event.packet.ProxyPing;
 import me.internalizable.numdrassl.event.packet.ProxyPong;
@@ -34,6 +40,8 @@ public final class PacketRegistry {
     private static final Map<Integer, PacketInfo> BY_ID = new HashMap<Integer, PacketInfo>();
     private static final Map<Integer, PacketInfo> BY_ID_UNMODIFIABLE = Collections.unmodifiableMap(BY_ID);
     private static final Map<Class<? extends Packet>, Integer> BY_TYPE = new HashMap<Class<? extends Packet>, Integer>();
+    private static final boolean GENERATED_CODECS = Boolean.parseBoolean(System.getProperty("hytale.protocol.generatedCodecs", "false"));
+    private static final boolean LAZY_SERVER_MESSAGE = Boolean.parseBoolean(System.getProperty("hytale.protocol.lazyServerMessage", "false"));
 
     private PacketRegistry() {
     }
@@ -69,15 +77,21 @@ public final class PacketRegistry {
         PacketRegistry.register(2, "Ping", Ping.class, 29, 29, false, Ping::validateStructure, Ping::deserialize);
         PacketRegistry.register(3, "Pong", Pong.class, 20, 20, false, Pong::validateStructure, Pong::deserialize);
         PacketRegistry.register(10, "Status", Status.class, 9, 2587, false, Status::validateStructure, Status::deserialize);
-        PacketRegistry.register(11, "AuthGrant", AuthGrant.class, 1, 49171, false, AuthGrant::validateStructure, AuthGrant::deserialize);
-        PacketRegistry.register(12, "AuthToken", AuthToken.class, 1, 49171, false, AuthToken::validateStructure, AuthToken::deserialize);
-        PacketRegistry.register(13, "ServerAuthToken", ServerAuthToken.class, 1, 32851, false, ServerAuthToken::validateStructure, ServerAuthToken::deserialize);
-        PacketRegistry.register(14, "ConnectAccept", ConnectAccept.class, 1, 70, false, ConnectAccept::validateStructure, ConnectAccept::deserialize);
-        PacketRegistry.register(15, "PasswordResponse", PasswordResponse.class, 1, 70, false, PasswordResponse::validateStructure, PasswordResponse::deserialize);
+        PacketRegistry.register(11, "AuthGrant", AuthGrant.class, 1, 49171, false, GENERATED_CODECS ? AuthGrantCodec::validateStructure : AuthGrant::validateStructure, GENERATED_CODECS ? AuthGrantCodec::deserialize : AuthGrant::deserialize);
+        PacketRegistry.register(12, "AuthToken", AuthToken.class, 1, 49171, false, GENERATED_CODECS ? AuthTokenCodec::validateStructure : AuthToken::validateStructure, GENERATED_CODECS ? AuthTokenCodec::deserialize : AuthToken::deserialize);
+        PacketRegistry.register(13, "ServerAuthToken", ServerAuthToken.class, 1, 32851, false, GENERATED_CODECS ? ServerAuthTokenCodec::validateStructure : ServerAuthToken::validateStructure, GENERATED_CODECS ? ServerAuthTokenCodec::deserialize : ServerAuthToken::deserialize);
+        PacketRegistry.register(14, "ConnectAccept", ConnectAccept.class, 1, 70, false, GENERATED_CODECS ? ConnectAcceptCodec::validateStructure : ConnectAccept::validateStructure, GENERATED_CODECS ? ConnectAcceptCodec::deserialize : ConnectAccept::deserialize);
+        PacketRegistry.register(15, "PasswordResponse", PasswordResponse.class, 1, 70, false, GENERATED_CODECS ? PasswordResponseCodec::validateStructure : PasswordResponse::validateStructure, GENERATED_CODECS ? PasswordResponseCodec::deserialize : PasswordResponse::deserialize);
         PacketRegistry.register(16, "PasswordAccepted", PasswordAccepted.class, 0, 0, false, PasswordAccepted::validateStructure, PasswordAccepted::deserialize);
         PacketRegistry.register(17, "PasswordRejected", PasswordRejected.class, 5, 74, false, PasswordRejected::validateStructure, PasswordRejected::deserialize);
         PacketRegistry.register(18, "ClientReferral", ClientReferral.class, 1, 5141, false, ClientReferral::validateStructure, ClientReferral::deserialize);
-        PacketRegistry.register(210, "ServerMessage", ServerMessage.class, 2, 0x64000000, false, ServerMessage::validateStructure, ServerMessage::deserialize);
+        if (LAZY_SERVER_MESSAGE) {
+            PacketRegistry.register(210, "ServerMessage", ServerMessageView.class, 2, 0x64000000, false, ServerMessage::validateStructure, ServerMessageView::deserialize);
+        } else {
+            PacketRegistry.register(210, "ServerMessage", ServerMessage.class, 2, 0x64000000, false, ServerMessage::validateStructure, ServerMessage::deserialize);
+        }
+        BY_TYPE.put(ServerMessage.class, 210);
+        BY_TYPE.put(ServerMessageView.class, 210);
         PacketRegistry.register(211, "ChatMessage", ChatMessage.class, 1, 16384006, false, ChatMessage::validateStructure, ChatMessage::deserialize);
         PacketRegistry.register(998, "ProxyPing", ProxyPing.class, 16, 16, false, ProxyPing::validateStructure, ProxyPing::deserialize);
         PacketRegistry.register(999, "ProxyPong", ProxyPong.class, 16, 16, false, ProxyPong::validateStructure, ProxyPong::deserialize);
@@ -0,0 +1,64 @@
+package com.hypixel.hytale.protocol.codec;
+
+import com.hypixel.hytale.protocol.io.PacketIO;
+import com.hypixel.hytale.protocol.io.ProtocolException;
+import com.hypixel.hytale.protocol.io.VarInt;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import javax.annotation.Nonnull;
+
+/**
+ * Runtime helpers shared by the codecs generated from {@code src/main/protocol/packets.schema}.
+ *
+ * <p>Every read is bounds-checked against the buffer's writer index, so a generated
+ * {@code deserialize} validates the structure while decoding it. The generated
+ * {@code validateStructure} makes the same checks inline, without reading any values.</p>
+ */
+public final class CodecSupport {
+    private CodecSupport() {
+    }
+
+    /**
+     * Resolves an offset slot to an absolute position in the variable block.
+     */
+    public static int variablePosition(@Nonnull ByteBuf buf, int offset, int slot, int variableBlockStart, @Nonnull String field) {
+        int fieldOffset = buf.getIntLE(offset + slot);
+        int pos = offset + variableBlockStart + fieldOffset;
+        if (fieldOffset < 0 || pos >= buf.writerIndex()) {
+            throw ProtocolException.invalidOffset(field, fieldOffset, buf.writerIndex());
+        }
+        return pos;
+    }
+
+    @Nonnull
+    public static String readString(@Nonnull ByteBuf buf, int pos, int maxLength, @Nonnull String field) {
+        int len = VarInt.peek(buf, pos);
+        if (len < 0) {
+            throw ProtocolException.negativeLength(field, len);
+        }
+        if (len > maxLength) {
+            throw ProtocolException.stringTooLong(field, len, maxLength);
+        }
+        int end = pos + VarInt.length(buf, pos) + len;
+        if (end > buf.writerIndex()) {
+            throw ProtocolException.bufferTooSmall(field, end - pos, buf.writerIndex() - pos);
+        }
+        return PacketIO.readVarString(buf, pos, PacketIO.UTF8);
+    }
+
+    @Nonnull
+    public static byte[] readBytes(@Nonnull ByteBuf buf, int pos, int maxLength, @Nonnull String field) {
+        int count = VarInt.peek(buf, pos);
+        if (count < 0) {
+            throw ProtocolException.negativeLength(field, count);
+        }
+        if (count > maxLength) {
+            throw ProtocolException.arrayTooLong(field, count, maxLength);
+        }
+        int start = pos + VarInt.length(buf, pos);
+        if (start + count > buf.writerIndex()) {
+            throw ProtocolException.bufferTooSmall(field, start + count - pos, buf.writerIndex() - pos);
+        }
+        return ByteBufUtil.getBytes(buf, start, count);
+    }
+}
@@ -8,8 +8,10 @@ import com.hypixel.hytale.protocol.Packet;
 import com.hypixel.hytale.protocol.PacketRegistry;
 import com.hypixel.hytale.protocol.io.PacketStatsRecorder;
 import com.hypixel.hytale.protocol.io.ProtocolException;
+import com.hypixel.hytale.protocol.io.UnpooledAllocations;
 import com.hypixel.hytale.protocol.io.VarInt;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -23,6 +25,9 @@ public final class PacketIO {
     public static final Charset UTF8 = StandardCharsets.UTF_8;
     public static final Charset ASCII = StandardCharsets.US_ASCII;
     private static final int COMPRESSION_LEVEL = Integer.getInteger("hytale.protocol.compressionLevel", Zstd.defaultCompressionLevel());
+    private static final int STRING_CACHE_SIZE = Integer.getInteger("hytale.protocol.stringCacheSize", 4096);
+    @Nullable
+    private static final StringInterner STRING_CACHE = STRING_CACHE_SIZE > 0 ? new StringInterner(Integer.highestOneBit(STRING_CACHE_SIZE)) : null;
 
     private PacketIO() {
     }
@@ -98,13 +103,29 @@ public final class PacketIO {
         return PacketIO.readVarString(buf, offset, StandardCharsets.US_ASCII);
     }
 
+    /**
+     * Decodes a VarInt-prefixed string straight from the buffer without an intermediate
+     * {@code byte[]}. Short ASCII strings (keys, translation IDs, colours) are served
+     * from a bounded interning cache; set {@code hytale.protocol.stringCacheSize=0}
+     * to disable it.
+     */
     @Nonnull
     public static String readVarString(@Nonnull ByteBuf buf, int offset, Charset charset) {
         int len = VarInt.peek(buf, offset);
-        int varIntLen = VarInt.length(buf, offset);
-        byte[] bytes = new byte[len];
-        buf.getBytes(offset + varIntLen, bytes);
-        return new String(bytes, charset);
+        int start = offset + VarInt.length(buf, offset);
+        if (len < 0 || start < offset || len > buf.capacity() - start) {
+            throw new IndexOutOfBoundsException("String of length " + len + " at " + offset + " exceeds buffer capacity " + buf.capacity());
+        }
+        if (len == 0) {
+            return "";
+        }
+        if (STRING_CACHE != null && (charset == StandardCharsets.UTF_8 || charset == StandardCharsets.US_ASCII)) {
+            String interned = STRING_CACHE.intern(buf, start, len);
+            if (interned != null) {
+                return interned;
+            }
+        }
+        return buf.toString(start, len, charset);
     }
 
     public static int utf8ByteLength(@Nonnull String s) {
@@ -167,22 +188,26 @@ public final class PacketIO {
         }
     }
 
+    /**
+     * Encodes a VarInt-prefixed UTF-8 string. The byte length is computed up front and
+     * the characters are written directly into the buffer, so no {@code byte[]} is built.
+     */
     public static void writeVarString(@Nonnull ByteBuf buf, @Nonnull String value, int maxLength) {
-        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
-        if (bytes.length > maxLength) {
-            throw new ProtocolException("String exceeds max bytes: " + bytes.length + " > " + maxLength);
+        int byteLength = ByteBufUtil.utf8Bytes(value);
+        if (byteLength > maxLength) {
+            throw new ProtocolException("String exceeds max bytes: " + byteLength + " > " + maxLength);
         }
-        VarInt.write(buf, bytes.length);
-        buf.writeBytes(bytes);
+        VarInt.write(buf, byteLength);
+        ByteBufUtil.reserveAndWriteUtf8(buf, value, byteLength);
     }
 
     public static void writeVarAsciiString(@Nonnull ByteBuf buf, @Nonnull String value, int maxLength) {
-        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
-        if (bytes.length > maxLength) {
-            throw new ProtocolException("String exceeds max bytes: " + bytes.length + " > " + maxLength);
+        int byteLength = value.length();
+        if (byteLength > maxLength) {
+            throw new ProtocolException("String exceeds max bytes: " + byteLength + " > " + maxLength);
         }
-        VarInt.write(buf, bytes.length);
-        buf.writeBytes(bytes);
+        VarInt.write(buf, byteLength);
+        buf.writeCharSequence(value, StandardCharsets.US_ASCII);
     }
 
     @Nonnull
@@ -269,6 +294,7 @@ public final class PacketIO {
                 throw new ProtocolException("Decompressed size " + decompressedSize + " exceeds maximum " + maxDecompressedSize);
             }
             ByteBuf dst = Unpooled.directBuffer((int)decompressedSize);
+            UnpooledAllocations.record(UnpooledAllocations.Site.DECOMPRESS, true, (int)decompressedSize);
             ByteBuffer dstNio = dst.nioBuffer(0, (int)decompressedSize);
             int result = Zstd.decompress(dstNio, srcNio);
             if (Zstd.isError(result)) {
@@ -288,6 +314,7 @@ public final class PacketIO {
             throw new ProtocolException("Decompressed size " + decompressedSize + " exceeds maximum " + maxDecompressedSize);
         }
         byte[] decompressed = Zstd.decompress(srcBytes, (int)decompressedSize);
+        UnpooledAllocations.record(UnpooledAllocations.Site.DECOMPRESS, false, decompressed.length);
         return Unpooled.wrappedBuffer(decompressed);
     }
 
@@ -303,7 +330,9 @@ public final class PacketIO {
         int lengthIndex = out.writerIndex();
         out.writeIntLE(0);
         out.writeIntLE(id);
-        ByteBuf payloadBuf = Unpooled.buffer(Math.min(info.maxSize(), 65536));
+        int payloadCapacity = Math.min(info.maxSize(), 65536);
+        ByteBuf payloadBuf = Unpooled.buffer(payloadCapacity);
+        UnpooledAllocations.record(UnpooledAllocations.Site.ENCODE_PAYLOAD, false, payloadCapacity);
         try {
             packet.serialize(payloadBuf);
             int serializedSize = payloadBuf.readableBytes();
@@ -0,0 +1,74 @@
+package com.hypixel.hytale.protocol.io;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Bounded, lock-free cache for short ASCII strings decoded from protocol buffers.
+ *
+ * <p>Chat and UI packets repeat the same keys, translation IDs and colours over and
+ * over. The interner hashes the encoded bytes in place and returns the previously
+ * decoded {@link String} on a hit, so a repeated field costs no allocation at all.</p>
+ *
+ * <p>The table is direct-mapped: a colliding string simply replaces the previous
+ * entry. Reads and writes of the slots race benignly because {@code String} is
+ * immutable and reference writes are atomic, so no locking is needed and memory is
+ * fixed at {@code capacity} references.</p>
+ */
+public final class StringInterner {
+    public static final int MAX_LENGTH = 64;
+
+    private final String[] table;
+    private final int mask;
+
+    public StringInterner(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        this.table = new String[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Returns the interned string for {@code length} bytes at {@code index}.
+     *
+     * @return the cached or newly decoded string, or {@code null} if the bytes are not
+     *         pure ASCII or too long to intern (the caller must decode them itself)
+     */
+    @Nullable
+    public String intern(@Nonnull ByteBuf buf, int index, int length) {
+        if (length > MAX_LENGTH) {
+            return null;
+        }
+        int hash = 0;
+        for (int i = 0; i < length; ++i) {
+            byte b = buf.getByte(index + i);
+            if (b < 0) {
+                return null;
+            }
+            hash = 31 * hash + b;
+        }
+        int slot = (hash ^ hash >>> 16) & this.mask;
+        String cached = this.table[slot];
+        if (cached != null && StringInterner.matches(cached, buf, index, length)) {
+            return cached;
+        }
+        String decoded = buf.toString(index, length, StandardCharsets.US_ASCII);
+        this.table[slot] = decoded;
+        return decoded;
+    }
+
+    private static boolean matches(String cached, ByteBuf buf, int index, int length) {
+        if (cached.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (cached.charAt(i) != buf.getByte(index + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package com.hypixel.hytale.protocol.io;
+
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+
+/**
+ * Counts the {@code Unpooled} buffers the protocol code allocates outside the channel's
+ * allocator, so they show up next to the pooled allocator's metrics.
+ *
+ * <p>Counting is a {@link LongAdder} increment, cheap enough for the per-packet encode
+ * and decompress paths.</p>
+ */
+public final class UnpooledAllocations {
+
+    /**
+     * Where an unpooled buffer was allocated.
+     */
+    public enum Site {
+        /** Decompressed payloads in {@code PacketIO.readFramedPacket}. */
+        DECOMPRESS("decompress"),
+        /** Serialization scratch buffers in {@code PacketIO.writeFramedPacket}. */
+        ENCODE_PAYLOAD("encode_payload"),
+        /** Serialized payloads held by {@code CachedPacket}. */
+        CACHED_PACKET("cached_packet");
+
+        private final String tag;
+
+        Site(String tag) {
+            this.tag = tag;
+        }
+
+        @Nonnull
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private static final Site[] SITES = Site.values();
+    // Indexed by site ordinal * 2 + (direct ? 1 : 0)
+    private static final LongAdder[] COUNTS = adders();
+    private static final LongAdder[] BYTES = adders();
+
+    private UnpooledAllocations() {
+    }
+
+    public static void record(@Nonnull Site site, boolean direct, int bytes) {
+        int index = index(site, direct);
+        COUNTS[index].increment();
+        BYTES[index].add(bytes);
+    }
+
+    public static long getCount(@Nonnull Site site, boolean direct) {
+        return COUNTS[index(site, direct)].sum();
+    }
+
+    /**
+     * Gets the capacity of the buffers allocated at a site, in bytes.
+     */
+    public static long getBytes(@Nonnull Site site, boolean direct) {
+        return BYTES[index(site, direct)].sum();
+    }
+
+    private static int index(Site site, boolean direct) {
+        return site.ordinal() * 2 + (direct ? 1 : 0);
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[SITES.length * 2];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
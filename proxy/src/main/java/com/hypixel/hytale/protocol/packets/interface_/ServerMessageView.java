@@ -0,0 +1,108 @@
+package com.hypixel.hytale.protocol.packets.interface_;
+
+import com.hypixel.hytale.protocol.FormattedMessageView;
+import com.hypixel.hytale.protocol.Packet;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Lazily decoded {@link ServerMessage}.
+ *
+ * <p>Decoding keeps only a heap copy of the packet's encoded bytes and the chat type.
+ * {@link #getMessage()} returns a {@link FormattedMessageView} that decodes individual
+ * fields on access. As long as nobody calls {@link #edit()}, {@link #serialize(ByteBuf)}
+ * re-encodes the packet by copying the original bytes verbatim.</p>
+ *
+ * <p>{@link #edit()} builds the full {@link ServerMessage} object graph once. From then
+ * on that instance is the source of truth and is what gets serialized.</p>
+ *
+ * <p>The bytes are copied out of the (pooled) decode buffer so the view has no
+ * reference-counted state and can be dropped like any other decoded packet.</p>
+ */
+public final class ServerMessageView
+implements Packet {
+    @Nonnull
+    private final ByteBuf encoded;
+    @Nonnull
+    private final ChatType type;
+    @Nullable
+    private ServerMessage edited;
+
+    private ServerMessageView(@Nonnull ByteBuf encoded, @Nonnull ChatType type) {
+        this.encoded = encoded;
+        this.type = type;
+    }
+
+    @Nonnull
+    public static ServerMessageView deserialize(@Nonnull ByteBuf buf, int offset) {
+        int length = ServerMessage.computeBytesConsumed(buf, offset);
+        ChatType type = ChatType.fromValue(buf.getByte(offset + 1));
+        ByteBuf copy = Unpooled.wrappedBuffer(ByteBufUtil.getBytes(buf, offset, length));
+        return new ServerMessageView(copy, type);
+    }
+
+    @Override
+    public int getId() {
+        return 210;
+    }
+
+    @Nonnull
+    public ChatType getType() {
+        return this.edited != null ? this.edited.type : this.type;
+    }
+
+    public boolean hasMessage() {
+        if (this.edited != null) {
+            return this.edited.message != null;
+        }
+        return (this.encoded.getByte(0) & 1) != 0;
+    }
+
+    /**
+     * Returns a read-only view of the original message, or {@code null} if the packet
+     * carries none. The view always reflects the bytes as received, even after {@link #edit()}.
+     */
+    @Nullable
+    public FormattedMessageView getMessage() {
+        if ((this.encoded.getByte(0) & 1) == 0) {
+            return null;
+        }
+        return FormattedMessageView.of(this.encoded, 2);
+    }
+
+    /**
+     * Returns the mutable, fully decoded packet, building it on first use.
+     * Changes made to the returned instance are what {@link #serialize(ByteBuf)} writes.
+     */
+    @Nonnull
+    public ServerMessage edit() {
+        if (this.edited == null) {
+            this.edited = ServerMessage.deserialize(this.encoded, 0);
+        }
+        return this.edited;
+    }
+
+    public boolean isEdited() {
+        return this.edited != null;
+    }
+
+    @Override
+    public void serialize(@Nonnull ByteBuf buf) {
+        if (this.edited != null) {
+            this.edited.serialize(buf);
+            return;
+        }
+        buf.writeBytes(this.encoded, 0, this.encoded.writerIndex());
+    }
+
+    @Override
+    public int computeSize() {
+        if (this.edited != null) {
+            return this.edited.computeSize();
+        }
+        return this.encoded.writerIndex();
+    }
+}
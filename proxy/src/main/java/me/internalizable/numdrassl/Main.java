@@ -6,6 +6,7 @@ import me.internalizable.numdrassl.command.ConsoleCommandSource;
 import me.internalizable.numdrassl.command.NumdrasslCommandManager;
 import me.internalizable.numdrassl.config.ProxyConfig;
 import me.internalizable.numdrassl.server.ProxyCore;
+import me.internalizable.numdrassl.server.network.BufferAllocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,6 +56,9 @@ public final class Main {
         ProxyConfig config = ProxyConfig.load(CONFIG_PATH);
         LOGGER.info("Configuration loaded from: {}", CONFIG_PATH);
 
+        // Before any buffer exists, as Netty creates its leak detector once
+        BufferAllocation.configureLeakDetection(config.getLeakDetectionLevel());
+
         proxyCore = new ProxyCore(config);
         ProxyAPI.init(proxyCore);
     }
@@ -151,14 +151,13 @@ public final class ProxyAPI {
 
     /**
      * Broadcast a packet to all connected players.
+     * The packet is encoded once and shared by all recipients.
      *
      * @param packet the packet to broadcast
      */
     public static void broadcast(@Nonnull Packet packet) {
         java.util.Objects.requireNonNull(packet, "packet");
-        for (ProxySession session : getAllSessions()) {
-            session.sendToClient(packet);
-        }
+        getCore().getSessionManager().broadcast(packet);
     }
 
     // =========================================
@@ -2,17 +2,20 @@ package me.internalizable.numdrassl.auth;
 
 import me.internalizable.numdrassl.auth.credential.CredentialStore;
 import me.internalizable.numdrassl.auth.http.HttpClientFactory;
+import me.internalizable.numdrassl.auth.http.SessionServiceClient;
 import me.internalizable.numdrassl.auth.oauth.OAuthDeviceFlow;
 import me.internalizable.numdrassl.auth.oauth.OAuthTokenRefresher;
 import me.internalizable.numdrassl.auth.session.BackendAuthHandler;
 import me.internalizable.numdrassl.auth.session.ClientAuthHandler;
 import me.internalizable.numdrassl.auth.session.GameSessionManager;
+import me.internalizable.numdrassl.auth.session.VerifiedIdentityCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -53,11 +56,13 @@ public final class ProxyAuthenticator implements AutoCloseable {
     // Components
     private final CredentialStore credentialStore;
     private final HttpClient httpClient;
+    private final SessionServiceClient sessionService;
     private final OAuthDeviceFlow deviceFlow;
     private final OAuthTokenRefresher tokenRefresher;
     private final GameSessionManager sessionManager;
     private final ClientAuthHandler clientAuthHandler;
     private final BackendAuthHandler backendAuthHandler;
+    private final VerifiedIdentityCache identityCache;
 
     /**
      * Creates a new proxy authenticator.
@@ -70,6 +75,43 @@ public final class ProxyAuthenticator implements AutoCloseable {
             @Nonnull String certPath,
             @Nonnull String keyPath,
             @Nonnull String credentialStorePath) {
+        this(certPath, keyPath, credentialStorePath, VerifiedIdentityCache.DEFAULT_TTL);
+    }
+
+    /**
+     * Creates a new proxy authenticator.
+     *
+     * @param certPath path to the proxy's TLS certificate
+     * @param keyPath path to the proxy's TLS private key
+     * @param credentialStorePath path to store credentials
+     * @param identityCacheTtl how long a verified client identity can skip the server grant exchange
+     *                         on reconnect ({@link Duration#ZERO} disables the cache)
+     */
+    public ProxyAuthenticator(
+            @Nonnull String certPath,
+            @Nonnull String keyPath,
+            @Nonnull String credentialStorePath,
+            @Nonnull Duration identityCacheTtl) {
+        this(certPath, keyPath, credentialStorePath, identityCacheTtl, HttpClientFactory.createTlsClient());
+    }
+
+    /**
+     * Creates a new proxy authenticator that sends its Hytale API requests through the
+     * given client, e.g. one pointed at a local session service.
+     *
+     * @param certPath path to the proxy's TLS certificate
+     * @param keyPath path to the proxy's TLS private key
+     * @param credentialStorePath path to store credentials
+     * @param identityCacheTtl how long a verified client identity can skip the server grant exchange
+     *                         on reconnect ({@link Duration#ZERO} disables the cache)
+     * @param httpClient the client for all OAuth, account and session service requests
+     */
+    public ProxyAuthenticator(
+            @Nonnull String certPath,
+            @Nonnull String keyPath,
+            @Nonnull String credentialStorePath,
+            @Nonnull Duration identityCacheTtl,
+            @Nonnull HttpClient httpClient) {
 
         this.certPath = Objects.requireNonNull(certPath, "certPath");
         this.keyPath = Objects.requireNonNull(keyPath, "keyPath");
@@ -79,12 +121,14 @@ public final class ProxyAuthenticator implements AutoCloseable {
 
         // Initialize components
         this.credentialStore = new CredentialStore(credentialStorePath);
-        this.httpClient = HttpClientFactory.createTlsClient();
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient");
+        this.sessionService = new SessionServiceClient(httpClient);
         this.tokenRefresher = new OAuthTokenRefresher(httpClient, credentialStore);
         this.deviceFlow = new OAuthDeviceFlow(httpClient, credentialStore);
-        this.sessionManager = new GameSessionManager(httpClient, credentialStore, tokenRefresher);
-        this.clientAuthHandler = new ClientAuthHandler(httpClient, sessionManager, proxyFingerprint);
-        this.backendAuthHandler = new BackendAuthHandler(httpClient, sessionManager, proxyFingerprint);
+        this.sessionManager = new GameSessionManager(sessionService, credentialStore, tokenRefresher);
+        this.clientAuthHandler = new ClientAuthHandler(sessionService, sessionManager, proxyFingerprint);
+        this.backendAuthHandler = new BackendAuthHandler(sessionService, sessionManager, proxyFingerprint);
+        this.identityCache = new VerifiedIdentityCache(identityCacheTtl, VerifiedIdentityCache.DEFAULT_MAX_ENTRIES);
 
         LOGGER.info("ProxyAuthenticator initialized");
         if (proxyFingerprint != null) {
@@ -169,6 +213,42 @@ public final class ProxyAuthenticator implements AutoCloseable {
         return clientAuthHandler.exchangeServerAuthGrant(serverAuthGrant);
     }
 
+    /**
+     * Gets the server access token of a client that authenticated recently with the same
+     * certificate, so a reconnect that has sent its {@code AuthToken} can skip
+     * {@link #exchangeServerAuthGrant}.
+     *
+     * @param clientFingerprint the certificate fingerprint of the current connection
+     * @param clientUuid the client's UUID
+     * @return the cached token, or null if the server grant must be exchanged
+     */
+    @Nullable
+    public String getVerifiedServerAccessToken(@Nullable String clientFingerprint, @Nullable UUID clientUuid) {
+        return identityCache.lookup(clientFingerprint, clientUuid);
+    }
+
+    /**
+     * Remembers a client that completed the full exchange.
+     *
+     * @param clientFingerprint the client's certificate fingerprint
+     * @param clientUuid the client's UUID
+     * @param serverAccessToken the server access token sent to the client
+     */
+    public void cacheVerifiedIdentity(@Nullable String clientFingerprint, @Nullable UUID clientUuid,
+                                      @Nonnull String serverAccessToken) {
+        identityCache.put(clientFingerprint, clientUuid, serverAccessToken);
+    }
+
+    /**
+     * Drops any cached identity of a client, forcing the full exchange on its next login.
+     * Called on logout, and should be called when a player's access is revoked.
+     *
+     * @param clientUuid the client's UUID
+     */
+    public void revokeVerifiedIdentity(@Nonnull UUID clientUuid) {
+        identityCache.invalidate(clientUuid);
+    }
+
     // ==================== Backend Authentication (Proxy as Client) ====================
 
     /**
@@ -245,7 +325,9 @@ public final class ProxyAuthenticator implements AutoCloseable {
 
     @Override
     public void close() {
+        identityCache.clear();
         sessionManager.close();
+        sessionService.close();
     }
 
     /**
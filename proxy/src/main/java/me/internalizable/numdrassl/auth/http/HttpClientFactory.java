@@ -11,6 +11,8 @@ import java.net.http.HttpClient;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Factory for creating configured HTTP clients.
@@ -25,6 +27,9 @@ public final class HttpClientFactory {
     /**
      * Creates an HTTP client with TLS support.
      *
+     * <p>The client prefers HTTP/2, so concurrent requests to the same host share one
+     * connection. Response handling runs on virtual threads instead of the common pool.</p>
+     *
      * @param connectTimeout connection timeout
      * @return configured HTTP client
      */
@@ -41,13 +46,22 @@ public final class HttpClientFactory {
                 }
             };
             sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-            return HttpClient.newBuilder().sslContext(sslContext).connectTimeout(connectTimeout).build();
+            return baseBuilder(connectTimeout).sslContext(sslContext).build();
         } catch (Exception e) {
             LOGGER.error("Failed to create TLS HTTP client", e);
-            return HttpClient.newBuilder().connectTimeout(connectTimeout).build();
+            return baseBuilder(connectTimeout).build();
         }
     }
 
+    private static HttpClient.Builder baseBuilder(Duration connectTimeout) {
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("Hytale-Http-", 0).factory());
+        return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .executor(executor)
+            .connectTimeout(connectTimeout);
+    }
+
     /**
      * Creates an HTTP client with default timeout.
      */
@@ -20,7 +20,14 @@ public final class HytaleEndpoints {
     public static final String[] SCOPES = {"openid", "offline", "auth:server"};
     public static final String USER_AGENT = "NumdrasslProxy/1.0";
 
+    public static final String AUTH_GRANT_PATH = "/server-join/auth-grant";
+    public static final String AUTH_TOKEN_PATH = "/server-join/auth-token";
+    public static final String GAME_SESSION_PATH = "/game-session/new";
+    public static final String PROFILES_PATH = "/my-account/get-profiles";
+
     public static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    /** Timeout per attempt for session service calls made during login. */
+    public static final Duration SESSION_REQUEST_TIMEOUT = Duration.ofSeconds(10);
     public static final int REFRESH_BUFFER_SECONDS = 300;
 
     @Nonnull
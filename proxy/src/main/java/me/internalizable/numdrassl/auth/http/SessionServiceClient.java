@@ -0,0 +1,258 @@
+package me.internalizable.numdrassl.auth.http;
+
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking client for the Hytale session service.
+ *
+ * <p>Every call goes through {@link HttpClient#sendAsync}, so no thread waits on the
+ * network. On top of the shared HTTP/2 client this adds:</p>
+ * <ul>
+ *   <li>bounded concurrency: at most {@code maxConcurrentRequests} requests are in
+ *       flight, the rest wait in FIFO order without holding a thread</li>
+ *   <li>a per-attempt timeout ({@link HytaleEndpoints#SESSION_REQUEST_TIMEOUT})</li>
+ *   <li>retries with jittered backoff for I/O errors, 429 and 5xx, limited by a retry
+ *       budget so an outage does not multiply the load on the service</li>
+ *   <li>a latency timer per endpoint and outcome in {@link ProxyMetrics}</li>
+ * </ul>
+ *
+ * <p>Retries wait on the client's own scheduler thread, not the common pool, so they
+ * are not delayed by unrelated work and cannot starve it.</p>
+ */
+public final class SessionServiceClient implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionServiceClient.class);
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MILLIS = 100;
+
+    // Each request earns 0.1 retries, so at most ~10% extra load from retries
+    private static final double RETRY_BUDGET_PER_REQUEST = 0.1;
+    private static final double RETRY_BUDGET_MAX = 10;
+
+    private final HttpClient httpClient;
+    private final int maxConcurrentRequests;
+    private final ScheduledExecutorService retryScheduler;
+
+    // Guarded by this
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+    private int inFlight;
+    private boolean draining;
+    private double retryBudget = RETRY_BUDGET_MAX;
+
+    public SessionServiceClient(@Nonnull HttpClient httpClient) {
+        this(httpClient, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    public SessionServiceClient(@Nonnull HttpClient httpClient, int maxConcurrentRequests) {
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient");
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be positive");
+        }
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Session-Service-Retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * POSTs a JSON body to a session service endpoint.
+     *
+     * @param path endpoint path, also used as the metrics label
+     * @param bearerToken token for the Authorization header
+     * @param json request body
+     * @return the response; completes exceptionally if every attempt failed with an I/O error
+     */
+    @Nonnull
+    public CompletableFuture<HttpResponse<String>> postJson(@Nonnull String path, @Nullable String bearerToken,
+                                                            @Nonnull String json) {
+        Objects.requireNonNull(path, "path");
+        Objects.requireNonNull(json, "json");
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(HytaleEndpoints.sessionServiceEndpoint(path)))
+            .header("Content-Type", "application/json").header("Accept", "application/json")
+            .header("Authorization", "Bearer " + bearerToken)
+            .header("User-Agent", HytaleEndpoints.USER_AGENT)
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .timeout(HytaleEndpoints.SESSION_REQUEST_TIMEOUT).build();
+        return send(path, request);
+    }
+
+    /**
+     * Sends a prepared request with concurrency limiting, retries and metrics.
+     *
+     * @param endpoint label for metrics and logs
+     * @param request the request; its timeout applies to each attempt
+     * @return the response of the last attempt
+     */
+    @Nonnull
+    public CompletableFuture<HttpResponse<String>> send(@Nonnull String endpoint, @Nonnull HttpRequest request) {
+        Objects.requireNonNull(endpoint, "endpoint");
+        Objects.requireNonNull(request, "request");
+        synchronized (this) {
+            retryBudget = Math.min(RETRY_BUDGET_MAX, retryBudget + RETRY_BUDGET_PER_REQUEST);
+        }
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        acquire(() -> attempt(endpoint, request, 1, result));
+        return result;
+    }
+
+    /**
+     * Gets the number of requests currently in flight.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Gets the number of requests waiting for a free slot.
+     */
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    /**
+     * Stops scheduling retries. Requests already in flight still complete.
+     */
+    @Override
+    public void close() {
+        retryScheduler.shutdownNow();
+    }
+
+    // ==================== Internal ====================
+
+    private void attempt(String endpoint, HttpRequest request, int attempt,
+                         CompletableFuture<HttpResponse<String>> result) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> future;
+        try {
+            future = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        future.whenComplete((response, error) -> {
+            release();
+            try {
+                complete(endpoint, request, attempt, result, start, response, error);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    private void complete(String endpoint, HttpRequest request, int attempt,
+                          CompletableFuture<HttpResponse<String>> result, long start,
+                          @Nullable HttpResponse<String> response, @Nullable Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        ProxyMetrics.getInstance().recordSessionServiceRequest(endpoint, outcome(response, cause), System.nanoTime() - start);
+
+        if (attempt < MAX_ATTEMPTS && isRetryable(response, cause) && takeRetry()) {
+            long backoff = BASE_BACKOFF_MILLIS << (attempt - 1);
+            long delay = backoff + ThreadLocalRandom.current().nextLong(backoff);
+            LOGGER.debug("Session service {} attempt {} failed ({}), retrying in {}ms",
+                endpoint, attempt, cause != null ? cause.toString() : response.statusCode(), delay);
+            try {
+                retryScheduler.schedule(() -> acquire(() -> attempt(endpoint, request, attempt + 1, result)),
+                    delay, TimeUnit.MILLISECONDS);
+                ProxyMetrics.getInstance().recordSessionServiceRetry(endpoint);
+                return;
+            } catch (RejectedExecutionException e) {
+                // Closed, fall through to the last attempt's outcome
+            }
+        }
+
+        if (cause != null) {
+            result.completeExceptionally(cause);
+        } else {
+            result.complete(response);
+        }
+    }
+
+    private void acquire(Runnable task) {
+        synchronized (this) {
+            if (inFlight >= maxConcurrentRequests || !waiting.isEmpty()) {
+                waiting.addLast(task);
+                return;
+            }
+            inFlight++;
+        }
+        task.run();
+    }
+
+    /**
+     * Frees a slot and starts waiting requests while slots are free.
+     *
+     * <p>A request that fails while it is being sent completes, and releases its slot,
+     * before {@code run()} returns. Starting the next waiter from here would then recurse
+     * once per queued request, so only one thread drains the queue at a time, in a loop;
+     * a release during the drain just frees its slot for the loop to fill.</p>
+     */
+    private void release() {
+        synchronized (this) {
+            inFlight--;
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                if (inFlight >= maxConcurrentRequests || waiting.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                next = waiting.pollFirst();
+                inFlight++;
+            }
+            next.run();
+        }
+    }
+
+    private synchronized boolean takeRetry() {
+        if (retryBudget < 1) {
+            return false;
+        }
+        retryBudget -= 1;
+        return true;
+    }
+
+    private static boolean isRetryable(@Nullable HttpResponse<String> response, @Nullable Throwable cause) {
+        if (cause != null) {
+            return cause instanceof IOException;
+        }
+        int status = response.statusCode();
+        return status == 429 || status >= 500;
+    }
+
+    private static String outcome(@Nullable HttpResponse<String> response, @Nullable Throwable cause) {
+        if (cause != null) {
+            return "error";
+        }
+        return (response.statusCode() / 100) + "xx";
+    }
+}
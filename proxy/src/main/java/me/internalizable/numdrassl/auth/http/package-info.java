@@ -5,6 +5,8 @@
  * <ul>
  *   <li>{@link me.internalizable.numdrassl.auth.http.HttpClientFactory} -
  *       Factory for configured HTTP clients</li>
+ *   <li>{@link me.internalizable.numdrassl.auth.http.SessionServiceClient} -
+ *       Non-blocking session service calls with concurrency limit and retries</li>
  *   <li>{@link me.internalizable.numdrassl.auth.http.HytaleEndpoints} -
  *       Constants for Hytale API endpoints</li>
  * </ul>
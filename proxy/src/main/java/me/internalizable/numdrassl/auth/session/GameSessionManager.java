@@ -6,6 +6,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import me.internalizable.numdrassl.auth.credential.CredentialStore;
 import me.internalizable.numdrassl.auth.http.HytaleEndpoints;
+import me.internalizable.numdrassl.auth.http.SessionServiceClient;
 import me.internalizable.numdrassl.auth.oauth.OAuthTokenRefresher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +14,6 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Instant;
@@ -30,7 +30,7 @@ public final class GameSessionManager implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GameSessionManager.class);
 
-    private final HttpClient httpClient;
+    private final SessionServiceClient sessionService;
     private final CredentialStore credentialStore;
     private final OAuthTokenRefresher tokenRefresher;
     private final ScheduledExecutorService refreshScheduler;
@@ -39,9 +39,9 @@ public final class GameSessionManager implements AutoCloseable {
     private volatile String identityToken;
     private volatile Instant sessionExpiry;
 
-    public GameSessionManager(@Nonnull HttpClient httpClient, @Nonnull CredentialStore credentialStore,
+    public GameSessionManager(@Nonnull SessionServiceClient sessionService, @Nonnull CredentialStore credentialStore,
                               @Nonnull OAuthTokenRefresher tokenRefresher) {
-        this.httpClient = Objects.requireNonNull(httpClient);
+        this.sessionService = Objects.requireNonNull(sessionService);
         this.credentialStore = Objects.requireNonNull(credentialStore);
         this.tokenRefresher = Objects.requireNonNull(tokenRefresher);
         this.refreshScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
@@ -62,12 +62,13 @@ public final class GameSessionManager implements AutoCloseable {
 
     private JsonArray fetchProfiles() throws Exception {
         HttpRequest req = HttpRequest.newBuilder()
-            .uri(URI.create(HytaleEndpoints.accountDataEndpoint("/my-account/get-profiles")))
+            .uri(URI.create(HytaleEndpoints.accountDataEndpoint(HytaleEndpoints.PROFILES_PATH)))
             .header("Accept", "application/json")
             .header("Authorization", "Bearer " + credentialStore.getOauthAccessToken())
             .header("User-Agent", HytaleEndpoints.USER_AGENT)
             .GET().timeout(HytaleEndpoints.REQUEST_TIMEOUT).build();
-        HttpResponse<String> res = httpClient.send(req, HttpResponse.BodyHandlers.ofString());
+        // Runs on the refresh thread (or at startup), so waiting here blocks no shared pool
+        HttpResponse<String> res = sessionService.send(HytaleEndpoints.PROFILES_PATH, req).join();
         if (res.statusCode() != 200) { LOGGER.error("Failed to get profiles: {}", res.body()); return null; }
         JsonObject data = JsonParser.parseString(res.body()).getAsJsonObject();
         return data.has("profiles") ? data.getAsJsonArray("profiles") : null;
@@ -93,13 +94,13 @@ public final class GameSessionManager implements AutoCloseable {
     private boolean createGameSession() throws Exception {
         String body = String.format("{\"uuid\":\"%s\"}", credentialStore.getProfileUuid());
         HttpRequest req = HttpRequest.newBuilder()
-            .uri(URI.create(HytaleEndpoints.sessionServiceEndpoint("/game-session/new")))
+            .uri(URI.create(HytaleEndpoints.sessionServiceEndpoint(HytaleEndpoints.GAME_SESSION_PATH)))
             .header("Content-Type", "application/json")
             .header("Authorization", "Bearer " + credentialStore.getOauthAccessToken())
             .header("User-Agent", HytaleEndpoints.USER_AGENT)
             .POST(HttpRequest.BodyPublishers.ofString(body))
             .timeout(HytaleEndpoints.REQUEST_TIMEOUT).build();
-        HttpResponse<String> res = httpClient.send(req, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> res = sessionService.send(HytaleEndpoints.GAME_SESSION_PATH, req).join();
         if (res.statusCode() == 200 || res.statusCode() == 201) {
             JsonObject json = JsonParser.parseString(res.body()).getAsJsonObject();
             var st = json.get("sessionToken"); if (st != null) this.sessionToken = st.getAsString();
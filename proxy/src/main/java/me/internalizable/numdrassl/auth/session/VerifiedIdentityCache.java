@@ -0,0 +1,160 @@
+package me.internalizable.numdrassl.auth.session;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Short-lived cache of client identities that recently completed authentication.
+ *
+ * <p>Entries are keyed by the client's certificate fingerprint and UUID and hold the
+ * server access token the session service issued for that login. The cache only
+ * replaces the server grant exchange: a reconnecting client still has its identity
+ * token checked by the session service when the proxy requests its authorization
+ * grant, and still answers {@code AuthGrant} with its own {@code AuthToken}. Once it
+ * has, and it holds the same certificate key as before (proven in the QUIC mTLS
+ * handshake), the proxy sends the cached server token instead of exchanging the new
+ * server grant. Clients without a certificate are never cached.</p>
+ *
+ * <p>A cached server token whose {@code exp} claim has passed is evicted on lookup.</p>
+ *
+ * <p>The cache is bounded (least recently used entries are evicted first) and every
+ * entry expires after a fixed TTL. Entries are dropped explicitly on logout and
+ * revocation.</p>
+ */
+public final class VerifiedIdentityCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final long ttlNanos;
+    private final Clock clock;
+    private final Map<Key, Entry> entries;
+
+    public VerifiedIdentityCache() {
+        this(DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    public VerifiedIdentityCache(@Nonnull Duration ttl, int maxEntries) {
+        this(ttl, maxEntries, Clock.systemUTC());
+    }
+
+    VerifiedIdentityCache(@Nonnull Duration ttl, int maxEntries, @Nonnull Clock clock) {
+        Objects.requireNonNull(ttl, "ttl");
+        this.ttlNanos = ttl.toNanos();
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Checks if caching is enabled (TTL greater than zero).
+     */
+    public boolean isEnabled() {
+        return ttlNanos > 0;
+    }
+
+    /**
+     * Gets the cached server access token for a client, if it is still valid.
+     *
+     * @param fingerprint the client's certificate fingerprint from this connection
+     * @param uuid the client's UUID
+     * @return the cached token, or null on a miss
+     */
+    @Nullable
+    public synchronized String lookup(@Nullable String fingerprint, @Nullable UUID uuid) {
+        if (!isEnabled() || fingerprint == null || uuid == null) {
+            return null;
+        }
+        Key key = new Key(fingerprint, uuid);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.verifiedAtNanos() >= ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        long expiresAt = expiresAtSeconds(entry.serverAccessToken());
+        if (clock.instant().getEpochSecond() >= expiresAt) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.serverAccessToken();
+    }
+
+    /**
+     * Records a completed authentication.
+     *
+     * @param fingerprint the client's certificate fingerprint; nothing is cached without one
+     * @param uuid the client's UUID
+     * @param serverAccessToken the server access token sent to the client
+     */
+    public synchronized void put(@Nullable String fingerprint, @Nullable UUID uuid, @Nonnull String serverAccessToken) {
+        Objects.requireNonNull(serverAccessToken, "serverAccessToken");
+        if (!isEnabled() || fingerprint == null || uuid == null) {
+            return;
+        }
+        entries.put(new Key(fingerprint, uuid), new Entry(serverAccessToken, System.nanoTime()));
+    }
+
+    /**
+     * Drops every cached identity of a player, e.g. on logout or revocation.
+     *
+     * @param uuid the player's UUID
+     */
+    public synchronized void invalidate(@Nonnull UUID uuid) {
+        Objects.requireNonNull(uuid, "uuid");
+        entries.keySet().removeIf(key -> key.uuid().equals(uuid));
+    }
+
+    /**
+     * Drops all cached identities.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Key(String fingerprint, UUID uuid) {}
+
+    private record Entry(String serverAccessToken, long verifiedAtNanos) {}
+
+    /**
+     * Reads the {@code exp} claim of a JWT issued by the session service. Tokens that are
+     * not readable JWTs, or carry no expiry, never expire here; the TTL still applies.
+     */
+    private static long expiresAtSeconds(String token) {
+        int start = token.indexOf('.');
+        int end = token.indexOf('.', start + 1);
+        if (start < 0 || end < 0) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(start + 1, end));
+            JsonObject json = JsonParser.parseString(new String(payload, StandardCharsets.UTF_8)).getAsJsonObject();
+            JsonElement exp = json.get("exp");
+            return exp != null && exp.isJsonPrimitive() ? exp.getAsLong() : Long.MAX_VALUE;
+        } catch (RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
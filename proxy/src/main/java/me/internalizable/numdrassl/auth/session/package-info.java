@@ -9,6 +9,8 @@
  *       Handles client authentication (proxy as server)</li>
  *   <li>{@link me.internalizable.numdrassl.auth.session.BackendAuthHandler} -
  *       Handles backend authentication (proxy as client)</li>
+ *   <li>{@link me.internalizable.numdrassl.auth.session.VerifiedIdentityCache} -
+ *       Short-lived cache of verified clients for fast reconnects</li>
  * </ul>
  *
  * @see me.internalizable.numdrassl.auth.ProxyAuthenticator
@@ -262,7 +262,7 @@ public final class ClusterManager {
             broadcastHandler.broadcast(type, content);
         } else {
             // Fallback: deliver locally only
-            sessionManager.getAllSessions().forEach(s -> s.sendChatMessage(content));
+            sessionManager.broadcastChatMessage(content);
         }
     }
 
@@ -117,11 +117,8 @@ public final class BroadcastHandler {
     }
 
     private void deliverToAllPlayers(String content) {
-        sessionManager.getAllSessions().forEach(session -> {
-            // Send message through the session's packet sender
-            // Note: In the future, this should use the Player API
-            session.sendChatMessage(content);
-        });
+        // Encoded once and shared by every local session
+        sessionManager.broadcastChatMessage(content);
     }
 
     private void deliverAlert(String content) {
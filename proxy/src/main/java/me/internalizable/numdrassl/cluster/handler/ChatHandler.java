@@ -131,9 +131,7 @@ public final class ChatHandler {
                 message.sourceProxyId(), message.senderName(), message.message());
 
         String formatted = formatChatMessage(message.senderName(), message.message());
-        sessionManager.getAllSessions().forEach(session -> {
-            session.sendChatMessage(formatted);
-        });
+        sessionManager.broadcastChatMessage(formatted);
     }
 
     private void handlePrivateChat(ChatMessage message) {
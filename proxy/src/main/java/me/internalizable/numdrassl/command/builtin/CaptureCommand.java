@@ -0,0 +1,201 @@
+package me.internalizable.numdrassl.command.builtin;
+
+import me.internalizable.numdrassl.api.chat.ChatMessageBuilder;
+import me.internalizable.numdrassl.api.command.Command;
+import me.internalizable.numdrassl.api.command.CommandResult;
+import me.internalizable.numdrassl.api.command.CommandSource;
+import me.internalizable.numdrassl.server.ProxyCore;
+import me.internalizable.numdrassl.session.ProxySession;
+import me.internalizable.numdrassl.session.capture.CaptureDirection;
+import me.internalizable.numdrassl.session.capture.CaptureReplayer;
+import me.internalizable.numdrassl.session.capture.SessionCapture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Built-in command for capturing a session's packets and replaying captures.
+ *
+ * <p>Usage (console only, as captures contain everything the player sent):</p>
+ * <ul>
+ *   <li>{@code capture start <player> [sizeKb]} - Start capturing into a ring buffer</li>
+ *   <li>{@code capture stop <player>} - Stop capturing and discard the buffer</li>
+ *   <li>{@code capture status <player>} - Show how much has been captured</li>
+ *   <li>{@code capture dump <player>} - Write the captured frames to {@code captures/}</li>
+ *   <li>{@code capture replay <file> [speed] [from_client|from_backend]} - Replay a capture
+ *       through the packet codec</li>
+ * </ul>
+ */
+public class CaptureCommand implements Command {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CaptureCommand.class);
+
+    private static final Path CAPTURE_DIRECTORY = Paths.get("captures");
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final ProxyCore proxyCore;
+
+    public CaptureCommand(ProxyCore proxyCore) {
+        this.proxyCore = proxyCore;
+    }
+
+    @Override
+    @Nonnull
+    public String getName() {
+        return "capture";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Capture a session's packets and replay captures";
+    }
+
+    @Override
+    public String getUsage() {
+        return "capture <start|stop|status|dump> <player> | capture replay <file> [speed] [from_client|from_backend]";
+    }
+
+    @Override
+    @Nonnull
+    public CommandResult execute(@Nonnull CommandSource source, @Nonnull String[] args) {
+        if (source.isPlayer()) {
+            source.sendMessage(ChatMessageBuilder.create()
+                    .red("[X] ")
+                    .gray("This command can only be used from the console."));
+            return CommandResult.failure("This command can only be used from the console");
+        }
+
+        if (args.length < 2) {
+            source.sendMessage("Usage: " + getUsage());
+            return CommandResult.success();
+        }
+
+        String subCommand = args[0].toLowerCase(Locale.ROOT);
+        if (subCommand.equals("replay")) {
+            return handleReplay(source, args);
+        }
+
+        ProxySession session = proxyCore.getSessionManager().findByUsername(args[1]).orElse(null);
+        if (session == null) {
+            source.sendMessage("Player not found: " + args[1]);
+            return CommandResult.failure("Player not found");
+        }
+
+        return switch (subCommand) {
+            case "start" -> handleStart(source, session, args);
+            case "stop" -> handleStop(source, session);
+            case "status" -> handleStatus(source, session);
+            case "dump" -> handleDump(source, session);
+            default -> {
+                source.sendMessage("Usage: " + getUsage());
+                yield CommandResult.success();
+            }
+        };
+    }
+
+    private CommandResult handleStart(CommandSource source, ProxySession session, String[] args) {
+        int capacityBytes = SessionCapture.DEFAULT_CAPACITY_BYTES;
+        if (args.length > 2) {
+            try {
+                capacityBytes = Math.multiplyExact(Integer.parseInt(args[2]), 1024);
+            } catch (NumberFormatException | ArithmeticException e) {
+                source.sendMessage("Invalid size: " + args[2]);
+                return CommandResult.failure("Invalid size");
+            }
+        }
+
+        try {
+            session.getCapture().start(capacityBytes);
+        } catch (IllegalArgumentException e) {
+            source.sendMessage(e.getMessage());
+            return CommandResult.failure(e.getMessage());
+        }
+        source.sendMessage("Capturing " + session.getUsername() + " into " + (capacityBytes / 1024) + " KB");
+        LOGGER.info("Started packet capture of session {} ({} KB)", session.getSessionId(), capacityBytes / 1024);
+        return CommandResult.success();
+    }
+
+    private CommandResult handleStop(CommandSource source, ProxySession session) {
+        session.getCapture().stop();
+        source.sendMessage("Stopped capturing " + session.getUsername());
+        return CommandResult.success();
+    }
+
+    private CommandResult handleStatus(CommandSource source, ProxySession session) {
+        SessionCapture capture = session.getCapture();
+        if (!capture.isActive()) {
+            source.sendMessage("Not capturing " + session.getUsername());
+            return CommandResult.success();
+        }
+        source.sendMessage("Capturing " + session.getUsername() + ":");
+        source.sendMessage("  Frames:  " + capture.getFrames());
+        source.sendMessage("  Evicted: " + capture.getEvictedFrames());
+        source.sendMessage("  Skipped: " + capture.getSkippedFrames() + " (credentials)");
+        source.sendMessage("  Used:    " + (capture.getUsedBytes() / 1024) + " KB");
+        return CommandResult.success();
+    }
+
+    private CommandResult handleDump(CommandSource source, ProxySession session) {
+        SessionCapture capture = session.getCapture();
+        if (!capture.isActive()) {
+            source.sendMessage("Not capturing " + session.getUsername());
+            return CommandResult.failure("Not capturing");
+        }
+
+        Path file = CAPTURE_DIRECTORY.resolve(
+            session.getUsername() + "-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".ncap");
+        try {
+            Files.createDirectories(CAPTURE_DIRECTORY);
+            int frames = capture.dump(file);
+            source.sendMessage("Wrote " + frames + " frames to " + file);
+            return CommandResult.success();
+        } catch (IOException e) {
+            LOGGER.error("Failed to write packet capture {}", file, e);
+            source.sendMessage("Failed to write capture: " + e.getMessage());
+            return CommandResult.failure("Failed to write capture");
+        }
+    }
+
+    private CommandResult handleReplay(CommandSource source, String[] args) {
+        Path file = Paths.get(args[1]);
+        if (!Files.isRegularFile(file)) {
+            source.sendMessage("Capture not found: " + file);
+            return CommandResult.failure("Capture not found");
+        }
+
+        CaptureReplayer replayer;
+        try {
+            double speed = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+            CaptureDirection direction = args.length > 3
+                ? CaptureDirection.valueOf(args[3].toUpperCase(Locale.ROOT))
+                : CaptureDirection.FROM_CLIENT;
+            replayer = new CaptureReplayer(file, direction, speed);
+        } catch (IllegalArgumentException e) {
+            source.sendMessage("Invalid replay options: " + e.getMessage());
+            return CommandResult.failure("Invalid replay options");
+        }
+
+        // A paced replay runs as long as the capture did; keep the console responsive
+        Thread thread = new Thread(() -> {
+            try {
+                source.sendMessage("Replay of " + file + ": " + replayer.replay());
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Failed to replay packet capture {}", file, e);
+                source.sendMessage("Replay failed: " + e.getMessage());
+            }
+        }, "Capture-Replay");
+        thread.setDaemon(true);
+        thread.start();
+
+        source.sendMessage("Replaying " + file + "...");
+        return CommandResult.success();
+    }
+}
@@ -10,8 +10,13 @@ import me.internalizable.numdrassl.api.player.Player;
 import me.internalizable.numdrassl.api.server.RegisteredServer;
 
 import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
 
 public class FindCommand implements Command {
+
+    private static final int MAX_PLAYER_SUGGESTIONS = 20;
+
     @Nonnull
     @Override
     public String getName() {
@@ -63,4 +68,16 @@ public class FindCommand implements Command {
 
         return CommandResult.success();
     }
+
+    @Nonnull
+    @Override
+    public List<String> suggest(@Nonnull CommandSource source, @Nonnull String[] args) {
+        ProxyServer proxy = Numdrassl.getProxy();
+        if (proxy == null || args.length != 1) {
+            return Collections.emptyList();
+        }
+        return proxy.matchPlayers(args[0], MAX_PLAYER_SUGGESTIONS).stream()
+                .map(Player::getUsername)
+                .toList();
+    }
 }
@@ -5,8 +5,10 @@ import me.internalizable.numdrassl.api.command.CommandResult;
 import me.internalizable.numdrassl.api.command.CommandSource;
 import me.internalizable.numdrassl.profiling.MetricsHistory;
 import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.profiling.TrafficHeavyHitters;
 
 import javax.annotation.Nonnull;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -18,12 +20,15 @@ import java.util.concurrent.TimeUnit;
  *   <li>{@code metrics history} - Show historical data and peaks</li>
  *   <li>{@code metrics peaks} - Show all-time peak values</li>
  *   <li>{@code metrics memory} - Show detailed memory info</li>
+ *   <li>{@code metrics top} - Show the sessions and backends with the most traffic</li>
  *   <li>{@code metrics gc} - Trigger garbage collection and show memory</li>
  *   <li>{@code metrics report} - Generate shareable report</li>
  * </ul>
  */
 public class MetricsCommand implements Command {
 
+    private static final int TOP_TRAFFIC_ENTRIES = 5;
+
     @Override
     @Nonnull
     public String getName() {
@@ -45,6 +50,7 @@ public class MetricsCommand implements Command {
                 case "report" -> showReport(source);
                 case "history", "hist" -> showHistory(source);
                 case "peaks", "peak" -> showPeaks(source);
+                case "top" -> showTopTraffic(source);
                 case "help" -> showHelp(source);
                 default -> showSummary(source);
             };
@@ -55,7 +61,6 @@ public class MetricsCommand implements Command {
     private CommandResult showSummary(CommandSource source) {
         ProxyMetrics metrics = ProxyMetrics.getInstance();
         metrics.updateThroughput();
-        metrics.checkHangingRequests();
 
         ProxyMetrics.MetricsSnapshot snapshot = metrics.createSnapshot();
         Runtime runtime = Runtime.getRuntime();
@@ -111,7 +116,6 @@ public class MetricsCommand implements Command {
     private CommandResult showReport(CommandSource source) {
         ProxyMetrics metrics = ProxyMetrics.getInstance();
         metrics.updateThroughput();
-        metrics.checkHangingRequests();
 
         String report = metrics.createShareableReport();
         source.sendMessage(report);
@@ -194,6 +198,42 @@ public class MetricsCommand implements Command {
         return CommandResult.success();
     }
 
+    private CommandResult showTopTraffic(CommandSource source) {
+        TrafficHeavyHitters hitters = TrafficHeavyHitters.getInstance();
+
+        source.sendMessage("");
+        source.sendMessage("========== Top Traffic ==========");
+        source.sendMessage("(Last " + TrafficHeavyHitters.WINDOW_SECONDS + "-"
+            + 2 * TrafficHeavyHitters.WINDOW_SECONDS + " seconds, approximate)");
+        for (TrafficHeavyHitters.Direction direction : TrafficHeavyHitters.Direction.values()) {
+            source.sendMessage("");
+            source.sendMessage(direction == TrafficHeavyHitters.Direction.CLIENT_TO_BACKEND
+                ? "Client → Backend:" : "Backend → Client:");
+            showHeavyHitters(source, "Sessions by bytes", true,
+                hitters.topSessions(direction, TrafficHeavyHitters.Measure.BYTES, TOP_TRAFFIC_ENTRIES));
+            showHeavyHitters(source, "Sessions by packets", false,
+                hitters.topSessions(direction, TrafficHeavyHitters.Measure.PACKETS, TOP_TRAFFIC_ENTRIES));
+            showHeavyHitters(source, "Backends by bytes", true,
+                hitters.topBackends(direction, TrafficHeavyHitters.Measure.BYTES, TOP_TRAFFIC_ENTRIES));
+        }
+        source.sendMessage("");
+
+        return CommandResult.success();
+    }
+
+    private void showHeavyHitters(CommandSource source, String title, boolean bytes,
+                                  List<TrafficHeavyHitters.HeavyHitter> hitters) {
+        source.sendMessage("  " + title + ":");
+        if (hitters.isEmpty()) {
+            source.sendMessage("    (none)");
+            return;
+        }
+        for (TrafficHeavyHitters.HeavyHitter hitter : hitters) {
+            String count = bytes ? formatBytes(hitter.count()) : formatNumber(hitter.count());
+            source.sendMessage("    " + hitter.name() + ": " + count);
+        }
+    }
+
     private CommandResult showMemoryStats(CommandSource source) {
         Runtime runtime = Runtime.getRuntime();
 
@@ -254,6 +294,7 @@ public class MetricsCommand implements Command {
         source.sendMessage("  history  - Show historical averages");
         source.sendMessage("  peaks    - Show all-time peak values");
         source.sendMessage("  memory   - Show detailed memory info");
+        source.sendMessage("  top      - Show sessions and backends with the most traffic");
         source.sendMessage("  gc       - Trigger GC and show memory");
         source.sendMessage("  report   - Generate shareable report");
         source.sendMessage("  help     - Show this help");
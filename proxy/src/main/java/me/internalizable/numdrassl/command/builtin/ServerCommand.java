@@ -11,6 +11,8 @@ import me.internalizable.numdrassl.api.server.RegisteredServer;
 
 import javax.annotation.Nonnull;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -24,6 +26,8 @@ import java.util.Optional;
  */
 public class ServerCommand implements Command {
 
+    private static final int MAX_PLAYER_SUGGESTIONS = 20;
+
     @Override
     @Nonnull
     public String getName() {
@@ -213,5 +217,27 @@ public class ServerCommand implements Command {
 
         return CommandResult.success();
     }
-}
 
+    @Override
+    @Nonnull
+    public List<String> suggest(@Nonnull CommandSource source, @Nonnull String[] args) {
+        ProxyServer proxy = Numdrassl.getProxy();
+        if (proxy == null) {
+            return Collections.emptyList();
+        }
+
+        if (args.length == 1) {
+            String prefix = args[0].toLowerCase();
+            return proxy.getAllServers().stream()
+                    .map(RegisteredServer::getName)
+                    .filter(name -> name.toLowerCase().startsWith(prefix))
+                    .toList();
+        }
+        if (args.length == 2) {
+            return proxy.matchPlayers(args[1], MAX_PLAYER_SUGGESTIONS).stream()
+                    .map(Player::getUsername)
+                    .toList();
+        }
+        return Collections.emptyList();
+    }
+}
@@ -5,6 +5,8 @@
  * <ul>
  *   <li>{@link me.internalizable.numdrassl.command.builtin.AuthCommand} -
  *       Authentication management (login/logout)</li>
+ *   <li>{@link me.internalizable.numdrassl.command.builtin.CaptureCommand} -
+ *       Captures a session's packets and replays captures</li>
  *   <li>{@link me.internalizable.numdrassl.command.builtin.HelpCommand} -
  *       Lists available commands and usage</li>
  *   <li>{@link me.internalizable.numdrassl.command.builtin.ServerCommand} -
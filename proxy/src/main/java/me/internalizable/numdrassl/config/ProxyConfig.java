@@ -11,7 +11,9 @@ import java.nio.file.Path;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -32,6 +34,27 @@ public class ProxyConfig {
     // Connection limits
     private int maxConnections = 1000;
     private int connectionTimeoutSeconds = 30;
+    private int quicRetryThreshold = 200;
+
+    // Per-source rate limits
+    private int initialsPerSourcePerSecond = 30;
+    private int packetsPerSourcePerSecond = 0;
+    private Map<String, Integer> packetRateLimits = defaultPacketRateLimits();
+
+    // Session memory
+    private int sessionMemoryBudgetMb = 512;
+
+    // Buffer allocation
+    private String bufferAllocator = "pooled";
+    private boolean preferDirectBuffers = true;
+    private String leakDetectionLevel = "simple";
+
+    // Login admission
+    private int loginsPerSecond = 50;
+    private int maxConcurrentHandshakes = 200;
+    private int loginQueueSize = 5000;
+    private int loginQueueStatusIntervalSeconds = 5;
+    private int authCacheTtlSeconds = 30;
 
     // Debug options
     private Boolean debugMode = false;
@@ -39,6 +62,8 @@ public class ProxyConfig {
 
     // Backend authentication
     private String proxySecret = null;
+    // Version 2 is opt-in: Bridges from before it reject every player from a proxy that sends it
+    private int referralProtocolVersion = 1;
 
     // Backend servers
     private List<BackendServer> backends = new ArrayList<>();
@@ -57,6 +82,8 @@ public class ProxyConfig {
     private boolean metricsEnabled = true;
     private int metricsPort = 9090;
     private int metricsLogIntervalSeconds = 60;
+    private int forwardingLatencySampleRate = 100;
+    private int slowLoginThresholdMillis = 5000;
     private static SecureRandom SECRET_RANDOM = new SecureRandom();
 
     public ProxyConfig() {
@@ -128,7 +155,60 @@ public class ProxyConfig {
             writer.write("# Maximum concurrent connections\n");
             writer.write("maxConnections: " + maxConnections + "\n");
             writer.write("# Connection timeout in seconds\n");
-            writer.write("connectionTimeoutSeconds: " + connectionTimeoutSeconds + "\n\n");
+            writer.write("connectionTimeoutSeconds: " + connectionTimeoutSeconds + "\n");
+            writer.write("# New QUIC handshakes per second above which clients must validate their address\n");
+            writer.write("# with a retry round trip (0 = always)\n");
+            writer.write("quicRetryThreshold: " + quicRetryThreshold + "\n\n");
+
+            // Per-source rate limits
+            writer.write("# ==================== Rate Limits ====================\n\n");
+            writer.write("# Limits per source IPv4 address or IPv6 /64, per second (0 = unlimited)\n");
+            writer.write("# QUIC Initial packets; each new connection sends a few\n");
+            writer.write("initialsPerSourcePerSecond: " + initialsPerSourcePerSecond + "\n");
+            writer.write("# Game packets of any type. A source over the limit is disconnected, as dropping\n");
+            writer.write("# game packets desyncs the client. Players behind one NAT share this budget.\n");
+            writer.write("packetsPerSourcePerSecond: " + packetsPerSourcePerSecond + "\n");
+            writer.write("# Game packets of a specific type, by packet name. ChatMessage over the limit is\n");
+            writer.write("# dropped; other types disconnect the source.\n");
+            if (packetRateLimits.isEmpty()) {
+                writer.write("packetRateLimits: {}\n\n");
+            } else {
+                writer.write("packetRateLimits:\n");
+                for (Map.Entry<String, Integer> limit : packetRateLimits.entrySet()) {
+                    writer.write("  " + limit.getKey() + ": " + limit.getValue() + "\n");
+                }
+                writer.write("\n");
+            }
+
+            // Session memory
+            writer.write("# ==================== Session Memory ====================\n\n");
+            writer.write("# Bytes all sessions may hold in decoder buffers, write queues and pending messages, in MB\n");
+            writer.write("# Near the budget slow peers are throttled; above it the heaviest sessions are disconnected\n");
+            writer.write("# (0 = unlimited)\n");
+            writer.write("sessionMemoryBudgetMb: " + sessionMemoryBudgetMb + "\n\n");
+
+            // Buffer allocation
+            writer.write("# ==================== Buffer Allocation ====================\n\n");
+            writer.write("# Allocator for client and backend connections: pooled or unpooled\n");
+            writer.write("bufferAllocator: " + bufferAllocator + "\n");
+            writer.write("# Allocate buffers off-heap by default\n");
+            writer.write("preferDirectBuffers: " + preferDirectBuffers + "\n");
+            writer.write("# Buffer leak detection: disabled, simple (sampled), advanced (sampled, with access records)\n");
+            writer.write("# or paranoid (every buffer, for debugging only)\n");
+            writer.write("leakDetectionLevel: " + leakDetectionLevel + "\n\n");
+
+            // Login admission
+            writer.write("# ==================== Login Admission ====================\n\n");
+            writer.write("# Logins allowed to start authentication per second (0 = unlimited)\n");
+            writer.write("loginsPerSecond: " + loginsPerSecond + "\n");
+            writer.write("# Maximum logins authenticating or connecting to a backend at once (0 = unlimited)\n");
+            writer.write("maxConcurrentHandshakes: " + maxConcurrentHandshakes + "\n");
+            writer.write("# Maximum logins waiting in the queue; further logins are asked to retry later (0 = unlimited)\n");
+            writer.write("loginQueueSize: " + loginQueueSize + "\n");
+            writer.write("# Interval for sending queue positions to waiting clients, in seconds\n");
+            writer.write("loginQueueStatusIntervalSeconds: " + loginQueueStatusIntervalSeconds + "\n");
+            writer.write("# Seconds a verified client may reconnect without a new server grant exchange (0 = disabled)\n");
+            writer.write("authCacheTtlSeconds: " + authCacheTtlSeconds + "\n\n");
 
             // Debug options
             writer.write("# ==================== Debug Options ====================\n\n");
@@ -142,7 +222,11 @@ public class ProxyConfig {
             writer.write("# Shared secret for backend authentication (HMAC signing)\n");
             writer.write("# Must match the secret in your Bridge plugin config\n");
             writer.write("# If null, a random secret is generated on first run\n");
-            writer.write("proxySecret: " + formatValue(proxySecret) + "\n\n");
+            writer.write("proxySecret: " + formatValue(proxySecret) + "\n");
+            writer.write("# Version of the signed referral data sent to backends (1 or 2)\n");
+            writer.write("# Version 2 adds replay protection, but older Bridge plugins reject it\n");
+            writer.write("# Keep this at 1 (the default) until every backend runs an upgraded Bridge\n");
+            writer.write("referralProtocolVersion: " + referralProtocolVersion + "\n\n");
 
             // Backend servers
             writer.write("# ==================== Backend Servers ====================\n\n");
@@ -187,6 +271,10 @@ public class ProxyConfig {
             writer.write("metricsPort: " + metricsPort + "\n");
             writer.write("# Interval for logging metrics summary (0 to disable)\n");
             writer.write("metricsLogIntervalSeconds: " + metricsLogIntervalSeconds + "\n");
+            writer.write("# Measure how long 1 in N forwarded packets spend in the proxy (0 to disable)\n");
+            writer.write("forwardingLatencySampleRate: " + forwardingLatencySampleRate + "\n");
+            writer.write("# Log logins slower than this with their phase breakdown (0 to disable)\n");
+            writer.write("slowLoginThresholdMillis: " + slowLoginThresholdMillis + "\n");
         }
     }
 
@@ -220,6 +308,70 @@ public class ProxyConfig {
             changed = true;
         }
 
+        if (quicRetryThreshold < 0) {
+            quicRetryThreshold = 200;
+            changed = true;
+        }
+
+        if (initialsPerSourcePerSecond < 0) {
+            initialsPerSourcePerSecond = 30;
+            changed = true;
+        }
+        if (packetsPerSourcePerSecond < 0) {
+            packetsPerSourcePerSecond = 0;
+            changed = true;
+        }
+        if (packetRateLimits == null) {
+            packetRateLimits = defaultPacketRateLimits();
+            changed = true;
+        }
+
+        if (sessionMemoryBudgetMb < 0) {
+            sessionMemoryBudgetMb = 512;
+            changed = true;
+        }
+
+        if (bufferAllocator == null
+                || !(bufferAllocator.equalsIgnoreCase("pooled") || bufferAllocator.equalsIgnoreCase("unpooled"))) {
+            bufferAllocator = "pooled";
+            changed = true;
+        }
+        if (leakDetectionLevel == null || leakDetectionLevel.isBlank()) {
+            leakDetectionLevel = "simple";
+            changed = true;
+        }
+
+        if (forwardingLatencySampleRate < 0) {
+            forwardingLatencySampleRate = 100;
+            changed = true;
+        }
+
+        if (slowLoginThresholdMillis < 0) {
+            slowLoginThresholdMillis = 5000;
+            changed = true;
+        }
+
+        if (loginsPerSecond < 0) {
+            loginsPerSecond = 50;
+            changed = true;
+        }
+        if (maxConcurrentHandshakes < 0) {
+            maxConcurrentHandshakes = 200;
+            changed = true;
+        }
+        if (loginQueueSize < 0) {
+            loginQueueSize = 5000;
+            changed = true;
+        }
+        if (loginQueueStatusIntervalSeconds <= 0) {
+            loginQueueStatusIntervalSeconds = 5;
+            changed = true;
+        }
+        if (authCacheTtlSeconds < 0) {
+            authCacheTtlSeconds = 30;
+            changed = true;
+        }
+
         if (debugMode == null) {
             debugMode = false;
             changed = true;
@@ -235,6 +387,11 @@ public class ProxyConfig {
             changed = true;
         }
 
+        if (referralProtocolVersion != 1 && referralProtocolVersion != 2) {
+            referralProtocolVersion = 1;
+            changed = true;
+        }
+
         if (backends == null) backends = new ArrayList<>();
         if (backends.isEmpty()) {
             backends.add(new BackendServer("lobby", "127.0.0.1", 5520, true));
@@ -273,6 +430,12 @@ public class ProxyConfig {
         return changed;
     }
 
+    private static Map<String, Integer> defaultPacketRateLimits() {
+        Map<String, Integer> limits = new LinkedHashMap<>();
+        limits.put("ChatMessage", 10);
+        return limits;
+    }
+
     private static String generateProxySecret() {
         byte[] bytes = new byte[32]; // 256-bit
 
@@ -358,6 +521,118 @@ public class ProxyConfig {
         this.connectionTimeoutSeconds = connectionTimeoutSeconds;
     }
 
+    public int getQuicRetryThreshold() {
+        return quicRetryThreshold;
+    }
+
+    public void setQuicRetryThreshold(int quicRetryThreshold) {
+        this.quicRetryThreshold = quicRetryThreshold;
+    }
+
+    // ==================== Rate Limit Getters/Setters ====================
+
+    public int getInitialsPerSourcePerSecond() {
+        return initialsPerSourcePerSecond;
+    }
+
+    public void setInitialsPerSourcePerSecond(int initialsPerSourcePerSecond) {
+        this.initialsPerSourcePerSecond = initialsPerSourcePerSecond;
+    }
+
+    public int getPacketsPerSourcePerSecond() {
+        return packetsPerSourcePerSecond;
+    }
+
+    public void setPacketsPerSourcePerSecond(int packetsPerSourcePerSecond) {
+        this.packetsPerSourcePerSecond = packetsPerSourcePerSecond;
+    }
+
+    public Map<String, Integer> getPacketRateLimits() {
+        return packetRateLimits;
+    }
+
+    public void setPacketRateLimits(Map<String, Integer> packetRateLimits) {
+        this.packetRateLimits = packetRateLimits;
+    }
+
+    // ==================== Session Memory Getters/Setters ====================
+
+    public int getSessionMemoryBudgetMb() {
+        return sessionMemoryBudgetMb;
+    }
+
+    public void setSessionMemoryBudgetMb(int sessionMemoryBudgetMb) {
+        this.sessionMemoryBudgetMb = sessionMemoryBudgetMb;
+    }
+
+    // ==================== Buffer Allocation Getters/Setters ====================
+
+    public String getBufferAllocator() {
+        return bufferAllocator;
+    }
+
+    public void setBufferAllocator(String bufferAllocator) {
+        this.bufferAllocator = bufferAllocator;
+    }
+
+    public boolean isPreferDirectBuffers() {
+        return preferDirectBuffers;
+    }
+
+    public void setPreferDirectBuffers(boolean preferDirectBuffers) {
+        this.preferDirectBuffers = preferDirectBuffers;
+    }
+
+    public String getLeakDetectionLevel() {
+        return leakDetectionLevel;
+    }
+
+    public void setLeakDetectionLevel(String leakDetectionLevel) {
+        this.leakDetectionLevel = leakDetectionLevel;
+    }
+
+    // ==================== Login Admission Getters/Setters ====================
+
+    public int getLoginsPerSecond() {
+        return loginsPerSecond;
+    }
+
+    public void setLoginsPerSecond(int loginsPerSecond) {
+        this.loginsPerSecond = loginsPerSecond;
+    }
+
+    public int getMaxConcurrentHandshakes() {
+        return maxConcurrentHandshakes;
+    }
+
+    public void setMaxConcurrentHandshakes(int maxConcurrentHandshakes) {
+        this.maxConcurrentHandshakes = maxConcurrentHandshakes;
+    }
+
+    public int getLoginQueueSize() {
+        return loginQueueSize;
+    }
+
+    public void setLoginQueueSize(int loginQueueSize) {
+        this.loginQueueSize = loginQueueSize;
+    }
+
+    public int getLoginQueueStatusIntervalSeconds() {
+        return loginQueueStatusIntervalSeconds;
+    }
+
+    public void setLoginQueueStatusIntervalSeconds(int loginQueueStatusIntervalSeconds) {
+        this.loginQueueStatusIntervalSeconds = loginQueueStatusIntervalSeconds;
+    }
+
+    public int getAuthCacheTtlSeconds() {
+        return authCacheTtlSeconds;
+    }
+
+    public void setAuthCacheTtlSeconds(int authCacheTtlSeconds) {
+        this.authCacheTtlSeconds = authCacheTtlSeconds;
+    }
+
     // ==================== Debug Getters/Setters ====================
 
     public Boolean isDebugMode() {
@@ -386,6 +661,14 @@ public class ProxyConfig {
         this.proxySecret = proxySecret;
     }
 
+    public int getReferralProtocolVersion() {
+        return referralProtocolVersion;
+    }
+
+    public void setReferralProtocolVersion(int referralProtocolVersion) {
+        this.referralProtocolVersion = referralProtocolVersion;
+    }
+
     // ==================== Backend Server Getters/Setters ====================
 
     public List<BackendServer> getBackends() {
@@ -484,5 +767,11 @@ public class ProxyConfig {
     public int getMetricsLogIntervalSeconds() { return metricsLogIntervalSeconds; }
     public void setMetricsLogIntervalSeconds(int metricsLogIntervalSeconds) { this.metricsLogIntervalSeconds = metricsLogIntervalSeconds; }
 
+    public int getForwardingLatencySampleRate() { return forwardingLatencySampleRate; }
+    public void setForwardingLatencySampleRate(int forwardingLatencySampleRate) { this.forwardingLatencySampleRate = forwardingLatencySampleRate; }
+
+    public int getSlowLoginThresholdMillis() { return slowLoginThresholdMillis; }
+    public void setSlowLoginThresholdMillis(int slowLoginThresholdMillis) { this.slowLoginThresholdMillis = slowLoginThresholdMillis; }
+
 }
 
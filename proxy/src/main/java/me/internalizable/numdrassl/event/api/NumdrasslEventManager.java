@@ -8,6 +8,8 @@ import me.internalizable.numdrassl.api.event.Subscribe;
 import me.internalizable.numdrassl.event.api.handler.EventTypeTracker;
 import me.internalizable.numdrassl.event.api.handler.HandlerRegistration;
 import me.internalizable.numdrassl.event.api.handler.UntargetedEventHandler;
+import me.internalizable.numdrassl.profiling.jfr.EventDispatchEvent;
+import me.internalizable.numdrassl.profiling.jfr.EventHandlerEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -261,9 +263,12 @@ public final class NumdrasslEventManager implements EventManager {
 
         handlers.sort(Comparator.comparingInt(h -> h.getPriority().getValue()));
 
+        EventDispatchEvent dispatch = EventDispatchEvent.start();
         for (HandlerRegistration handler : handlers) {
             executeHandler(event, handler);
         }
+        dispatch.finish(event.getClass(), handlers.size(),
+            event instanceof Cancellable cancellable && cancellable.isCancelled());
 
         return event;
     }
@@ -288,14 +293,18 @@ public final class NumdrasslEventManager implements EventManager {
     }
 
     private void executeHandler(Object event, HandlerRegistration handler) {
+        EventHandlerEvent trace = EventHandlerEvent.start();
+        boolean failed = false;
         try {
             handler.getHandler().execute(event);
         } catch (Exception e) {
+            failed = true;
             LOGGER.error("Error handling event {} in handler {} from plugin {}",
                 event.getClass().getSimpleName(),
                 handler.getMethodName(),
                 handler.getPlugin().getClass().getSimpleName(), e);
         }
+        trace.finish(event.getClass(), handler.getPlugin().getClass(), handler.getMethodName(), failed);
     }
 
     // ==================== Utility Methods ====================
@@ -7,6 +7,7 @@ import me.internalizable.numdrassl.event.mapping.connection.ConnectMapping;
 import me.internalizable.numdrassl.event.mapping.connection.DisconnectMapping;
 import me.internalizable.numdrassl.event.mapping.interface_.ChatMessageMapping;
 import me.internalizable.numdrassl.event.mapping.interface_.ServerMessageMapping;
+import me.internalizable.numdrassl.event.mapping.interface_.ServerMessageViewMapping;
 import me.internalizable.numdrassl.plugin.NumdrasslProxy;
 import me.internalizable.numdrassl.plugin.player.NumdrasslPlayer;
 import me.internalizable.numdrassl.session.ProxySession;
@@ -139,6 +140,7 @@ public final class PacketEventRegistry {
         register(new DisconnectMapping());
         register(new ChatMessageMapping());
         register(new ServerMessageMapping());
+        register(new ServerMessageViewMapping());
 
         LOGGER.info("Registered {} default packet-event mappings", mappings.size());
     }
@@ -1,5 +1,6 @@
 package me.internalizable.numdrassl.event.mapping.interface_;
 
+import com.hypixel.hytale.protocol.FormattedMessage;
 import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
 import me.internalizable.numdrassl.api.event.server.ServerMessageEvent;
 import me.internalizable.numdrassl.event.mapping.PacketContext;
@@ -11,6 +12,11 @@ import java.util.Objects;
 
 /**
  * Maps ServerMessage packet (server -> client) to ServerMessageEvent.
+ *
+ * <p>The event carries the message's plain text. A changed text is only applied to
+ * messages made of a single styled text; the root style is kept. This matches
+ * {@link ServerMessageViewMapping}, so listeners see the same behavior whether or not
+ * ServerMessage is decoded lazily.</p>
  */
 public final class ServerMessageMapping implements PacketEventMapping<ServerMessage, ServerMessageEvent> {
 
@@ -36,7 +42,7 @@ public final class ServerMessageMapping implements PacketEventMapping<ServerMess
             return null;
         }
 
-        String messageText = packet.message != null ? packet.message.toString() : "";
+        String messageText = packet.message != null ? packet.message.plainText() : "";
         return new ServerMessageEvent(context.getPlayer(), ServerMessageEvent.MessageType.CHAT, messageText);
     }
 
@@ -48,10 +54,30 @@ public final class ServerMessageMapping implements PacketEventMapping<ServerMess
         Objects.requireNonNull(context, "context");
         Objects.requireNonNull(packet, "packet");
         Objects.requireNonNull(event, "event");
-        // Note: Modifying FormattedMessage is complex, pass through unchanged
+
+        FormattedMessage message = packet.message;
+        String originalText = message != null ? message.plainText() : "";
+        if (originalText.equals(event.getMessage())) {
+            return packet;
+        }
+
+        // Only flat messages can take new text without losing styling or translations;
+        // anything richer passes through unchanged
+        if (message == null || !isPlainText(message)) {
+            return packet;
+        }
+
+        message.rawText = event.getMessage();
         return packet;
     }
 
+    private static boolean isPlainText(FormattedMessage message) {
+        return (message.children == null || message.children.length == 0)
+            && message.messageId == null
+            && message.params == null
+            && message.messageParams == null;
+    }
+
     @Override
     public boolean isCancelled(@Nonnull ServerMessageEvent event) {
         Objects.requireNonNull(event, "event");
@@ -0,0 +1,89 @@
+package me.internalizable.numdrassl.event.mapping.interface_;
+
+import com.hypixel.hytale.protocol.FormattedMessageView;
+import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
+import com.hypixel.hytale.protocol.packets.interface_.ServerMessageView;
+import me.internalizable.numdrassl.api.event.server.ServerMessageEvent;
+import me.internalizable.numdrassl.event.mapping.PacketContext;
+import me.internalizable.numdrassl.event.mapping.PacketEventMapping;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * Maps lazily decoded ServerMessage packets (server -> client) to ServerMessageEvent.
+ *
+ * <p>Only the plain text is read from the view. The packet is fully decoded
+ * only if a listener changes the message, and the change is only applied to
+ * messages made of a single styled text; the root style is kept. Text and edits
+ * behave exactly as in {@link ServerMessageMapping}.</p>
+ */
+public final class ServerMessageViewMapping implements PacketEventMapping<ServerMessageView, ServerMessageEvent> {
+
+    @Override
+    @Nonnull
+    public Class<ServerMessageView> getPacketClass() {
+        return ServerMessageView.class;
+    }
+
+    @Override
+    @Nonnull
+    public Class<ServerMessageEvent> getEventClass() {
+        return ServerMessageEvent.class;
+    }
+
+    @Override
+    @Nullable
+    public ServerMessageEvent createEvent(@Nonnull PacketContext context, @Nonnull ServerMessageView packet) {
+        Objects.requireNonNull(context, "context");
+        Objects.requireNonNull(packet, "packet");
+
+        if (!context.isServerToClient()) {
+            return null;
+        }
+
+        FormattedMessageView message = packet.getMessage();
+        String messageText = message != null ? message.plainText() : "";
+        return new ServerMessageEvent(context.getPlayer(), ServerMessageEvent.MessageType.CHAT, messageText);
+    }
+
+    @Override
+    @Nullable
+    public ServerMessageView applyChanges(@Nonnull PacketContext context,
+                                          @Nonnull ServerMessageView packet,
+                                          @Nonnull ServerMessageEvent event) {
+        Objects.requireNonNull(context, "context");
+        Objects.requireNonNull(packet, "packet");
+        Objects.requireNonNull(event, "event");
+
+        FormattedMessageView original = packet.getMessage();
+        String originalText = original != null ? original.plainText() : "";
+        if (originalText.equals(event.getMessage())) {
+            return packet;
+        }
+
+        // Only flat messages can take new text without losing styling or translations;
+        // anything richer passes through unchanged
+        if (original == null || !isPlainText(original)) {
+            return packet;
+        }
+
+        ServerMessage edited = packet.edit();
+        edited.message.rawText = event.getMessage();
+        return packet;
+    }
+
+    private static boolean isPlainText(FormattedMessageView message) {
+        return message.childCount() == 0
+            && message.messageId() == null
+            && !message.hasParams()
+            && !message.hasMessageParams();
+    }
+
+    @Override
+    public boolean isCancelled(@Nonnull ServerMessageEvent event) {
+        Objects.requireNonNull(event, "event");
+        return event.isCancelled();
+    }
+}
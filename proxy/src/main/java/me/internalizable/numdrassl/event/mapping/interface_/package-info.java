@@ -1,5 +1,5 @@
 /**
- * Interface packet mappings (ChatMessage, ServerMessage).
+ * Interface packet mappings (ChatMessage, ServerMessage and its lazy view).
  *
  * @see me.internalizable.numdrassl.event.mapping
  */
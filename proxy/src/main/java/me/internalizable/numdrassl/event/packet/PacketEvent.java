@@ -1,6 +1,7 @@
 package me.internalizable.numdrassl.event.packet;
 
 import com.hypixel.hytale.protocol.Packet;
+import io.netty.util.Recycler;
 import me.internalizable.numdrassl.session.ProxySession;
 
 import javax.annotation.Nonnull;
@@ -9,12 +10,24 @@ import java.util.Objects;
 /**
  * Represents a packet event that can be intercepted and modified.
  *
+ * <p>Events dispatched by {@link PacketEventManager} are pooled: an event is only valid
+ * during the listener call it is passed to and is reused once dispatch returns.
+ * Listeners must not keep a reference to it or hand it to another thread.</p>
+ *
  * @param <T> the packet type
  */
 public final class PacketEvent<T extends Packet> {
 
-    private final ProxySession session;
-    private final PacketDirection direction;
+    private static final Recycler<PacketEvent<?>> RECYCLER = new Recycler<>() {
+        @Override
+        protected PacketEvent<?> newObject(Handle<PacketEvent<?>> handle) {
+            return new PacketEvent<>(handle);
+        }
+    };
+
+    private final Recycler.Handle<PacketEvent<?>> handle;
+    private ProxySession session;
+    private PacketDirection direction;
     private T packet;
     private boolean cancelled;
 
@@ -22,12 +35,49 @@ public final class PacketEvent<T extends Packet> {
             @Nonnull ProxySession session,
             @Nonnull PacketDirection direction,
             @Nonnull T packet) {
+        this.handle = null;
         this.session = Objects.requireNonNull(session, "session");
         this.direction = Objects.requireNonNull(direction, "direction");
         this.packet = Objects.requireNonNull(packet, "packet");
         this.cancelled = false;
     }
 
+    private PacketEvent(Recycler.Handle<PacketEvent<?>> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Takes an event from the calling thread's pool. The caller owns the event and
+     * must {@link #recycle()} it once dispatch is done.
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Packet> PacketEvent<T> obtain(
+            @Nonnull ProxySession session,
+            @Nonnull PacketDirection direction,
+            @Nonnull T packet) {
+        PacketEvent<T> event = (PacketEvent<T>) RECYCLER.get();
+        event.session = session;
+        event.direction = direction;
+        event.packet = packet;
+        event.cancelled = false;
+        return event;
+    }
+
+    /**
+     * Returns a pooled event to its pool. Does nothing for events created with the
+     * constructor.
+     */
+    void recycle() {
+        if (handle == null) {
+            return;
+        }
+        session = null;
+        direction = null;
+        packet = null;
+        cancelled = false;
+        handle.recycle(this);
+    }
+
     @Nonnull
     public ProxySession getSession() {
         return session;
@@ -7,32 +7,49 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Manages internal packet event listeners and dispatches packet events.
+ *
+ * <p>Dispatch runs for every forwarded packet, so it does not allocate: listeners are
+ * read from a copy-on-write array instead of iterating a list, a packet is returned
+ * as-is when no listener is registered, and {@link PacketEvent}s are pooled.</p>
  */
 public final class PacketEventManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PacketEventManager.class);
 
-    private final List<PacketListener> listeners = new CopyOnWriteArrayList<>();
+    private static final PacketListener[] NO_LISTENERS = new PacketListener[0];
 
-    public void registerListener(@Nonnull PacketListener listener) {
+    private volatile PacketListener[] listeners = NO_LISTENERS;
+
+    public synchronized void registerListener(@Nonnull PacketListener listener) {
         Objects.requireNonNull(listener, "listener");
-        listeners.add(listener);
+        PacketListener[] current = listeners;
+        PacketListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
         LOGGER.info("Registered packet listener: {}", listener.getClass().getSimpleName());
     }
 
-    public void unregisterListener(@Nonnull PacketListener listener) {
+    public synchronized void unregisterListener(@Nonnull PacketListener listener) {
         Objects.requireNonNull(listener, "listener");
-        listeners.remove(listener);
+        PacketListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].equals(listener)) {
+                PacketListener[] updated = new PacketListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
     }
 
-    public void clearListeners() {
-        listeners.clear();
+    public synchronized void clearListeners() {
+        listeners = NO_LISTENERS;
     }
 
     @Nullable
@@ -55,26 +72,34 @@ public final class PacketEventManager {
             PacketDirection direction,
             boolean isClientPacket) {
 
-        PacketEvent<T> event = new PacketEvent<>(session, direction, packet);
-
-        for (PacketListener listener : listeners) {
-            try {
-                T result = isClientPacket
-                    ? listener.onClientPacket(event)
-                    : listener.onServerPacket(event);
+        PacketListener[] current = listeners;
+        if (current.length == 0) {
+            return packet;
+        }
 
-                if (result == null || event.isCancelled()) {
-                    return null;
+        PacketEvent<T> event = PacketEvent.obtain(session, direction, packet);
+        try {
+            for (PacketListener listener : current) {
+                try {
+                    T result = isClientPacket
+                        ? listener.onClientPacket(event)
+                        : listener.onServerPacket(event);
+
+                    if (result == null || event.isCancelled()) {
+                        return null;
+                    }
+                    event.setPacket(result);
+                } catch (Exception e) {
+                    LOGGER.error("Error in packet listener {} processing {} packet",
+                        listener.getClass().getSimpleName(),
+                        isClientPacket ? "client" : "server", e);
                 }
-                event.setPacket(result);
-            } catch (Exception e) {
-                LOGGER.error("Error in packet listener {} processing {} packet",
-                    listener.getClass().getSimpleName(),
-                    isClientPacket ? "client" : "server", e);
             }
-        }
 
-        return event.getPacket();
+            return event.getPacket();
+        } finally {
+            event.recycle();
+        }
     }
 
     public void dispatchSessionCreated(@Nonnull ProxySession session) {
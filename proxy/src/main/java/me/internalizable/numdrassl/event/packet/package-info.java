@@ -7,7 +7,8 @@
  * <ul>
  *   <li>{@link me.internalizable.numdrassl.event.packet.PacketEventManager} - Manages packet listeners
  *       and dispatches packet events</li>
- *   <li>{@link me.internalizable.numdrassl.event.packet.PacketEvent} - Wrapper for intercepted packets</li>
+ *   <li>{@link me.internalizable.numdrassl.event.packet.PacketEvent} - Wrapper for intercepted packets,
+ *       pooled and only valid during the listener call</li>
  *   <li>{@link me.internalizable.numdrassl.event.packet.PacketListener} - Interface for packet interception</li>
  *   <li>{@link me.internalizable.numdrassl.event.packet.PacketDirection} - Packet flow direction</li>
  * </ul>
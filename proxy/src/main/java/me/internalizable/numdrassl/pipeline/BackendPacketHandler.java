@@ -3,9 +3,11 @@ package me.internalizable.numdrassl.pipeline;
 import com.hypixel.hytale.protocol.Packet;
 import com.hypixel.hytale.protocol.packets.auth.ConnectAccept;
 import com.hypixel.hytale.protocol.packets.connection.Disconnect;
+import com.hypixel.hytale.protocol.packets.connection.Ping;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
 import me.internalizable.numdrassl.profiling.ProxyMetrics;
 import me.internalizable.numdrassl.server.ProxyCore;
 import me.internalizable.numdrassl.session.ProxySession;
@@ -22,6 +24,11 @@ import java.util.Objects;
  * <p>With secret-based authentication, the backend validates players using
  * HMAC-signed referral data. This handler forwards packets between backend
  * and client without intercepting authentication.</p>
+ *
+ * <p>While the session memory budget is under pressure, the backend stream stops
+ * reading whenever the client stream is not writable, so a client that does not
+ * read cannot make the proxy queue the backend's traffic. The client's
+ * {@link ClientPacketHandler} resumes it once the client stream drains.</p>
  */
 public final class BackendPacketHandler extends SimpleChannelInboundHandler<Object> {
 
@@ -51,6 +58,7 @@ public final class BackendPacketHandler extends SimpleChannelInboundHandler<Obje
 
         ProxyMetrics.getInstance().recordPacketFromBackend(packet.getClass().getSimpleName(), 0);
         dispatchPacket(packet);
+        pauseIfClientBlocked(ctx);
     }
 
     // ==================== Packet Routing ====================
@@ -61,6 +69,7 @@ public final class BackendPacketHandler extends SimpleChannelInboundHandler<Obje
             LOGGER.debug("Session {}: Forwarding raw backend packet id={}", session.getSessionId(), packetId);
         }
         session.sendToClient(raw.retain());
+        pauseIfClientBlocked(ctx);
     }
 
     private void dispatchPacket(Packet packet) {
@@ -76,10 +85,43 @@ public final class BackendPacketHandler extends SimpleChannelInboundHandler<Obje
     private void forwardToClient(Packet packet) {
         Packet toForward = proxyCore.getEventManager().dispatchServerPacket(session, packet);
         if (toForward != null) {
+            if (toForward instanceof Ping ping) {
+                // Timed against the client's Raw pong for the session's ping
+                session.getQualityTracker().onPingToClient(ping.id, System.nanoTime());
+            }
             session.sendToClient(toForward);
         }
     }
 
+    // ==================== Backpressure ====================
+
+    private void pauseIfClientBlocked(ChannelHandlerContext ctx) {
+        QuicStreamChannel client = session.getClientStream();
+        if (client != null && !client.isWritable() && ctx.channel().config().isAutoRead()
+                && proxyCore.getMemoryBudget().isUnderPressure()) {
+            ctx.channel().config().setAutoRead(false);
+            ProxyMetrics.getInstance().recordMemoryBackpressure("backend_to_client");
+        }
+    }
+
+    /**
+     * The backend stream drained: let the client stream read again if it was paused.
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            resumeClient();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    private void resumeClient() {
+        QuicStreamChannel client = session.getClientStream();
+        if (client != null && !client.config().isAutoRead()) {
+            client.config().setAutoRead(true);
+        }
+    }
+
     // ==================== Specific Packet Handlers ====================
 
     private void handleConnectAccept(ConnectAccept accept) {
@@ -87,6 +129,7 @@ public final class BackendPacketHandler extends SimpleChannelInboundHandler<Obje
 
         session.setState(SessionState.CONNECTED);
         proxyCore.getSessionManager().registerPlayerUuid(session, true);
+        proxyCore.getSessionManager().registerUsername(session);
 
         fireApiEvents();
 
@@ -136,6 +179,8 @@ public final class BackendPacketHandler extends SimpleChannelInboundHandler<Obje
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         LOGGER.info("Session {}: Backend stream closed", session.getSessionId());
+        // A client paused for this stream must not stay paused for the next backend
+        resumeClient();
 
         if (shouldDisconnectClient()) {
             session.disconnect("Backend connection lost");
@@ -4,9 +4,12 @@ import com.hypixel.hytale.protocol.Packet;
 import com.hypixel.hytale.protocol.packets.auth.AuthToken;
 import com.hypixel.hytale.protocol.packets.connection.Connect;
 import com.hypixel.hytale.protocol.packets.connection.Disconnect;
+import com.hypixel.hytale.protocol.packets.connection.Pong;
+import com.hypixel.hytale.protocol.packets.connection.PongType;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
 import me.internalizable.numdrassl.pipeline.handler.BackendConnectionHandler;
 import me.internalizable.numdrassl.pipeline.handler.ClientAuthenticationHandler;
 import me.internalizable.numdrassl.profiling.ProxyMetrics;
@@ -27,6 +30,10 @@ import java.util.Objects;
  *   <li>{@link ClientAuthenticationHandler} - Authentication flow</li>
  *   <li>{@link BackendConnectionHandler} - Backend connection</li>
  * </ul>
+ *
+ * <p>While the session memory budget is under pressure, the client stream stops
+ * reading whenever the backend stream is not writable. {@link BackendPacketHandler}
+ * resumes it once the backend stream drains.</p>
  */
 public final class ClientPacketHandler extends SimpleChannelInboundHandler<Object> {
 
@@ -49,6 +56,7 @@ public final class ClientPacketHandler extends SimpleChannelInboundHandler<Objec
         if (msg instanceof ByteBuf raw) {
             ProxyMetrics.getInstance().recordPacketFromClient("RawPacket", raw.readableBytes());
             handleRawPacket(raw);
+            pauseIfBackendBlocked(ctx);
             return;
         }
 
@@ -59,6 +67,7 @@ public final class ClientPacketHandler extends SimpleChannelInboundHandler<Objec
         }
         ProxyMetrics.getInstance().recordPacketFromClient(packet.getClass().getSimpleName(), 0);
         dispatchPacket(packet);
+        pauseIfBackendBlocked(ctx);
     }
 
     // ==================== Packet Routing ====================
@@ -80,10 +89,20 @@ public final class ClientPacketHandler extends SimpleChannelInboundHandler<Objec
         } else if (packet instanceof Disconnect disconnect) {
             handleDisconnect(disconnect);
         } else {
+            if (packet instanceof Pong pong && pong.type == PongType.Raw) {
+                recordPing(pong);
+            }
             forwardToBackend(packet);
         }
     }
 
+    private void recordPing(Pong pong) {
+        long rtt = session.getQualityTracker().onPongFromClient(pong.id, System.nanoTime());
+        if (rtt >= 0) {
+            ProxyMetrics.getInstance().recordClientPing(rtt);
+        }
+    }
+
     private void handleDisconnect(Disconnect disconnect) {
         LOGGER.info("Session {}: Client disconnecting", session.getSessionId());
 
@@ -94,6 +113,10 @@ public final class ClientPacketHandler extends SimpleChannelInboundHandler<Objec
             }
         }
 
+        // An explicit logout ends the grace period for a quick re-authentication
+        if (session.getPlayerUuid() != null && proxyCore.getAuthenticator() != null) {
+            proxyCore.getAuthenticator().revokeVerifiedIdentity(session.getPlayerUuid());
+        }
         session.disconnect("Client disconnected");
     }
 
@@ -109,6 +132,29 @@ public final class ClientPacketHandler extends SimpleChannelInboundHandler<Objec
         }
     }
 
+    // ==================== Backpressure ====================
+
+    private void pauseIfBackendBlocked(ChannelHandlerContext ctx) {
+        QuicStreamChannel backend = session.getBackendStream();
+        if (backend != null && !backend.isWritable() && ctx.channel().config().isAutoRead()
+                && proxyCore.getMemoryBudget().isUnderPressure()) {
+            ctx.channel().config().setAutoRead(false);
+            ProxyMetrics.getInstance().recordMemoryBackpressure("client_to_backend");
+        }
+    }
+
+    /**
+     * The client stream drained: let the backend stream read again if it was paused.
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        QuicStreamChannel backend = session.getBackendStream();
+        if (ctx.channel().isWritable() && backend != null && !backend.config().isAutoRead()) {
+            backend.config().setAutoRead(true);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     // ==================== Channel Lifecycle ====================
 
     @Override
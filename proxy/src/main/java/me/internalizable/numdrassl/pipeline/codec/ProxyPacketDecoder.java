@@ -8,10 +8,16 @@ import com.hypixel.hytale.protocol.io.ProtocolException;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import me.internalizable.numdrassl.profiling.ForwardingLatency;
+import me.internalizable.numdrassl.profiling.TrafficHeavyHitters;
+import me.internalizable.numdrassl.server.ratelimit.SourceRateLimiter;
+import me.internalizable.numdrassl.session.capture.SessionCapture;
+import me.internalizable.numdrassl.session.memory.SessionMemory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Objects;
 
@@ -20,6 +26,19 @@ import java.util.Objects;
  *
  * <p>Unknown packets (not in {@link PacketRegistry}) are forwarded as raw
  * {@link ByteBuf} to allow transparent proxying of new packet types.</p>
+ *
+ * <p>With a {@link SourceRateLimiter.PacketGate}, every complete frame is checked
+ * against the sender's packet budget before it is decoded, so flooding costly packets
+ * does not cost decode time. Droppable frames over budget, such as chat, are skipped;
+ * for any other frame the connection is closed.</p>
+ *
+ * <p>With a {@link SessionMemory}, the size of the cumulation buffer, which holds
+ * incomplete frames, is reported after every read. With a
+ * {@link TrafficHeavyHitters.Source}, the bytes and frames of every read are recorded.</p>
+ *
+ * <p>Decoded packets and frames are stamped for {@link ForwardingLatency} sampling. With a
+ * {@link SessionCapture.Tap}, every complete frame is offered to the session's capture
+ * before it is rate limited or decoded.</p>
  */
 public final class ProxyPacketDecoder extends ByteToMessageDecoder {
 
@@ -28,12 +47,61 @@ public final class ProxyPacketDecoder extends ByteToMessageDecoder {
     private static final int HEADER_SIZE = 8;           // 4 bytes length + 4 bytes packet ID
     private static final int MAX_PAYLOAD_SIZE = 100_000_000; // 100MB
 
+    private static final ForwardingLatency LATENCY = ForwardingLatency.getInstance();
+
     private final String connectionType;
     private final boolean debugMode;
+    private final SourceRateLimiter.PacketGate rateLimit;
+    private final SessionMemory memory;
+    private final TrafficHeavyHitters.Source traffic;
+    private final SessionCapture.Tap capture;
+
+    // Only touched from the channel's event loop
+    private int reportedCumulation;
+    private int framesRead;
+
+    public ProxyPacketDecoder(@Nonnull Options options) {
+        Objects.requireNonNull(options, "options");
+        this.connectionType = options.connectionType;
+        this.debugMode = options.debugMode;
+        this.rateLimit = options.rateLimit;
+        this.memory = options.memory;
+        this.traffic = options.traffic;
+        this.capture = options.capture;
+    }
 
-    public ProxyPacketDecoder(@Nonnull String connectionType, boolean debugMode) {
-        this.connectionType = Objects.requireNonNull(connectionType, "connectionType");
-        this.debugMode = debugMode;
+    /**
+     * Starts the options of a decoder. Everything not set stays off.
+     *
+     * @param connectionType name of the connection, used in log messages
+     * @param debugMode whether to log every decoded packet
+     */
+    @Nonnull
+    public static Options options(@Nonnull String connectionType, boolean debugMode) {
+        return new Options(connectionType, debugMode);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        int bytes = msg instanceof ByteBuf buf ? buf.readableBytes() : 0;
+        super.channelRead(ctx, msg);
+        reportCumulation(internalBuffer().capacity());
+        if (traffic != null && bytes > 0) {
+            traffic.record(framesRead, bytes);
+            framesRead = 0;
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) {
+        reportCumulation(0);
+    }
+
+    private void reportCumulation(int bytes) {
+        if (memory != null && bytes != reportedCumulation) {
+            memory.addDecoderBytes(bytes - reportedCumulation);
+            reportedCumulation = bytes;
+        }
     }
 
     @Override
@@ -52,6 +120,19 @@ public final class ProxyPacketDecoder extends ByteToMessageDecoder {
         int packetId = in.readIntLE();
         PacketRegistry.PacketInfo packetInfo = PacketRegistry.getById(packetId);
 
+        // Reject oversized packets before buffering or capturing them
+        if (packetInfo != null && !validatePacketSize(ctx, payloadLength, packetInfo)) {
+            return;
+        }
+
+        if (capture != null && in.readableBytes() >= payloadLength) {
+            capture.record(in, in.readerIndex() - HEADER_SIZE, HEADER_SIZE + payloadLength);
+        }
+
+        if (rateLimit != null && !acquireBudget(ctx, in, payloadLength, packetId, packetInfo)) {
+            return;
+        }
+
         if (packetInfo == null) {
             decodeUnknownPacket(ctx, in, out, payloadLength, packetId);
         } else {
@@ -81,6 +162,40 @@ public final class ProxyPacketDecoder extends ByteToMessageDecoder {
         return true;
     }
 
+    /**
+     * Waits for the complete frame and charges it to the sender's budget.
+     *
+     * @return true if the frame should be decoded, false if it is incomplete or was dropped
+     */
+    private boolean acquireBudget(ChannelHandlerContext ctx, ByteBuf in, int payloadLength, int packetId,
+                                  @Nullable PacketRegistry.PacketInfo packetInfo) {
+        if (in.readableBytes() < payloadLength) {
+            in.resetReaderIndex();
+            return false;
+        }
+
+        String packetType = packetInfo != null ? packetInfo.name() : null;
+        switch (rateLimit.tryAcquire(packetType)) {
+            case ALLOW -> {
+                return true;
+            }
+            case DROP -> {
+                in.skipBytes(payloadLength);
+                framesRead++;
+                if (debugMode) {
+                    LOGGER.debug("[{}] Dropped packet id={} over rate limit", connectionType, packetId);
+                }
+                return false;
+            }
+            default -> {
+                LOGGER.warn("[{}] Packet id={} over rate limit, closing connection", connectionType, packetId);
+                in.skipBytes(in.readableBytes());
+                ctx.close();
+                return false;
+            }
+        }
+    }
+
     // ==================== Decoding ====================
 
     private void decodeUnknownPacket(ChannelHandlerContext ctx, ByteBuf in, List<Object> out,
@@ -97,7 +212,8 @@ public final class ProxyPacketDecoder extends ByteToMessageDecoder {
 
         try {
             in.readBytes(rawCopy, totalSize);
-            out.add(rawCopy);
+            out.add(LATENCY.stampFrame(rawCopy));
+            framesRead++;
 
             if (debugMode) {
                 LOGGER.debug("[{}] Forwarding unknown packet id={} (size={} bytes)",
@@ -111,10 +227,6 @@ public final class ProxyPacketDecoder extends ByteToMessageDecoder {
 
     private void decodeKnownPacket(ChannelHandlerContext ctx, ByteBuf in, List<Object> out,
                                     int payloadLength, int packetId, PacketRegistry.PacketInfo packetInfo) {
-        if (!validatePacketSize(ctx, payloadLength, packetInfo)) {
-            return;
-        }
-
         if (in.readableBytes() < payloadLength) {
             in.resetReaderIndex();
             return;
@@ -123,6 +235,8 @@ public final class ProxyPacketDecoder extends ByteToMessageDecoder {
         try {
             Packet packet = PacketIO.readFramedPacketWithInfo(in, payloadLength, packetInfo, PacketStatsRecorder.NOOP);
             out.add(packet);
+            framesRead++;
+            LATENCY.stamp(packet);
 
             if (debugMode) {
                 LOGGER.debug("[{}] Decoded packet: {} (id={})",
@@ -142,5 +256,61 @@ public final class ProxyPacketDecoder extends ByteToMessageDecoder {
         LOGGER.error("[{}] Exception in packet decoder", connectionType, cause);
         ctx.close();
     }
-}
 
+    // ==================== Options ====================
+
+    /**
+     * What a decoder checks and reports besides decoding. The decoder copies the options
+     * when it is created.
+     */
+    public static final class Options {
+
+        private final String connectionType;
+        private final boolean debugMode;
+        private SourceRateLimiter.PacketGate rateLimit;
+        private SessionMemory memory;
+        private TrafficHeavyHitters.Source traffic;
+        private SessionCapture.Tap capture;
+
+        private Options(String connectionType, boolean debugMode) {
+            this.connectionType = Objects.requireNonNull(connectionType, "connectionType");
+            this.debugMode = debugMode;
+        }
+
+        /**
+         * Checks every complete frame against the sender's packet budget.
+         */
+        @Nonnull
+        public Options rateLimit(@Nullable SourceRateLimiter.PacketGate rateLimit) {
+            this.rateLimit = rateLimit;
+            return this;
+        }
+
+        /**
+         * Reports the size of buffered incomplete frames to the session's memory.
+         */
+        @Nonnull
+        public Options memory(@Nullable SessionMemory memory) {
+            this.memory = memory;
+            return this;
+        }
+
+        /**
+         * Records the bytes and frames of every read.
+         */
+        @Nonnull
+        public Options traffic(@Nullable TrafficHeavyHitters.Source traffic) {
+            this.traffic = traffic;
+            return this;
+        }
+
+        /**
+         * Offers every complete frame to the session's capture.
+         */
+        @Nonnull
+        public Options capture(@Nullable SessionCapture.Tap capture) {
+            this.capture = capture;
+            return this;
+        }
+    }
+}
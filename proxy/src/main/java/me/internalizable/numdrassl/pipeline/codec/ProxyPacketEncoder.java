@@ -1,5 +1,6 @@
 package me.internalizable.numdrassl.pipeline.codec;
 
+import com.hypixel.hytale.protocol.CachedPacket;
 import com.hypixel.hytale.protocol.Packet;
 import com.hypixel.hytale.protocol.io.PacketIO;
 import com.hypixel.hytale.protocol.io.PacketStatsRecorder;
@@ -7,10 +8,15 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
+import me.internalizable.numdrassl.profiling.ForwardingLatency;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.profiling.jfr.PacketForwardEvent;
+import me.internalizable.numdrassl.session.capture.SessionCapture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Objects;
 
 /**
@@ -18,34 +24,82 @@ import java.util.Objects;
  *
  * <p>Supports two message types:</p>
  * <ul>
- *   <li>{@link Packet} - Encoded using the Hytale protocol</li>
+ *   <li>{@link Packet} - Encoded using the Hytale protocol; a {@link CachedPacket}
+ *       is framed with the ID of the packet type it was encoded from</li>
  *   <li>{@link ByteBuf} - Forwarded as-is (for unknown packets)</li>
  * </ul>
  *
+ * <p>With a latency direction, packets stamped by {@link ProxyPacketDecoder} on the
+ * other side are recorded as {@link ForwardingLatency} samples when encoded. With a
+ * {@link SessionCapture.Tap}, every encoded frame is offered to the session's capture.</p>
+ *
  * <p>This encoder is marked as {@link ChannelHandler.Sharable @Sharable} and can be
- * reused across multiple channels since it has no per-channel state.</p>
+ * reused across multiple channels; a capture tap belongs to one session, so an encoder
+ * created with one is only shared within that session.</p>
  */
 @ChannelHandler.Sharable
 public final class ProxyPacketEncoder extends MessageToByteEncoder<Object> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ProxyPacketEncoder.class);
 
+    private static final ForwardingLatency LATENCY = ForwardingLatency.getInstance();
+
     private final String connectionType;
     private final boolean debugMode;
+    private final String latencyDirection;
+    private final SessionCapture.Tap capture;
 
     public ProxyPacketEncoder(@Nonnull String connectionType, boolean debugMode) {
+        this(connectionType, debugMode, null);
+    }
+
+    /**
+     * @param latencyDirection {@code client_to_backend} or {@code backend_to_client} to
+     *                         record forwarding latency, or null
+     */
+    public ProxyPacketEncoder(@Nonnull String connectionType, boolean debugMode,
+                              @Nullable String latencyDirection) {
+        this(connectionType, debugMode, latencyDirection, null);
+    }
+
+    /**
+     * @param latencyDirection {@code client_to_backend} or {@code backend_to_client} to
+     *                         record forwarding latency, or null
+     * @param capture          the capture point of the encoded frames, or null
+     */
+    public ProxyPacketEncoder(@Nonnull String connectionType, boolean debugMode,
+                              @Nullable String latencyDirection, @Nullable SessionCapture.Tap capture) {
         this.connectionType = Objects.requireNonNull(connectionType, "connectionType");
         this.debugMode = debugMode;
+        this.latencyDirection = latencyDirection;
+        this.capture = capture;
     }
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) {
+        int start = out.writerIndex();
         if (msg instanceof ByteBuf raw) {
             encodeRawPacket(raw, out);
         } else if (msg instanceof Packet packet) {
             encodePacket(packet, out);
         } else {
             LOGGER.warn("[{}] Unknown message type: {}", connectionType, msg.getClass().getName());
+            return;
+        }
+        if (capture != null) {
+            capture.record(out, start, out.writerIndex() - start);
+        }
+        if (latencyDirection != null) {
+            recordLatency(msg, out.writerIndex() - start);
+        }
+    }
+
+    private void recordLatency(Object msg, int bytes) {
+        long nanos = LATENCY.complete(msg);
+        if (nanos >= 0) {
+            String packetType = msg instanceof Packet packet ? packetClass(packet).getSimpleName() : "RawPacket";
+            ProxyMetrics.getInstance().recordForwardingLatency(latencyDirection, packetType, nanos);
+            PacketForwardEvent.record(latencyDirection, packetType, bytes, nanos);
         }
     }
 
@@ -74,7 +128,19 @@ public final class ProxyPacketEncoder extends MessageToByteEncoder<Object> {
                 connectionType, packet.getClass().getSimpleName(), packet.getId());
         }
 
-        PacketIO.writeFramedPacket(packet, packet.getClass(), out, PacketStatsRecorder.NOOP);
+        PacketIO.writeFramedPacket(packet, packetClass(packet), out, PacketStatsRecorder.NOOP);
+    }
+
+    /**
+     * Resolves the registered packet class used for framing.
+     * Cached packets carry pre-serialized bytes of another packet type.
+     */
+    @Nonnull
+    public static Class<? extends Packet> packetClass(@Nonnull Packet packet) {
+        if (packet instanceof CachedPacket<?> cached) {
+            return cached.getPacketType();
+        }
+        return packet.getClass();
     }
 
     @Override
@@ -0,0 +1,90 @@
+package me.internalizable.numdrassl.pipeline.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import me.internalizable.numdrassl.session.memory.SessionMemory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Splits a stream into complete Hytale frames without decoding them.
+ *
+ * <p>Each frame (length + packet ID header and payload) is emitted as a retained
+ * slice of the cumulation buffer, so relayed streams are forwarded without copying.
+ * The frames can be written as-is to any stream; {@link ProxyPacketEncoder}
+ * and the raw stream pipeline both pass {@link ByteBuf}s through unchanged.</p>
+ *
+ * <p>With a {@link SessionMemory}, the size of the cumulation buffer is reported
+ * after every read.</p>
+ */
+public final class RawFrameDecoder extends ByteToMessageDecoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RawFrameDecoder.class);
+
+    private static final int HEADER_SIZE = 8;           // 4 bytes length + 4 bytes packet ID
+    private static final int MAX_PAYLOAD_SIZE = 100_000_000; // 100MB
+
+    private final String connectionType;
+    private final SessionMemory memory;
+
+    // Only touched from the channel's event loop
+    private int reportedCumulation;
+
+    public RawFrameDecoder(@Nonnull String connectionType) {
+        this(connectionType, null);
+    }
+
+    public RawFrameDecoder(@Nonnull String connectionType, @Nullable SessionMemory memory) {
+        this.connectionType = Objects.requireNonNull(connectionType, "connectionType");
+        this.memory = memory;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        super.channelRead(ctx, msg);
+        reportCumulation(internalBuffer().capacity());
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) {
+        reportCumulation(0);
+    }
+
+    private void reportCumulation(int bytes) {
+        if (memory != null && bytes != reportedCumulation) {
+            memory.addDecoderBytes(bytes - reportedCumulation);
+            reportedCumulation = bytes;
+        }
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        while (in.readableBytes() >= HEADER_SIZE) {
+            int payloadLength = in.getIntLE(in.readerIndex());
+            if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_SIZE) {
+                LOGGER.error("[{}] Invalid payload length: {}", connectionType, payloadLength);
+                in.skipBytes(in.readableBytes());
+                ctx.close();
+                return;
+            }
+
+            int frameSize = HEADER_SIZE + payloadLength;
+            if (in.readableBytes() < frameSize) {
+                return;
+            }
+            out.add(in.readRetainedSlice(frameSize));
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOGGER.error("[{}] Exception in frame decoder", connectionType, cause);
+        ctx.close();
+    }
+}
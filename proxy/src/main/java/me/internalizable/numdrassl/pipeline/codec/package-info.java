@@ -11,6 +11,8 @@
  *   <li>{@link me.internalizable.numdrassl.pipeline.codec.ProxyPacketEncoder} - Encodes
  *       {@link com.hypixel.hytale.protocol.Packet} objects into bytes. Raw buffers
  *       are forwarded as-is.</li>
+ *   <li>{@link me.internalizable.numdrassl.pipeline.codec.RawFrameDecoder} - Splits a
+ *       stream into complete frames without decoding them, for relayed streams.</li>
  * </ul>
  *
  * <h2>Packet Format</h2>
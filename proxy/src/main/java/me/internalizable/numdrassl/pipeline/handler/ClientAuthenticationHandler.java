@@ -4,11 +4,14 @@ import com.hypixel.hytale.protocol.packets.auth.AuthGrant;
 import com.hypixel.hytale.protocol.packets.auth.AuthToken;
 import com.hypixel.hytale.protocol.packets.auth.ServerAuthToken;
 import com.hypixel.hytale.protocol.packets.connection.Connect;
+import io.micrometer.core.instrument.Timer;
 import me.internalizable.numdrassl.api.event.connection.AsyncLoginEvent;
 import me.internalizable.numdrassl.auth.ProxyAuthenticator;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
 import me.internalizable.numdrassl.server.ProxyCore;
 import me.internalizable.numdrassl.session.ProxySession;
 import me.internalizable.numdrassl.session.SessionState;
+import me.internalizable.numdrassl.session.login.LoginPhase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,12 +25,18 @@ import java.util.concurrent.CompletableFuture;
  * <p>Authentication steps:</p>
  * <ol>
  *   <li>Client sends Connect (identity_token, uuid, username)</li>
+ *   <li>Proxy waits for login admission (rate limit and handshake cap)</li>
  *   <li>Proxy validates and requests auth grant from sessions.hytale.com</li>
  *   <li>Proxy sends AuthGrant to client</li>
  *   <li>Client sends AuthToken (access_token, server_authorization_grant)</li>
  *   <li>Proxy exchanges server_authorization_grant</li>
  *   <li>Proxy sends ServerAuthToken to client</li>
  * </ol>
+ *
+ * <p>A client that completed these steps moments ago with the same certificate still
+ * goes through steps 1 to 5, so its identity token is verified and it gets a fresh
+ * grant; only step 6 is skipped, answering its AuthToken with the cached server
+ * token.</p>
  */
 public final class ClientAuthenticationHandler {
 
@@ -36,6 +45,7 @@ public final class ClientAuthenticationHandler {
     private final ProxyCore proxyCore;
     private final ProxySession session;
     private final Runnable onAuthenticationComplete;
+    private volatile Timer.Sample authenticationTimer;
 
     public ClientAuthenticationHandler(
             @Nonnull ProxyCore proxyCore,
@@ -54,10 +64,25 @@ public final class ClientAuthenticationHandler {
     public void handleConnect(@Nonnull Connect connect) {
         Objects.requireNonNull(connect, "connect");
 
+        session.getLoginTrace().mark(LoginPhase.HANDSHAKE);
         LOGGER.info("Session {}: Received Connect from {} ({})",
             session.getSessionId(), connect.username, connect.uuid);
 
         session.handleConnectPacket(connect);
+
+        // Wait for a login slot before touching the session service or the backends
+        session.setState(SessionState.QUEUED);
+        proxyCore.getLoginAdmission().admit(session, () -> beginAuthentication(connect));
+    }
+
+    /**
+     * Starts authentication once the session has been admitted by the login queue.
+     *
+     * @param connect the Connect packet
+     */
+    private void beginAuthentication(Connect connect) {
+        session.getLoginTrace().mark(LoginPhase.QUEUE);
+        authenticationTimer = ProxyMetrics.getInstance().startTimer();
         session.setState(SessionState.AUTHENTICATING);
         proxyCore.getSessionManager().registerPlayerUuid(session);
 
@@ -69,6 +94,7 @@ public final class ClientAuthenticationHandler {
         // Store the connect packet - LoginEvent will be fired after authentication completes
         // in completeAuthentication() to give async permission loading time to complete.
         session.setOriginalConnect(connect);
+
         requestAuthGrant(connect);
     }
 
@@ -105,6 +131,7 @@ public final class ClientAuthenticationHandler {
     public void handleAuthToken(@Nonnull AuthToken authToken) {
         Objects.requireNonNull(authToken, "authToken");
 
+        session.getLoginTrace().mark(LoginPhase.CLIENT_AUTH);
         LOGGER.info("Session {}: Received AuthToken from client", session.getSessionId());
 
         ProxyAuthenticator authenticator = proxyCore.getAuthenticator();
@@ -128,6 +155,17 @@ public final class ClientAuthenticationHandler {
         return proxyCore.getEventManager().dispatchClientPacket(session, connect);
     }
 
+    private String lookupVerifiedIdentity(ProxyAuthenticator authenticator) {
+        String verifiedToken = authenticator.getVerifiedServerAccessToken(
+            session.getClientCertificateFingerprint(), session.getPlayerUuid());
+        if (verifiedToken != null) {
+            ProxyMetrics.getInstance().recordAuthIdentityCacheHit();
+        } else {
+            ProxyMetrics.getInstance().recordAuthIdentityCacheMiss();
+        }
+        return verifiedToken;
+    }
+
     private void requestAuthGrant(Connect connect) {
         ProxyAuthenticator authenticator = proxyCore.getAuthenticator();
         if (authenticator == null || !authenticator.isAuthenticated()) {
@@ -155,6 +193,7 @@ public final class ClientAuthenticationHandler {
             return;
         }
 
+        session.getLoginTrace().mark(LoginPhase.AUTH_GRANT);
         LOGGER.info("Session {}: Got auth grant, sending AuthGrant to client", session.getSessionId());
 
         session.setClientAuthGrant(result.authorizationGrant());
@@ -179,6 +218,16 @@ public final class ClientAuthenticationHandler {
 
     private void exchangeServerAuthGrant(ProxyAuthenticator authenticator, String serverAuthGrant) {
         if (serverAuthGrant != null && !serverAuthGrant.isEmpty()) {
+            // A client that finished the full exchange moments ago with the same certificate
+            // (crash, network hiccup) gets its server token back without another round trip
+            String verifiedToken = lookupVerifiedIdentity(authenticator);
+            if (verifiedToken != null) {
+                LOGGER.info("Session {}: Reusing recently verified identity, skipping grant exchange",
+                    session.getSessionId());
+                completeAuthentication(verifiedToken);
+                return;
+            }
+
             LOGGER.info("Session {}: Exchanging server authorization grant", session.getSessionId());
 
             authenticator.exchangeServerAuthGrant(serverAuthGrant)
@@ -199,6 +248,8 @@ public final class ClientAuthenticationHandler {
         }
 
         LOGGER.info("Session {}: Got server access token, sending ServerAuthToken", session.getSessionId());
+        proxyCore.getAuthenticator().cacheVerifiedIdentity(
+            session.getClientCertificateFingerprint(), session.getPlayerUuid(), serverAccessToken);
         completeAuthentication(serverAccessToken);
     }
 
@@ -218,9 +269,15 @@ public final class ClientAuthenticationHandler {
      * @param serverAccessToken The access token verified by the central auth server.
      */
     private void completeAuthentication(String serverAccessToken) {
+        session.getLoginTrace().mark(LoginPhase.GRANT_EXCHANGE);
+
         // 1. Send success packet to client immediately to prevent protocol timeouts
         ServerAuthToken serverAuthToken = new ServerAuthToken(serverAccessToken, null);
         session.sendToClient(serverAuthToken);
+        Timer.Sample timer = authenticationTimer;
+        if (timer != null) {
+            ProxyMetrics.getInstance().recordAuthenticationTime(timer);
+        }
 
         // 2. Get lifecycle handler
         var apiProxy = proxyCore.getApiProxy();
@@ -238,6 +295,7 @@ public final class ClientAuthenticationHandler {
                 .thenAccept(result -> {
 
                     if (!result.isAllowed()) {
+                        revokeVerifiedIdentity();
                         String denyReason = result.getDenyReason();
                         session.disconnect(denyReason != null ? denyReason : "Connection denied by proxy");
                         return;
@@ -246,6 +304,7 @@ public final class ClientAuthenticationHandler {
                     // Fire LoginEvent now that authentication is complete
                     // This gives permission plugins time to load data between PermissionSetupEvent and LoginEvent
                     fireLoginEvent();
+                    session.getLoginTrace().mark(LoginPhase.LOGIN_EVENTS);
 
                     onAuthenticationComplete.run();
                 })
@@ -264,6 +323,13 @@ public final class ClientAuthenticationHandler {
         // Do NOT call it here - that would cause duplicate backend connections!
     }
 
+    private void revokeVerifiedIdentity() {
+        ProxyAuthenticator authenticator = proxyCore.getAuthenticator();
+        if (authenticator != null && session.getPlayerUuid() != null) {
+            authenticator.revokeVerifiedIdentity(session.getPlayerUuid());
+        }
+    }
+
     /**
      * Fires the LoginEvent after authentication completes.
      * If cancelled, disconnects the player.
@@ -276,6 +342,7 @@ public final class ClientAuthenticationHandler {
 
         Connect processed = dispatchConnectEvent(connect);
         if (processed == null) {
+            revokeVerifiedIdentity();
             session.disconnect("Login denied");
         }
     }
@@ -161,6 +161,7 @@ public final class NumdrasslProxy implements ProxyServer {
         commandManager.register(this, new HelpCommand(commandManager));
         commandManager.register(this, new AuthCommand(core));
         commandManager.register(this, new SessionsCommand(core));
+        commandManager.register(this, new CaptureCommand(core));
         commandManager.register(this, new StopCommand(core), "shutdown", "end");
         commandManager.register(this, new ServerCommand(), "srv");
         commandManager.register(this, new FindCommand(), "find-server");
@@ -314,12 +315,22 @@ public final class NumdrasslProxy implements ProxyServer {
     @Nonnull
     public Optional<Player> getPlayer(@Nonnull String username) {
         Objects.requireNonNull(username, "username");
-        for (ProxySession session : core.getSessionManager().getAllSessions()) {
-            if (username.equalsIgnoreCase(session.getUsername())) {
-                return Optional.ofNullable(getOrCreatePlayer(session));
+        return core.getSessionManager().findByUsername(username)
+            .map(this::getOrCreatePlayer);
+    }
+
+    @Override
+    @Nonnull
+    public List<Player> matchPlayers(@Nonnull String prefix, int limit) {
+        Objects.requireNonNull(prefix, "prefix");
+        List<Player> players = new ArrayList<>();
+        for (ProxySession session : core.getSessionManager().findByUsernamePrefix(prefix, limit)) {
+            Player player = getOrCreatePlayer(session);
+            if (player != null) {
+                players.add(player);
             }
         }
-        return Optional.empty();
+        return Collections.unmodifiableList(players);
     }
 
     /**
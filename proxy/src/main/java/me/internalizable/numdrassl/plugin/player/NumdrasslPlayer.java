@@ -2,10 +2,12 @@ package me.internalizable.numdrassl.plugin.player;
 
 import com.hypixel.hytale.protocol.Packet;
 import me.internalizable.numdrassl.api.chat.ChatMessageBuilder;
+import me.internalizable.numdrassl.api.chat.ChatMessageTemplate;
 import me.internalizable.numdrassl.api.event.permission.PermissionSetupEvent;
 import me.internalizable.numdrassl.api.permission.PermissionFunction;
 import me.internalizable.numdrassl.api.permission.PermissionProvider;
 import me.internalizable.numdrassl.api.permission.Tristate;
+import me.internalizable.numdrassl.api.player.ConnectionQuality;
 import me.internalizable.numdrassl.api.player.Player;
 import me.internalizable.numdrassl.api.player.PlayerSettings;
 import me.internalizable.numdrassl.api.player.TransferResult;
@@ -16,6 +18,7 @@ import me.internalizable.numdrassl.session.ProxySession;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.net.InetSocketAddress;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
@@ -154,6 +157,12 @@ public final class NumdrasslPlayer implements Player {
         return session.getPing();
     }
 
+    @Override
+    @Nonnull
+    public ConnectionQuality getConnectionQuality() {
+        return session.getQualityTracker().snapshot();
+    }
+
     // ==================== Packet Sending ====================
 
     @Override
@@ -184,6 +193,13 @@ public final class NumdrasslPlayer implements Player {
         session.sendChatMessage(builder);
     }
 
+    @Override
+    public void sendMessage(@Nonnull ChatMessageTemplate template, @Nonnull Map<String, String> placeholders) {
+        Objects.requireNonNull(template, "template");
+        Objects.requireNonNull(placeholders, "placeholders");
+        session.sendChatMessage(template, placeholders);
+    }
+
     // ==================== Connection Management ====================
 
     @Override
@@ -0,0 +1,125 @@
+package me.internalizable.numdrassl.profiling;
+
+import io.netty.buffer.ByteBuf;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Samples how long packets take to cross the proxy, from {@code ProxyPacketDecoder}
+ * on one side to {@code ProxyPacketEncoder} on the other, including event loop
+ * handoffs and event listeners.
+ *
+ * <p>Decoded packets are sampled at random, one in {@link #getSampleRate()}. A sampled
+ * packet is stamped into a small table slot chosen by its identity hash. The packet
+ * objects come from the protocol library and cannot carry a timestamp themselves.
+ * When the encoder writes the same object, it takes the stamp out and records the
+ * elapsed time to {@link ProxyMetrics#recordForwardingLatency}. A slot holds the
+ * message and its time together and is only ever swapped whole, so a reader never
+ * pairs a message with another message's time.</p>
+ *
+ * <p>Two sampled packets that land in the same slot overwrite each other, so that
+ * sample is lost. A packet that is dropped or replaced by a listener is never
+ * completed, and its stamp stays until the slot is reused. Every completed sample is
+ * recorded, however long it took, since the slow ones are what the histogram is for.</p>
+ *
+ * <p>Raw frames are pooled buffers, and a released buffer object is handed out again
+ * for later frames. A stamp on the pooled object could then be taken by an unrelated
+ * frame, so sampled frames are stamped and forwarded through a {@link ByteBuf#duplicate()}
+ * view instead: a new object that is never reused while the stamp refers to it.</p>
+ */
+public final class ForwardingLatency {
+
+    public static final int DEFAULT_SAMPLE_RATE = 100;
+
+    private static final int SLOTS = 1024;
+    private static final int MASK = SLOTS - 1;
+
+    private static final ForwardingLatency INSTANCE = new ForwardingLatency();
+
+    private final AtomicReferenceArray<Stamp> slots = new AtomicReferenceArray<>(SLOTS);
+
+    private volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+
+    private ForwardingLatency() {
+    }
+
+    @Nonnull
+    public static ForwardingLatency getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets how many decoded packets there are per sample.
+     *
+     * @param sampleRate 1 to sample every packet, 0 to disable sampling
+     */
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate < 0) {
+            throw new IllegalArgumentException("sampleRate must be >= 0: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Stamps a decoded packet, if it is sampled.
+     */
+    public void stamp(@Nonnull Object message) {
+        if (isSampled()) {
+            put(message);
+        }
+    }
+
+    /**
+     * Stamps a raw frame, if it is sampled.
+     *
+     * @return the buffer to forward in place of {@code frame}: a view sharing its content
+     *         and reference count if sampled, otherwise {@code frame} itself
+     */
+    @Nonnull
+    public ByteBuf stampFrame(@Nonnull ByteBuf frame) {
+        if (!isSampled()) {
+            return frame;
+        }
+        ByteBuf view = frame.duplicate();
+        put(view);
+        return view;
+    }
+
+    /**
+     * Takes the stamp of a packet or raw frame being encoded.
+     *
+     * @return nanoseconds since the message was stamped, or -1 if it was not sampled
+     */
+    public long complete(@Nonnull Object message) {
+        if (sampleRate == 0) {
+            return -1;
+        }
+        int slot = System.identityHashCode(message) & MASK;
+        Stamp stamp = slots.get(slot);
+        if (stamp == null || stamp.message() != message || !slots.compareAndSet(slot, stamp, null)) {
+            return -1;
+        }
+        return Math.max(0, System.nanoTime() - stamp.nanos());
+    }
+
+    private boolean isSampled() {
+        int rate = sampleRate;
+        return rate == 1 || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) == 0);
+    }
+
+    private void put(Object message) {
+        slots.set(System.identityHashCode(message) & MASK, new Stamp(message, System.nanoTime()));
+    }
+
+    /**
+     * A sampled message and when it was decoded. Only sampled packets allocate one.
+     */
+    private record Stamp(Object message, long nanos) {
+    }
+}
@@ -0,0 +1,101 @@
+package me.internalizable.numdrassl.profiling;
+
+/**
+ * Space-saving heavy-hitter sketch over a fixed number of counters.
+ *
+ * <p>A key that is already tracked adds to its counter. An untracked key takes the
+ * smallest counter over and inherits its count, which is kept as the key's maximum
+ * overestimation. Any key with more than {@code total / capacity} weight is
+ * guaranteed to be tracked.</p>
+ *
+ * <p>Not thread-safe: each sketch is written by a single thread. Readers on other
+ * threads may see a slightly stale or partially updated state, which is fine for
+ * approximate statistics.</p>
+ */
+final class HeavyHitterSketch {
+
+    private final long[] keys;
+    private final String[] labels;
+    private final long[] counts;
+    private final long[] errors;
+    private int size;
+    private int lastHit;
+
+    HeavyHitterSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1: " + capacity);
+        }
+        this.keys = new long[capacity];
+        this.labels = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+    }
+
+    /**
+     * Adds weight to a key.
+     *
+     * @param key the key
+     * @param label display name, stored when the key takes a counter
+     * @param weight the weight to add
+     */
+    void add(long key, String label, long weight) {
+        // Reads arrive in bursts per connection, so the previous key is the likeliest hit
+        if (lastHit < size && keys[lastHit] == key) {
+            counts[lastHit] += weight;
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                counts[i] += weight;
+                lastHit = i;
+                return;
+            }
+        }
+
+        if (size < keys.length) {
+            keys[size] = key;
+            labels[size] = label;
+            counts[size] = weight;
+            errors[size] = 0;
+            lastHit = size++;
+            return;
+        }
+
+        int min = 0;
+        for (int i = 1; i < size; i++) {
+            if (counts[i] < counts[min]) {
+                min = i;
+            }
+        }
+        keys[min] = key;
+        labels[min] = label;
+        errors[min] = counts[min];
+        counts[min] += weight;
+        lastHit = min;
+    }
+
+    void clear() {
+        size = 0;
+        lastHit = 0;
+    }
+
+    int size() {
+        return Math.min(size, keys.length);
+    }
+
+    long key(int index) {
+        return keys[index];
+    }
+
+    String label(int index) {
+        return labels[index];
+    }
+
+    long count(int index) {
+        return counts[index];
+    }
+
+    long error(int index) {
+        return errors[index];
+    }
+}
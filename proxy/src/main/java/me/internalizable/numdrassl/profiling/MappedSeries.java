@@ -0,0 +1,266 @@
+package me.internalizable.numdrassl.profiling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-capacity ring buffer of numeric records, stored by column in a memory-mapped file.
+ *
+ * <p>Every record has the same number of 8-byte columns holding a {@code long} or the raw
+ * bits of a {@code double}. The file is laid out as a header followed by one contiguous
+ * block per column, so scanning a single column (such as the timestamp) touches only
+ * that block:</p>
+ * <pre>
+ * [magic][version][columns][slots][count] | column 0: slot 0..n | column 1: slot 0..n | ...
+ * </pre>
+ *
+ * <p>Records are identified by their sequence number. The newest {@link #capacity()}
+ * records are retained; older ones are overwritten in place.</p>
+ *
+ * <p>There must be a single writer thread. Readers on any thread take no locks: a
+ * record is written to a spare slot and becomes visible when the count is published,
+ * and a reader that was overtaken by the writer notices it through
+ * {@link #isRetained(long)}.</p>
+ */
+final class MappedSeries implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedSeries.class);
+
+    private static final int MAGIC = 0x4E4D5348; // "NMSH"
+    private static final int VERSION = 1;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int COLUMNS_OFFSET = 8;
+    private static final int SLOTS_OFFSET = 12;
+    private static final int COUNT_OFFSET = 16;
+    private static final int HEADER_BYTES = 64;
+
+    private static final VarHandle LONG_VIEW =
+        MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private final int columns;
+    private final int capacity;
+    // One spare slot, so the record being written never overlaps a retained one
+    private final int slots;
+
+    // Owned by the writer
+    private long writeCount;
+
+    private MappedSeries(ByteBuffer buffer, FileChannel channel, int columns, int capacity) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = channel;
+        this.columns = columns;
+        this.capacity = capacity;
+        this.slots = capacity + 1;
+    }
+
+    /**
+     * Opens a series stored in a file, creating it if needed. A file with a different
+     * layout is discarded.
+     *
+     * @param file the backing file
+     * @param columns the number of columns per record
+     * @param capacity the number of records retained
+     * @return the series with any records already stored in the file
+     * @throws IOException if the file cannot be created or mapped
+     */
+    @Nonnull
+    static MappedSeries open(@Nonnull Path file, int columns, int capacity) throws IOException {
+        checkLayout(columns, capacity);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        long size = fileSize(columns, capacity);
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean fresh = channel.size() != size;
+            if (fresh) {
+                channel.truncate(0);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            MappedSeries series = new MappedSeries(mapped, channel, columns, capacity);
+            if (!fresh && !series.hasLayout()) {
+                LOGGER.warn("Discarding metrics history file with an unknown layout: {}", file);
+                fresh = true;
+            }
+            if (fresh) {
+                series.format();
+            }
+            series.writeCount = series.count();
+            return series;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a series kept on the heap only, for when the file cannot be used.
+     */
+    @Nonnull
+    static MappedSeries inMemory(int columns, int capacity) {
+        checkLayout(columns, capacity);
+        MappedSeries series = new MappedSeries(
+            ByteBuffer.allocateDirect((int) fileSize(columns, capacity)), null, columns, capacity);
+        series.format();
+        return series;
+    }
+
+    private static void checkLayout(int columns, int capacity) {
+        if (columns < 1 || capacity < 1) {
+            throw new IllegalArgumentException("columns and capacity must be >= 1");
+        }
+    }
+
+    private static long fileSize(int columns, int capacity) {
+        return HEADER_BYTES + (long) columns * (capacity + 1) * Long.BYTES;
+    }
+
+    private boolean hasLayout() {
+        return buffer.getInt(MAGIC_OFFSET) == MAGIC
+            && buffer.getInt(VERSION_OFFSET) == VERSION
+            && buffer.getInt(COLUMNS_OFFSET) == columns
+            && buffer.getInt(SLOTS_OFFSET) == slots
+            && count() >= 0;
+    }
+
+    private void format() {
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(COLUMNS_OFFSET, columns);
+        buffer.putInt(SLOTS_OFFSET, slots);
+        LONG_VIEW.setRelease(buffer, COUNT_OFFSET, 0L);
+    }
+
+    // ==================== Writing ====================
+
+    /**
+     * Sets a column of the record being written. Writer thread only.
+     */
+    void put(int column, long value) {
+        buffer.putLong(offset(writeCount, column), value);
+    }
+
+    /**
+     * @see #put(int, long)
+     */
+    void put(int column, double value) {
+        put(column, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Makes the record being written visible to readers. Writer thread only.
+     */
+    void append() {
+        writeCount++;
+        LONG_VIEW.setRelease(buffer, COUNT_OFFSET, writeCount);
+    }
+
+    /**
+     * Removes all records. Writer thread only.
+     */
+    void clear() {
+        writeCount = 0;
+        LONG_VIEW.setRelease(buffer, COUNT_OFFSET, 0L);
+    }
+
+    /**
+     * Writes changes through to the file.
+     */
+    void force() {
+        if (buffer instanceof MappedByteBuffer mapped) {
+            mapped.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    // ==================== Reading ====================
+
+    /**
+     * Gets the number of records ever appended; the newest has sequence {@code count() - 1}.
+     */
+    long count() {
+        return (long) LONG_VIEW.getAcquire(buffer, COUNT_OFFSET);
+    }
+
+    /**
+     * Gets the sequence of the oldest retained record.
+     */
+    long first() {
+        return Math.max(0, count() - capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return (int) Math.min(count(), capacity);
+    }
+
+    long getLong(long sequence, int column) {
+        return buffer.getLong(offset(sequence, column));
+    }
+
+    double getDouble(long sequence, int column) {
+        return Double.longBitsToDouble(getLong(sequence, column));
+    }
+
+    /**
+     * Checks that a record has not been overwritten. Readers call this after reading a
+     * record to discard values the writer may have replaced meanwhile.
+     */
+    boolean isRetained(long sequence) {
+        return sequence >= count() - capacity;
+    }
+
+    /**
+     * Finds the oldest retained record whose column is at least a value. The column must
+     * be ascending in sequence order, as timestamps are.
+     *
+     * @return the record's sequence, or {@link #count()} if there is none
+     */
+    long search(int column, long value) {
+        long low = first();
+        long high = count();
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (getLong(mid, column) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int offset(long sequence, int column) {
+        int slot = (int) (sequence % slots);
+        return HEADER_BYTES + (column * slots + slot) * Long.BYTES;
+    }
+}
@@ -4,18 +4,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Tracks metrics history over time for historical analysis with tiered retention.
@@ -28,6 +33,12 @@ import java.util.concurrent.atomic.AtomicLong;
  *   <li><b>Tier 4 (Daily)</b>: Daily summaries for the last 90 days (90 points)</li>
  * </ul>
  *
+ * <p>Each tier is a {@link MappedSeries}: a ring buffer in a memory-mapped file under
+ * {@link #DEFAULT_DIRECTORY}, so history survives restarts. Snapshots and rollups are
+ * written by a single scheduler thread; each tier is rolled up from the stored records
+ * of the tier below it. Readers take no locks. If a file cannot be mapped, that tier is
+ * kept in memory only.</p>
+ *
  * <p>This allows administrators to:</p>
  * <ul>
  *   <li>View detailed data for recent events (last hour)</li>
@@ -45,10 +56,10 @@ import java.util.concurrent.atomic.AtomicLong;
  * List<HistoricalSnapshot> recent = history.getRecentHistory();
  *
  * // Get data from last 24 hours (minute resolution)
- * List<PeriodSummary> day = history.getHourlySummaries();
+ * List<PeriodSummary> day = history.getMinuteSummaries();
  *
  * // Get data from last 7 days (10-min resolution)
- * List<PeriodSummary> week = history.getDailySummaries();
+ * List<PeriodSummary> week = history.getTenMinuteSummaries();
  *
  * // Get peak values (all-time since start)
  * HistoricalSnapshot peak = history.getPeakSessions();
@@ -60,6 +71,11 @@ public final class MetricsHistory {
 
     private static volatile MetricsHistory instance;
 
+    /**
+     * Directory holding one file per tier.
+     */
+    public static final Path DEFAULT_DIRECTORY = Paths.get("data", "metrics");
+
     // Tier 1: High-resolution (10-second snapshots, 1 hour retention)
     private static final int TIER1_INTERVAL_SECONDS = 10;
     private static final int TIER1_MAX_SIZE = 360; // 1 hour
@@ -75,11 +91,53 @@ public final class MetricsHistory {
     // Tier 4: Daily summaries (90 day retention)
     private static final int TIER4_MAX_SIZE = 90; // 90 days
 
+    // Tier 1 columns (HistoricalSnapshot)
+    private static final int S_TIMESTAMP = 0;
+    private static final int S_ACTIVE_SESSIONS = 1;
+    private static final int S_CONNECTIONS_ACCEPTED = 2;
+    private static final int S_CONNECTIONS_CLOSED = 3;
+    private static final int S_PACKETS_IN = 4;
+    private static final int S_PACKETS_OUT = 5;
+    private static final int S_PACKETS_PER_SEC_IN = 6;
+    private static final int S_PACKETS_PER_SEC_OUT = 7;
+    private static final int S_BYTES_IN = 8;
+    private static final int S_BYTES_OUT = 9;
+    private static final int S_BYTES_PER_SEC_IN = 10;
+    private static final int S_BYTES_PER_SEC_OUT = 11;
+    private static final int S_AVG_RESPONSE_MS = 12;
+    private static final int S_HANGING_REQUESTS = 13;
+    private static final int S_AUTH_FAILURES = 14;
+    private static final int S_BACKEND_FAILURES = 15;
+
+    // Tier 2/3 columns (PeriodSummary, plus the number of snapshots aggregated)
+    private static final int P_START_TIME = 0;
+    private static final int P_END_TIME = 1;
+    private static final int P_MAX_SESSIONS = 2;
+    private static final int P_AVG_SESSIONS = 3;
+    private static final int P_PACKETS_PER_SEC_IN = 4;
+    private static final int P_PACKETS_PER_SEC_OUT = 5;
+    private static final int P_BYTES_PER_SEC_IN = 6;
+    private static final int P_BYTES_PER_SEC_OUT = 7;
+    private static final int P_AVG_RESPONSE_MS = 8;
+    private static final int P_MAX_HANGING_REQUESTS = 9;
+    private static final int P_SAMPLES = 10;
+
+    // Tier 4 columns (DailySummary)
+    private static final int D_TIMESTAMP = 0;
+    private static final int D_DAY_OF_YEAR = 1;
+    private static final int D_MAX_SESSIONS = 2;
+    private static final int D_AVG_SESSIONS = 3;
+    private static final int D_PACKETS_PER_SEC = 4;
+    private static final int D_BYTES_PER_SEC = 5;
+    private static final int D_AVG_RESPONSE_MS = 6;
+    private static final int D_SAMPLES = 7;
+
     // Storage for each tier
-    private final CopyOnWriteArrayList<HistoricalSnapshot> tier1History = new CopyOnWriteArrayList<>();
-    private final CopyOnWriteArrayList<PeriodSummary> tier2History = new CopyOnWriteArrayList<>();
-    private final CopyOnWriteArrayList<PeriodSummary> tier3History = new CopyOnWriteArrayList<>();
-    private final CopyOnWriteArrayList<DailySummary> tier4History = new CopyOnWriteArrayList<>();
+    private final Map<Tier, MappedSeries> series = new EnumMap<>(Tier.class);
+    private final MappedSeries tier1History;
+    private final MappedSeries tier2History;
+    private final MappedSeries tier3History;
+    private final MappedSeries tier4History;
 
     private final ScheduledExecutorService scheduler;
 
@@ -89,14 +147,20 @@ public final class MetricsHistory {
     private volatile HistoricalSnapshot peakByteRate = null;
     private volatile HistoricalSnapshot peakResponseTime = null;
 
-    // Aggregation buffers for tier rollups
-    private final AggregationBuffer tier2Buffer = new AggregationBuffer();
-    private final AggregationBuffer tier3Buffer = new AggregationBuffer();
-    private final AggregationBuffer tier4Buffer = new AggregationBuffer();
+    // Reused by rollups, which all run on the scheduler thread
+    private final Rollup rollup = new Rollup();
 
     // ==================== Construction ====================
 
-    private MetricsHistory() {
+    MetricsHistory(Path directory) {
+        for (Tier tier : Tier.values()) {
+            series.put(tier, openSeries(directory, tier));
+        }
+        this.tier1History = series.get(Tier.RECENT);
+        this.tier2History = series.get(Tier.MINUTE);
+        this.tier3History = series.get(Tier.TEN_MINUTE);
+        this.tier4History = series.get(Tier.DAILY);
+
         this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "MetricsHistory");
             t.setDaemon(true);
@@ -135,11 +199,21 @@ public final class MetricsHistory {
             TimeUnit.HOURS
         );
 
-        LOGGER.info("Metrics history initialized with tiered retention:");
-        LOGGER.info("  Tier 1: 10s snapshots, 1 hour retention ({} points)", TIER1_MAX_SIZE);
-        LOGGER.info("  Tier 2: 1min aggregates, 24 hour retention ({} points)", TIER2_MAX_SIZE);
-        LOGGER.info("  Tier 3: 10min aggregates, 7 day retention ({} points)", TIER3_MAX_SIZE);
-        LOGGER.info("  Tier 4: Daily summaries, 90 day retention ({} points)", TIER4_MAX_SIZE);
+        LOGGER.info("Metrics history initialized with tiered retention in {}:", directory.toAbsolutePath());
+        LOGGER.info("  Tier 1: 10s snapshots, 1 hour retention ({} of {} points)", tier1History.size(), TIER1_MAX_SIZE);
+        LOGGER.info("  Tier 2: 1min aggregates, 24 hour retention ({} of {} points)", tier2History.size(), TIER2_MAX_SIZE);
+        LOGGER.info("  Tier 3: 10min aggregates, 7 day retention ({} of {} points)", tier3History.size(), TIER3_MAX_SIZE);
+        LOGGER.info("  Tier 4: Daily summaries, 90 day retention ({} of {} points)", tier4History.size(), TIER4_MAX_SIZE);
+    }
+
+    private static MappedSeries openSeries(Path directory, Tier tier) {
+        Path file = directory.resolve(tier.fileName);
+        try {
+            return MappedSeries.open(file, tier.columns.length, tier.capacity);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to map {}, keeping {} history in memory only", file, tier.name().toLowerCase(Locale.ROOT), e);
+            return MappedSeries.inMemory(tier.columns.length, tier.capacity);
+        }
     }
 
     // ==================== Singleton Access ====================
@@ -149,7 +223,7 @@ public final class MetricsHistory {
         if (instance == null) {
             synchronized (MetricsHistory.class) {
                 if (instance == null) {
-                    instance = new MetricsHistory();
+                    instance = new MetricsHistory(DEFAULT_DIRECTORY);
                 }
             }
         }
@@ -162,7 +236,6 @@ public final class MetricsHistory {
         try {
             ProxyMetrics metrics = ProxyMetrics.getInstance();
             metrics.updateThroughput();
-            metrics.checkHangingRequests();
 
             ProxyMetrics.MetricsSnapshot current = metrics.createSnapshot();
             HistoricalSnapshot snapshot = new HistoricalSnapshot(
@@ -185,31 +258,48 @@ public final class MetricsHistory {
             );
 
             // Add to tier 1 history
-            tier1History.add(snapshot);
-            trimList(tier1History, TIER1_MAX_SIZE);
+            writeSnapshot(snapshot);
 
             // Update peaks
             updatePeaks(snapshot);
 
-            // Add to aggregation buffers
-            tier2Buffer.add(snapshot);
-            tier3Buffer.add(snapshot);
-            tier4Buffer.add(snapshot);
-
         } catch (Exception e) {
             LOGGER.warn("Failed to record tier 1 snapshot", e);
         }
     }
 
+    void writeSnapshot(HistoricalSnapshot s) {
+        MappedSeries out = tier1History;
+        out.put(S_TIMESTAMP, s.timestamp);
+        out.put(S_ACTIVE_SESSIONS, s.activeSessions);
+        out.put(S_CONNECTIONS_ACCEPTED, s.connectionsAccepted);
+        out.put(S_CONNECTIONS_CLOSED, s.connectionsClosed);
+        out.put(S_PACKETS_IN, s.totalPacketsIn);
+        out.put(S_PACKETS_OUT, s.totalPacketsOut);
+        out.put(S_PACKETS_PER_SEC_IN, s.packetsPerSecIn);
+        out.put(S_PACKETS_PER_SEC_OUT, s.packetsPerSecOut);
+        out.put(S_BYTES_IN, s.totalBytesIn);
+        out.put(S_BYTES_OUT, s.totalBytesOut);
+        out.put(S_BYTES_PER_SEC_IN, s.bytesPerSecIn);
+        out.put(S_BYTES_PER_SEC_OUT, s.bytesPerSecOut);
+        out.put(S_AVG_RESPONSE_MS, s.avgResponseTimeMs);
+        out.put(S_HANGING_REQUESTS, s.hangingRequests);
+        out.put(S_AUTH_FAILURES, s.authFailures);
+        out.put(S_BACKEND_FAILURES, s.backendFailures);
+        out.append();
+    }
+
     // ==================== Tier 2: 1-Minute Aggregates ====================
 
-    private void rollupToTier2() {
+    void rollupToTier2() {
         try {
-            PeriodSummary summary = tier2Buffer.createSummaryAndReset();
-            if (summary != null) {
-                tier2History.add(summary);
-                trimList(tier2History, TIER2_MAX_SIZE);
+            long now = System.currentTimeMillis();
+            long since = periodStart(tier2History, now, TimeUnit.MINUTES.toMillis(TIER2_INTERVAL_MINUTES));
+            rollup.reset();
+            for (long seq = tier1History.search(S_TIMESTAMP, since + 1); seq < tier1History.count(); seq++) {
+                rollup.addSnapshot(tier1History, seq);
             }
+            rollup.writePeriod(tier2History, since, now);
         } catch (Exception e) {
             LOGGER.warn("Failed to rollup to tier 2", e);
         }
@@ -217,39 +307,56 @@ public final class MetricsHistory {
 
     // ==================== Tier 3: 10-Minute Aggregates ====================
 
-    private void rollupToTier3() {
+    void rollupToTier3() {
         try {
-            PeriodSummary summary = tier3Buffer.createSummaryAndReset();
-            if (summary != null) {
-                tier3History.add(summary);
-                trimList(tier3History, TIER3_MAX_SIZE);
+            long now = System.currentTimeMillis();
+            long since = periodStart(tier3History, now, TimeUnit.MINUTES.toMillis(TIER3_INTERVAL_MINUTES));
+            rollup.reset();
+            for (long seq = tier2History.search(P_END_TIME, since + 1); seq < tier2History.count(); seq++) {
+                rollup.addPeriod(tier2History, seq);
             }
+            rollup.writePeriod(tier3History, since, now);
         } catch (Exception e) {
             LOGGER.warn("Failed to rollup to tier 3", e);
         }
     }
 
-    // ==================== Tier 4: Daily Summaries ====================
+    /**
+     * Starts a period where the previous one ended, unless that was longer than one
+     * interval ago (such as before a restart).
+     */
+    private static long periodStart(MappedSeries target, long now, long intervalMillis) {
+        long start = now - intervalMillis;
+        long count = target.count();
+        if (count > 0) {
+            start = Math.max(start, target.getLong(count - 1, P_END_TIME));
+        }
+        return start;
+    }
 
-    private volatile int lastRollupDay = -1;
+    // ==================== Tier 4: Daily Summaries ====================
 
     private void rollupToTier4() {
         try {
-            int currentDay = LocalDateTime.now().getDayOfYear();
-            if (lastRollupDay == -1) {
-                lastRollupDay = currentDay;
+            ZoneId zone = ZoneId.systemDefault();
+            LocalDate yesterday = LocalDate.now(zone).minusDays(1);
+            long dayStart = yesterday.atStartOfDay(zone).toInstant().toEpochMilli();
+            long dayEnd = yesterday.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+            // Only rollup once per day; also catches up on a day that ended while stopped
+            long count = tier4History.count();
+            if (count > 0 && tier4History.getLong(count - 1, D_TIMESTAMP) >= dayStart) {
                 return;
             }
 
-            // Only rollup when day changes
-            if (currentDay != lastRollupDay) {
-                DailySummary summary = tier4Buffer.createDailySummaryAndReset(lastRollupDay);
-                if (summary != null) {
-                    tier4History.add(summary);
-                    trimList(tier4History, TIER4_MAX_SIZE);
+            rollup.reset();
+            for (long seq = tier3History.search(P_END_TIME, dayStart); seq < tier3History.count(); seq++) {
+                if (tier3History.getLong(seq, P_END_TIME) >= dayEnd) {
+                    break;
                 }
-                lastRollupDay = currentDay;
+                rollup.addPeriod(tier3History, seq);
             }
+            rollup.writeDaily(tier4History, dayStart, yesterday.getDayOfYear());
         } catch (Exception e) {
             LOGGER.warn("Failed to rollup to tier 4", e);
         }
@@ -279,12 +386,6 @@ public final class MetricsHistory {
         }
     }
 
-    private <T> void trimList(CopyOnWriteArrayList<T> list, int maxSize) {
-        while (list.size() > maxSize) {
-            list.remove(0);
-        }
-    }
-
     // ==================== Data Access - Tier 1 (Last Hour) ====================
 
     /**
@@ -292,7 +393,7 @@ public final class MetricsHistory {
      */
     @Nonnull
     public List<HistoricalSnapshot> getRecentHistory() {
-        return new ArrayList<>(tier1History);
+        return readSnapshots(Long.MIN_VALUE);
     }
 
     /**
@@ -300,16 +401,42 @@ public final class MetricsHistory {
      */
     @Nonnull
     public List<HistoricalSnapshot> getHistorySince(long amount, TimeUnit unit) {
-        long cutoff = System.currentTimeMillis() - unit.toMillis(amount);
+        return readSnapshots(System.currentTimeMillis() - unit.toMillis(amount));
+    }
+
+    private List<HistoricalSnapshot> readSnapshots(long cutoff) {
         List<HistoricalSnapshot> result = new ArrayList<>();
-        for (HistoricalSnapshot snapshot : tier1History) {
-            if (snapshot.timestamp >= cutoff) {
+        for (long seq = tier1History.search(S_TIMESTAMP, cutoff); seq < tier1History.count(); seq++) {
+            HistoricalSnapshot snapshot = readSnapshot(seq);
+            if (tier1History.isRetained(seq)) {
                 result.add(snapshot);
             }
         }
         return result;
     }
 
+    private HistoricalSnapshot readSnapshot(long seq) {
+        MappedSeries in = tier1History;
+        return new HistoricalSnapshot(
+            in.getLong(seq, S_TIMESTAMP),
+            in.getLong(seq, S_ACTIVE_SESSIONS),
+            in.getLong(seq, S_CONNECTIONS_ACCEPTED),
+            in.getLong(seq, S_CONNECTIONS_CLOSED),
+            in.getLong(seq, S_PACKETS_IN),
+            in.getLong(seq, S_PACKETS_OUT),
+            in.getDouble(seq, S_PACKETS_PER_SEC_IN),
+            in.getDouble(seq, S_PACKETS_PER_SEC_OUT),
+            in.getLong(seq, S_BYTES_IN),
+            in.getLong(seq, S_BYTES_OUT),
+            in.getDouble(seq, S_BYTES_PER_SEC_IN),
+            in.getDouble(seq, S_BYTES_PER_SEC_OUT),
+            in.getDouble(seq, S_AVG_RESPONSE_MS),
+            in.getLong(seq, S_HANGING_REQUESTS),
+            in.getLong(seq, S_AUTH_FAILURES),
+            in.getLong(seq, S_BACKEND_FAILURES)
+        );
+    }
+
     // ==================== Data Access - Tier 2 (Last 24 Hours) ====================
 
     /**
@@ -317,7 +444,7 @@ public final class MetricsHistory {
      */
     @Nonnull
     public List<PeriodSummary> getMinuteSummaries() {
-        return new ArrayList<>(tier2History);
+        return readPeriods(tier2History, Long.MIN_VALUE);
     }
 
     /**
@@ -325,14 +452,7 @@ public final class MetricsHistory {
      */
     @Nonnull
     public List<PeriodSummary> getMinuteSummariesSince(int hours) {
-        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours);
-        List<PeriodSummary> result = new ArrayList<>();
-        for (PeriodSummary summary : tier2History) {
-            if (summary.endTime >= cutoff) {
-                result.add(summary);
-            }
-        }
-        return result;
+        return readPeriods(tier2History, System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours));
     }
 
     // ==================== Data Access - Tier 3 (Last 7 Days) ====================
@@ -342,7 +462,7 @@ public final class MetricsHistory {
      */
     @Nonnull
     public List<PeriodSummary> getTenMinuteSummaries() {
-        return new ArrayList<>(tier3History);
+        return readPeriods(tier3History, Long.MIN_VALUE);
     }
 
     /**
@@ -350,10 +470,25 @@ public final class MetricsHistory {
      */
     @Nonnull
     public List<PeriodSummary> getTenMinuteSummariesSince(int days) {
-        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days);
+        return readPeriods(tier3History, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days));
+    }
+
+    private static List<PeriodSummary> readPeriods(MappedSeries in, long cutoff) {
         List<PeriodSummary> result = new ArrayList<>();
-        for (PeriodSummary summary : tier3History) {
-            if (summary.endTime >= cutoff) {
+        for (long seq = in.search(P_END_TIME, cutoff); seq < in.count(); seq++) {
+            PeriodSummary summary = new PeriodSummary(
+                in.getLong(seq, P_START_TIME),
+                in.getLong(seq, P_END_TIME),
+                in.getLong(seq, P_MAX_SESSIONS),
+                in.getDouble(seq, P_AVG_SESSIONS),
+                in.getDouble(seq, P_PACKETS_PER_SEC_IN),
+                in.getDouble(seq, P_PACKETS_PER_SEC_OUT),
+                in.getDouble(seq, P_BYTES_PER_SEC_IN),
+                in.getDouble(seq, P_BYTES_PER_SEC_OUT),
+                in.getDouble(seq, P_AVG_RESPONSE_MS),
+                in.getLong(seq, P_MAX_HANGING_REQUESTS)
+            );
+            if (in.isRetained(seq)) {
                 result.add(summary);
             }
         }
@@ -367,7 +502,7 @@ public final class MetricsHistory {
      */
     @Nonnull
     public List<DailySummary> getDailySummaries() {
-        return new ArrayList<>(tier4History);
+        return readDailySummaries(Long.MIN_VALUE);
     }
 
     /**
@@ -375,16 +510,83 @@ public final class MetricsHistory {
      */
     @Nonnull
     public List<DailySummary> getDailySummariesSince(int days) {
-        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days);
+        return readDailySummaries(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days));
+    }
+
+    private List<DailySummary> readDailySummaries(long cutoff) {
+        MappedSeries in = tier4History;
         List<DailySummary> result = new ArrayList<>();
-        for (DailySummary summary : tier4History) {
-            if (summary.timestamp >= cutoff) {
+        for (long seq = in.search(D_TIMESTAMP, cutoff); seq < in.count(); seq++) {
+            DailySummary summary = new DailySummary(
+                in.getLong(seq, D_TIMESTAMP),
+                (int) in.getLong(seq, D_DAY_OF_YEAR),
+                in.getLong(seq, D_MAX_SESSIONS),
+                in.getDouble(seq, D_AVG_SESSIONS),
+                in.getDouble(seq, D_PACKETS_PER_SEC),
+                in.getDouble(seq, D_BYTES_PER_SEC),
+                in.getDouble(seq, D_AVG_RESPONSE_MS),
+                (int) in.getLong(seq, D_SAMPLES)
+            );
+            if (in.isRetained(seq)) {
                 result.add(summary);
             }
         }
         return result;
     }
 
+    // ==================== Data Access - Streaming ====================
+
+    /**
+     * Writes the records of a tier within a time range as CSV, reading straight from
+     * storage. The first line holds the column names.
+     *
+     * @param tier the tier to read
+     * @param from the earliest timestamp to include, in epoch millis
+     * @param to the latest timestamp to include, in epoch millis
+     * @param out where to write the CSV
+     * @return the number of records written
+     * @throws IOException if writing fails
+     */
+    public int writeCsv(@Nonnull Tier tier, long from, long to, @Nonnull Appendable out) throws IOException {
+        MappedSeries in = series.get(tier);
+        Column[] columns = tier.columns;
+
+        StringBuilder line = new StringBuilder(columns.length * 16);
+        for (int c = 0; c < columns.length; c++) {
+            line.append(c == 0 ? "" : ",").append(columns[c].name());
+        }
+        out.append(line).append('\n');
+
+        long[] row = new long[columns.length];
+        int written = 0;
+        for (long seq = in.search(tier.timeColumn, from); seq < in.count(); seq++) {
+            for (int c = 0; c < columns.length; c++) {
+                row[c] = in.getLong(seq, c);
+            }
+            if (!in.isRetained(seq)) {
+                continue;
+            }
+            if (row[tier.timeColumn] > to) {
+                break;
+            }
+
+            line.setLength(0);
+            for (int c = 0; c < columns.length; c++) {
+                if (c > 0) {
+                    line.append(',');
+                }
+                if (columns[c].decimal()) {
+                    line.append(Double.longBitsToDouble(row[c]));
+                } else {
+                    line.append(row[c]);
+                }
+            }
+            out.append(line).append('\n');
+            written++;
+        }
+        return written;
+    }
+
     // ==================== Peak Access ====================
 
     public HistoricalSnapshot getPeakSessions() {
@@ -422,8 +624,9 @@ public final class MetricsHistory {
     }
 
     public HistoricalSnapshot getLatest() {
-        if (tier1History.isEmpty()) return null;
-        return tier1History.get(tier1History.size() - 1);
+        long count = tier1History.count();
+        if (count == 0) return null;
+        return readSnapshot(count - 1);
     }
 
     /**
@@ -534,13 +737,13 @@ public final class MetricsHistory {
         sb.append("\n");
 
         // Daily summaries (from tier 4)
-        if (!tier4History.isEmpty()) {
+        List<DailySummary> dailies = getDailySummaries();
+        if (!dailies.isEmpty()) {
             sb.append("--- DAILY SUMMARIES ---\n");
             sb.append(String.format("%-12s %8s %8s %12s %12s %10s\n",
                 "Date", "Max Sess", "Avg Sess", "Avg Pkt/s", "Avg Byte/s", "Avg Resp"));
             sb.append("-".repeat(70)).append("\n");
 
-            List<DailySummary> dailies = new ArrayList<>(tier4History);
             Collections.reverse(dailies);
             int shown = 0;
             for (DailySummary d : dailies) {
@@ -566,7 +769,8 @@ public final class MetricsHistory {
 
     private void appendHourlyAverages(StringBuilder sb) {
         // Group tier 2 data into hourly buckets
-        if (tier2History.isEmpty()) {
+        List<PeriodSummary> minutes = getMinuteSummaries();
+        if (minutes.isEmpty()) {
             sb.append("  No data yet\n");
             return;
         }
@@ -583,7 +787,7 @@ public final class MetricsHistory {
             long maxSessions = 0;
             int count = 0;
 
-            for (PeriodSummary s : tier2History) {
+            for (PeriodSummary s : minutes) {
                 if (s.endTime >= bucketStart && s.endTime < bucketEnd) {
                     totalSessions += s.avgSessions;
                     totalPackets += s.avgPacketsPerSecIn + s.avgPacketsPerSecOut;
@@ -619,14 +823,23 @@ public final class MetricsHistory {
             scheduler.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        for (MappedSeries s : series.values()) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close metrics history file", e);
+            }
+        }
         LOGGER.info("Metrics history shut down");
     }
 
     public void clear() {
-        tier1History.clear();
-        tier2History.clear();
-        tier3History.clear();
-        tier4History.clear();
+        // Series are written by the scheduler thread only
+        scheduler.execute(() -> {
+            for (MappedSeries s : series.values()) {
+                s.clear();
+            }
+        });
         peakSessions = null;
         peakPacketRate = null;
         peakByteRate = null;
@@ -648,54 +861,25 @@ public final class MetricsHistory {
         return String.format("%.2f GB", bytesPerSec / (1024.0 * 1024 * 1024));
     }
 
-    // ==================== Aggregation Buffer ====================
+    // ==================== Rollup ====================
 
     /**
-     * Thread-safe buffer for aggregating snapshots into period summaries.
+     * Aggregates stored records of one tier into a record of the next tier. Averages
+     * are weighted by the number of snapshots behind each record.
      */
-    private static class AggregationBuffer {
-        private long startTime = System.currentTimeMillis();
-        private int count = 0;
-        private double totalSessions = 0;
-        private long maxSessions = 0;
-        private double totalPacketsIn = 0;
-        private double totalPacketsOut = 0;
-        private double totalBytesIn = 0;
-        private double totalBytesOut = 0;
-        private double totalResponseTime = 0;
-        private long maxHangingRequests = 0;
-
-        synchronized void add(HistoricalSnapshot snapshot) {
-            count++;
-            totalSessions += snapshot.activeSessions;
-            if (snapshot.activeSessions > maxSessions) maxSessions = snapshot.activeSessions;
-            totalPacketsIn += snapshot.packetsPerSecIn;
-            totalPacketsOut += snapshot.packetsPerSecOut;
-            totalBytesIn += snapshot.bytesPerSecIn;
-            totalBytesOut += snapshot.bytesPerSecOut;
-            totalResponseTime += snapshot.avgResponseTimeMs;
-            if (snapshot.hangingRequests > maxHangingRequests) maxHangingRequests = snapshot.hangingRequests;
-        }
-
-        synchronized PeriodSummary createSummaryAndReset() {
-            if (count == 0) return null;
-
-            PeriodSummary summary = new PeriodSummary(
-                startTime,
-                System.currentTimeMillis(),
-                maxSessions,
-                totalSessions / count,
-                totalPacketsIn / count,
-                totalPacketsOut / count,
-                totalBytesIn / count,
-                totalBytesOut / count,
-                totalResponseTime / count,
-                maxHangingRequests
-            );
-
-            // Reset
-            startTime = System.currentTimeMillis();
-            count = 0;
+    private static final class Rollup {
+        private long samples;
+        private double totalSessions;
+        private long maxSessions;
+        private double totalPacketsIn;
+        private double totalPacketsOut;
+        private double totalBytesIn;
+        private double totalBytesOut;
+        private double totalResponseTime;
+        private long maxHangingRequests;
+
+        void reset() {
+            samples = 0;
             totalSessions = 0;
             maxSessions = 0;
             totalPacketsIn = 0;
@@ -704,40 +888,118 @@ public final class MetricsHistory {
             totalBytesOut = 0;
             totalResponseTime = 0;
             maxHangingRequests = 0;
+        }
 
-            return summary;
+        void addSnapshot(MappedSeries in, long seq) {
+            long sessions = in.getLong(seq, S_ACTIVE_SESSIONS);
+            samples++;
+            totalSessions += sessions;
+            maxSessions = Math.max(maxSessions, sessions);
+            totalPacketsIn += in.getDouble(seq, S_PACKETS_PER_SEC_IN);
+            totalPacketsOut += in.getDouble(seq, S_PACKETS_PER_SEC_OUT);
+            totalBytesIn += in.getDouble(seq, S_BYTES_PER_SEC_IN);
+            totalBytesOut += in.getDouble(seq, S_BYTES_PER_SEC_OUT);
+            totalResponseTime += in.getDouble(seq, S_AVG_RESPONSE_MS);
+            maxHangingRequests = Math.max(maxHangingRequests, in.getLong(seq, S_HANGING_REQUESTS));
         }
 
-        synchronized DailySummary createDailySummaryAndReset(int dayOfYear) {
-            if (count == 0) return null;
+        void addPeriod(MappedSeries in, long seq) {
+            long weight = in.getLong(seq, P_SAMPLES);
+            samples += weight;
+            totalSessions += in.getDouble(seq, P_AVG_SESSIONS) * weight;
+            maxSessions = Math.max(maxSessions, in.getLong(seq, P_MAX_SESSIONS));
+            totalPacketsIn += in.getDouble(seq, P_PACKETS_PER_SEC_IN) * weight;
+            totalPacketsOut += in.getDouble(seq, P_PACKETS_PER_SEC_OUT) * weight;
+            totalBytesIn += in.getDouble(seq, P_BYTES_PER_SEC_IN) * weight;
+            totalBytesOut += in.getDouble(seq, P_BYTES_PER_SEC_OUT) * weight;
+            totalResponseTime += in.getDouble(seq, P_AVG_RESPONSE_MS) * weight;
+            maxHangingRequests = Math.max(maxHangingRequests, in.getLong(seq, P_MAX_HANGING_REQUESTS));
+        }
 
-            DailySummary summary = new DailySummary(
-                startTime,
-                dayOfYear,
-                maxSessions,
-                totalSessions / count,
-                (totalPacketsIn + totalPacketsOut) / count,
-                (totalBytesIn + totalBytesOut) / count,
-                totalResponseTime / count,
-                count
-            );
+        void writePeriod(MappedSeries out, long startTime, long endTime) {
+            if (samples == 0) return;
+
+            out.put(P_START_TIME, startTime);
+            out.put(P_END_TIME, endTime);
+            out.put(P_MAX_SESSIONS, maxSessions);
+            out.put(P_AVG_SESSIONS, totalSessions / samples);
+            out.put(P_PACKETS_PER_SEC_IN, totalPacketsIn / samples);
+            out.put(P_PACKETS_PER_SEC_OUT, totalPacketsOut / samples);
+            out.put(P_BYTES_PER_SEC_IN, totalBytesIn / samples);
+            out.put(P_BYTES_PER_SEC_OUT, totalBytesOut / samples);
+            out.put(P_AVG_RESPONSE_MS, totalResponseTime / samples);
+            out.put(P_MAX_HANGING_REQUESTS, maxHangingRequests);
+            out.put(P_SAMPLES, samples);
+            out.append();
+        }
 
-            // Reset
-            startTime = System.currentTimeMillis();
-            count = 0;
-            totalSessions = 0;
-            maxSessions = 0;
-            totalPacketsIn = 0;
-            totalPacketsOut = 0;
-            totalBytesIn = 0;
-            totalBytesOut = 0;
-            totalResponseTime = 0;
-            maxHangingRequests = 0;
+        void writeDaily(MappedSeries out, long timestamp, int dayOfYear) {
+            if (samples == 0) return;
+
+            out.put(D_TIMESTAMP, timestamp);
+            out.put(D_DAY_OF_YEAR, dayOfYear);
+            out.put(D_MAX_SESSIONS, maxSessions);
+            out.put(D_AVG_SESSIONS, totalSessions / samples);
+            out.put(D_PACKETS_PER_SEC, (totalPacketsIn + totalPacketsOut) / samples);
+            out.put(D_BYTES_PER_SEC, (totalBytesIn + totalBytesOut) / samples);
+            out.put(D_AVG_RESPONSE_MS, totalResponseTime / samples);
+            out.put(D_SAMPLES, samples);
+            out.append();
+        }
+    }
+
+    // ==================== Storage Layout ====================
+
+    /**
+     * A history tier and the columns stored for it.
+     */
+    public enum Tier {
+        RECENT("tier1-10s.dat", TIER1_MAX_SIZE, S_TIMESTAMP,
+            column("timestamp"), column("activeSessions"), column("connectionsAccepted"),
+            column("connectionsClosed"), column("totalPacketsIn"), column("totalPacketsOut"),
+            decimal("packetsPerSecIn"), decimal("packetsPerSecOut"), column("totalBytesIn"),
+            column("totalBytesOut"), decimal("bytesPerSecIn"), decimal("bytesPerSecOut"),
+            decimal("avgResponseTimeMs"), column("hangingRequests"), column("authFailures"),
+            column("backendFailures")),
+        MINUTE("tier2-1m.dat", TIER2_MAX_SIZE, P_END_TIME, periodColumns()),
+        TEN_MINUTE("tier3-10m.dat", TIER3_MAX_SIZE, P_END_TIME, periodColumns()),
+        DAILY("tier4-1d.dat", TIER4_MAX_SIZE, D_TIMESTAMP,
+            column("timestamp"), column("dayOfYear"), column("maxSessions"), decimal("avgSessions"),
+            decimal("avgPacketsPerSec"), decimal("avgBytesPerSec"), decimal("avgResponseTimeMs"),
+            column("dataPointCount"));
+
+        private final String fileName;
+        private final int capacity;
+        private final int timeColumn;
+        private final Column[] columns;
+
+        Tier(String fileName, int capacity, int timeColumn, Column... columns) {
+            this.fileName = fileName;
+            this.capacity = capacity;
+            this.timeColumn = timeColumn;
+            this.columns = columns;
+        }
 
-            return summary;
+        private static Column[] periodColumns() {
+            return new Column[] {
+                column("startTime"), column("endTime"), column("maxSessions"), decimal("avgSessions"),
+                decimal("avgPacketsPerSecIn"), decimal("avgPacketsPerSecOut"), decimal("avgBytesPerSecIn"),
+                decimal("avgBytesPerSecOut"), decimal("avgResponseTimeMs"), column("maxHangingRequests"),
+                column("samples")
+            };
+        }
+
+        private static Column column(String name) {
+            return new Column(name, false);
+        }
+
+        private static Column decimal(String name) {
+            return new Column(name, true);
         }
     }
 
+    private record Column(String name, boolean decimal) {}
+
     // ==================== Data Classes ====================
 
     /**
@@ -2,13 +2,21 @@ package me.internalizable.numdrassl.profiling;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import me.internalizable.numdrassl.session.memory.MemoryBudget;
+import me.internalizable.numdrassl.session.memory.SessionMemoryMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.Executors;
 
 /**
@@ -18,7 +26,12 @@ import java.util.concurrent.Executors;
  * <ul>
  *   <li><b>/metrics</b> - Prometheus-compatible metrics scrape endpoint</li>
  *   <li><b>/health</b> - Simple health check (returns 200 OK)</li>
- *   <li><b>/stats</b> - Human-readable metrics summary</li>
+ *   <li><b>/stats</b> - Human-readable metrics summary, including the sessions retaining
+ *       the most memory and the sessions and backends with the most traffic</li>
+ *   <li><b>/stream</b> - Server-Sent Events with metric deltas every second;
+ *       {@code ?groups=sessions,packets} selects the {@link MetricsStream.Group}s</li>
+ *   <li><b>/history</b> - Historical dashboard; {@code ?format=text} for a report, or
+ *       {@code ?format=csv&tier=...&from=...&to=...} to stream a tier's stored records</li>
  * </ul>
  *
  * <p>Example usage:</p>
@@ -43,8 +56,18 @@ public final class MetricsHttpServer {
     private static final String CONTENT_TYPE_TEXT = "text/plain; charset=utf-8";
     private static final String CONTENT_TYPE_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
     private static final String CONTENT_TYPE_HTML = "text/html; charset=utf-8";
+    private static final String CONTENT_TYPE_CSV = "text/csv; charset=utf-8";
+    private static final String CONTENT_TYPE_EVENT_STREAM = "text/event-stream; charset=utf-8";
+
+    private static final int TOP_MEMORY_SESSIONS = 10;
+    private static final int TOP_TRAFFIC_ENTRIES = 5;
+
+    private static final long STREAM_HEARTBEAT_MILLIS = 15_000;
+    private static final byte[] STREAM_HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
 
     private final int port;
+    private final SessionMemoryMonitor memoryMonitor;
+    private final MetricsStream metricsStream = new MetricsStream();
     private HttpServer server;
     private volatile boolean running = false;
 
@@ -54,10 +77,21 @@ public final class MetricsHttpServer {
      * @param port the port to bind to
      */
     public MetricsHttpServer(int port) {
+        this(port, null);
+    }
+
+    /**
+     * Creates a new metrics HTTP server.
+     *
+     * @param port the port to bind to
+     * @param memoryMonitor source of per-session memory usage for /stats, or null to omit it
+     */
+    public MetricsHttpServer(int port, @Nullable SessionMemoryMonitor memoryMonitor) {
         if (port < 1 || port > 65535) {
             throw new IllegalArgumentException("Invalid port: " + port);
         }
         this.port = port;
+        this.memoryMonitor = memoryMonitor;
     }
 
     /**
@@ -79,6 +113,7 @@ public final class MetricsHttpServer {
         server.createContext("/health", this::handleHealth);
         server.createContext("/stats", this::handleStats);
         server.createContext("/history", this::handleHistory);
+        server.createContext("/stream", this::handleStream);
         server.createContext("/report", this::handleReport);
         server.createContext("/", this::handleRoot);
 
@@ -90,6 +125,7 @@ public final class MetricsHttpServer {
         LOGGER.info("  /health   - Health check endpoint");
         LOGGER.info("  /stats    - Real-time stats dashboard");
         LOGGER.info("  /history  - Historical data & peaks");
+        LOGGER.info("  /stream   - Live metric deltas (Server-Sent Events)");
         LOGGER.info("  /report   - Shareable text report");
     }
 
@@ -101,6 +137,7 @@ public final class MetricsHttpServer {
             return;
         }
 
+        metricsStream.shutdown();
         server.stop(1);
         running = false;
         LOGGER.info("Metrics HTTP server stopped");
@@ -151,7 +188,6 @@ public final class MetricsHttpServer {
 
         ProxyMetrics metrics = ProxyMetrics.getInstance();
         metrics.updateThroughput(); // Update throughput calculations
-        metrics.checkHangingRequests(); // Check for hanging requests
 
         ProxyMetrics.MetricsSnapshot snapshot = metrics.createSnapshot();
         Runtime runtime = Runtime.getRuntime();
@@ -286,6 +322,8 @@ public final class MetricsHttpServer {
                         <tr><td>Available Processors</td><td>%d</td></tr>
                     </table>
                 </div>
+                %s
+                %s
                 
                 <div class="stat-group">
                     <h2>⚠️ Errors</h2>
@@ -338,6 +376,8 @@ public final class MetricsHttpServer {
             formatBytes(totalMemory),
             formatBytes(maxMemory),
             runtime.availableProcessors(),
+            renderSessionMemory(),
+            renderHeavyHitters(),
             snapshot.authFailures() > 0 ? "warn" : "good",
             snapshot.authFailures(),
             snapshot.backendFailures() > 0 ? "warn" : "good",
@@ -348,6 +388,102 @@ public final class MetricsHttpServer {
         sendResponse(exchange, 200, CONTENT_TYPE_HTML, html);
     }
 
+    private String renderSessionMemory() {
+        if (memoryMonitor == null) {
+            return "";
+        }
+
+        MemoryBudget budget = memoryMonitor.getBudget();
+        String limit = budget.getLimitBytes() > 0 ? formatBytes(budget.getLimitBytes()) : "unlimited";
+        String usedClass = budget.isExceeded() ? "bad" : budget.isUnderPressure() ? "warn" : "good";
+
+        StringBuilder rows = new StringBuilder();
+        for (SessionMemoryMonitor.Usage usage : memoryMonitor.getTopSessions(TOP_MEMORY_SESSIONS)) {
+            rows.append("<tr><td>").append(usage.sessionId())
+                .append("</td><td>").append(escapeHtml(usage.username() != null ? usage.username() : "-"))
+                .append("</td><td>").append(formatBytes(usage.decoderBytes()))
+                .append("</td><td>").append(formatBytes(usage.writeQueueBytes()))
+                .append("</td><td>").append(formatBytes(usage.pendingMessageBytes()))
+                .append("</td><td>").append(formatBytes(usage.totalBytes()))
+                .append("</td></tr>\n");
+        }
+        if (rows.isEmpty()) {
+            rows.append("<tr><td colspan=\"6\">No session retains buffered data</td></tr>\n");
+        }
+
+        return """
+                <div class="stat-group">
+                    <h2>🧮 Session Memory</h2>
+                    <div class="stat">
+                        <div class="stat-value %s">%s</div>
+                        <div class="stat-label">Retained / %s budget</div>
+                    </div>
+                    <table>
+                        <tr>
+                            <th>Session</th>
+                            <th>Player</th>
+                            <th>Decoder</th>
+                            <th>Write Queue</th>
+                            <th>Pending Messages</th>
+                            <th>Total</th>
+                        </tr>
+                        %s
+                    </table>
+                </div>
+            """.formatted(usedClass, formatBytes(budget.getUsedBytes()), limit, rows);
+    }
+
+    private String renderHeavyHitters() {
+        TrafficHeavyHitters hitters = TrafficHeavyHitters.getInstance();
+
+        StringBuilder rows = new StringBuilder();
+        for (TrafficHeavyHitters.Direction direction : TrafficHeavyHitters.Direction.values()) {
+            String label = direction == TrafficHeavyHitters.Direction.CLIENT_TO_BACKEND
+                ? "Client → Backend" : "Backend → Client";
+            appendHeavyHitterRows(rows, label, "Session bytes", true,
+                hitters.topSessions(direction, TrafficHeavyHitters.Measure.BYTES, TOP_TRAFFIC_ENTRIES));
+            appendHeavyHitterRows(rows, label, "Session packets", false,
+                hitters.topSessions(direction, TrafficHeavyHitters.Measure.PACKETS, TOP_TRAFFIC_ENTRIES));
+            appendHeavyHitterRows(rows, label, "Backend bytes", true,
+                hitters.topBackends(direction, TrafficHeavyHitters.Measure.BYTES, TOP_TRAFFIC_ENTRIES));
+            appendHeavyHitterRows(rows, label, "Backend packets", false,
+                hitters.topBackends(direction, TrafficHeavyHitters.Measure.PACKETS, TOP_TRAFFIC_ENTRIES));
+        }
+        if (rows.isEmpty()) {
+            rows.append("<tr><td colspan=\"4\">No traffic in the last window</td></tr>\n");
+        }
+
+        return """
+                <div class="stat-group">
+                    <h2>🔥 Top Traffic (last %d-%d s)</h2>
+                    <table>
+                        <tr>
+                            <th>Direction</th>
+                            <th>Ranked by</th>
+                            <th>Name</th>
+                            <th>Count</th>
+                        </tr>
+                        %s
+                    </table>
+                </div>
+            """.formatted(TrafficHeavyHitters.WINDOW_SECONDS, 2 * TrafficHeavyHitters.WINDOW_SECONDS, rows);
+    }
+
+    private static void appendHeavyHitterRows(StringBuilder rows, String direction, String rankedBy, boolean bytes,
+                                              List<TrafficHeavyHitters.HeavyHitter> hitters) {
+        for (TrafficHeavyHitters.HeavyHitter hitter : hitters) {
+            String count = bytes ? formatBytes(hitter.count()) : String.format("%,d", hitter.count());
+            if (hitter.maxError() > 0) {
+                count += " (±" + (bytes ? formatBytes(hitter.maxError()) : String.format("%,d", hitter.maxError())) + ")";
+            }
+            rows.append("<tr><td>").append(direction)
+                .append("</td><td>").append(rankedBy)
+                .append("</td><td>").append(escapeHtml(hitter.name()))
+                .append("</td><td>").append(count)
+                .append("</td></tr>\n");
+        }
+    }
+
     private void handleReport(HttpExchange exchange) throws IOException {
         if (!"GET".equals(exchange.getRequestMethod())) {
             sendResponse(exchange, 405, CONTENT_TYPE_TEXT, "Method Not Allowed");
@@ -356,7 +492,6 @@ public final class MetricsHttpServer {
 
         ProxyMetrics metrics = ProxyMetrics.getInstance();
         metrics.updateThroughput();
-        metrics.checkHangingRequests();
 
         String report = metrics.createShareableReport();
         sendResponse(exchange, 200, CONTENT_TYPE_TEXT, report);
@@ -370,6 +505,10 @@ public final class MetricsHttpServer {
 
         // Check for text format query param
         String query = exchange.getRequestURI().getQuery();
+        if (query != null && query.contains("format=csv")) {
+            streamHistoryCsv(exchange, query);
+            return;
+        }
         if (query != null && query.contains("format=text")) {
             String report = MetricsHistory.getInstance().createHistoricalReport();
             sendResponse(exchange, 200, CONTENT_TYPE_TEXT, report);
@@ -519,6 +658,7 @@ public final class MetricsHttpServer {
                 <div class="stat-group">
                     <h2>📤 Export</h2>
                     <a href="/history?format=text" class="btn" target="_blank">📋 Full Historical Report (Text)</a>
+                    <a href="/history?format=csv&tier=minute" class="btn" target="_blank">📥 Minute History (CSV)</a>
                     <a href="/report" class="btn" target="_blank">📊 Current Snapshot Report</a>
                 </div>
                 
@@ -633,6 +773,7 @@ public final class MetricsHttpServer {
                     <li><a href="/stats">/stats</a> - <span class="highlight">Real-time dashboard</span></li>
                     <li><a href="/history">/history</a> - <span class="highlight">Historical data & peaks</span></li>
                     <li><a href="/report">/report</a> - Shareable text report</li>
+                    <li><a href="/stream">/stream</a> - Live metric deltas (Server-Sent Events)</li>
                     <li><a href="/metrics">/metrics</a> - Prometheus scrape endpoint</li>
                     <li><a href="/health">/health</a> - Health check (JSON)</li>
                 </ul>
@@ -642,6 +783,94 @@ public final class MetricsHttpServer {
         sendResponse(exchange, 200, CONTENT_TYPE_HTML, html);
     }
 
+    private void handleStream(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, CONTENT_TYPE_TEXT, "Method Not Allowed");
+            return;
+        }
+
+        int groups;
+        try {
+            String query = exchange.getRequestURI().getQuery();
+            groups = MetricsStream.Group.parse(query != null ? queryParam(query, "groups") : null);
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, CONTENT_TYPE_TEXT,
+                "Expected groups=sessions,packets,bytes,response,errors,jvm");
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_EVENT_STREAM);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        // Handlers run on virtual threads, so blocking here is cheap
+        MetricsStream.Subscriber subscriber = metricsStream.subscribe(groups, exchange);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(STREAM_HEARTBEAT);
+            os.flush();
+            byte[][] events;
+            while ((events = subscriber.next(STREAM_HEARTBEAT_MILLIS)) != null) {
+                if (events.length == 0) {
+                    os.write(STREAM_HEARTBEAT);
+                } else {
+                    for (MetricsStream.Group group : MetricsStream.Group.VALUES) {
+                        if (subscriber.wants(group)) {
+                            os.write(events[group.ordinal()]);
+                        }
+                    }
+                }
+                os.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Metrics stream subscriber disconnected: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            metricsStream.unsubscribe(subscriber);
+        }
+    }
+
+    /**
+     * Streams a tier as CSV, e.g. {@code /history?format=csv&tier=minute&from=<millis>&to=<millis>}.
+     */
+    private void streamHistoryCsv(HttpExchange exchange, String query) throws IOException {
+        MetricsHistory.Tier tier;
+        long from;
+        long to;
+        try {
+            String tierName = queryParam(query, "tier");
+            tier = tierName != null
+                ? MetricsHistory.Tier.valueOf(tierName.toUpperCase(Locale.ROOT))
+                : MetricsHistory.Tier.RECENT;
+            String fromParam = queryParam(query, "from");
+            String toParam = queryParam(query, "to");
+            from = fromParam != null ? Long.parseLong(fromParam) : Long.MIN_VALUE;
+            to = toParam != null ? Long.parseLong(toParam) : Long.MAX_VALUE;
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, CONTENT_TYPE_TEXT,
+                "Expected tier=recent|minute|ten_minute|daily and from/to in epoch millis");
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_CSV);
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            MetricsHistory.getInstance().writeCsv(tier, from, to, writer);
+        }
+    }
+
+    @Nullable
+    private static String queryParam(String query, String name) {
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return pair.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
     private void sendResponse(HttpExchange exchange, int status, String contentType, String body)
             throws IOException {
         byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
@@ -659,6 +888,10 @@ public final class MetricsHttpServer {
         return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
     }
 
+    private static String escapeHtml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
     private static String formatBytesRate(double bytesPerSec) {
         if (bytesPerSec < 1024) return String.format("%.0f B", bytesPerSec);
         if (bytesPerSec < 1024 * 1024) return String.format("%.1f KB", bytesPerSec / 1024.0);
@@ -0,0 +1,291 @@
+package me.internalizable.numdrassl.profiling;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes metric deltas to subscribers as Server-Sent Events.
+ *
+ * <p>Once per interval ({@link #INTERVAL_MILLIS} by default), one
+ * {@link ProxyMetrics.MetricsSnapshot} is taken and compared with the previous one.
+ * Each {@link Group} any subscriber wants is encoded once as an SSE event, and the same
+ * encoded events are handed to every subscriber. The ticker only runs while someone is subscribed.</p>
+ *
+ * <p>Each subscriber has a queue of {@link #MAX_QUEUED_TICKS} ticks. A subscriber
+ * whose queue is full has fallen behind and is dropped rather than buffered. Dropping
+ * closes its exchange, so a handler blocked writing to a client that stopped reading
+ * fails instead of holding its thread and connection.</p>
+ */
+final class MetricsStream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsStream.class);
+
+    static final long INTERVAL_MILLIS = 1000;
+    static final int MAX_QUEUED_TICKS = 4;
+
+    // Tells a dropped subscriber to stop
+    private static final byte[][] CLOSE = new byte[0][];
+    private static final byte[][] NO_EVENTS = new byte[0][];
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+    private final long intervalMillis;
+
+    // Guarded by this
+    private ScheduledFuture<?> ticker;
+
+    // Only touched by the scheduler thread
+    private ProxyMetrics.MetricsSnapshot previous;
+
+    MetricsStream() {
+        this(Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Metrics-Stream");
+            thread.setDaemon(true);
+            return thread;
+        }), INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates a stream whose ticker runs on {@code scheduler} every {@code intervalMillis}.
+     */
+    MetricsStream(@Nonnull ScheduledExecutorService scheduler, long intervalMillis) {
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        this.intervalMillis = intervalMillis;
+    }
+
+    // ==================== Subscriptions ====================
+
+    /**
+     * Subscribes to a set of groups, starting the ticker if this is the first subscriber.
+     *
+     * @param groups the groups to receive
+     * @param exchange the exchange the events are written to, closed if the subscriber is dropped
+     */
+    @Nonnull
+    synchronized Subscriber subscribe(int groups, @Nonnull HttpExchange exchange) {
+        Subscriber subscriber = new Subscriber(groups, exchange);
+        subscribers.add(subscriber);
+        if (ticker == null) {
+            scheduler.execute(() -> previous = ProxyMetrics.getInstance().createSnapshot());
+            ticker = scheduler.scheduleAtFixedRate(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            LOGGER.debug("Metrics stream started");
+        }
+        return subscriber;
+    }
+
+    /**
+     * Removes a subscriber, stopping the ticker if it was the last one.
+     */
+    synchronized void unsubscribe(@Nonnull Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        if (subscribers.isEmpty() && ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+            LOGGER.debug("Metrics stream stopped");
+        }
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.drop();
+        }
+        subscribers.clear();
+    }
+
+    // ==================== Ticks ====================
+
+    /**
+     * Takes a snapshot and hands its events to every subscriber. Must run on the
+     * scheduler thread.
+     */
+    void tick() {
+        try {
+            int wanted = 0;
+            for (Subscriber subscriber : subscribers) {
+                wanted |= subscriber.groups;
+            }
+            if (wanted == 0) {
+                return;
+            }
+
+            ProxyMetrics.MetricsSnapshot current = ProxyMetrics.getInstance().createSnapshot();
+            byte[][] events = new byte[Group.VALUES.length][];
+            for (Group group : Group.VALUES) {
+                if ((wanted & group.mask()) != 0) {
+                    events[group.ordinal()] = encode(group, previous, current, intervalMillis);
+                }
+            }
+            previous = current;
+
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.queue.offer(events)) {
+                    LOGGER.debug("Dropping metrics stream subscriber that fell behind");
+                    subscribers.remove(subscriber);
+                    subscriber.drop();
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to push metrics stream tick", e);
+        }
+    }
+
+    private static byte[] encode(Group group, ProxyMetrics.MetricsSnapshot prev, ProxyMetrics.MetricsSnapshot cur,
+                                 long intervalMillis) {
+        double seconds = intervalMillis / 1000.0;
+        StringBuilder sb = new StringBuilder(160);
+        sb.append("event: ").append(group.key()).append("\ndata: {\"t\":").append(System.currentTimeMillis());
+        switch (group) {
+            case SESSIONS -> {
+                field(sb, "active", cur.activeSessions());
+                field(sb, "accepted", cur.connectionsAccepted() - prev.connectionsAccepted());
+                field(sb, "closed", cur.connectionsClosed() - prev.connectionsClosed());
+            }
+            case PACKETS -> {
+                long fromClient = cur.packetsFromClient() - prev.packetsFromClient();
+                long toClient = cur.packetsToClient() - prev.packetsToClient();
+                long fromBackend = cur.packetsFromBackend() - prev.packetsFromBackend();
+                long toBackend = cur.packetsToBackend() - prev.packetsToBackend();
+                field(sb, "fromClient", fromClient);
+                field(sb, "toClient", toClient);
+                field(sb, "fromBackend", fromBackend);
+                field(sb, "toBackend", toBackend);
+                field(sb, "perSecIn", (fromClient + fromBackend) / seconds);
+                field(sb, "perSecOut", (toClient + toBackend) / seconds);
+            }
+            case BYTES -> {
+                long in = cur.bytesFromClient() - prev.bytesFromClient();
+                long out = cur.bytesToClient() - prev.bytesToClient();
+                field(sb, "fromClient", in);
+                field(sb, "toClient", out);
+                field(sb, "perSecIn", in / seconds);
+                field(sb, "perSecOut", out / seconds);
+            }
+            case RESPONSE -> {
+                field(sb, "avgMs", cur.avgResponseTimeMs());
+                field(sb, "hanging", cur.hangingRequests());
+            }
+            case ERRORS -> {
+                field(sb, "authFailures", cur.authFailures() - prev.authFailures());
+                field(sb, "backendFailures", cur.backendFailures() - prev.backendFailures());
+            }
+            case JVM -> {
+                Runtime runtime = Runtime.getRuntime();
+                field(sb, "heapUsed", runtime.totalMemory() - runtime.freeMemory());
+                field(sb, "heapMax", runtime.maxMemory());
+                field(sb, "uptimeSeconds", cur.uptimeSeconds());
+            }
+        }
+        sb.append("}\n\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void field(StringBuilder sb, String name, long value) {
+        sb.append(",\"").append(name).append("\":").append(value);
+    }
+
+    private static void field(StringBuilder sb, String name, double value) {
+        sb.append(",\"").append(name).append("\":").append(Double.isFinite(value) ? value : 0);
+    }
+
+    // ==================== Types ====================
+
+    /**
+     * A group of metrics sent as one SSE event.
+     */
+    enum Group {
+        SESSIONS,
+        PACKETS,
+        BYTES,
+        RESPONSE,
+        ERRORS,
+        JVM;
+
+        static final Group[] VALUES = values();
+        static final int ALL = (1 << VALUES.length) - 1;
+
+        int mask() {
+            return 1 << ordinal();
+        }
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * Parses a comma-separated list of group names.
+         *
+         * @return the groups' mask, or {@link #ALL} if the list is null or empty
+         * @throws IllegalArgumentException if a name is unknown
+         */
+        static int parse(@Nullable String names) {
+            if (names == null || names.isBlank()) {
+                return ALL;
+            }
+            int mask = 0;
+            for (String name : names.split(",")) {
+                mask |= valueOf(name.trim().toUpperCase(Locale.ROOT)).mask();
+            }
+            return mask;
+        }
+    }
+
+    /**
+     * One connected client. Its HTTP handler takes ticks from {@link #next(long)} and
+     * writes the events it subscribed to.
+     */
+    static final class Subscriber {
+
+        private final int groups;
+        private final HttpExchange exchange;
+        private final BlockingQueue<byte[][]> queue = new ArrayBlockingQueue<>(MAX_QUEUED_TICKS);
+
+        private Subscriber(int groups, HttpExchange exchange) {
+            this.groups = groups;
+            this.exchange = Objects.requireNonNull(exchange, "exchange");
+        }
+
+        boolean wants(Group group) {
+            return (groups & group.mask()) != 0;
+        }
+
+        /**
+         * Waits for the next tick.
+         *
+         * @return the events of the tick indexed by group ordinal, an empty array if the
+         *         wait timed out, or null if the subscriber was dropped
+         */
+        @Nullable
+        byte[][] next(long timeoutMillis) throws InterruptedException {
+            byte[][] events = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (events == CLOSE) {
+                return null;
+            }
+            return events != null ? events : NO_EVENTS;
+        }
+
+        private void drop() {
+            queue.clear();
+            queue.offer(CLOSE);
+            // A handler waiting for a tick sees CLOSE, but one stuck in a write only
+            // returns once the exchange is closed. Closing flushes the final chunk and
+            // can block on the same client, so it must not run on the ticker thread.
+            Thread.ofVirtual().name("Metrics-Stream-Close").start(exchange::close);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package me.internalizable.numdrassl.profiling;
 
+import com.hypixel.hytale.protocol.io.UnpooledAllocations;
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.binder.jvm.*;
 import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
@@ -7,18 +8,31 @@ import io.micrometer.core.instrument.binder.system.UptimeMetrics;
 import io.micrometer.core.instrument.distribution.HistogramSnapshot;
 import io.micrometer.prometheus.PrometheusConfig;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PoolChunkListMetric;
+import io.netty.buffer.PoolChunkMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import me.internalizable.numdrassl.server.admission.LoginAdmissionController;
 import me.internalizable.numdrassl.session.SessionManager;
+import me.internalizable.numdrassl.session.memory.MemoryBudget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * Central metrics registry for the Numdrassl proxy.
@@ -84,6 +98,17 @@ public final class ProxyMetrics {
     private final Counter serverTransfersCompleted;
     private final Counter serverTransfersFailed;
 
+    // Chat conversion caches, indexed by ChatCache ordinal
+    private final Counter[] chatCacheHits;
+    private final Counter[] chatCacheMisses;
+
+    // Auth identity cache counters
+    private final Counter authIdentityCacheHits;
+    private final Counter authIdentityCacheMisses;
+
+    // Session memory budget
+    private final Counter memoryBudgetDisconnects;
+
     // ==================== Gauges ====================
 
     private final AtomicLong activeSessionsGauge = new AtomicLong(0);
@@ -95,6 +120,8 @@ public final class ProxyMetrics {
     private final Timer backendConnectTimer;
     private final Timer authenticationTimer;
     private final Timer serverTransferTimer;
+    private final Timer loginQueueWaitTimer;
+    private final Timer loginTimer;
 
     // ==================== Distribution Summaries ====================
 
@@ -105,7 +132,7 @@ public final class ProxyMetrics {
 
     // ==================== Per-packet-type tracking ====================
 
-    private final ConcurrentHashMap<String, Counter> packetTypeCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Counter>> packetTypeCounters = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Timer> packetTypeTimers = new ConcurrentHashMap<>();
 
     // ==================== Per-backend tracking ====================
@@ -113,6 +140,40 @@ public final class ProxyMetrics {
     private final ConcurrentHashMap<String, Counter> backendConnectionCounters = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, AtomicLong> backendActiveConnections = new ConcurrentHashMap<>();
 
+    // ==================== Per-stream-direction tracking ====================
+
+    private final ConcurrentHashMap<String, Counter> streamCounters = new ConcurrentHashMap<>();
+    private final AtomicLong relayedStreamsGauge = new AtomicLong(0);
+
+    // ==================== Login admission tracking ====================
+
+    private final ConcurrentHashMap<String, Counter> loginAdmissionCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> loginPhaseTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> quicRetryCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> rateLimitedCounters = new ConcurrentHashMap<>();
+
+    // ==================== Session memory tracking ====================
+
+    private final ConcurrentHashMap<String, Counter> memoryBackpressureCounters = new ConcurrentHashMap<>();
+
+    // ==================== Buffer allocation tracking ====================
+    private final ConcurrentHashMap<String, Counter> bufferLeakCounters = new ConcurrentHashMap<>();
+
+    // ==================== Session service tracking ====================
+
+    private final ConcurrentHashMap<String, Timer> sessionServiceTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> sessionServiceRetries = new ConcurrentHashMap<>();
+
+    // ==================== Connection quality tracking ====================
+
+    private final ConcurrentHashMap<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+    private volatile String region = "default";
+
+    // ==================== Forwarding latency tracking ====================
+
+    private final ConcurrentHashMap<String, Timer> forwardingTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> forwardingTypeTimers = new ConcurrentHashMap<>();
+
     // ==================== Rate tracking (for throughput) ====================
 
     private final LongAdder packetsPerSecondClient = new LongAdder();
@@ -136,9 +197,8 @@ public final class ProxyMetrics {
 
     // ==================== Response time tracking ====================
 
-    private final Timer backendResponseTimer;
-    private final ConcurrentHashMap<Long, Long> pendingRequests = new ConcurrentHashMap<>();
-    private final AtomicLong hangingRequestsCount = new AtomicLong(0);
+    private final Timer[] backendResponseTimers;
+    private final RequestTracker requestTracker = new RequestTracker(HANGING_THRESHOLD_MS, TimeUnit.MILLISECONDS);
     private static final long HANGING_THRESHOLD_MS = 30_000; // 30 seconds
 
     // ==================== Uptime tracking ====================
@@ -250,6 +310,37 @@ public final class ProxyMetrics {
             .description("Total server transfers failed")
             .register(registry);
 
+        // Initialize chat cache counters
+        this.chatCacheHits = new Counter[ChatCache.VALUES.length];
+        this.chatCacheMisses = new Counter[ChatCache.VALUES.length];
+        for (ChatCache cache : ChatCache.VALUES) {
+            chatCacheHits[cache.ordinal()] = Counter.builder("proxy_chat_cache_total")
+                .tag("cache", cache.tag())
+                .tag("result", "hit")
+                .description("Chat lookups served from a cache")
+                .register(registry);
+            chatCacheMisses[cache.ordinal()] = Counter.builder("proxy_chat_cache_total")
+                .tag("cache", cache.tag())
+                .tag("result", "miss")
+                .description("Chat lookups that had to convert or compile")
+                .register(registry);
+        }
+
+        // Initialize auth identity cache counters
+        this.authIdentityCacheHits = Counter.builder("proxy_auth_identity_cache_total")
+            .tag("result", "hit")
+            .description("Client logins that reused a recently verified identity")
+            .register(registry);
+
+        this.authIdentityCacheMisses = Counter.builder("proxy_auth_identity_cache_total")
+            .tag("result", "miss")
+            .description("Client logins that went through the full grant exchange")
+            .register(registry);
+
+        this.memoryBudgetDisconnects = Counter.builder("proxy_session_memory_disconnects_total")
+            .description("Sessions disconnected because the session memory budget was exceeded")
+            .register(registry);
+
         // Initialize gauges
         Gauge.builder("proxy_sessions_active", activeSessionsGauge, AtomicLong::get)
             .description("Number of currently active sessions")
@@ -259,6 +350,10 @@ public final class ProxyMetrics {
             .description("Number of pending backend connections")
             .register(registry);
 
+        Gauge.builder("proxy_streams_relayed", relayedStreamsGauge, AtomicLong::get)
+            .description("Number of additional QUIC streams currently relayed between client and backend")
+            .register(registry);
+
         // Initialize timers
         this.packetProcessingTimer = Timer.builder("proxy_packet_processing_duration")
             .description("Time spent processing packets")
@@ -284,6 +379,18 @@ public final class ProxyMetrics {
             .publishPercentileHistogram()
             .register(registry);
 
+        this.loginQueueWaitTimer = Timer.builder("proxy_login_queue_wait_duration")
+            .description("Time logins spent in the admission queue before authentication started")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram()
+            .register(registry);
+
+        this.loginTimer = Timer.builder("proxy_login_duration")
+            .description("Time from a client connecting until its session is connected to a backend")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram()
+            .register(registry);
+
         // Initialize distribution summaries for packet sizes
         this.packetSizeFromClient = DistributionSummary.builder("proxy_packet_size_bytes")
             .tag("direction", "from_client")
@@ -313,12 +420,16 @@ public final class ProxyMetrics {
             .publishPercentiles(0.5, 0.95, 0.99)
             .register(registry);
 
-        // Backend response timer
-        this.backendResponseTimer = Timer.builder("proxy_backend_response_duration")
-            .description("Time for backend to respond to requests")
-            .publishPercentiles(0.5, 0.95, 0.99)
-            .publishPercentileHistogram()
-            .register(registry);
+        // Backend response timers, one per kind of tracked operation
+        this.backendResponseTimers = new Timer[RequestTracker.Kind.values().length];
+        for (RequestTracker.Kind kind : RequestTracker.Kind.values()) {
+            backendResponseTimers[kind.ordinal()] = Timer.builder("proxy_backend_response_duration")
+                .tag("kind", kind.tag())
+                .description("Time for backend connects and session service calls to complete")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+        }
 
         // Throughput gauges
         Gauge.builder("proxy_throughput_packets_per_sec", () -> packetsPerSecIn)
@@ -343,10 +454,26 @@ public final class ProxyMetrics {
             .baseUnit("bytes")
             .register(registry);
 
-        // Hanging requests gauge
-        Gauge.builder("proxy_hanging_requests", hangingRequestsCount, AtomicLong::get)
+        // Hanging requests gauges
+        Gauge.builder("proxy_hanging_requests", requestTracker, RequestTracker::getStuckCount)
             .description("Number of requests that have been pending for too long")
             .register(registry);
+        for (RequestTracker.Kind kind : RequestTracker.Kind.values()) {
+            Gauge.builder("proxy_stuck_requests", requestTracker, t -> t.getStuckCount(kind))
+                .tag("kind", kind.tag())
+                .description("Operations pending for longer than the hanging threshold")
+                .register(registry);
+            Gauge.builder("proxy_stuck_request_oldest_age", requestTracker,
+                    t -> t.getOldestStuckAgeNanos(kind) / 1_000_000_000.0)
+                .tag("kind", kind.tag())
+                .description("Age of the oldest stuck operation")
+                .baseUnit("seconds")
+                .register(registry);
+            FunctionCounter.builder("proxy_request_timeouts_total", requestTracker, t -> t.getStuckTotal(kind))
+                .tag("kind", kind.tag())
+                .description("Operations that exceeded the hanging threshold, including ones that completed later")
+                .register(registry);
+        }
 
         // Uptime gauge
         Gauge.builder("proxy_uptime_seconds", () -> (System.currentTimeMillis() - startTimeMillis) / 1000.0)
@@ -478,6 +605,27 @@ public final class ProxyMetrics {
         getPacketTypeCounter(packetType, "to_client").increment();
     }
 
+    /**
+     * Records the same packet sent to several clients, as a broadcast does.
+     *
+     * @param packetType simple name of the packet class
+     * @param bytes      size of one copy in bytes
+     * @param count      number of clients it was sent to
+     */
+    public void recordPacketsToClient(@Nonnull String packetType, long bytes, int count) {
+        if (count <= 0) {
+            return;
+        }
+        packetsToClient.increment(count);
+        bytesToClient.increment(bytes * count);
+        // The size summary has no weighted record; every copy is one packet of this size
+        for (int i = 0; i < count; i++) {
+            packetSizeToClient.record(bytes);
+        }
+        bytesPerSecondOut.add(bytes * count);
+        getPacketTypeCounter(packetType, "to_client").increment(count);
+    }
+
     /**
      * Records a packet received from a backend server.
      *
@@ -508,14 +656,22 @@ public final class ProxyMetrics {
     }
 
     private Counter getPacketTypeCounter(String packetType, String direction) {
-        String key = direction + "_" + packetType;
-        return packetTypeCounters.computeIfAbsent(key, k ->
-            Counter.builder("proxy_packets_by_type_total")
-                .tag("type", packetType)
-                .tag("direction", direction)
-                .description("Packets by type and direction")
-                .register(registry)
-        );
+        // Runs for every packet: look up without building a key or capturing a lambda
+        ConcurrentHashMap<String, Counter> byType = packetTypeCounters.get(direction);
+        if (byType == null) {
+            byType = packetTypeCounters.computeIfAbsent(direction, d -> new ConcurrentHashMap<>());
+        }
+        Counter counter = byType.get(packetType);
+        if (counter == null) {
+            counter = byType.computeIfAbsent(packetType, t ->
+                Counter.builder("proxy_packets_by_type_total")
+                    .tag("type", t)
+                    .tag("direction", direction)
+                    .description("Packets by type and direction")
+                    .register(registry)
+            );
+        }
+        return counter;
     }
 
     // ==================== Error Metrics ====================
@@ -592,6 +748,477 @@ public final class ProxyMetrics {
         serverTransfersFailed.increment();
     }
 
+    // ==================== Stream Metrics ====================
+
+    /**
+     * Records a frame relayed on an additional (non-primary) stream.
+     *
+     * @param direction {@code client_to_backend} or {@code backend_to_client}
+     * @param bytes     frame size including header
+     */
+    public void recordStreamFrame(@Nonnull String direction, long bytes) {
+        getStreamCounter("frames", direction).increment();
+        getStreamCounter("bytes", direction).increment(bytes);
+    }
+
+    /**
+     * Records that a relayed stream paused reading because its peer was not writable.
+     */
+    public void recordStreamStall(@Nonnull String direction) {
+        getStreamCounter("stalls", direction).increment();
+    }
+
+    public void incrementRelayedStreams() {
+        relayedStreamsGauge.incrementAndGet();
+    }
+
+    public void decrementRelayedStreams() {
+        relayedStreamsGauge.decrementAndGet();
+    }
+
+    private Counter getStreamCounter(String metric, String direction) {
+        String key = metric + "_" + direction;
+        return streamCounters.computeIfAbsent(key, k ->
+            Counter.builder("proxy_stream_" + metric + "_total")
+                .tag("direction", direction)
+                .description("Relayed stream " + metric)
+                .register(registry)
+        );
+    }
+
+    // ==================== Chat Cache Metrics ====================
+
+    public void recordChatCacheHit(@Nonnull ChatCache cache) {
+        chatCacheHits[cache.ordinal()].increment();
+    }
+
+    public void recordChatCacheMiss(@Nonnull ChatCache cache) {
+        chatCacheMisses[cache.ordinal()].increment();
+    }
+
+    /**
+     * Gets a chat cache's hit rate since startup.
+     *
+     * @return hits / (hits + misses), or 0 if nothing was looked up yet
+     */
+    public double getChatCacheHitRate(@Nonnull ChatCache cache) {
+        double hits = chatCacheHits[cache.ordinal()].count();
+        double total = hits + chatCacheMisses[cache.ordinal()].count();
+        return total > 0 ? hits / total : 0;
+    }
+
+    /**
+     * The chat caches reported in {@code proxy_chat_cache_total}.
+     */
+    public enum ChatCache {
+        /** Pre-encoded messages, keyed by their structure. */
+        ENCODED("encoded"),
+        /** Compiled placeholder templates. */
+        TEMPLATE("template");
+
+        static final ChatCache[] VALUES = values();
+
+        private final String tag;
+
+        ChatCache(String tag) {
+            this.tag = tag;
+        }
+
+        @Nonnull
+        public String tag() {
+            return tag;
+        }
+    }
+
+    // ==================== Auth Identity Cache Metrics ====================
+
+    public void recordAuthIdentityCacheHit() {
+        authIdentityCacheHits.increment();
+    }
+
+    public void recordAuthIdentityCacheMiss() {
+        authIdentityCacheMisses.increment();
+    }
+
+    // ==================== Login Admission Metrics ====================
+
+    /**
+     * Binds the login queue depth and handshake gauges to the admission controller.
+     */
+    public void bindLoginAdmission(@Nonnull LoginAdmissionController admission) {
+        Objects.requireNonNull(admission, "admission");
+        Gauge.builder("proxy_login_queue_depth", admission, LoginAdmissionController::getQueueDepth)
+            .description("Logins waiting for admission")
+            .register(registry);
+        Gauge.builder("proxy_login_handshakes_active", admission, LoginAdmissionController::getActiveHandshakes)
+            .description("Admitted logins that have not reached a backend yet")
+            .register(registry);
+    }
+
+    /**
+     * Records an admission decision.
+     *
+     * @param result {@code immediate}, {@code queued} or {@code rejected}
+     */
+    public void recordLoginAdmission(@Nonnull String result) {
+        loginAdmissionCounters.computeIfAbsent(result, r ->
+            Counter.builder("proxy_login_admissions_total")
+                .tag("result", r)
+                .description("Login admission decisions")
+                .register(registry)
+        ).increment();
+    }
+
+    /**
+     * Records how long a login waited in the admission queue.
+     */
+    public void recordLoginQueueWait(long nanos) {
+        loginQueueWaitTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the total time of a completed login.
+     */
+    public void recordLoginTime(long nanos) {
+        loginTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time one phase of a completed login took.
+     *
+     * @param phase the phase's tag, such as {@code auth_grant}
+     */
+    public void recordLoginPhase(@Nonnull String phase, long nanos) {
+        loginPhaseTimers.computeIfAbsent(phase, p ->
+            Timer.builder("proxy_login_phase_duration")
+                .tag("phase", p)
+                .description("Time spent in each phase of completed logins")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // ==================== QUIC Retry Metrics ====================
+
+    /**
+     * Records a QUIC address validation event.
+     *
+     * @param result {@code issued}, {@code validated} or {@code rejected}
+     */
+    public void recordQuicRetry(@Nonnull String result) {
+        quicRetryCounters.computeIfAbsent(result, r ->
+            Counter.builder("proxy_quic_retry_total")
+                .tag("result", r)
+                .description("QUIC retry tokens issued, validated and rejected")
+                .register(registry)
+        ).increment();
+    }
+
+    /**
+     * Records a packet dropped by the per-source rate limiter.
+     *
+     * @param limit {@code initial}, {@code packet} or {@code packet_type}
+     */
+    public void recordRateLimited(@Nonnull String limit) {
+        rateLimitedCounters.computeIfAbsent(limit, l ->
+            Counter.builder("proxy_rate_limited_total")
+                .tag("limit", l)
+                .description("Packets dropped by per-source rate limits")
+                .register(registry)
+        ).increment();
+    }
+
+    // ==================== Session Memory Metrics ====================
+
+    /**
+     * Binds the retained and budgeted session memory gauges to the budget.
+     */
+    public void bindMemoryBudget(@Nonnull MemoryBudget budget) {
+        Objects.requireNonNull(budget, "budget");
+        Gauge.builder("proxy_session_memory_bytes", budget, MemoryBudget::getUsedBytes)
+            .description("Bytes retained by sessions in decoder buffers, write queues and pending messages")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("proxy_session_memory_budget_bytes", budget, MemoryBudget::getLimitBytes)
+            .description("Session memory budget (0 = unlimited)")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    /**
+     * Records that a primary stream paused reading because the memory budget is under
+     * pressure and its peer was not writable.
+     *
+     * @param direction {@code client_to_backend} or {@code backend_to_client}
+     */
+    public void recordMemoryBackpressure(@Nonnull String direction) {
+        memoryBackpressureCounters.computeIfAbsent(direction, d ->
+            Counter.builder("proxy_session_memory_backpressure_total")
+                .tag("direction", d)
+                .description("Primary stream reads paused under session memory pressure")
+                .register(registry)
+        ).increment();
+    }
+
+    public void recordMemoryBudgetDisconnect() {
+        memoryBudgetDisconnects.increment();
+    }
+
+    // ==================== Buffer Allocation Metrics ====================
+
+    /**
+     * Binds gauges and counters to the allocator used by the proxy's pipelines. The pooled
+     * allocator is Netty's shared default, so its figures include other users of it such as
+     * the Redis client.
+     *
+     * <p>For a pooled allocator this also exports the arenas, the average usage of their
+     * chunks and the allocations served by the arenas. Netty does not count thread-cache
+     * hits; an allocation reaches an arena only when the thread cache could not serve it,
+     * so a rising {@code proxy_allocator_arena_allocations_total} relative to the packet
+     * rate means the caches are missing.</p>
+     */
+    public void bindBufferAllocator(@Nonnull ByteBufAllocator allocator) {
+        Objects.requireNonNull(allocator, "allocator");
+        if (allocator instanceof ByteBufAllocatorMetricProvider provider) {
+            ByteBufAllocatorMetric metric = provider.metric();
+            Gauge.builder("proxy_allocator_used_bytes", metric, ByteBufAllocatorMetric::usedDirectMemory)
+                .tag("memory", "direct")
+                .description("Memory held by the pipeline buffer allocator")
+                .baseUnit("bytes")
+                .register(registry);
+            Gauge.builder("proxy_allocator_used_bytes", metric, ByteBufAllocatorMetric::usedHeapMemory)
+                .tag("memory", "heap")
+                .description("Memory held by the pipeline buffer allocator")
+                .baseUnit("bytes")
+                .register(registry);
+        }
+
+        if (!(allocator instanceof PooledByteBufAllocator pooled)) {
+            return;
+        }
+        PooledByteBufAllocatorMetric metric = pooled.metric();
+        bindArenas("direct", metric.directArenas());
+        bindArenas("heap", metric.heapArenas());
+        Gauge.builder("proxy_allocator_thread_caches", metric, PooledByteBufAllocatorMetric::numThreadLocalCaches)
+            .description("Thread-local caches of the pooled allocator")
+            .register(registry);
+        Gauge.builder("proxy_allocator_chunk_size_bytes", metric, PooledByteBufAllocatorMetric::chunkSize)
+            .description("Size of the pooled allocator's chunks")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    private void bindArenas(String memory, List<PoolArenaMetric> arenas) {
+        Gauge.builder("proxy_allocator_arenas", arenas, List::size)
+            .tag("memory", memory)
+            .description("Arenas of the pooled allocator")
+            .register(registry);
+        Gauge.builder("proxy_allocator_chunk_usage_percent", arenas, ProxyMetrics::averageChunkUsage)
+            .tag("memory", memory)
+            .description("Average usage of the pooled allocator's chunks")
+            .baseUnit("percent")
+            .register(registry);
+        Gauge.builder("proxy_allocator_active_allocations", arenas,
+                a -> sumArenas(a, PoolArenaMetric::numActiveAllocations))
+            .tag("memory", memory)
+            .description("Buffers currently allocated from the arenas")
+            .register(registry);
+        Gauge.builder("proxy_allocator_active_bytes", arenas,
+                a -> sumArenas(a, PoolArenaMetric::numActiveBytes))
+            .tag("memory", memory)
+            .description("Bytes currently allocated from the arenas")
+            .baseUnit("bytes")
+            .register(registry);
+        bindArenaAllocations(memory, "small", arenas, PoolArenaMetric::numSmallAllocations);
+        bindArenaAllocations(memory, "normal", arenas, PoolArenaMetric::numNormalAllocations);
+        bindArenaAllocations(memory, "huge", arenas, PoolArenaMetric::numHugeAllocations);
+    }
+
+    private void bindArenaAllocations(String memory, String size, List<PoolArenaMetric> arenas,
+                                      ToLongFunction<PoolArenaMetric> allocations) {
+        FunctionCounter.builder("proxy_allocator_arena_allocations_total", arenas, a -> sumArenas(a, allocations))
+            .tag("memory", memory)
+            .tag("size", size)
+            .description("Allocations served by the arenas rather than a thread cache")
+            .register(registry);
+    }
+
+    private static double sumArenas(List<PoolArenaMetric> arenas, ToLongFunction<PoolArenaMetric> value) {
+        long sum = 0;
+        for (PoolArenaMetric arena : arenas) {
+            sum += value.applyAsLong(arena);
+        }
+        return sum;
+    }
+
+    private static double averageChunkUsage(List<PoolArenaMetric> arenas) {
+        long usage = 0;
+        int chunks = 0;
+        for (PoolArenaMetric arena : arenas) {
+            for (PoolChunkListMetric chunkList : arena.chunkLists()) {
+                for (PoolChunkMetric chunk : chunkList) {
+                    usage += chunk.usage();
+                    chunks++;
+                }
+            }
+        }
+        return chunks == 0 ? 0 : (double) usage / chunks;
+    }
+
+    /**
+     * Binds counters to the buffers the protocol code allocates with {@code Unpooled},
+     * outside the pipeline allocator.
+     */
+    public void bindUnpooledAllocations() {
+        for (UnpooledAllocations.Site site : UnpooledAllocations.Site.values()) {
+            for (boolean direct : new boolean[] {true, false}) {
+                String memory = direct ? "direct" : "heap";
+                FunctionCounter.builder("proxy_unpooled_allocations_total", site,
+                        s -> UnpooledAllocations.getCount(s, direct))
+                    .tag("site", site.tag())
+                    .tag("memory", memory)
+                    .description("Unpooled buffers allocated by the protocol code")
+                    .register(registry);
+                FunctionCounter.builder("proxy_unpooled_allocated_bytes_total", site,
+                        s -> UnpooledAllocations.getBytes(s, direct))
+                    .tag("site", site.tag())
+                    .tag("memory", memory)
+                    .description("Capacity of the unpooled buffers allocated by the protocol code")
+                    .baseUnit("bytes")
+                    .register(registry);
+            }
+        }
+    }
+
+    /**
+     * Records a buffer leak reported by Netty's sampled leak detector.
+     *
+     * @param resource the leaked resource type, usually {@code ByteBuf}
+     */
+    public void recordBufferLeak(@Nonnull String resource) {
+        bufferLeakCounters.computeIfAbsent(resource, r ->
+            Counter.builder("proxy_buffer_leaks_total")
+                .tag("resource", r)
+                .description("Leaks reported by the sampled leak detector")
+                .register(registry)
+        ).increment();
+    }
+
+    // ==================== Session Service Metrics ====================
+
+    /**
+     * Records one attempt of a session service call.
+     *
+     * @param endpoint endpoint path
+     * @param outcome  status class ({@code 2xx}, {@code 5xx}, ...) or {@code error}
+     * @param nanos    time from send to response
+     */
+    public void recordSessionServiceRequest(@Nonnull String endpoint, @Nonnull String outcome, long nanos) {
+        sessionServiceTimers.computeIfAbsent(endpoint + "|" + outcome, k ->
+            Timer.builder("proxy_session_service_request_duration")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .description("Latency of session service requests")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSessionServiceRetry(@Nonnull String endpoint) {
+        sessionServiceRetries.computeIfAbsent(endpoint, e ->
+            Counter.builder("proxy_session_service_retries_total")
+                .tag("endpoint", e)
+                .description("Session service requests retried after an error")
+                .register(registry)
+        ).increment();
+    }
+
+    // ==================== Connection Quality Metrics ====================
+
+    /**
+     * Sets the region tag of the latency histograms, so latency can be compared across
+     * proxies in different regions. Must be called before latencies are recorded.
+     */
+    public void setRegion(@Nonnull String region) {
+        this.region = Objects.requireNonNull(region, "region");
+    }
+
+    /**
+     * Records a Ping/Pong round trip between the proxy and a client.
+     */
+    public void recordClientPing(long nanos) {
+        getLatencyTimer("proxy_client_ping_duration", null,
+            "Round-trip time of game pings between proxy and client")
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a QUIC RTT sample of a client connection.
+     */
+    public void recordClientRtt(long nanos) {
+        getLatencyTimer("proxy_client_rtt_duration", null,
+            "QUIC round-trip time of client connections")
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a QUIC RTT sample of a backend connection.
+     */
+    public void recordBackendRtt(@Nonnull String backendName, long nanos) {
+        getLatencyTimer("proxy_backend_rtt_duration", backendName,
+            "QUIC round-trip time of backend connections")
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer getLatencyTimer(String name, @Nullable String backendName, String description) {
+        String key = backendName != null ? name + ":" + backendName : name;
+        return latencyTimers.computeIfAbsent(key, k -> {
+            Timer.Builder builder = Timer.builder(name)
+                .tag("region", region)
+                .description(description)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram();
+            if (backendName != null) {
+                builder.tag("backend", backendName);
+            }
+            return builder.register(registry);
+        });
+    }
+
+    // ==================== Forwarding Latency Metrics ====================
+
+    /**
+     * Records the time a sampled packet spent in the proxy, from being decoded on one
+     * side to being encoded on the other.
+     *
+     * <p>The per-direction timer publishes a full histogram. The per-packet-type timer
+     * only publishes percentiles, to keep the number of series bounded.</p>
+     *
+     * @param direction  {@code client_to_backend} or {@code backend_to_client}
+     * @param packetType simple name of the packet class, or {@code RawPacket}
+     * @param nanos      time from decode to encode
+     */
+    public void recordForwardingLatency(@Nonnull String direction, @Nonnull String packetType, long nanos) {
+        forwardingTimers.computeIfAbsent(direction, d ->
+            Timer.builder("proxy_forwarding_duration")
+                .tag("direction", d)
+                .description("Time from decoding a packet to encoding it on the other side (sampled)")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+        forwardingTypeTimers.computeIfAbsent(direction + "_" + packetType, k ->
+            Timer.builder("proxy_forwarding_by_type_duration")
+                .tag("direction", direction)
+                .tag("type", packetType)
+                .description("Time from decoding a packet to encoding it on the other side, by type (sampled)")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
     // ==================== Timing ====================
 
     /**
@@ -731,61 +1358,71 @@ public final class ProxyMetrics {
     // ==================== Request Tracking (Hanging Detection) ====================
 
     /**
-     * Starts tracking a request for hanging detection.
+     * Starts tracking an operation for hanging detection. The operation must be passed
+     * to {@link #completeRequestTracking} however it ends.
      *
-     * @param requestId unique identifier for the request
+     * @param kind the kind of operation
+     * @param subject what the operation is for, used when logging it as stuck
      */
-    public void startRequestTracking(long requestId) {
-        pendingRequests.put(requestId, System.currentTimeMillis());
+    @Nonnull
+    public RequestTracker.Request startRequestTracking(@Nonnull RequestTracker.Kind kind, @Nonnull String subject) {
+        return requestTracker.start(kind, subject);
     }
 
     /**
-     * Completes tracking a request and records response time.
-     *
-     * @param requestId the request identifier
+     * Completes tracking an operation and records its response time. Completing an
+     * operation again has no effect.
      */
-    public void completeRequestTracking(long requestId) {
-        Long startTime = pendingRequests.remove(requestId);
-        if (startTime != null) {
-            long duration = System.currentTimeMillis() - startTime;
-            backendResponseTimer.record(duration, TimeUnit.MILLISECONDS);
+    public void completeRequestTracking(@Nonnull RequestTracker.Request request) {
+        long nanos = request.complete();
+        if (nanos >= 0) {
+            backendResponseTimers[request.getKind().ordinal()].record(nanos, TimeUnit.NANOSECONDS);
         }
     }
 
     /**
-     * Checks for hanging requests and updates the counter.
-     * Should be called periodically.
+     * Gets the number of currently hanging requests.
      */
-    public void checkHangingRequests() {
-        long now = System.currentTimeMillis();
-        long hangingCount = pendingRequests.values().stream()
-            .filter(startTime -> (now - startTime) > HANGING_THRESHOLD_MS)
-            .count();
-        hangingRequestsCount.set(hangingCount);
+    public long getHangingRequestsCount() {
+        return requestTracker.getStuckCount();
     }
 
     /**
-     * Gets the number of currently hanging requests.
+     * Gets the tracker of outstanding operations.
      */
-    public long getHangingRequestsCount() {
-        return hangingRequestsCount.get();
+    @Nonnull
+    public RequestTracker getRequestTracker() {
+        return requestTracker;
     }
 
     /**
-     * Gets the average backend response time in milliseconds.
+     * Gets the average backend response time in milliseconds, across all kinds of
+     * tracked operations.
      */
     public double getAverageResponseTimeMs() {
-        return backendResponseTimer.mean(TimeUnit.MILLISECONDS);
+        long count = 0;
+        double totalMs = 0;
+        for (Timer timer : backendResponseTimers) {
+            count += timer.count();
+            totalMs += timer.totalTime(TimeUnit.MILLISECONDS);
+        }
+        return count == 0 ? 0 : totalMs / count;
     }
 
     /**
-     * Gets the 95th percentile backend response time in milliseconds.
+     * Gets the 95th percentile backend response time in milliseconds. Percentiles of
+     * different kinds cannot be combined, so this is the slowest kind's.
      */
     public double getP95ResponseTimeMs() {
-        HistogramSnapshot snapshot = backendResponseTimer.takeSnapshot();
-        return snapshot.percentileValues().length > 0
-            ? snapshot.percentileValues()[1].value(TimeUnit.MILLISECONDS) // 95th percentile
-            : 0;
+        double slowest = 0;
+        for (Timer timer : backendResponseTimers) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            if (snapshot.percentileValues().length > 0) {
+                // 95th percentile
+                slowest = Math.max(slowest, snapshot.percentileValues()[1].value(TimeUnit.MILLISECONDS));
+            }
+        }
+        return slowest;
     }
 
     /**
@@ -819,7 +1456,7 @@ public final class ProxyMetrics {
             bytesPerSecIn,
             bytesPerSecOut,
             getAverageResponseTimeMs(),
-            hangingRequestsCount.get(),
+            getHangingRequestsCount(),
             getUptimeSeconds()
         );
     }
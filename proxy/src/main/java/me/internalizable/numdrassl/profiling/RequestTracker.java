@@ -0,0 +1,296 @@
+package me.internalizable.numdrassl.profiling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Detects outstanding operations that take too long to complete, such as backend
+ * connects and session service calls.
+ *
+ * <p>Each tracked request is placed on a hashed timing wheel, in the slot its deadline
+ * falls in, with the number of full turns left before then. Every tick the wheel
+ * advances one slot and looks only at the requests in it: completed ones are dropped,
+ * and pending ones whose deadline has come are moved to a set of stuck requests.
+ * Starting and completing a request are constant-time, so requests that complete
+ * normally are never scanned before their slot comes round. Ages are only computed for
+ * stuck requests, and only when the metrics are read.</p>
+ */
+public final class RequestTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestTracker.class);
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int TICKS_PER_WHEEL = 64;
+
+    /**
+     * The kind of a tracked operation.
+     */
+    public enum Kind {
+        /** Connecting to a backend, from binding the socket to opening the stream. */
+        BACKEND_CONNECT("backend_connect"),
+        /** Requesting an authorization grant for a client from the session service. */
+        AUTH_GRANT("auth_grant"),
+        /** Exchanging a server's authorization grant for an access token. */
+        AUTH_TOKEN("auth_token");
+
+        private final String tag;
+
+        Kind(String tag) {
+            this.tag = tag;
+        }
+
+        @Nonnull
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final long thresholdNanos;
+    private final long tickNanos;
+    private final LongSupplier nanoTime;
+    private final Set<Request>[] stuck;
+    private final LongAdder[] stuckTotal;
+
+    // Requests started since the last tick, placed on the wheel by the next one
+    private final Queue<Request> started = new ConcurrentLinkedQueue<>();
+
+    // Only touched by the thread that ticks
+    private final List<Request>[] wheel;
+    private final long wheelStartNanos;
+    private long ticks;
+
+    RequestTracker(long threshold, @Nonnull TimeUnit unit) {
+        this(threshold, unit, TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS), TICKS_PER_WHEEL, System::nanoTime);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Request-Tracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a tracker that reads time from {@code nanoTime} and only advances when
+     * {@link #tick()} is called.
+     *
+     * @param ticksPerWheel the number of slots, a power of two
+     */
+    @SuppressWarnings("unchecked")
+    RequestTracker(long threshold, @Nonnull TimeUnit unit, long tickNanos, int ticksPerWheel,
+                   @Nonnull LongSupplier nanoTime) {
+        if (Integer.bitCount(ticksPerWheel) != 1) {
+            throw new IllegalArgumentException("ticksPerWheel must be a power of two: " + ticksPerWheel);
+        }
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.tickNanos = tickNanos;
+        this.nanoTime = Objects.requireNonNull(nanoTime, "nanoTime");
+        this.wheelStartNanos = nanoTime.getAsLong();
+        this.wheel = new List[ticksPerWheel];
+        for (int i = 0; i < ticksPerWheel; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.stuck = new Set[KINDS.length];
+        this.stuckTotal = new LongAdder[KINDS.length];
+        for (int i = 0; i < KINDS.length; i++) {
+            stuck[i] = ConcurrentHashMap.newKeySet();
+            stuckTotal[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Starts tracking an operation. The caller must {@link Request#complete()} it
+     * however the operation ends.
+     *
+     * @param kind the kind of operation
+     * @param subject what the operation is for, used when logging it as stuck
+     */
+    @Nonnull
+    public Request start(@Nonnull Kind kind, @Nonnull String subject) {
+        Request request = new Request(this, Objects.requireNonNull(kind, "kind"),
+            Objects.requireNonNull(subject, "subject"), nanoTime.getAsLong());
+        started.add(request);
+        return request;
+    }
+
+    /**
+     * Advances the wheel through every tick that has ended by now. Must only be called
+     * from one thread at a time.
+     */
+    void tick() {
+        long now = nanoTime.getAsLong();
+        try {
+            while (wheelStartNanos + (ticks + 1) * tickNanos <= now) {
+                schedule();
+                expire(wheel[(int) (ticks & (wheel.length - 1))]);
+                ticks++;
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error advancing request tracker", e);
+        }
+    }
+
+    /**
+     * Places the requests started since the last tick in the slot their deadline falls in.
+     */
+    private void schedule() {
+        Request request;
+        while ((request = started.poll()) != null) {
+            if (request.state == Request.COMPLETE) {
+                continue;
+            }
+            long deadlineTick = (request.startNanos + thresholdNanos - wheelStartNanos) / tickNanos;
+            // A deadline that has already passed fires on the current tick
+            long slot = Math.max(deadlineTick, ticks);
+            request.remainingRounds = (slot - ticks) / wheel.length;
+            wheel[(int) (slot & (wheel.length - 1))].add(request);
+        }
+    }
+
+    private void expire(List<Request> slot) {
+        int kept = 0;
+        for (int i = 0; i < slot.size(); i++) {
+            Request request = slot.get(i);
+            if (request.state == Request.COMPLETE) {
+                continue;
+            }
+            if (request.remainingRounds > 0) {
+                request.remainingRounds--;
+                slot.set(kept++, request);
+                continue;
+            }
+            request.expire();
+        }
+        slot.subList(kept, slot.size()).clear();
+    }
+
+    /**
+     * Gets the number of operations of a kind that are currently stuck.
+     */
+    public int getStuckCount(@Nonnull Kind kind) {
+        return stuck[kind.ordinal()].size();
+    }
+
+    /**
+     * Gets the number of operations currently stuck, of all kinds.
+     */
+    public int getStuckCount() {
+        int count = 0;
+        for (Set<Request> requests : stuck) {
+            count += requests.size();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of operations of a kind that have become stuck since startup,
+     * including those that completed later.
+     */
+    public long getStuckTotal(@Nonnull Kind kind) {
+        return stuckTotal[kind.ordinal()].sum();
+    }
+
+    /**
+     * Gets how long the oldest stuck operation of a kind has been pending, or 0 if none is.
+     */
+    public long getOldestStuckAgeNanos(@Nonnull Kind kind) {
+        long now = nanoTime.getAsLong();
+        long oldest = 0;
+        for (Request request : stuck[kind.ordinal()]) {
+            oldest = Math.max(oldest, now - request.startNanos);
+        }
+        return oldest;
+    }
+
+    /**
+     * Gets the age at which an operation counts as stuck, in nanoseconds.
+     */
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    /**
+     * A tracked operation.
+     */
+    public static final class Request {
+
+        private static final int PENDING = 0;
+        private static final int STUCK = 1;
+        private static final int COMPLETE = 2;
+
+        private static final AtomicIntegerFieldUpdater<Request> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Request.class, "state");
+
+        private final RequestTracker tracker;
+        private final Kind kind;
+        private final String subject;
+        private final long startNanos;
+        private volatile int state = PENDING;
+        // Only touched by the thread that ticks
+        private long remainingRounds;
+
+        private Request(RequestTracker tracker, Kind kind, String subject, long startNanos) {
+            this.tracker = tracker;
+            this.kind = kind;
+            this.subject = subject;
+            this.startNanos = startNanos;
+        }
+
+        @Nonnull
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Completes the operation. Only the first call has an effect.
+         *
+         * @return how long the operation took in nanoseconds, or -1 if it was already completed
+         */
+        public long complete() {
+            int previous = STATE.getAndSet(this, COMPLETE);
+            if (previous == COMPLETE) {
+                return -1;
+            }
+
+            // A pending request is dropped from the wheel when its slot next comes round
+            long elapsed = tracker.nanoTime.getAsLong() - startNanos;
+            if (previous == STUCK && tracker.stuck[kind.ordinal()].remove(this)) {
+                LOGGER.info("{} for {} completed after {} ms", kind.tag(), subject,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+            return elapsed;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, PENDING, STUCK)) {
+                return;
+            }
+            Set<Request> stuck = tracker.stuck[kind.ordinal()];
+            stuck.add(this);
+            tracker.stuckTotal[kind.ordinal()].increment();
+            if (state == COMPLETE) {
+                // Completed between the state change and the add; complete() may have missed it
+                stuck.remove(this);
+                return;
+            }
+            LOGGER.warn("{} for {} has been pending for over {} ms", kind.tag(), subject,
+                TimeUnit.NANOSECONDS.toMillis(tracker.thresholdNanos));
+        }
+    }
+}
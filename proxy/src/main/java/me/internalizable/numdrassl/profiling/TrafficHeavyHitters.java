@@ -0,0 +1,304 @@
+package me.internalizable.numdrassl.profiling;
+
+import io.netty.util.concurrent.FastThreadLocal;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Tracks which sessions and backends move the most traffic.
+ *
+ * <p>Every thread that records traffic (in practice, every event loop) owns its own
+ * set of {@link HeavyHitterSketch}es: per direction, per sessions or backends, and
+ * per bytes or packets. Recording never contends or allocates. Queries merge the
+ * sketches of all threads.</p>
+ *
+ * <p>Sketches cover a sliding window of two {@link #WINDOW_SECONDS} epochs: the
+ * current one and the previous one. Memory is fixed at
+ * {@link #CAPACITY} counters per sketch, whatever the number of players.</p>
+ *
+ * <p>Backends are keyed by the hash of their name. Two backends whose names share a
+ * hash would be counted together, which is acceptable for the handful of
+ * backends a proxy has.</p>
+ */
+public final class TrafficHeavyHitters {
+
+    public static final int CAPACITY = 32;
+    public static final long WINDOW_SECONDS = 30;
+
+    private static final TrafficHeavyHitters INSTANCE = new TrafficHeavyHitters();
+
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+    private final FastThreadLocal<Recorder> localRecorder = new FastThreadLocal<>() {
+        @Override
+        protected Recorder initialValue() {
+            Recorder recorder = new Recorder(epoch);
+            recorders.add(recorder);
+            return recorder;
+        }
+    };
+
+    private volatile int epoch;
+
+    private TrafficHeavyHitters() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Heavy-Hitters");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> epoch++, WINDOW_SECONDS, WINDOW_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Nonnull
+    public static TrafficHeavyHitters getInstance() {
+        return INSTANCE;
+    }
+
+    // ==================== Recording ====================
+
+    /**
+     * Records traffic of one session.
+     *
+     * @param direction the direction the traffic is forwarded in
+     * @param sessionId the session
+     * @param username the session's username, or null if not known yet
+     * @param backend the session's current backend, or null
+     * @param packets the number of packets
+     * @param bytes the number of bytes
+     */
+    public void record(@Nonnull Direction direction, long sessionId, @Nullable String username,
+                       @Nullable String backend, int packets, long bytes) {
+        Recorder recorder = localRecorder.get();
+        recorder.rotate(epoch);
+
+        Sketches sketches = recorder.current[direction.ordinal()];
+        String sessionLabel = username != null ? username : "";
+        sketches.sessionBytes.add(sessionId, sessionLabel, bytes);
+        sketches.sessionPackets.add(sessionId, sessionLabel, packets);
+        if (backend != null) {
+            long backendKey = backend.hashCode();
+            sketches.backendBytes.add(backendKey, backend, bytes);
+            sketches.backendPackets.add(backendKey, backend, packets);
+        }
+    }
+
+    /**
+     * Creates a recorder of one session's traffic in one direction.
+     *
+     * @param direction the direction the traffic is forwarded in
+     * @param sessionId the session
+     * @param username supplies the session's username at recording time
+     * @param backend supplies the session's current backend at recording time
+     */
+    @Nonnull
+    public Source source(@Nonnull Direction direction, long sessionId,
+                         @Nonnull Supplier<String> username, @Nonnull Supplier<String> backend) {
+        return new Source(this, direction, sessionId, username, backend);
+    }
+
+    // ==================== Queries ====================
+
+    /**
+     * Gets the sessions with the most traffic in the current window.
+     *
+     * @param direction the traffic direction
+     * @param measure bytes or packets
+     * @param limit the maximum number of entries
+     * @return the heaviest sessions, heaviest first
+     */
+    @Nonnull
+    public List<HeavyHitter> topSessions(@Nonnull Direction direction, @Nonnull Measure measure, int limit) {
+        return top(direction, measure, false, limit);
+    }
+
+    /**
+     * Gets the backends with the most traffic in the current window.
+     *
+     * @see #topSessions(Direction, Measure, int)
+     */
+    @Nonnull
+    public List<HeavyHitter> topBackends(@Nonnull Direction direction, @Nonnull Measure measure, int limit) {
+        return top(direction, measure, true, limit);
+    }
+
+    private List<HeavyHitter> top(Direction direction, Measure measure, boolean backends, int limit) {
+        Objects.requireNonNull(direction, "direction");
+        Objects.requireNonNull(measure, "measure");
+
+        Map<Long, long[]> merged = new HashMap<>();
+        Map<Long, String> labels = new HashMap<>();
+        for (Recorder recorder : recorders) {
+            // A recorder rotates on its next record; until then its windows lag behind
+            int age = epoch - recorder.epoch;
+            if (age <= 1) {
+                mergeInto(recorder.current[direction.ordinal()].get(measure, backends), merged, labels);
+            }
+            if (age == 0) {
+                mergeInto(recorder.previous[direction.ordinal()].get(measure, backends), merged, labels);
+            }
+        }
+
+        List<HeavyHitter> result = new ArrayList<>(merged.size());
+        for (Map.Entry<Long, long[]> entry : merged.entrySet()) {
+            long key = entry.getKey();
+            String label = labels.get(key);
+            String name = backends ? label : sessionName(key, label);
+            result.add(new HeavyHitter(name, entry.getValue()[0], entry.getValue()[1]));
+        }
+        result.sort(Comparator.comparingLong(HeavyHitter::count).reversed());
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    private static void mergeInto(HeavyHitterSketch sketch, Map<Long, long[]> merged, Map<Long, String> labels) {
+        int size = sketch.size();
+        for (int i = 0; i < size; i++) {
+            String label = sketch.label(i);
+            if (label == null) {
+                continue;
+            }
+            long[] totals = merged.computeIfAbsent(sketch.key(i), k -> new long[2]);
+            totals[0] += sketch.count(i);
+            totals[1] += sketch.error(i);
+            labels.putIfAbsent(sketch.key(i), label);
+        }
+    }
+
+    private static String sessionName(long sessionId, String username) {
+        return username.isEmpty() ? "#" + sessionId : username + " (#" + sessionId + ")";
+    }
+
+    // ==================== Types ====================
+
+    public enum Direction {
+        CLIENT_TO_BACKEND("client_to_backend"),
+        BACKEND_TO_CLIENT("backend_to_client");
+
+        private final String tag;
+
+        Direction(String tag) {
+            this.tag = tag;
+        }
+
+        @Nonnull
+        public String tag() {
+            return tag;
+        }
+    }
+
+    public enum Measure {
+        BYTES,
+        PACKETS
+    }
+
+    /**
+     * A heavy hitter with its approximate count.
+     *
+     * @param name session or backend name
+     * @param count the counted weight, possibly overestimated
+     * @param maxError the most the count may be overestimated by
+     */
+    public record HeavyHitter(@Nonnull String name, long count, long maxError) {
+    }
+
+    /**
+     * Records the traffic of one session in one direction.
+     */
+    public static final class Source {
+
+        private final TrafficHeavyHitters hitters;
+        private final Direction direction;
+        private final long sessionId;
+        private final Supplier<String> username;
+        private final Supplier<String> backend;
+
+        private Source(TrafficHeavyHitters hitters, Direction direction, long sessionId,
+                       Supplier<String> username, Supplier<String> backend) {
+            this.hitters = hitters;
+            this.direction = Objects.requireNonNull(direction, "direction");
+            this.sessionId = sessionId;
+            this.username = Objects.requireNonNull(username, "username");
+            this.backend = Objects.requireNonNull(backend, "backend");
+        }
+
+        public void record(int packets, long bytes) {
+            hitters.record(direction, sessionId, username.get(), backend.get(), packets, bytes);
+        }
+    }
+
+    /**
+     * The sketches of one thread.
+     */
+    private static final class Recorder {
+
+        // Read by query threads
+        volatile Sketches[] current = newSketches();
+        volatile Sketches[] previous = newSketches();
+        volatile int epoch;
+
+        Recorder(int epoch) {
+            this.epoch = epoch;
+        }
+
+        void rotate(int now) {
+            if (now == epoch) {
+                return;
+            }
+            Sketches[] recycled = previous;
+            clear(recycled);
+            if (now - epoch > 1) {
+                // Idle for more than a window: the current sketches are stale as well
+                clear(current);
+            }
+            previous = current;
+            current = recycled;
+            epoch = now;
+        }
+
+        private static void clear(Sketches[] sketches) {
+            for (Sketches s : sketches) {
+                s.clear();
+            }
+        }
+
+        private static Sketches[] newSketches() {
+            Sketches[] sketches = new Sketches[Direction.values().length];
+            for (int i = 0; i < sketches.length; i++) {
+                sketches[i] = new Sketches();
+            }
+            return sketches;
+        }
+    }
+
+    private static final class Sketches {
+
+        final HeavyHitterSketch sessionBytes = new HeavyHitterSketch(CAPACITY);
+        final HeavyHitterSketch sessionPackets = new HeavyHitterSketch(CAPACITY);
+        final HeavyHitterSketch backendBytes = new HeavyHitterSketch(CAPACITY);
+        final HeavyHitterSketch backendPackets = new HeavyHitterSketch(CAPACITY);
+
+        HeavyHitterSketch get(Measure measure, boolean backends) {
+            if (backends) {
+                return measure == Measure.BYTES ? backendBytes : backendPackets;
+            }
+            return measure == Measure.BYTES ? sessionBytes : sessionPackets;
+        }
+
+        void clear() {
+            sessionBytes.clear();
+            sessionPackets.clear();
+            backendBytes.clear();
+            backendPackets.clear();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package me.internalizable.numdrassl.profiling.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Connection of a session to a backend, from binding the UDP socket until the primary
+ * stream is open and the Connect packet is forwarded, or until a phase fails.
+ *
+ * <p>The event is begun on the calling thread and finished on the backend event loop.
+ * Each {@code mark} method closes one phase; phases that were never reached stay 0.</p>
+ */
+@Name("numdrassl.BackendConnect")
+@Label("Backend Connect")
+@Category({"Numdrassl", "Backend"})
+@Description("Connection of a session to a backend server, by phase")
+@StackTrace(false)
+public final class BackendConnectEvent extends Event {
+
+    public static final String PHASE_BIND = "bind";
+    public static final String PHASE_HANDSHAKE = "handshake";
+    public static final String PHASE_STREAM = "stream";
+
+    @Label("Session ID")
+    private long sessionId;
+
+    @Label("Backend")
+    private String backend;
+
+    @Label("Transfer")
+    @Description("Whether the session was switching from another backend")
+    private boolean transfer;
+
+    @Label("Bind Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long bindTime;
+
+    @Label("Handshake Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long handshakeTime;
+
+    @Label("Stream Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long streamTime;
+
+    @Label("Succeeded")
+    private boolean succeeded;
+
+    @Label("Failed Phase")
+    private String failedPhase;
+
+    private transient long phaseStart;
+
+    /**
+     * Begins timing a connection.
+     *
+     * @param transfer true if the session is switching servers
+     */
+    @Nonnull
+    public static BackendConnectEvent start(long sessionId, @Nonnull String backend, boolean transfer) {
+        BackendConnectEvent event = new BackendConnectEvent();
+        if (event.isEnabled()) {
+            event.sessionId = sessionId;
+            event.backend = backend;
+            event.transfer = transfer;
+            event.phaseStart = System.nanoTime();
+            event.begin();
+        }
+        return event;
+    }
+
+    public void markBound() {
+        if (isEnabled()) {
+            bindTime = nextPhase();
+        }
+    }
+
+    public void markHandshaken() {
+        if (isEnabled()) {
+            handshakeTime = nextPhase();
+        }
+    }
+
+    public void markStreamOpened() {
+        if (isEnabled()) {
+            streamTime = nextPhase();
+        }
+    }
+
+    /**
+     * Finishes a connection that reached the backend.
+     */
+    public void succeed() {
+        finish(true, null);
+    }
+
+    /**
+     * Finishes a connection that failed.
+     *
+     * @param phase the phase that failed, one of the {@code PHASE_} constants
+     */
+    public void fail(@Nonnull String phase) {
+        finish(false, phase);
+    }
+
+    private void finish(boolean succeeded, String failedPhase) {
+        end();
+        if (shouldCommit()) {
+            this.succeeded = succeeded;
+            this.failedPhase = failedPhase;
+            commit();
+        }
+    }
+
+    private long nextPhase() {
+        long now = System.nanoTime();
+        long elapsed = now - phaseStart;
+        phaseStart = now;
+        return elapsed;
+    }
+}
@@ -0,0 +1,55 @@
+package me.internalizable.numdrassl.profiling.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Synchronous dispatch of one API event to all of its handlers.
+ *
+ * <p>Packet events are dispatched for every packet, so only dispatches over the
+ * threshold are recorded.</p>
+ */
+@Name("numdrassl.EventDispatch")
+@Label("Event Dispatch")
+@Category({"Numdrassl", "Events"})
+@Description("Dispatch of an API event to its handlers")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class EventDispatchEvent extends Event {
+
+    @Label("Event Type")
+    private Class<?> eventType;
+
+    @Label("Handlers")
+    private int handlers;
+
+    @Label("Cancelled")
+    private boolean cancelled;
+
+    /**
+     * Begins timing a dispatch.
+     */
+    @Nonnull
+    public static EventDispatchEvent start() {
+        EventDispatchEvent event = new EventDispatchEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(@Nonnull Class<?> eventType, int handlers, boolean cancelled) {
+        end();
+        if (shouldCommit()) {
+            this.eventType = eventType;
+            this.handlers = handlers;
+            this.cancelled = cancelled;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package me.internalizable.numdrassl.profiling.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import javax.annotation.Nonnull;
+
+/**
+ * One plugin handler handling an API event, to find which plugin makes a dispatch slow.
+ */
+@Name("numdrassl.EventHandler")
+@Label("Event Handler")
+@Category({"Numdrassl", "Events"})
+@Description("A plugin handler handling an API event")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class EventHandlerEvent extends Event {
+
+    @Label("Event Type")
+    private Class<?> eventType;
+
+    @Label("Plugin")
+    private Class<?> plugin;
+
+    @Label("Method")
+    private String method;
+
+    @Label("Failed")
+    private boolean failed;
+
+    /**
+     * Begins timing a handler.
+     */
+    @Nonnull
+    public static EventHandlerEvent start() {
+        EventHandlerEvent event = new EventHandlerEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(@Nonnull Class<?> eventType, @Nonnull Class<?> plugin, @Nonnull String method,
+                       boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.eventType = eventType;
+            this.plugin = plugin;
+            this.method = method;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package me.internalizable.numdrassl.profiling.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A sampled packet crossing the proxy, from being decoded on one side to being encoded
+ * on the other. Recorded for the packets {@code ForwardingLatency} samples.
+ */
+@Name("numdrassl.PacketForward")
+@Label("Packet Forward")
+@Category({"Numdrassl", "Packets"})
+@Description("Decode-to-encode latency of a sampled packet")
+@StackTrace(false)
+public final class PacketForwardEvent extends Event {
+
+    @Label("Direction")
+    private String direction;
+
+    @Label("Packet Type")
+    private String packetType;
+
+    @Label("Size")
+    @DataAmount
+    private int bytes;
+
+    @Label("Forwarding Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long forwardingTime;
+
+    /**
+     * Records a forwarded packet, if a recording has this event enabled.
+     */
+    public static void record(@Nonnull String direction, @Nonnull String packetType, int bytes,
+                              long forwardingNanos) {
+        PacketForwardEvent event = new PacketForwardEvent();
+        if (event.isEnabled()) {
+            event.direction = direction;
+            event.packetType = packetType;
+            event.bytes = bytes;
+            event.forwardingTime = forwardingNanos;
+            event.commit();
+        }
+    }
+}
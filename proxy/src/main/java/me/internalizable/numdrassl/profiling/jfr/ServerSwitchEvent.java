@@ -0,0 +1,51 @@
+package me.internalizable.numdrassl.profiling.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The synchronous part of a server switch: closing the old backend, firing the
+ * pre-connect event and starting the new connection. The rest of the connection is
+ * recorded by a {@link BackendConnectEvent} with {@code transfer} set.
+ */
+@Name("numdrassl.ServerSwitch")
+@Label("Server Switch")
+@Category({"Numdrassl", "Backend"})
+@Description("A session switching from one backend server to another")
+public final class ServerSwitchEvent extends Event {
+
+    @Label("Session ID")
+    private long sessionId;
+
+    @Label("From")
+    private String from;
+
+    @Label("To")
+    private String to;
+
+    /**
+     * Begins timing a switch.
+     */
+    @Nonnull
+    public static ServerSwitchEvent start() {
+        ServerSwitchEvent event = new ServerSwitchEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(long sessionId, @Nullable String from, @Nonnull String to) {
+        end();
+        if (shouldCommit()) {
+            this.sessionId = sessionId;
+            this.from = from;
+            this.to = to;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package me.internalizable.numdrassl.profiling.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import javax.annotation.Nullable;
+
+/**
+ * A session was removed. Sessions usually outlive a recording, so this is an instant
+ * event carrying the session's lifetime rather than a duration event.
+ */
+@Name("numdrassl.SessionClose")
+@Label("Session Close")
+@Category({"Numdrassl", "Session"})
+@Description("A session was removed, with how long it lasted")
+@StackTrace(false)
+public final class SessionCloseEvent extends Event {
+
+    @Label("Session ID")
+    private long sessionId;
+
+    @Label("Username")
+    private String username;
+
+    @Label("Backend")
+    private String backend;
+
+    @Label("Lifetime")
+    @Timespan(Timespan.NANOSECONDS)
+    private long lifetime;
+
+    /**
+     * Records a session being closed, if a recording has this event enabled.
+     *
+     * @param lifetimeNanos nanoseconds since the session was created
+     */
+    public static void record(long sessionId, @Nullable String username, @Nullable String backend,
+                              long lifetimeNanos) {
+        SessionCloseEvent event = new SessionCloseEvent();
+        if (event.isEnabled()) {
+            event.sessionId = sessionId;
+            event.username = username;
+            event.backend = backend;
+            event.lifetime = lifetimeNanos;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package me.internalizable.numdrassl.profiling.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import javax.annotation.Nullable;
+import java.net.InetSocketAddress;
+
+/**
+ * A client connection was accepted and registered as a session.
+ */
+@Name("numdrassl.SessionOpen")
+@Label("Session Open")
+@Category({"Numdrassl", "Session"})
+@Description("A client connection was registered as a session")
+@StackTrace(false)
+public final class SessionOpenEvent extends Event {
+
+    @Label("Session ID")
+    private long sessionId;
+
+    @Label("Client Address")
+    private String clientAddress;
+
+    /**
+     * Records a session being opened, if a recording has this event enabled.
+     */
+    public static void record(long sessionId, @Nullable InetSocketAddress clientAddress) {
+        SessionOpenEvent event = new SessionOpenEvent();
+        if (event.isEnabled()) {
+            event.sessionId = sessionId;
+            event.clientAddress = clientAddress != null ? clientAddress.toString() : null;
+            event.commit();
+        }
+    }
+}
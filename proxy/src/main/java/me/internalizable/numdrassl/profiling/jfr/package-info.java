@@ -0,0 +1,24 @@
+/**
+ * Java Flight Recorder events for the proxy's own concepts.
+ *
+ * <p>Each event checks whether a recording has it enabled before filling in its fields,
+ * so the events cost nothing while no recording is running. The settings profile
+ * {@code numdrassl.jfc}, shipped with the proxy distribution, enables all of them.</p>
+ *
+ * <h2>Key Classes</h2>
+ * <ul>
+ *   <li>{@link me.internalizable.numdrassl.profiling.jfr.SessionOpenEvent},
+ *       {@link me.internalizable.numdrassl.profiling.jfr.SessionCloseEvent} - Session
+ *       registration and removal with its lifetime</li>
+ *   <li>{@link me.internalizable.numdrassl.profiling.jfr.BackendConnectEvent} - Backend
+ *       connection by phase: bind, QUIC handshake and stream open</li>
+ *   <li>{@link me.internalizable.numdrassl.profiling.jfr.ServerSwitchEvent} - Start of a
+ *       server switch</li>
+ *   <li>{@link me.internalizable.numdrassl.profiling.jfr.EventDispatchEvent},
+ *       {@link me.internalizable.numdrassl.profiling.jfr.EventHandlerEvent} - Slow API
+ *       event dispatches and the plugin handlers behind them</li>
+ *   <li>{@link me.internalizable.numdrassl.profiling.jfr.PacketForwardEvent} - Sampled
+ *       decode-to-encode latency of packets</li>
+ * </ul>
+ */
+package me.internalizable.numdrassl.profiling.jfr;
@@ -9,6 +9,15 @@
  *   <li>{@link me.internalizable.numdrassl.profiling.MetricsHttpServer} - HTTP endpoint for Prometheus</li>
  *   <li>{@link me.internalizable.numdrassl.profiling.MetricsLogger} - Periodic logging of metrics</li>
  *   <li>{@link me.internalizable.numdrassl.profiling.TimingUtils} - Utilities for timing operations</li>
+ *   <li>{@link me.internalizable.numdrassl.profiling.TrafficHeavyHitters} - Top sessions and backends by traffic</li>
+ *   <li>{@link me.internalizable.numdrassl.profiling.ForwardingLatency} - Sampled decode-to-encode latency</li>
+ *   <li>{@link me.internalizable.numdrassl.profiling.RequestTracker} - Timing-wheel detection of stuck
+ *       backend connects and session service calls</li>
+ * </ul>
+ *
+ * <h2>Subpackages</h2>
+ * <ul>
+ *   <li>{@link me.internalizable.numdrassl.profiling.jfr} - Java Flight Recorder events</li>
  * </ul>
  *
  * <h2>Available Metrics</h2>
@@ -18,9 +27,11 @@
  *   <tr><td>Sessions</td><td>Active, accepted, rejected, closed</td></tr>
  *   <tr><td>Packets</td><td>Count, bytes, by type, by direction</td></tr>
  *   <tr><td>Throughput</td><td>Real-time packets/sec, bytes/sec</td></tr>
- *   <tr><td>Response Times</td><td>Average response, hanging detection</td></tr>
+ *   <tr><td>Response Times</td><td>Average response, stuck operations by kind</td></tr>
  *   <tr><td>Backends</td><td>Connections, failures, latency</td></tr>
+ *   <tr><td>Heavy Hitters</td><td>Top sessions and backends by bytes and packets</td></tr>
  *   <tr><td>Timing</td><td>Packet processing, auth, transfers</td></tr>
+ *   <tr><td>Forwarding</td><td>Sampled decode-to-encode latency by direction and packet type</td></tr>
  * </table>
  *
  * <h2>Access Points</h2>
@@ -28,6 +39,8 @@
  *   <li><b>HTTP</b>: {@code http://localhost:9090/metrics} (Prometheus format)</li>
  *   <li><b>Dashboard</b>: {@code http://localhost:9090/stats} (HTML)</li>
  *   <li><b>Report</b>: {@code http://localhost:9090/report} (Shareable text)</li>
+ *   <li><b>History</b>: {@code http://localhost:9090/history} (HTML), {@code ?format=csv&tier=minute}
+ *       streams a stored tier; tiers persist in {@code data/metrics}</li>
  *   <li><b>Console</b>: {@code metrics} command</li>
  *   <li><b>Logs</b>: Periodic summary via {@link me.internalizable.numdrassl.profiling.MetricsLogger}</li>
  * </ul>
@@ -38,6 +51,7 @@
  * metricsEnabled: true
  * metricsPort: 9090
  * metricsLogIntervalSeconds: 60
+ * forwardingLatencySampleRate: 100
  * }</pre>
  *
  * <h2>Prometheus Integration</h2>
@@ -14,6 +14,7 @@ import io.netty.incubator.codec.quic.QuicSslContext;
 import io.netty.incubator.codec.quic.QuicSslContextBuilder;
 import io.netty.incubator.codec.quic.QuicStreamChannel;
 import io.netty.incubator.codec.quic.QuicStreamType;
+import me.internalizable.numdrassl.common.ReferralKeyRing;
 import me.internalizable.numdrassl.common.SecretMessageUtil;
 import me.internalizable.numdrassl.config.BackendServer;
 import me.internalizable.numdrassl.event.packet.ProxyPing;
@@ -22,9 +23,13 @@ import me.internalizable.numdrassl.pipeline.BackendPacketHandler;
 import me.internalizable.numdrassl.pipeline.codec.ProxyPacketDecoder;
 import me.internalizable.numdrassl.pipeline.codec.ProxyPacketEncoder;
 import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.profiling.RequestTracker;
+import me.internalizable.numdrassl.profiling.jfr.BackendConnectEvent;
 import me.internalizable.numdrassl.api.chat.ChatMessageBuilder;
 import me.internalizable.numdrassl.session.ProxySession;
 import me.internalizable.numdrassl.session.SessionState;
+import me.internalizable.numdrassl.session.capture.CaptureDirection;
+import me.internalizable.numdrassl.session.login.LoginPhase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +62,7 @@ public final class BackendConnector {
     private final EventLoopGroup group;
     private QuicSslContext sslContext;
     private byte[] proxySecret;
+    private final ReferralKeyRing referralKeys;
 
     // ==================== Construction ====================
 
@@ -64,6 +70,7 @@ public final class BackendConnector {
         this.proxyCore = Objects.requireNonNull(proxyCore, "proxyCore");
         this.group = new NioEventLoopGroup(THREAD_COUNT);
         initProxySecret();
+        this.referralKeys = ReferralKeyRing.of(proxySecret);
     }
 
     private void initProxySecret() {
@@ -229,15 +236,21 @@ public final class BackendConnector {
             session.getSessionId(), action, backend.getName(), backend.getHost(), backend.getPort());
 
         session.setCurrentBackend(backend);
+        BackendConnectEvent trace = BackendConnectEvent.start(session.getSessionId(), backend.getName(), isReconnect);
+        RequestTracker.Request request = ProxyMetrics.getInstance().startRequestTracking(
+            RequestTracker.Kind.BACKEND_CONNECT, "session " + session.getSessionId() + " to " + backend.getName());
 
         try {
             Bootstrap bootstrap = createBootstrap();
             InetSocketAddress address = new InetSocketAddress(backend.getHost(), backend.getPort());
             Channel datagramChannel = bootstrap.bind(0).sync().channel();
+            trace.markBound();
 
-            connectQuicChannel(session, datagramChannel, address, backend, connectPacket, isReconnect);
+            connectQuicChannel(session, datagramChannel, address, backend, connectPacket, isReconnect, trace, request);
         } catch (Exception e) {
             LOGGER.error("Session {}: Error connecting to backend", session.getSessionId(), e);
+            trace.fail(BackendConnectEvent.PHASE_BIND);
+            ProxyMetrics.getInstance().completeRequestTracking(request);
             handleConnectionFailure(session, backend.getName(), isReconnect);
         }
     }
@@ -257,6 +270,7 @@ public final class BackendConnector {
         return new Bootstrap()
             .group(group)
             .channel(NioDatagramChannel.class)
+            .option(ChannelOption.ALLOCATOR, proxyCore.getBufferAllocator())
             .handler(codec);
     }
 
@@ -266,21 +280,28 @@ public final class BackendConnector {
             InetSocketAddress address,
             BackendServer backend,
             Connect connectPacket,
-            boolean isReconnect) {
+            boolean isReconnect,
+            BackendConnectEvent trace,
+            RequestTracker.Request request) {
 
         boolean debugMode = proxyCore.getConfig().isDebugMode();
 
         QuicChannel.newBootstrap(datagramChannel)
-            .streamHandler(createStreamHandler(session, debugMode))
+            .option(ChannelOption.ALLOCATOR, proxyCore.getBufferAllocator())
+            .streamOption(ChannelOption.ALLOCATOR, proxyCore.getBufferAllocator())
+            .streamHandler(createRemoteStreamHandler(session))
             .remoteAddress(address)
             .connect()
             .addListener(future -> {
                 if (future.isSuccess()) {
                     QuicChannel quicChannel = (QuicChannel) future.getNow();
-                    onConnected(session, quicChannel, backend, connectPacket, isReconnect, debugMode);
+                    trace.markHandshaken();
+                    onConnected(session, quicChannel, backend, connectPacket, isReconnect, debugMode, trace, request);
                 } else {
                     LOGGER.error("Session {}: Failed to connect to backend",
                         session.getSessionId(), future.cause());
+                    trace.fail(BackendConnectEvent.PHASE_HANDSHAKE);
+                    ProxyMetrics.getInstance().completeRequestTracking(request);
                     handleConnectionFailure(session, backend.getName(), isReconnect);
                 }
             });
@@ -290,27 +311,46 @@ public final class BackendConnector {
         return new ChannelInitializer<>() {
             @Override
             protected void initChannel(QuicStreamChannel ch) {
-                ch.pipeline().addLast(new ProxyPacketDecoder("backend-server", debugMode));
-                ch.pipeline().addLast(new ProxyPacketEncoder("backend-server", debugMode));
+                ch.pipeline().addLast(new ProxyPacketDecoder(ProxyPacketDecoder.options("backend-server", debugMode)
+                    .memory(session.getMemory())
+                    .traffic(session.getBackendTraffic())
+                    .capture(session.getCapture().tap(CaptureDirection.FROM_BACKEND))));
+                ch.pipeline().addLast(new ProxyPacketEncoder("backend-server", debugMode, "client_to_backend",
+                    session.getCapture().tap(CaptureDirection.TO_BACKEND)));
                 ch.pipeline().addLast(new BackendPacketHandler(proxyCore, session));
             }
         };
     }
 
+    /**
+     * Streams opened by the backend are relayed to a matching client stream.
+     * The primary stream is opened by the proxy in {@link #createBackendStream}.
+     */
+    private ChannelInitializer<QuicStreamChannel> createRemoteStreamHandler(ProxySession session) {
+        return new ChannelInitializer<>() {
+            @Override
+            protected void initChannel(QuicStreamChannel ch) {
+                session.getStreamMapper().mapBackendStream(ch);
+            }
+        };
+    }
+
     private void onConnected(
             ProxySession session,
             QuicChannel quicChannel,
             BackendServer backend,
             Connect connectPacket,
             boolean isReconnect,
-            boolean debugMode) {
+            boolean debugMode,
+            BackendConnectEvent trace,
+            RequestTracker.Request request) {
 
         LOGGER.info("Session {}: Connected to backend {} QUIC channel",
             session.getSessionId(), backend.getName());
         session.setBackendChannel(quicChannel);
         ProxyMetrics.getInstance().recordBackendConnection(backend.getName());
 
-        createBackendStream(session, quicChannel, backend, connectPacket, isReconnect, debugMode);
+        createBackendStream(session, quicChannel, backend, connectPacket, isReconnect, debugMode, trace, request);
     }
 
     private void createBackendStream(
@@ -319,16 +359,28 @@ public final class BackendConnector {
             BackendServer backend,
             Connect connectPacket,
             boolean isReconnect,
-            boolean debugMode) {
-
-        quicChannel.createStream(QuicStreamType.BIDIRECTIONAL, createStreamHandler(session, debugMode))
+            boolean debugMode,
+            BackendConnectEvent trace,
+            RequestTracker.Request request) {
+
+        // streamOption only reaches streams the backend opens, so this one gets the allocator here
+        quicChannel.newStreamBootstrap()
+            .type(QuicStreamType.BIDIRECTIONAL)
+            .option(ChannelOption.ALLOCATOR, proxyCore.getBufferAllocator())
+            .handler(createStreamHandler(session, debugMode))
+            .create()
             .addListener(future -> {
                 if (future.isSuccess()) {
                     QuicStreamChannel stream = (QuicStreamChannel) future.getNow();
+                    trace.markStreamOpened();
+                    ProxyMetrics.getInstance().completeRequestTracking(request);
                     onStreamCreated(session, stream, backend, connectPacket, isReconnect);
+                    trace.succeed();
                 } else {
                     LOGGER.error("Session {}: Failed to create backend stream",
                         session.getSessionId(), future.cause());
+                    trace.fail(BackendConnectEvent.PHASE_STREAM);
+                    ProxyMetrics.getInstance().completeRequestTracking(request);
                     handleConnectionFailure(session, backend.getName(), isReconnect);
                 }
             });
@@ -343,6 +395,7 @@ public final class BackendConnector {
 
         session.setBackendStream(stream);
         session.setCurrentBackend(backend);
+        session.getLoginTrace().mark(LoginPhase.BACKEND_CONNECT);
 
         LOGGER.info("Session {}: Backend stream created for {}, forwarding Connect packet",
             session.getSessionId(), backend.getName());
@@ -382,7 +435,8 @@ public final class BackendConnector {
             session.getUsername(),
             backendName,
             session.getClientAddress(),
-            proxySecret
+            referralKeys,
+            proxyCore.getConfig().getReferralProtocolVersion()
         );
 
         LOGGER.debug("Session {}: Created signed referral ({} bytes) for {}",
@@ -466,7 +520,7 @@ public final class BackendConnector {
                             protected void initChannel(QuicStreamChannel ch) {
                                 boolean debugMode = proxyCore.getConfig().isDebugMode();
 
-                                ch.pipeline().addLast(new ProxyPacketDecoder("backend-ping", debugMode));
+                                ch.pipeline().addLast(new ProxyPacketDecoder(ProxyPacketDecoder.options("backend-ping", debugMode)));
                                 ch.pipeline().addLast(new ProxyPacketEncoder("backend-ping", debugMode));
 
                                 ch.pipeline().addLast(new SimpleChannelInboundHandler<Packet>() {
@@ -1,19 +1,22 @@
 package me.internalizable.numdrassl.server;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.nio.NioDatagramChannel;
-import io.netty.incubator.codec.quic.InsecureQuicTokenHandler;
 import io.netty.incubator.codec.quic.QuicChannel;
 import io.netty.incubator.codec.quic.QuicCongestionControlAlgorithm;
 import io.netty.incubator.codec.quic.QuicServerCodecBuilder;
 import io.netty.incubator.codec.quic.QuicSslContext;
 import io.netty.incubator.codec.quic.QuicSslContextBuilder;
 import io.netty.incubator.codec.quic.QuicStreamChannel;
+import io.netty.incubator.codec.quic.QuicStreamType;
 import me.internalizable.numdrassl.api.Numdrassl;
 import me.internalizable.numdrassl.api.event.proxy.ProxyInitializeEvent;
 import me.internalizable.numdrassl.api.event.proxy.ProxyShutdownEvent;
@@ -24,16 +27,26 @@ import me.internalizable.numdrassl.pipeline.ClientPacketHandler;
 import me.internalizable.numdrassl.pipeline.codec.ProxyPacketDecoder;
 import me.internalizable.numdrassl.pipeline.codec.ProxyPacketEncoder;
 import me.internalizable.numdrassl.plugin.NumdrasslProxy;
+import me.internalizable.numdrassl.profiling.ForwardingLatency;
 import me.internalizable.numdrassl.profiling.MetricsHistory;
 import me.internalizable.numdrassl.profiling.MetricsHttpServer;
 import me.internalizable.numdrassl.profiling.MetricsLogger;
 import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.server.admission.LoginAdmissionController;
 import me.internalizable.numdrassl.server.health.BackendHealthCache;
+import me.internalizable.numdrassl.server.network.BufferAllocation;
+import me.internalizable.numdrassl.server.network.RetryTokenHandler;
+import me.internalizable.numdrassl.server.ratelimit.InitialPacketLimiter;
+import me.internalizable.numdrassl.server.ratelimit.SourceRateLimiter;
 import me.internalizable.numdrassl.server.ssl.CertificateGenerator;
 import me.internalizable.numdrassl.server.transfer.PlayerTransfer;
 import me.internalizable.numdrassl.server.transfer.ReferralManager;
 import me.internalizable.numdrassl.session.ProxySession;
 import me.internalizable.numdrassl.session.SessionManager;
+import me.internalizable.numdrassl.session.capture.CaptureDirection;
+import me.internalizable.numdrassl.session.memory.MemoryBudget;
+import me.internalizable.numdrassl.session.memory.SessionMemoryMonitor;
+import me.internalizable.numdrassl.session.quality.ConnectionQualitySampler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +54,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
@@ -79,8 +93,14 @@ public final class ProxyCore {
     private final ReferralManager referralManager;
     private final PlayerTransfer playerTransfer;
     private final BackendHealthCache backendHealthCache;
+    private final LoginAdmissionController loginAdmission;
+    private final SourceRateLimiter rateLimiter;
+    private final ConnectionQualitySampler qualitySampler;
+    private final MemoryBudget memoryBudget;
+    private final SessionMemoryMonitor memoryMonitor;
 
     // Networking
+    private final ByteBufAllocator bufferAllocator;
     private EventLoopGroup eventLoopGroup;
     private Channel serverChannel;
 
@@ -97,21 +117,53 @@ public final class ProxyCore {
     // ==================== Construction ====================
 
     public ProxyCore(@Nonnull ProxyConfig config) {
+        this(config, createAuthenticator(config));
+    }
+
+    /**
+     * Creates a proxy that authenticates through the given authenticator instead of one
+     * built from the configuration.
+     *
+     * @param config the proxy configuration
+     * @param authenticator the authenticator for clients and backends
+     */
+    public ProxyCore(@Nonnull ProxyConfig config, @Nonnull ProxyAuthenticator authenticator) {
         this.config = Objects.requireNonNull(config, "config");
+        this.bufferAllocator = BufferAllocation.createAllocator(
+            config.getBufferAllocator(), config.isPreferDirectBuffers());
         this.sessionManager = new SessionManager();
         this.eventManager = new PacketEventManager();
         this.backendConnector = new BackendConnector(this);
         this.referralManager = new ReferralManager(this);
         this.playerTransfer = new PlayerTransfer(this);
         this.backendHealthCache = new BackendHealthCache();
-        this.authenticator = createAuthenticator();
+        this.loginAdmission = createLoginAdmission();
+        this.qualitySampler = new ConnectionQualitySampler(sessionManager);
+        this.memoryBudget = new MemoryBudget(config.getSessionMemoryBudgetMb() * 1024L * 1024L);
+        this.memoryMonitor = new SessionMemoryMonitor(sessionManager, memoryBudget);
+        this.rateLimiter = new SourceRateLimiter(
+            config.getInitialsPerSourcePerSecond(),
+            config.getPacketsPerSourcePerSecond(),
+            config.getPacketRateLimits()
+        );
+        this.authenticator = Objects.requireNonNull(authenticator, "authenticator");
     }
 
-    private ProxyAuthenticator createAuthenticator() {
+    private LoginAdmissionController createLoginAdmission() {
+        return new LoginAdmissionController(
+            config.getLoginsPerSecond(),
+            config.getMaxConcurrentHandshakes(),
+            config.getLoginQueueSize(),
+            config.getLoginQueueStatusIntervalSeconds()
+        );
+    }
+
+    private static ProxyAuthenticator createAuthenticator(ProxyConfig config) {
         return new ProxyAuthenticator(
             config.getCertificatePath(),
             config.getPrivateKeyPath(),
-            "config/proxy_credentials.json"
+            "config/proxy_credentials.json",
+            Duration.ofSeconds(config.getAuthCacheTtlSeconds())
         );
     }
 
@@ -134,6 +186,8 @@ public final class ProxyCore {
 
         QuicSslContext sslContext = createSslContext();
         startNetworking(sslContext);
+        qualitySampler.start();
+        memoryMonitor.start();
         initializeApi();
 
         running = true;
@@ -167,20 +221,27 @@ public final class ProxyCore {
 
     private void initializeMetrics() {
         if (!config.isMetricsEnabled()) {
+            ForwardingLatency.getInstance().setSampleRate(0);
             LOGGER.info("Metrics disabled in configuration");
             return;
         }
+        ForwardingLatency.getInstance().setSampleRate(config.getForwardingLatencySampleRate());
 
         try {
             // Initialize the metrics singleton
             ProxyMetrics metrics = ProxyMetrics.getInstance();
             metrics.bindSessionManager(sessionManager);
+            metrics.bindLoginAdmission(loginAdmission);
+            metrics.bindMemoryBudget(memoryBudget);
+            metrics.bindBufferAllocator(bufferAllocator);
+            metrics.bindUnpooledAllocations();
+            metrics.setRegion(config.getProxyRegion());
 
             // Initialize metrics history (continuous recording)
             MetricsHistory.getInstance();
 
             // Start metrics HTTP server
-            metricsServer = new MetricsHttpServer(config.getMetricsPort());
+            metricsServer = new MetricsHttpServer(config.getMetricsPort(), memoryMonitor);
             metricsServer.start();
 
             // Start periodic logging if configured
@@ -238,7 +299,15 @@ public final class ProxyCore {
         Bootstrap bootstrap = new Bootstrap()
             .group(eventLoopGroup)
             .channel(NioDatagramChannel.class)
-            .handler(serverCodec);
+            .option(ChannelOption.ALLOCATOR, bufferAllocator)
+            .handler(new ChannelInitializer<DatagramChannel>() {
+                @Override
+                protected void initChannel(DatagramChannel ch) {
+                    // Turn away connection floods before the QUIC codec does any work
+                    ch.pipeline().addLast(new InitialPacketLimiter(rateLimiter));
+                    ch.pipeline().addLast(serverCodec);
+                }
+            });
 
         InetSocketAddress bindAddress = new InetSocketAddress(
             config.getBindAddress(),
@@ -263,7 +332,9 @@ public final class ProxyCore {
             .initialMaxStreamDataBidirectionalRemote(1_000_000)
             .initialMaxStreamsBidirectional(100)
             .initialMaxStreamsUnidirectional(100)
-            .tokenHandler(InsecureQuicTokenHandler.INSTANCE)
+            .tokenHandler(new RetryTokenHandler(config.getQuicRetryThreshold()))
+            .option(ChannelOption.ALLOCATOR, bufferAllocator)
+            .streamOption(ChannelOption.ALLOCATOR, bufferAllocator)
             .handler(new ChannelInitializer<QuicChannel>() {
                 @Override
                 protected void initChannel(QuicChannel ch) {
@@ -307,9 +378,18 @@ public final class ProxyCore {
             ch.close();
             return;
         }
-        session.setClientStream(ch);
-        ch.pipeline().addLast(new ProxyPacketDecoder("client", debugMode));
-        ch.pipeline().addLast(new ProxyPacketEncoder("client", debugMode));
+        if (ch.type() != QuicStreamType.BIDIRECTIONAL || !session.getChannels().setClientStreamIfAbsent(ch)) {
+            // Not the primary stream: relay it 1:1 to a stream of its own on the backend
+            session.getStreamMapper().mapClientStream(ch);
+            return;
+        }
+        ch.pipeline().addLast(new ProxyPacketDecoder(ProxyPacketDecoder.options("client", debugMode)
+            .rateLimit(rateLimiter.gateFor(session.getClientAddress().getAddress()))
+            .memory(session.getMemory())
+            .traffic(session.getClientTraffic())
+            .capture(session.getCapture().tap(CaptureDirection.FROM_CLIENT))));
+        ch.pipeline().addLast(new ProxyPacketEncoder("client", debugMode, "backend_to_client",
+            session.getCapture().tap(CaptureDirection.TO_CLIENT)));
         ch.pipeline().addLast(new ClientPacketHandler(this, session));
     }
 
@@ -375,6 +455,9 @@ public final class ProxyCore {
     }
 
     private void shutdownComponents() {
+        loginAdmission.shutdown();
+        qualitySampler.shutdown();
+        memoryMonitor.shutdown();
         sessionManager.closeAll();
         backendConnector.shutdown();
         referralManager.shutdown();
@@ -437,4 +520,32 @@ public final class ProxyCore {
 
     @Nullable
     public BackendHealthCache getBackendHealthCache() { return backendHealthCache; }
+
+    @Nonnull
+    public LoginAdmissionController getLoginAdmission() {
+        return loginAdmission;
+    }
+
+    @Nonnull
+    public SourceRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    @Nonnull
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    @Nonnull
+    public SessionMemoryMonitor getMemoryMonitor() {
+        return memoryMonitor;
+    }
+
+    /**
+     * Gets the buffer allocator of the client and backend pipelines.
+     */
+    @Nonnull
+    public ByteBufAllocator getBufferAllocator() {
+        return bufferAllocator;
+    }
 }
@@ -0,0 +1,86 @@
+package me.internalizable.numdrassl.server.admission;
+
+import me.internalizable.numdrassl.session.ProxySession;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A session's place in login admission.
+ *
+ * <p>A ticket is either waiting in the queue, holding one of the concurrent
+ * handshake slots, or done. {@link #release()} is idempotent: it frees the slot
+ * of an admitted ticket, or removes a waiting ticket from the queue.</p>
+ */
+public final class AdmissionTicket {
+
+    enum State {
+        WAITING,
+        ADMITTED,
+        RELEASED
+    }
+
+    private final LoginAdmissionController controller;
+    private final ProxySession session;
+    private final Runnable onAdmitted;
+    private final long enqueuedAtNanos;
+    private final AtomicReference<State> state;
+
+    AdmissionTicket(
+            @Nonnull LoginAdmissionController controller,
+            @Nonnull ProxySession session,
+            @Nonnull Runnable onAdmitted,
+            @Nonnull State initialState,
+            long enqueuedAtNanos) {
+        this.controller = Objects.requireNonNull(controller, "controller");
+        this.session = Objects.requireNonNull(session, "session");
+        this.onAdmitted = Objects.requireNonNull(onAdmitted, "onAdmitted");
+        this.enqueuedAtNanos = enqueuedAtNanos;
+        this.state = new AtomicReference<>(initialState);
+    }
+
+    /**
+     * Checks if this ticket is still waiting in the login queue.
+     */
+    public boolean isWaiting() {
+        return state.get() == State.WAITING;
+    }
+
+    /**
+     * Checks if this ticket currently holds a handshake slot.
+     */
+    public boolean isAdmitted() {
+        return state.get() == State.ADMITTED;
+    }
+
+    /**
+     * Releases this ticket. Called when the handshake completes or the session closes.
+     */
+    public void release() {
+        State previous = state.getAndSet(State.RELEASED);
+        if (previous != State.RELEASED) {
+            controller.onRelease(this, previous);
+        }
+    }
+
+    // ==================== Internal ====================
+
+    @Nonnull
+    ProxySession session() {
+        return session;
+    }
+
+    @Nonnull
+    Runnable onAdmitted() {
+        return onAdmitted;
+    }
+
+    long enqueuedAtNanos() {
+        return enqueuedAtNanos;
+    }
+
+    boolean markAdmitted() {
+        return state.compareAndSet(State.WAITING, State.ADMITTED);
+    }
+}
@@ -0,0 +1,322 @@
+package me.internalizable.numdrassl.server.admission;
+
+import com.hypixel.hytale.protocol.packets.auth.Status;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.session.ProxySession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control in front of client authentication.
+ *
+ * <p>When the proxy restarts, every client reconnects at once. Without a limit, all of
+ * them hit the session service and the backends in the same second and most of them
+ * time out. Each login has to pass two gates before authentication starts:</p>
+ * <ul>
+ *   <li>a token bucket refilled at {@code loginsPerSecond}, with a burst of one second</li>
+ *   <li>a cap of {@code maxConcurrentHandshakes} sessions between Connect and the
+ *       backend connection being established</li>
+ * </ul>
+ *
+ * <p>Logins that cannot pass wait in a FIFO queue. Once anyone is queued, new logins
+ * queue behind them, so a burst of fresh connections cannot overtake clients that have
+ * been waiting. Queued clients periodically receive a {@link Status} packet with their
+ * position; when the queue is full, the client is disconnected with a retry hint.</p>
+ *
+ * <p>A limit of {@code 0} disables that gate; a queue size of {@code 0} leaves the queue
+ * unbounded.</p>
+ *
+ * <p>The admission thread only runs the gates. Sessions it admits from the queue are
+ * handed back to their client channel's event loop to start authentication, so slow
+ * event listeners cannot hold up the rest of the queue.</p>
+ */
+public final class LoginAdmissionController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoginAdmissionController.class);
+
+    private static final long DRAIN_INTERVAL_MILLIS = 50;
+
+    private final int loginsPerSecond;
+    private final int maxConcurrentHandshakes;
+    private final int maxQueueSize;
+    private final long statusIntervalNanos;
+    private final LongSupplier nanoTime;
+
+    // Guarded by this
+    private final ArrayDeque<AdmissionTicket> queue = new ArrayDeque<>();
+    private double tokens;
+    private long lastRefillNanos;
+    private int activeHandshakes;
+    private long lastStatusNanos;
+
+    private final ScheduledExecutorService scheduler;
+
+    // ==================== Construction ====================
+
+    public LoginAdmissionController(int loginsPerSecond, int maxConcurrentHandshakes,
+                                    int maxQueueSize, int statusIntervalSeconds) {
+        this(loginsPerSecond, maxConcurrentHandshakes, maxQueueSize, statusIntervalSeconds,
+            System::nanoTime, createScheduler());
+        scheduler.scheduleWithFixedDelay(this::tick, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a controller that reads time from {@code nanoTime} and only drains the queue
+     * when {@link #tick()} is called or a ticket is released.
+     */
+    LoginAdmissionController(int loginsPerSecond, int maxConcurrentHandshakes, int maxQueueSize,
+                             int statusIntervalSeconds, @Nonnull LongSupplier nanoTime,
+                             @Nonnull ScheduledExecutorService scheduler) {
+        this.loginsPerSecond = Math.max(0, loginsPerSecond);
+        this.maxConcurrentHandshakes = Math.max(0, maxConcurrentHandshakes);
+        this.maxQueueSize = Math.max(0, maxQueueSize);
+        this.statusIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, statusIntervalSeconds));
+        this.nanoTime = Objects.requireNonNull(nanoTime, "nanoTime");
+        this.tokens = this.loginsPerSecond;
+        this.lastRefillNanos = nanoTime.getAsLong();
+        this.lastStatusNanos = lastRefillNanos;
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+    }
+
+    private static ScheduledExecutorService createScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Login-Admission");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ==================== Admission ====================
+
+    /**
+     * Requests admission for a session that just sent Connect.
+     *
+     * <p>If both gates are open and nobody is waiting, {@code onAdmitted} runs on the
+     * calling thread before this method returns. Otherwise the session is queued and
+     * {@code onAdmitted} later runs on the session's event loop. If the queue is full, the
+     * session is disconnected and {@code onAdmitted} never runs.</p>
+     *
+     * <p>The ticket is attached to the session, which releases it once the backend
+     * connection is established or the session closes.</p>
+     *
+     * @param session the session to admit
+     * @param onAdmitted starts authentication for the session
+     * @return the session's ticket
+     */
+    @Nonnull
+    public AdmissionTicket admit(@Nonnull ProxySession session, @Nonnull Runnable onAdmitted) {
+        Objects.requireNonNull(session, "session");
+        Objects.requireNonNull(onAdmitted, "onAdmitted");
+
+        AdmissionTicket ticket;
+        int position;
+        synchronized (this) {
+            long now = nanoTime.getAsLong();
+            if (queue.isEmpty() && tryAcquire(now)) {
+                ticket = new AdmissionTicket(this, session, onAdmitted, AdmissionTicket.State.ADMITTED, now);
+                position = 0;
+            } else if (maxQueueSize > 0 && queue.size() >= maxQueueSize) {
+                ticket = new AdmissionTicket(this, session, onAdmitted, AdmissionTicket.State.RELEASED, now);
+                position = -1;
+            } else {
+                ticket = new AdmissionTicket(this, session, onAdmitted, AdmissionTicket.State.WAITING, now);
+                queue.addLast(ticket);
+                position = queue.size();
+            }
+        }
+
+        if (position >= 0) {
+            // Attach before anything can fail, so closing the session always frees the slot
+            session.setAdmissionTicket(ticket);
+        }
+
+        if (position == 0) {
+            ProxyMetrics.getInstance().recordLoginAdmission("immediate");
+            ProxyMetrics.getInstance().recordLoginQueueWait(0);
+            runAdmitted(ticket);
+        } else if (position < 0) {
+            ProxyMetrics.getInstance().recordLoginAdmission("rejected");
+            LOGGER.warn("Session {}: Login queue full ({} waiting), rejecting",
+                session.getSessionId(), maxQueueSize);
+            int retrySeconds = estimateWaitSeconds(maxQueueSize);
+            session.disconnect(retrySeconds > 0
+                ? "Server is busy, please retry in " + retrySeconds + " seconds"
+                : "Server is busy, please retry shortly");
+        } else {
+            ProxyMetrics.getInstance().recordLoginAdmission("queued");
+            LOGGER.info("Session {}: Login queued at position {}", session.getSessionId(), position);
+            sendPosition(session, position, position);
+        }
+        return ticket;
+    }
+
+    /**
+     * Gets the number of sessions waiting in the login queue.
+     */
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the number of sessions currently between admission and a completed handshake.
+     */
+    public synchronized int getActiveHandshakes() {
+        return activeHandshakes;
+    }
+
+    /**
+     * Stops admitting queued sessions. Sessions still waiting are left to be closed
+     * with the rest of the proxy.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        synchronized (this) {
+            queue.clear();
+        }
+        LOGGER.debug("LoginAdmissionController shut down");
+    }
+
+    // ==================== Internal ====================
+
+    void onRelease(@Nonnull AdmissionTicket ticket, @Nonnull AdmissionTicket.State previous) {
+        synchronized (this) {
+            if (previous == AdmissionTicket.State.ADMITTED) {
+                activeHandshakes--;
+            } else if (previous == AdmissionTicket.State.WAITING) {
+                queue.remove(ticket);
+                return;
+            }
+        }
+        try {
+            scheduler.execute(this::drain);
+        } catch (RejectedExecutionException ignored) {
+            // Shutting down
+        }
+    }
+
+    void tick() {
+        try {
+            drain();
+            sendPositionsIfDue();
+        } catch (Exception e) {
+            LOGGER.error("Error draining login queue", e);
+        }
+    }
+
+    private void drain() {
+        List<AdmissionTicket> admitted = new ArrayList<>();
+        long now;
+        synchronized (this) {
+            now = nanoTime.getAsLong();
+            while (!queue.isEmpty() && tryAcquire(now)) {
+                AdmissionTicket ticket = queue.pollFirst();
+                if (!ticket.markAdmitted()) {
+                    // Released while waiting, give the slot back
+                    activeHandshakes--;
+                    tokens = Math.min(tokens + 1, loginsPerSecond);
+                    continue;
+                }
+                admitted.add(ticket);
+            }
+        }
+
+        for (AdmissionTicket ticket : admitted) {
+            ProxyMetrics.getInstance().recordLoginQueueWait(now - ticket.enqueuedAtNanos());
+            dispatchAdmitted(ticket);
+        }
+    }
+
+    /**
+     * Runs an admitted ticket on its session's event loop rather than the admission thread.
+     */
+    private void dispatchAdmitted(AdmissionTicket ticket) {
+        try {
+            ticket.session().getClientChannel().eventLoop().execute(() -> runAdmitted(ticket));
+        } catch (RejectedExecutionException e) {
+            // The event loop is shutting down with the session
+            ticket.release();
+        }
+    }
+
+    /**
+     * Takes a token and a handshake slot if both are available. Caller must hold the lock.
+     */
+    private boolean tryAcquire(long now) {
+        if (maxConcurrentHandshakes > 0 && activeHandshakes >= maxConcurrentHandshakes) {
+            return false;
+        }
+        if (loginsPerSecond > 0) {
+            double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+            tokens = Math.min(loginsPerSecond, tokens + elapsedSeconds * loginsPerSecond);
+            lastRefillNanos = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+        }
+        activeHandshakes++;
+        return true;
+    }
+
+    private void runAdmitted(AdmissionTicket ticket) {
+        ProxySession session = ticket.session();
+        if (!session.isActive()) {
+            ticket.release();
+            return;
+        }
+        try {
+            ticket.onAdmitted().run();
+        } catch (Exception e) {
+            LOGGER.error("Session {}: Error starting authentication after admission", session.getSessionId(), e);
+            ticket.release();
+            session.disconnect("Internal error during login");
+        }
+    }
+
+    private void sendPositionsIfDue() {
+        List<AdmissionTicket> waiting;
+        synchronized (this) {
+            long now = nanoTime.getAsLong();
+            if (queue.isEmpty() || now - lastStatusNanos < statusIntervalNanos) {
+                return;
+            }
+            lastStatusNanos = now;
+            waiting = new ArrayList<>(queue);
+        }
+
+        int depth = waiting.size();
+        for (int i = 0; i < depth; i++) {
+            sendPosition(waiting.get(i).session(), i + 1, depth);
+        }
+    }
+
+    private void sendPosition(ProxySession session, int position, int depth) {
+        int waitSeconds = estimateWaitSeconds(position);
+        String motd = waitSeconds > 0
+            ? "You are #" + position + " in the login queue (about " + waitSeconds + "s)"
+            : "You are #" + position + " in the login queue";
+        session.sendToClient(new Status(null, motd, position, depth));
+    }
+
+    /**
+     * Estimates how long the given queue position waits, from the configured login rate.
+     * Returns 0 when the rate is unlimited, since the wait then depends on handshake time.
+     */
+    private int estimateWaitSeconds(int position) {
+        if (loginsPerSecond <= 0) {
+            return 0;
+        }
+        return Math.max(1, (position + loginsPerSecond - 1) / loginsPerSecond);
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Login admission control.
+ *
+ * <p>Gates client logins in front of authentication so a reconnect storm cannot
+ * overwhelm the session service or the backends.</p>
+ *
+ * <h2>Key Classes</h2>
+ * <ul>
+ *   <li>{@link me.internalizable.numdrassl.server.admission.LoginAdmissionController} - Token
+ *       bucket, concurrent handshake cap and FIFO wait queue.</li>
+ *   <li>{@link me.internalizable.numdrassl.server.admission.AdmissionTicket} - A session's place
+ *       in the queue or its handshake slot.</li>
+ * </ul>
+ */
+package me.internalizable.numdrassl.server.admission;
@@ -0,0 +1,127 @@
+package me.internalizable.numdrassl.server.network;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import io.netty.util.internal.PlatformDependent;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Locale;
+
+/**
+ * Creates the buffer allocator shared by the proxy's pipelines and sets up leak
+ * detection.
+ *
+ * <p>The pooled allocator is Netty's process-wide {@link PooledByteBufAllocator#DEFAULT},
+ * which the Redis client and {@code ByteBufUtil} use as well. A second pooled instance
+ * would keep its own arenas and thread caches next to the default ones, roughly doubling
+ * the pooled memory held per event loop thread. Sharing the default means the allocator
+ * metrics cover those libraries too. Only when {@code preferDirectBuffers} differs from
+ * Netty's own preference does the proxy create a separate pool, and then it logs that
+ * the pool comes on top of the default one.</p>
+ *
+ * <p>Leak detection is sampled: at {@code simple}, one buffer in 128 is tracked. Every
+ * reported leak also increments {@code proxy_buffer_leaks_total}, so leaks appear on
+ * dashboards and not only in the log.</p>
+ */
+public final class BufferAllocation {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BufferAllocation.class);
+
+    public static final String POOLED = "pooled";
+    public static final String UNPOOLED = "unpooled";
+
+    private BufferAllocation() {
+    }
+
+    /**
+     * Creates the allocator for the proxy's pipelines.
+     *
+     * @param kind {@code pooled} or {@code unpooled}
+     * @param preferDirect whether buffers are allocated off-heap by default
+     * @throws IllegalArgumentException if the kind is unknown
+     */
+    @Nonnull
+    public static ByteBufAllocator createAllocator(@Nonnull String kind, boolean preferDirect) {
+        ByteBufAllocator allocator = switch (kind.toLowerCase(Locale.ROOT)) {
+            case POOLED -> pooled(preferDirect);
+            case UNPOOLED -> new UnpooledByteBufAllocator(preferDirect);
+            default -> throw new IllegalArgumentException("Unknown buffer allocator: " + kind);
+        };
+        LOGGER.info("Buffer allocator: {} ({})", kind, preferDirect ? "direct" : "heap");
+        return allocator;
+    }
+
+    private static ByteBufAllocator pooled(boolean preferDirect) {
+        if (preferDirect == PlatformDependent.directBufferPreferred()) {
+            return PooledByteBufAllocator.DEFAULT;
+        }
+        LOGGER.warn("preferDirectBuffers={} differs from Netty's default, the pipelines get a separate "
+            + "buffer pool next to the shared one", preferDirect);
+        return new PooledByteBufAllocator(preferDirect);
+    }
+
+    /**
+     * Sets the leak detection level and counts reported leaks.
+     *
+     * <p>Must run before the first buffer is created: Netty creates its buffer leak
+     * detector once, when the buffer classes are initialized.</p>
+     *
+     * @param level {@code disabled}, {@code simple}, {@code advanced} or {@code paranoid}
+     */
+    public static void configureLeakDetection(@Nonnull String level) {
+        ResourceLeakDetector.setLevel(parseLevel(level));
+        ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(new CountingLeakDetectorFactory());
+        LOGGER.info("Buffer leak detection: {}", ResourceLeakDetector.getLevel());
+    }
+
+    private static ResourceLeakDetector.Level parseLevel(String level) {
+        try {
+            return ResourceLeakDetector.Level.valueOf(level.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown leak detection level '{}', using simple", level);
+            return ResourceLeakDetector.Level.SIMPLE;
+        }
+    }
+
+    // ==================== Leak Counting ====================
+
+    private static final class CountingLeakDetectorFactory extends ResourceLeakDetectorFactory {
+
+        @Override
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval) {
+            return new CountingLeakDetector<>(resource, samplingInterval);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval,
+                                                                   long maxActive) {
+            return new CountingLeakDetector<>(resource, samplingInterval);
+        }
+    }
+
+    private static final class CountingLeakDetector<T> extends ResourceLeakDetector<T> {
+
+        CountingLeakDetector(Class<?> resourceType, int samplingInterval) {
+            super(resourceType, samplingInterval);
+        }
+
+        @Override
+        protected void reportTracedLeak(String resourceType, String records) {
+            ProxyMetrics.getInstance().recordBufferLeak(resourceType);
+            super.reportTracedLeak(resourceType, records);
+        }
+
+        @Override
+        protected void reportUntracedLeak(String resourceType) {
+            ProxyMetrics.getInstance().recordBufferLeak(resourceType);
+            super.reportUntracedLeak(resourceType);
+        }
+    }
+}
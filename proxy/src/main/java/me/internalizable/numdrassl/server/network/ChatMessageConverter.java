@@ -1,24 +1,51 @@
 package me.internalizable.numdrassl.server.network;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hypixel.hytale.protocol.CachedPacket;
 import com.hypixel.hytale.protocol.FormattedMessage;
 import com.hypixel.hytale.protocol.MaybeBool;
 import com.hypixel.hytale.protocol.packets.interface_.ChatType;
 import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
 import me.internalizable.numdrassl.api.chat.ChatMessageBuilder;
+import me.internalizable.numdrassl.api.chat.ChatMessageTemplate;
 import me.internalizable.numdrassl.api.chat.FormattedMessagePart;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.WeakHashMap;
 
 /**
  * Converts API chat message types to protocol types.
  *
  * <p>This class bridges the gap between the public API's {@link ChatMessageBuilder}
  * and the internal protocol's {@link ServerMessage} and {@link FormattedMessage}.</p>
+ *
+ * <p>{@link #toCachedServerMessage} keeps recently sent messages pre-encoded, keyed by
+ * their structure, so repeated messages (MOTD, join messages, plugin prefixes) skip
+ * conversion and serialization entirely. {@link #toServerMessage(ChatMessageTemplate, Map)}
+ * serves messages with per-recipient placeholders from a compiled template.</p>
  */
 public final class ChatMessageConverter {
 
+    /**
+     * Maximum number of distinct messages kept encoded. The least recently used
+     * messages are evicted first, so frequent messages survive bursts of one-off ones.
+     */
+    static final int CACHE_CAPACITY = 1024;
+
+    // Heap-backed entries are never closed, so in-flight sends of evicted packets stay valid
+    private static final Cache<MessageKey, CachedPacket<ServerMessage>> ENCODED_CACHE = CacheBuilder.newBuilder()
+        .maximumSize(CACHE_CAPACITY)
+        .build();
+    private static final Map<ChatMessageTemplate, CompiledChatTemplate> COMPILED_TEMPLATES =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
     private ChatMessageConverter() {
     }
 
@@ -50,6 +77,60 @@ public final class ChatMessageConverter {
         return new ServerMessage(chatType, formatted);
     }
 
+    /**
+     * Converts a ChatMessageBuilder to a pre-encoded ServerMessage, reusing the encoded
+     * bytes of a structurally equal message sent earlier.
+     *
+     * <p>The returned packet is shared and must not be closed by the caller.</p>
+     *
+     * @param builder the chat message builder
+     * @param chatType the chat type (Chat, System, etc.)
+     * @return the encoded ServerMessage packet ready to send
+     */
+    @Nonnull
+    public static CachedPacket<ServerMessage> toCachedServerMessage(@Nonnull ChatMessageBuilder builder,
+                                                                    @Nonnull ChatType chatType) {
+        Objects.requireNonNull(builder, "builder");
+        Objects.requireNonNull(chatType, "chatType");
+
+        MessageKey key = new MessageKey(chatType, PartKey.of(builder.getParts()));
+        CachedPacket<ServerMessage> cached = ENCODED_CACHE.getIfPresent(key);
+        if (cached != null) {
+            ProxyMetrics.getInstance().recordChatCacheHit(ProxyMetrics.ChatCache.ENCODED);
+            return cached;
+        }
+
+        ProxyMetrics.getInstance().recordChatCacheMiss(ProxyMetrics.ChatCache.ENCODED);
+        CachedPacket<ServerMessage> encoded = CachedPacket.cache(toServerMessage(builder, chatType));
+        CachedPacket<ServerMessage> existing = ENCODED_CACHE.asMap().putIfAbsent(key, encoded);
+        return existing != null ? existing : encoded;
+    }
+
+    /**
+     * Encodes a chat template for one recipient. The template is compiled on first use;
+     * afterwards only the parts containing placeholders are encoded.
+     *
+     * @param template the message template
+     * @param placeholders placeholder values by name
+     * @return the encoded ServerMessage packet ready to send
+     */
+    @Nonnull
+    public static CachedPacket<ServerMessage> toServerMessage(@Nonnull ChatMessageTemplate template,
+                                                              @Nonnull Map<String, String> placeholders) {
+        Objects.requireNonNull(template, "template");
+        Objects.requireNonNull(placeholders, "placeholders");
+
+        CompiledChatTemplate compiled = COMPILED_TEMPLATES.get(template);
+        if (compiled != null) {
+            ProxyMetrics.getInstance().recordChatCacheHit(ProxyMetrics.ChatCache.TEMPLATE);
+        } else {
+            ProxyMetrics.getInstance().recordChatCacheMiss(ProxyMetrics.ChatCache.TEMPLATE);
+            compiled = CompiledChatTemplate.compile(template, ChatType.Chat);
+            COMPILED_TEMPLATES.put(template, compiled);
+        }
+        return compiled.render(placeholders);
+    }
+
     /**
      * Converts a FormattedMessagePart to protocol FormattedMessage.
      *
@@ -92,5 +173,30 @@ public final class ChatMessageConverter {
         }
         return value ? MaybeBool.True : MaybeBool.False;
     }
+
+    // ==================== Cache Keys ====================
+
+    private record MessageKey(ChatType chatType, List<PartKey> parts) {
+    }
+
+    /**
+     * Structural snapshot of a {@link FormattedMessagePart}. Parts are not required to be
+     * immutable, so the cache keys on their values rather than their identity.
+     */
+    private record PartKey(String text, String color, Boolean bold, Boolean italic,
+                           Boolean underlined, Boolean strikethrough, List<PartKey> children) {
+
+        static List<PartKey> of(List<FormattedMessagePart> parts) {
+            if (parts.isEmpty()) {
+                return List.of();
+            }
+            List<PartKey> keys = new ArrayList<>(parts.size());
+            for (FormattedMessagePart part : parts) {
+                keys.add(new PartKey(part.getText(), part.getColor(), part.isBold(), part.isItalic(),
+                    part.isUnderlined(), part.isStrikethrough(), of(part.getChildren())));
+            }
+            return keys;
+        }
+    }
 }
 
@@ -0,0 +1,204 @@
+package me.internalizable.numdrassl.server.network;
+
+import com.hypixel.hytale.protocol.CachedPacket;
+import com.hypixel.hytale.protocol.FormattedMessage;
+import com.hypixel.hytale.protocol.io.PacketIO;
+import com.hypixel.hytale.protocol.io.VarInt;
+import com.hypixel.hytale.protocol.packets.interface_.ChatType;
+import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import me.internalizable.numdrassl.api.chat.ChatMessageBuilder;
+import me.internalizable.numdrassl.api.chat.ChatMessageTemplate;
+import me.internalizable.numdrassl.api.chat.FormattedMessagePart;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A {@link ChatMessageTemplate} pre-encoded into {@link ServerMessage} wire bytes.
+ *
+ * <p>A message built by {@link ChatMessageBuilder} is a root {@link FormattedMessage}
+ * whose parts are its children. Each child encodes self-contained (its offsets are
+ * relative to its own start), so children without placeholders are encoded once at
+ * compile time, as are the root's other fields. {@link #render(Map)} writes the root
+ * in field order, filling in its offset slots as it goes, and only encodes the
+ * children whose text contains placeholders.</p>
+ *
+ * <p>Instances are immutable and safe to share between threads.</p>
+ */
+final class CompiledChatTemplate {
+
+    // Variable fields of FormattedMessage, in wire order
+    private static final int RAW_TEXT = 0;
+    private static final int MESSAGE_ID = 1;
+    private static final int CHILDREN = 2;
+    private static final int PARAMS = 3;
+    private static final int MESSAGE_PARAMS = 4;
+    private static final int COLOR = 5;
+    private static final int LINK = 6;
+    private static final int FIELD_COUNT = 7;
+
+    private static final int MAX_STRING_LENGTH = 4096000;
+
+    private final byte[] fixedBlock;
+    private final byte[][] fields;
+    private final int childCount;
+    private final List<Object> segments;
+    private final int staticSize;
+
+    private CompiledChatTemplate(byte[] fixedBlock, byte[][] fields, int childCount, List<Object> segments) {
+        this.fixedBlock = fixedBlock;
+        this.fields = fields;
+        this.childCount = childCount;
+        this.segments = segments;
+        int size = fixedBlock.length + 4 * FIELD_COUNT + VarInt.size(childCount);
+        for (byte[] field : fields) {
+            if (field != null) {
+                size += field.length;
+            }
+        }
+        for (Object segment : segments) {
+            if (segment instanceof byte[] bytes) {
+                size += bytes.length;
+            }
+        }
+        this.staticSize = size;
+    }
+
+    /**
+     * Compiles a template. Adjacent parts without placeholders are merged into one segment.
+     */
+    @Nonnull
+    static CompiledChatTemplate compile(@Nonnull ChatMessageTemplate template, @Nonnull ChatType chatType) {
+        Objects.requireNonNull(template, "template");
+        Objects.requireNonNull(chatType, "chatType");
+
+        List<FormattedMessagePart> parts = template.getParts();
+        List<Object> segments = new ArrayList<>();
+        ByteBuf pending = Unpooled.buffer();
+        for (FormattedMessagePart part : parts) {
+            if (ChatMessageTemplate.hasPlaceholders(part)) {
+                if (pending.isReadable()) {
+                    segments.add(ByteBufUtil.getBytes(pending));
+                    pending.clear();
+                }
+                segments.add(part);
+            } else {
+                ChatMessageConverter.toFormattedMessage(part).serialize(pending);
+            }
+        }
+        if (pending.isReadable()) {
+            segments.add(ByteBufUtil.getBytes(pending));
+        }
+        pending.release();
+
+        // The same root the converter produces for ChatMessageBuilder.build(), minus the parts
+        FormattedMessage root = ChatMessageConverter.toFormattedMessage(ChatMessageBuilder.create().build());
+        if (root.params != null || root.messageParams != null) {
+            throw new IllegalStateException("Message params cannot be compiled into a template");
+        }
+        byte[][] fields = new byte[FIELD_COUNT][];
+        fields[RAW_TEXT] = encodeString(root.rawText);
+        fields[MESSAGE_ID] = encodeString(root.messageId);
+        fields[COLOR] = encodeString(root.color);
+        fields[LINK] = encodeString(root.link);
+
+        return new CompiledChatTemplate(encodeFixedBlock(chatType, root, !parts.isEmpty()), fields, parts.size(), segments);
+    }
+
+    /**
+     * Encodes the template for one recipient.
+     *
+     * @param values placeholder values by name
+     * @return a pre-encoded ServerMessage packet
+     */
+    @Nonnull
+    CachedPacket<ServerMessage> render(@Nonnull Map<String, String> values) {
+        Objects.requireNonNull(values, "values");
+        ByteBuf buf = Unpooled.buffer(staticSize + 64 * segments.size());
+        buf.writeBytes(fixedBlock);
+        int slots = buf.writerIndex();
+        buf.writeZero(4 * FIELD_COUNT);
+        int varBlockStart = buf.writerIndex();
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            int slot = slots + 4 * field;
+            if (field == CHILDREN && childCount > 0) {
+                buf.setIntLE(slot, buf.writerIndex() - varBlockStart);
+                VarInt.write(buf, childCount);
+                writeChildren(buf, values);
+            } else if (fields[field] != null) {
+                buf.setIntLE(slot, buf.writerIndex() - varBlockStart);
+                buf.writeBytes(fields[field]);
+            } else {
+                buf.setIntLE(slot, -1);
+            }
+        }
+        return CachedPacket.wrap(ServerMessage.class, ServerMessage.PACKET_ID, buf);
+    }
+
+    // ==================== Internal ====================
+
+    private void writeChildren(ByteBuf buf, Map<String, String> values) {
+        for (Object segment : segments) {
+            if (segment instanceof byte[] bytes) {
+                buf.writeBytes(bytes);
+            } else {
+                FormattedMessagePart resolved = ChatMessageTemplate.resolve((FormattedMessagePart) segment, values);
+                ChatMessageConverter.toFormattedMessage(resolved).serialize(buf);
+            }
+        }
+    }
+
+    /**
+     * Encodes everything in front of the root's offset slots: the ServerMessage header,
+     * then the root's null bits and style flags, as {@link FormattedMessage#serialize} does.
+     */
+    private static byte[] encodeFixedBlock(ChatType chatType, FormattedMessage root, boolean hasChildren) {
+        int nullBits = 0;
+        if (root.rawText != null) {
+            nullBits |= 1;
+        }
+        if (root.messageId != null) {
+            nullBits |= 2;
+        }
+        if (hasChildren) {
+            nullBits |= 4;
+        }
+        if (root.color != null) {
+            nullBits |= 0x20;
+        }
+        if (root.link != null) {
+            nullBits |= 0x40;
+        }
+        return new byte[] {
+            1, // ServerMessage null bits: the message is present
+            (byte) chatType.getValue(),
+            (byte) nullBits,
+            (byte) root.bold.getValue(),
+            (byte) root.italic.getValue(),
+            (byte) root.monospace.getValue(),
+            (byte) root.underlined.getValue(),
+            (byte) (root.markupEnabled ? 1 : 0)
+        };
+    }
+
+    @Nullable
+    private static byte[] encodeString(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            PacketIO.writeVarString(buf, value, MAX_STRING_LENGTH);
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+}
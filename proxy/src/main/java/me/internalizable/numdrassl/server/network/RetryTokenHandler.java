@@ -0,0 +1,230 @@
+package me.internalizable.numdrassl.server.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.incubator.codec.quic.QuicTokenHandler;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stateless QUIC address validation with HMAC-signed retry tokens.
+ *
+ * <p>A token is {@code keyId(1) | issuedAt(8) | mac(16) | originalDcid}, where the MAC
+ * is a truncated HMAC-SHA256 over the key ID, timestamp, client address and original
+ * DCID. Validating a token costs one HMAC and no state, so a spoofed source address
+ * cannot make the proxy allocate a connection or run TLS.</p>
+ *
+ * <p>Retry adds a round trip, so it is only requested while new handshakes arrive
+ * faster than the configured threshold; below it, connections are accepted directly.
+ * Tokens that clients present are always validated.</p>
+ *
+ * <p>Keys rotate every {@link #KEY_ROTATION}. The previous key stays valid so tokens
+ * issued just before a rotation still verify.</p>
+ */
+public final class RetryTokenHandler implements QuicTokenHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryTokenHandler.class);
+
+    static final Duration KEY_ROTATION = Duration.ofMinutes(10);
+    static final Duration TOKEN_LIFETIME = Duration.ofSeconds(30);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int KEY_SIZE = 32;
+    private static final int MAC_SIZE = 16;
+    private static final int HEADER_SIZE = 1 + Long.BYTES + MAC_SIZE;
+    private static final int MAX_CONNECTION_ID_LENGTH = 20;
+
+    private static final ThreadLocal<KeyedMacs> MACS = ThreadLocal.withInitial(KeyedMacs::new);
+
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicReference<Keys> keys;
+    private final int retryThresholdPerSecond;
+
+    // Handshake rate, counted in one-second windows
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong windowCount = new AtomicLong();
+    private volatile long lastWindowRate;
+
+    /**
+     * @param retryThresholdPerSecond new handshakes per second above which clients must
+     *                                complete a retry; 0 requires it for every client
+     */
+    public RetryTokenHandler(int retryThresholdPerSecond) {
+        this.retryThresholdPerSecond = Math.max(0, retryThresholdPerSecond);
+        this.keys = new AtomicReference<>(new Keys((byte) 0, newKey(), null, System.nanoTime()));
+    }
+
+    // ==================== QuicTokenHandler ====================
+
+    @Override
+    public boolean writeToken(ByteBuf out, ByteBuf dcid, InetSocketAddress address) {
+        if (!underLoad()) {
+            return false;
+        }
+
+        Keys current = currentKeys();
+        long issuedAt = System.currentTimeMillis();
+        byte[] mac = computeMac(current.current(), current.id(), issuedAt, address, dcid);
+
+        out.writeByte(current.id());
+        out.writeLong(issuedAt);
+        out.writeBytes(mac, 0, MAC_SIZE);
+        out.writeBytes(dcid, dcid.readerIndex(), dcid.readableBytes());
+        ProxyMetrics.getInstance().recordQuicRetry("issued");
+        return true;
+    }
+
+    @Override
+    public int validateToken(ByteBuf token, InetSocketAddress address) {
+        int start = token.readerIndex();
+        if (token.readableBytes() <= HEADER_SIZE || token.readableBytes() > maxTokenLength()) {
+            return reject(address, "malformed");
+        }
+
+        byte keyId = token.getByte(start);
+        long issuedAt = token.getLong(start + 1);
+        long age = System.currentTimeMillis() - issuedAt;
+        if (age < -1_000 || age > TOKEN_LIFETIME.toMillis()) {
+            return reject(address, "expired");
+        }
+
+        Keys current = currentKeys();
+        SecretKeySpec key = current.forId(keyId);
+        if (key == null) {
+            return reject(address, "unknown key");
+        }
+
+        ByteBuf dcid = token.slice(start + HEADER_SIZE, token.readableBytes() - HEADER_SIZE);
+        byte[] expected = computeMac(key, keyId, issuedAt, address, dcid);
+        byte[] actual = new byte[MAC_SIZE];
+        token.getBytes(start + 1 + Long.BYTES, actual);
+        if (!MessageDigest.isEqual(actual, Arrays.copyOf(expected, MAC_SIZE))) {
+            return reject(address, "bad mac");
+        }
+
+        ProxyMetrics.getInstance().recordQuicRetry("validated");
+        return HEADER_SIZE;
+    }
+
+    @Override
+    public int maxTokenLength() {
+        return HEADER_SIZE + MAX_CONNECTION_ID_LENGTH;
+    }
+
+    // ==================== Internal ====================
+
+    /**
+     * Counts a new handshake and checks whether the current or previous one-second
+     * window is above the threshold.
+     */
+    private boolean underLoad() {
+        if (retryThresholdPerSecond == 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= 1_000_000_000L && windowStart.compareAndSet(start, now)) {
+            long count = windowCount.getAndSet(0);
+            // Windows without handshakes in between leave the previous second quiet
+            lastWindowRate = now - start < 2_000_000_000L ? count : 0;
+        }
+        long count = windowCount.incrementAndGet();
+        return count > retryThresholdPerSecond || lastWindowRate > retryThresholdPerSecond;
+    }
+
+    private int reject(InetSocketAddress address, String reason) {
+        LOGGER.debug("Rejected QUIC retry token from {}: {}", address, reason);
+        ProxyMetrics.getInstance().recordQuicRetry("rejected");
+        return -1;
+    }
+
+    private Keys currentKeys() {
+        Keys current = keys.get();
+        if (System.nanoTime() - current.rotatedAtNanos() < KEY_ROTATION.toNanos()) {
+            return current;
+        }
+        Keys rotated = new Keys((byte) (current.id() + 1), newKey(), current.current(), System.nanoTime());
+        return keys.compareAndSet(current, rotated) ? rotated : keys.get();
+    }
+
+    private SecretKeySpec newKey() {
+        byte[] bytes = new byte[KEY_SIZE];
+        random.nextBytes(bytes);
+        return new SecretKeySpec(bytes, ALGORITHM);
+    }
+
+    private static byte[] computeMac(SecretKeySpec key, byte keyId, long issuedAt,
+                                     InetSocketAddress address, ByteBuf dcid) {
+        Mac mac = MACS.get().forKey(key, keyId);
+        mac.update(keyId);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            mac.update((byte) (issuedAt >>> shift));
+        }
+        mac.update(address.getAddress().getAddress());
+        mac.update((byte) (address.getPort() >>> 8));
+        mac.update((byte) address.getPort());
+        mac.update(dcid.nioBuffer(dcid.readerIndex(), dcid.readableBytes()));
+        return mac.doFinal();
+    }
+
+    /**
+     * A thread's MACs, already initialized with the live keys. Current and previous keys
+     * have consecutive IDs, so each gets its own slot; a slot is re-keyed when a rotation
+     * brings a new key into it. {@link Mac#doFinal()} leaves a MAC keyed for the next use.
+     */
+    private static final class KeyedMacs {
+
+        private final SecretKeySpec[] keys = new SecretKeySpec[2];
+        private final Mac[] macs = new Mac[2];
+
+        Mac forKey(SecretKeySpec key, byte keyId) {
+            int slot = keyId & 1;
+            Mac mac = macs[slot];
+            if (keys[slot] == key) {
+                return mac;
+            }
+            keys[slot] = null;
+            try {
+                if (mac == null) {
+                    mac = Mac.getInstance(ALGORITHM);
+                    macs[slot] = mac;
+                }
+                mac.init(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialize " + ALGORITHM + " for retry tokens", e);
+            }
+            keys[slot] = key;
+            return mac;
+        }
+    }
+
+    /**
+     * The active key and the one it replaced. Key IDs wrap around, which is fine since
+     * only two keys are ever live.
+     */
+    private record Keys(byte id, @Nonnull SecretKeySpec current, SecretKeySpec previous, long rotatedAtNanos) {
+        Keys {
+            Objects.requireNonNull(current, "current");
+        }
+
+        SecretKeySpec forId(byte keyId) {
+            if (keyId == id) {
+                return current;
+            }
+            return keyId == (byte) (id - 1) ? previous : null;
+        }
+    }
+}
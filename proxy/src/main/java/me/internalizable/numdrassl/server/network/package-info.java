@@ -2,13 +2,18 @@
  * Network utilities for the proxy server.
  *
  * <p>This package provides utilities for network-related operations such as
- * building formatted chat messages for player communication.</p>
+ * building formatted chat messages for player communication, validating
+ * client addresses during the QUIC handshake and allocating buffers.</p>
  *
  * <h2>Key Classes</h2>
  * <ul>
  *   <li>{@link me.internalizable.numdrassl.api.chat.ChatMessageBuilder} - Fluent builder
  *       for constructing Hytale {@code FormattedMessage} objects with colors and styling.
  *       Simplifies the verbose message construction API.</li>
+ *   <li>{@link me.internalizable.numdrassl.server.network.RetryTokenHandler} - Stateless
+ *       HMAC retry tokens for QUIC address validation, enabled under handshake load.</li>
+ *   <li>{@link me.internalizable.numdrassl.server.network.BufferAllocation} - Creates the
+ *       buffer allocator of the client and backend pipelines and counts reported leaks.</li>
  * </ul>
  *
  * <h2>Usage Example</h2>
@@ -14,8 +14,12 @@
  *
  * <h2>Subpackages</h2>
  * <ul>
+ *   <li>{@link me.internalizable.numdrassl.server.admission} - Login admission control
+ *       (rate limit, handshake cap and wait queue).</li>
  *   <li>{@link me.internalizable.numdrassl.server.network} - Network utilities including
  *       chat message formatting.</li>
+ *   <li>{@link me.internalizable.numdrassl.server.ratelimit} - Per-source connection and
+ *       packet rate limits.</li>
  *   <li>{@link me.internalizable.numdrassl.server.ssl} - SSL/TLS certificate management
  *       and generation.</li>
  *   <li>{@link me.internalizable.numdrassl.server.transfer} - Player server transfer
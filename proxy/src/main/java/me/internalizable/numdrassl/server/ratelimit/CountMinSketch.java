@@ -0,0 +1,135 @@
+package me.internalizable.numdrassl.server.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Fixed-size frequency estimator over a sliding window.
+ *
+ * <p>Counts are kept in a count-min sketch of {@code depth} rows of {@code width}
+ * counters. An estimate is never below the true count and overshoots by at most
+ * {@code ~e/width} of all events in the window, with probability {@code 1 - e^-depth}.
+ * Memory does not depend on how many distinct keys are seen.</p>
+ *
+ * <p>Two windows are kept, the current one and the one before it. The rate of a key is
+ * its count in the current window plus its previous count weighted by how much of the
+ * previous window still overlaps the sliding window, so limits decay smoothly instead
+ * of resetting at window boundaries.</p>
+ *
+ * <p>Thread-safe; counters are updated with atomic increments. Only two tables are ever
+ * allocated: rotating a window clears the retired previous table in place and makes it
+ * the current one. An increment racing with a rotation may land in the table that just
+ * became the previous window, which only overestimates, as the sketch already may.</p>
+ */
+public final class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final long windowNanos;
+
+    private volatile Windows windows;
+
+    /**
+     * @param depth number of hash rows
+     * @param width counters per row, rounded up to a power of two
+     * @param window length of one counting window
+     */
+    public CountMinSketch(int depth, int width, Duration window) {
+        this(depth, width, window, System.nanoTime());
+    }
+
+    CountMinSketch(int depth, int width, Duration window, long startNanos) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("depth and width must be positive");
+        }
+        this.depth = depth;
+        int size = Integer.highestOneBit(width);
+        this.mask = (size < width ? size << 1 : size) - 1;
+        this.windowNanos = window.toNanos();
+        this.windows = new Windows(newTable(), newTable(), startNanos);
+    }
+
+    /**
+     * Counts one event for a key and returns the key's estimated rate over the last window.
+     *
+     * @param key the key, e.g. a hashed source address
+     * @param now current {@link System#nanoTime()}
+     * @return the estimated number of events in the sliding window, including this one
+     */
+    public long incrementAndEstimate(long key, long now) {
+        Windows w = rotateIfNeeded(now);
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        int current = Integer.MAX_VALUE;
+        int previous = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * (mask + 1) + ((h1 + row * h2) & mask);
+            current = Math.min(current, w.current().incrementAndGet(index));
+            previous = Math.min(previous, w.previous().get(index));
+        }
+
+        long elapsed = now - w.startNanos();
+        double overlap = 1.0 - (double) elapsed / windowNanos;
+        return current + (long) (previous * Math.max(0, overlap));
+    }
+
+    /**
+     * Gets the memory held by the counter tables, in bytes.
+     */
+    public long getMemoryBytes() {
+        return 2L * depth * (mask + 1) * Integer.BYTES;
+    }
+
+    // ==================== Internal ====================
+
+    private Windows rotateIfNeeded(long now) {
+        Windows w = windows;
+        if (now - w.startNanos() < windowNanos) {
+            return w;
+        }
+        synchronized (this) {
+            w = windows;
+            long elapsed = now - w.startNanos();
+            if (elapsed < windowNanos) {
+                return w;
+            }
+            AtomicIntegerArray current = w.previous();
+            clear(current);
+            // After a full idle window the old counts no longer overlap at all
+            AtomicIntegerArray previous = w.current();
+            if (elapsed >= 2 * windowNanos) {
+                clear(previous);
+            }
+            long start = w.startNanos() + (elapsed / windowNanos) * windowNanos;
+            Windows rotated = new Windows(current, previous, start);
+            windows = rotated;
+            return rotated;
+        }
+    }
+
+    private AtomicIntegerArray newTable() {
+        return new AtomicIntegerArray(depth * (mask + 1));
+    }
+
+    private static void clear(AtomicIntegerArray table) {
+        for (int i = 0; i < table.length(); i++) {
+            table.setPlain(i, 0);
+        }
+    }
+
+    /**
+     * MurmurHash3 finalizer; spreads keys that differ only in a few bits.
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private record Windows(AtomicIntegerArray current, AtomicIntegerArray previous, long startNanos) {}
+}
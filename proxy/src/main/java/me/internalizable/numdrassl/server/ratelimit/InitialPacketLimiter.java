@@ -0,0 +1,51 @@
+package me.internalizable.numdrassl.server.ratelimit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.DatagramPacket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Drops QUIC Initial packets from sources over their connection budget.
+ *
+ * <p>Sits in the datagram pipeline in front of the QUIC codec, so a source that opens
+ * connections too fast is turned away before the codec parses the packet, allocates
+ * connection state or starts TLS. Only long-header Initial packets are counted;
+ * packets of established connections pass through untouched.</p>
+ */
+@ChannelHandler.Sharable
+public final class InitialPacketLimiter extends ChannelInboundHandlerAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InitialPacketLimiter.class);
+
+    // Long header form bit, fixed bit and packet type 0 (Initial) in QUIC v1
+    private static final int TYPE_MASK = 0xF0;
+    private static final int INITIAL_TYPE = 0xC0;
+
+    private final SourceRateLimiter limiter;
+
+    public InitialPacketLimiter(@Nonnull SourceRateLimiter limiter) {
+        this.limiter = Objects.requireNonNull(limiter, "limiter");
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof DatagramPacket packet && isInitial(packet.content())
+                && !limiter.tryAcquireInitial(packet.sender().getAddress())) {
+            LOGGER.debug("Dropping QUIC Initial from {}: over connection rate limit", packet.sender());
+            packet.release();
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private static boolean isInitial(ByteBuf content) {
+        return content.isReadable() && (content.getUnsignedByte(content.readerIndex()) & TYPE_MASK) == INITIAL_TYPE;
+    }
+}
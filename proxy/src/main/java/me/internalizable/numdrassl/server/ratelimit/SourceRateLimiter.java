@@ -0,0 +1,183 @@
+package me.internalizable.numdrassl.server.ratelimit;
+
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Per-source rate limits for new connections and client packets.
+ *
+ * <p>Sources are IPv4 addresses or IPv6 /64 prefixes, since one IPv6 host usually owns
+ * a whole /64. Rates are tracked in {@link CountMinSketch}es over a one second sliding
+ * window, so memory stays fixed no matter how many sources send traffic, and a check
+ * costs a few atomic increments.</p>
+ *
+ * <p>Three budgets apply, each per source and second:</p>
+ * <ul>
+ *   <li>QUIC Initial packets, checked by {@link InitialPacketLimiter} before the QUIC codec</li>
+ *   <li>game packets of any type</li>
+ *   <li>game packets of a specific type, e.g. {@code ChatMessage}</li>
+ * </ul>
+ *
+ * <p>Only Initials and packets whose loss the game tolerates, such as chat, are dropped
+ * when over budget. Dropping any other game packet mid-stream would desync the client,
+ * so a source over those budgets is disconnected instead ({@link Verdict}). Players behind
+ * one NAT share a budget, so the game packet budgets are off by default.</p>
+ *
+ * <p>A budget of {@code 0} disables that limit. Because the sketch can only overestimate,
+ * a source is never allowed more than its budget, and under heavy load from many
+ * sources it may rarely be limited slightly early.</p>
+ */
+public final class SourceRateLimiter {
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 8192;
+    private static final Duration WINDOW = Duration.ofSeconds(1);
+
+    private final int initialsPerSecond;
+    private final int packetsPerSecond;
+    private final Map<String, Integer> packetTypeBudgets;
+
+    /**
+     * Packet types that may be dropped when over budget; other types disconnect.
+     */
+    private static final Set<String> DROPPABLE_TYPES = Set.of("ChatMessage");
+
+    private final CountMinSketch initialSketch;
+    private final CountMinSketch packetSketch;
+    private final CountMinSketch packetTypeSketch;
+
+    /**
+     * What to do with a game packet.
+     */
+    public enum Verdict {
+        /** Within budget. */
+        ALLOW,
+        /** Over budget; skip the packet. */
+        DROP,
+        /** Over budget for a packet that cannot be dropped; close the connection. */
+        DISCONNECT
+    }
+
+    /**
+     * @param initialsPerSecond QUIC Initial packets allowed per source and second
+     * @param packetsPerSecond game packets allowed per source and second
+     * @param packetTypeBudgets packets of a type allowed per source and second, by packet name
+     */
+    public SourceRateLimiter(int initialsPerSecond, int packetsPerSecond,
+                             @Nonnull Map<String, Integer> packetTypeBudgets) {
+        Objects.requireNonNull(packetTypeBudgets, "packetTypeBudgets");
+        this.initialsPerSecond = Math.max(0, initialsPerSecond);
+        this.packetsPerSecond = Math.max(0, packetsPerSecond);
+        this.packetTypeBudgets = Map.copyOf(packetTypeBudgets);
+        this.initialSketch = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH, WINDOW);
+        this.packetSketch = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH, WINDOW);
+        this.packetTypeSketch = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH, WINDOW);
+    }
+
+    // ==================== Checks ====================
+
+    /**
+     * Counts a QUIC Initial packet from a source.
+     *
+     * @return true if the packet is within budget
+     */
+    public boolean tryAcquireInitial(@Nonnull InetAddress source) {
+        if (initialsPerSecond == 0) {
+            return true;
+        }
+        if (initialSketch.incrementAndEstimate(sourceKey(source), System.nanoTime()) > initialsPerSecond) {
+            ProxyMetrics.getInstance().recordRateLimited("initial");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Counts a game packet from a source.
+     *
+     * @param sourceKey the source, from {@link #sourceKey(InetAddress)}
+     * @param packetType the packet name, or null for packets unknown to the proxy
+     * @return whether to forward the packet, drop it or disconnect the source
+     */
+    @Nonnull
+    public Verdict tryAcquirePacket(long sourceKey, @Nullable String packetType) {
+        long now = System.nanoTime();
+        boolean droppable = packetType != null && DROPPABLE_TYPES.contains(packetType);
+
+        Integer budget = packetType != null ? packetTypeBudgets.get(packetType) : null;
+        if (budget != null && budget > 0
+                && packetTypeSketch.incrementAndEstimate(typeKey(sourceKey, packetType), now) > budget) {
+            ProxyMetrics.getInstance().recordRateLimited("packet_type");
+            return droppable ? Verdict.DROP : Verdict.DISCONNECT;
+        }
+
+        if (packetsPerSecond > 0 && packetSketch.incrementAndEstimate(sourceKey, now) > packetsPerSecond) {
+            ProxyMetrics.getInstance().recordRateLimited("packet");
+            return droppable ? Verdict.DROP : Verdict.DISCONNECT;
+        }
+        return Verdict.ALLOW;
+    }
+
+    /**
+     * Creates the packet budget of one client connection.
+     *
+     * @return the gate, or null if the source is unknown and cannot be told apart from
+     *         other clients
+     */
+    @Nullable
+    public PacketGate gateFor(@Nullable InetAddress source) {
+        if (source == null || source.isAnyLocalAddress()) {
+            return null;
+        }
+        return new PacketGate(this, sourceKey(source));
+    }
+
+    /**
+     * Gets the memory held by all sketches, in bytes.
+     */
+    public long getMemoryBytes() {
+        return initialSketch.getMemoryBytes() + packetSketch.getMemoryBytes() + packetTypeSketch.getMemoryBytes();
+    }
+
+    // ==================== Keys ====================
+
+    /**
+     * Maps an address to its rate limiting key: the full IPv4 address, or the /64 prefix
+     * of an IPv6 address.
+     */
+    public static long sourceKey(@Nonnull InetAddress address) {
+        byte[] bytes = address.getAddress();
+        int prefixLength = Math.min(bytes.length, Long.BYTES);
+        long key = 0;
+        for (int i = 0; i < prefixLength; i++) {
+            key = (key << 8) | (bytes[i] & 0xFF);
+        }
+        return key;
+    }
+
+    private static long typeKey(long sourceKey, String packetType) {
+        return sourceKey * 0x9E3779B97F4A7C15L + packetType.hashCode();
+    }
+
+    /**
+     * The packet budget of a single client connection, bound to its source key.
+     */
+    public record PacketGate(@Nonnull SourceRateLimiter limiter, long sourceKey) {
+
+        /**
+         * @param packetType the packet name, or null for packets unknown to the proxy
+         * @return whether to forward the packet, drop it or disconnect the source
+         */
+        @Nonnull
+        public Verdict tryAcquire(@Nullable String packetType) {
+            return limiter.tryAcquirePacket(sourceKey, packetType);
+        }
+    }
+}
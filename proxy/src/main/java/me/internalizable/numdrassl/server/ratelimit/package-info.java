@@ -0,0 +1,17 @@
+/**
+ * Per-source rate limiting.
+ *
+ * <p>Limits how fast one source address can open connections and send packets, with
+ * memory that stays fixed regardless of the number of sources.</p>
+ *
+ * <h2>Key Classes</h2>
+ * <ul>
+ *   <li>{@link me.internalizable.numdrassl.server.ratelimit.SourceRateLimiter} - Connection,
+ *       packet and per-packet-type budgets per source address or IPv6 /64.</li>
+ *   <li>{@link me.internalizable.numdrassl.server.ratelimit.CountMinSketch} - Sliding window
+ *       frequency estimator backing the limits.</li>
+ *   <li>{@link me.internalizable.numdrassl.server.ratelimit.InitialPacketLimiter} - Drops QUIC
+ *       Initial packets over budget in front of the QUIC codec.</li>
+ * </ul>
+ */
+package me.internalizable.numdrassl.server.ratelimit;
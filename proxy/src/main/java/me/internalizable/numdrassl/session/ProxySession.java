@@ -5,20 +5,32 @@ import com.hypixel.hytale.protocol.packets.connection.ClientType;
 import com.hypixel.hytale.protocol.packets.connection.Connect;
 import com.hypixel.hytale.protocol.packets.connection.Disconnect;
 import com.hypixel.hytale.protocol.packets.connection.DisconnectType;
+import com.hypixel.hytale.protocol.packets.interface_.ChatType;
 import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
 import io.netty.buffer.ByteBuf;
 import io.netty.incubator.codec.quic.QuicChannel;
 import io.netty.incubator.codec.quic.QuicStreamChannel;
 import me.internalizable.numdrassl.api.chat.ChatMessageBuilder;
+import me.internalizable.numdrassl.api.chat.ChatMessageTemplate;
 import me.internalizable.numdrassl.api.player.Player;
 import me.internalizable.numdrassl.auth.CertificateExtractor;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.profiling.TrafficHeavyHitters;
+import me.internalizable.numdrassl.profiling.jfr.ServerSwitchEvent;
 import me.internalizable.numdrassl.config.BackendServer;
 import me.internalizable.numdrassl.server.ProxyCore;
+import me.internalizable.numdrassl.server.admission.AdmissionTicket;
 import me.internalizable.numdrassl.server.network.ChatMessageConverter;
 import me.internalizable.numdrassl.session.auth.SessionAuthState;
+import me.internalizable.numdrassl.session.capture.SessionCapture;
 import me.internalizable.numdrassl.session.channel.PacketSender;
 import me.internalizable.numdrassl.session.channel.SessionChannels;
+import me.internalizable.numdrassl.session.channel.StreamMapper;
 import me.internalizable.numdrassl.session.identity.PlayerIdentity;
+import me.internalizable.numdrassl.session.login.LoginPhase;
+import me.internalizable.numdrassl.session.login.LoginTrace;
+import me.internalizable.numdrassl.session.memory.SessionMemory;
+import me.internalizable.numdrassl.session.quality.ConnectionQualityTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,10 +39,12 @@ import javax.annotation.Nullable;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.security.cert.X509Certificate;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -59,11 +73,19 @@ public final class ProxySession {
     private final long id;
     private final ProxyCore proxyCore;
     private final InetSocketAddress clientAddress;
+    private final long createdNanos = System.nanoTime();
 
     // Composed components
     private final SessionChannels channels;
     private final SessionAuthState authState;
     private final PacketSender packetSender;
+    private final StreamMapper streamMapper;
+    private final ConnectionQualityTracker qualityTracker = new ConnectionQualityTracker();
+    private final SessionMemory memory;
+    private final TrafficHeavyHitters.Source clientTraffic;
+    private final TrafficHeavyHitters.Source backendTraffic;
+    private final SessionCapture capture = new SessionCapture();
+    private final LoginTrace loginTrace = new LoginTrace(createdNanos);
 
     // Mutable state (thread-safe)
     private final AtomicReference<SessionState> state = new AtomicReference<>(SessionState.HANDSHAKING);
@@ -74,11 +96,14 @@ public final class ProxySession {
     private final AtomicReference<Player> cachedPlayer = new AtomicReference<>();
 
     // Message queue for messages sent before player is fully connected
-    private final Queue<ServerMessage> pendingMessages = new ConcurrentLinkedQueue<>();
+    private final Queue<Packet> pendingMessages = new ConcurrentLinkedQueue<>();
 
     // Transfer flag
     private volatile boolean serverTransfer = false;
 
+    // Login admission slot, held from Connect until the backend connection is established
+    private final AtomicReference<AdmissionTicket> admissionTicket = new AtomicReference<>();
+
     // ==================== Construction ====================
 
     public ProxySession(@Nonnull ProxyCore proxyCore, @Nonnull QuicChannel clientChannel) {
@@ -91,12 +116,23 @@ public final class ProxySession {
         this.channels = new SessionChannels(id, clientChannel);
         this.authState = new SessionAuthState();
         this.packetSender = new PacketSender(id, channels);
+        this.memory = new SessionMemory(proxyCore.getMemoryBudget());
+        this.clientTraffic = TrafficHeavyHitters.getInstance().source(
+            TrafficHeavyHitters.Direction.CLIENT_TO_BACKEND, id, this::getUsername, this::getCurrentServerName);
+        this.backendTraffic = TrafficHeavyHitters.getInstance().source(
+            TrafficHeavyHitters.Direction.BACKEND_TO_CLIENT, id, this::getUsername, this::getCurrentServerName);
+        this.streamMapper = new StreamMapper(id, channels, memory, clientTraffic, backendTraffic);
 
         extractCertificate(clientChannel);
     }
 
     private InetSocketAddress extractAddress(QuicChannel channel) {
-        SocketAddress addr = channel.remoteAddress();
+        // remoteAddress() is the QUIC connection ID; the UDP peer is the socket address
+        SocketAddress addr = channel.remoteSocketAddress();
+        if (addr instanceof InetSocketAddress inet) {
+            return inet;
+        }
+        addr = channel.remoteAddress();
         if (addr instanceof InetSocketAddress inet) {
             return inet;
         }
@@ -123,6 +159,13 @@ public final class ProxySession {
         return clientAddress;
     }
 
+    /**
+     * Gets the {@link System#nanoTime()} at which this session was created.
+     */
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+
     @Nonnull
     public PlayerIdentity getIdentity() {
         return identity.get();
@@ -159,8 +202,12 @@ public final class ProxySession {
     public void handleConnectPacket(@Nonnull Connect connect) {
         Objects.requireNonNull(connect, "connect");
         PlayerIdentity newIdentity = PlayerIdentity.fromConnect(connect);
-        identity.set(newIdentity);
+        PlayerIdentity previous = identity.getAndSet(newIdentity);
         authState.setOriginalConnect(connect);
+        // Indexed by username only once authenticated; drop a name indexed by an earlier identity
+        if (previous.username() != null && !previous.username().equals(newIdentity.username())) {
+            proxyCore.getSessionManager().unindexUsername(this, previous.username());
+        }
         LOGGER.info("Session {} identified: {}", id, newIdentity);
     }
 
@@ -177,12 +224,56 @@ public final class ProxySession {
         if (oldState != newState) {
             LOGGER.debug("Session {} state: {} -> {}", id, oldState, newState);
         }
+        if (newState == SessionState.CONNECTED || newState == SessionState.DISCONNECTED) {
+            releaseAdmission();
+        }
+        if (newState == SessionState.CONNECTED) {
+            finishLoginTrace();
+        }
+    }
+
+    private void finishLoginTrace() {
+        LoginTrace.Breakdown breakdown = loginTrace.finish(System.nanoTime());
+        if (breakdown == null) {
+            return;
+        }
+
+        ProxyMetrics metrics = ProxyMetrics.getInstance();
+        metrics.recordLoginTime(breakdown.totalNanos());
+        for (LoginPhase phase : LoginPhase.values()) {
+            metrics.recordLoginPhase(phase.tag(), breakdown.get(phase));
+        }
+
+        int slowMillis = proxyCore.getConfig().getSlowLoginThresholdMillis();
+        if (slowMillis > 0 && breakdown.totalNanos() >= TimeUnit.MILLISECONDS.toNanos(slowMillis)) {
+            LOGGER.warn("Session {}: Slow login for {}: {}", id, getUsername(), breakdown);
+        }
     }
 
     public boolean isActive() {
         return channels.isClientActive() && state.get() != SessionState.DISCONNECTED;
     }
 
+    // ==================== Login Admission ====================
+
+    /**
+     * Attaches the session's login admission ticket. The ticket is released when the
+     * session reaches {@link SessionState#CONNECTED} or disconnects.
+     */
+    public void setAdmissionTicket(@Nonnull AdmissionTicket ticket) {
+        admissionTicket.set(Objects.requireNonNull(ticket, "ticket"));
+        if (state.get() == SessionState.DISCONNECTED) {
+            releaseAdmission();
+        }
+    }
+
+    private void releaseAdmission() {
+        AdmissionTicket ticket = admissionTicket.getAndSet(null);
+        if (ticket != null) {
+            ticket.release();
+        }
+    }
+
     // ==================== Backend Server ====================
 
     @Nullable
@@ -243,6 +334,53 @@ public final class ProxySession {
         channels.setClientStream(stream);
     }
 
+    @Nonnull
+    public StreamMapper getStreamMapper() {
+        return streamMapper;
+    }
+
+    @Nonnull
+    public ConnectionQualityTracker getQualityTracker() {
+        return qualityTracker;
+    }
+
+    @Nonnull
+    public SessionMemory getMemory() {
+        return memory;
+    }
+
+    /**
+     * Gets the recorder of traffic read from the client.
+     */
+    @Nonnull
+    public TrafficHeavyHitters.Source getClientTraffic() {
+        return clientTraffic;
+    }
+
+    /**
+     * Gets the recorder of traffic read from the backend.
+     */
+    @Nonnull
+    public TrafficHeavyHitters.Source getBackendTraffic() {
+        return backendTraffic;
+    }
+
+    /**
+     * Gets the packet capture of this session, off unless started by an admin.
+     */
+    @Nonnull
+    public SessionCapture getCapture() {
+        return capture;
+    }
+
+    /**
+     * Gets the phase trace of this session's login.
+     */
+    @Nonnull
+    public LoginTrace getLoginTrace() {
+        return loginTrace;
+    }
+
     @Nullable
     public QuicChannel getBackendChannel() {
         return channels.backendChannel();
@@ -375,15 +513,45 @@ public final class ProxySession {
      */
     public void sendChatMessage(@Nonnull ChatMessageBuilder builder) {
         Objects.requireNonNull(builder, "builder");
-        ServerMessage msg = ChatMessageConverter.toServerMessage(builder);
+        sendOrQueue(ChatMessageConverter.toCachedServerMessage(builder, ChatType.Chat));
+    }
 
+    /**
+     * Sends a chat message template with its placeholders filled in.
+     * If the player is not fully connected, the message is queued for later delivery.
+     *
+     * @param template the message template
+     * @param placeholders placeholder values by name
+     */
+    public void sendChatMessage(@Nonnull ChatMessageTemplate template, @Nonnull Map<String, String> placeholders) {
+        Objects.requireNonNull(template, "template");
+        Objects.requireNonNull(placeholders, "placeholders");
+        sendOrQueue(ChatMessageConverter.toServerMessage(template, placeholders));
+    }
+
+    private void sendOrQueue(Packet msg) {
         // If player is connected, send immediately; otherwise queue
         if (state.get() == SessionState.CONNECTED) {
             sendToClient(msg);
         } else {
-            pendingMessages.offer(msg);
-            LOGGER.debug("Session {}: Queued message for delivery after connection", id);
+            queuePendingMessage(msg);
+        }
+    }
+
+    /**
+     * Queues an already converted message for delivery once the player is connected.
+     * Used by broadcasts, which share one encoded {@link ServerMessage} between all recipients.
+     *
+     * <p>The message is dropped if the session already queued
+     * {@link SessionMemory#MAX_PENDING_MESSAGE_BYTES} or the memory budget is under pressure.</p>
+     */
+    void queuePendingMessage(@Nonnull Packet msg) {
+        if (!memory.tryReservePendingMessage(msg.computeSize())) {
+            LOGGER.debug("Session {}: Dropped message, pending message queue is full", id);
+            return;
         }
+        pendingMessages.offer(msg);
+        LOGGER.debug("Session {}: Queued message for delivery after connection", id);
     }
 
     /**
@@ -391,9 +559,10 @@ public final class ProxySession {
      * Should be called when the player becomes fully connected.
      */
     public void flushPendingMessages() {
-        ServerMessage msg;
+        Packet msg;
         int count = 0;
         while ((msg = pendingMessages.poll()) != null) {
+            memory.releasePendingMessage(msg.computeSize());
             sendToClient(msg);
             count++;
         }
@@ -436,6 +605,7 @@ public final class ProxySession {
         LOGGER.info("Session {} disconnecting: {}", id, reason);
 
         state.set(SessionState.DISCONNECTED);
+        releaseAdmission();
 
         QuicStreamChannel stream = channels.clientStream();
         if (stream != null && stream.isActive()) {
@@ -453,6 +623,7 @@ public final class ProxySession {
      */
     public void close() {
         state.set(SessionState.DISCONNECTED);
+        releaseAdmission();
         channels.closeAll();
     }
 
@@ -460,8 +631,7 @@ public final class ProxySession {
      * Returns the player's ping in milliseconds, or -1 if unknown.
      */
     public long getPing() {
-        // TODO: Implement ping tracking
-        return -1;
+        return qualityTracker.getPingMillis();
     }
 
     // ==================== Server Transfer ====================
@@ -492,12 +662,14 @@ public final class ProxySession {
             current != null ? current.getName() : "none",
             newBackend.getName());
 
+        ServerSwitchEvent trace = ServerSwitchEvent.start();
         setState(SessionState.TRANSFERRING);
         serverTransfer = true;
         channels.closeBackend();
 
         Connect connectPacket = createTransferConnect();
         proxyCore.getBackendConnector().reconnect(this, newBackend, connectPacket);
+        trace.finish(id, current != null ? current.getName() : null, newBackend.getName());
 
         return true;
     }
@@ -1,17 +1,31 @@
 package me.internalizable.numdrassl.session;
 
+import com.hypixel.hytale.protocol.Packet;
+import com.hypixel.hytale.protocol.packets.interface_.ChatType;
+import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
 import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import me.internalizable.numdrassl.api.chat.ChatMessageBuilder;
+import me.internalizable.numdrassl.profiling.jfr.SessionCloseEvent;
+import me.internalizable.numdrassl.profiling.jfr.SessionOpenEvent;
+import me.internalizable.numdrassl.server.network.ChatMessageConverter;
+import me.internalizable.numdrassl.session.channel.PacketBroadcaster;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Thread-safe registry for managing active proxy sessions.
@@ -21,8 +35,13 @@ import java.util.concurrent.ConcurrentHashMap;
  *   <li>By session ID (always available)</li>
  *   <li>By QUIC channel (for network event handling)</li>
  *   <li>By player UUID (after authentication)</li>
+ *   <li>By username, case-insensitive, and by username prefix for tab completion
+ *       (once the player is authenticated and connected)</li>
  * </ul>
  *
+ * <p>Broadcasts go through {@link PacketBroadcaster}: the packet is encoded once
+ * and the shared frame is written to every target stream.</p>
+ *
  * <p>All operations are thread-safe and suitable for concurrent access
  * from multiple Netty event loop threads.</p>
  */
@@ -34,6 +53,10 @@ public final class SessionManager {
     private final Map<QuicChannel, ProxySession> sessionsByChannel = new ConcurrentHashMap<>();
     private final Map<UUID, ProxySession> sessionsByUuid = new ConcurrentHashMap<>();
 
+    // Keyed by lower-cased username. One sorted map serves both exact and prefix lookups,
+    // so the two can never disagree about who holds a name.
+    private final ConcurrentNavigableMap<String, ProxySession> sessionsByName = new ConcurrentSkipListMap<>();
+
     // ==================== Registration ====================
 
     /**
@@ -46,6 +69,7 @@ public final class SessionManager {
 
         sessionsById.put(session.getSessionId(), session);
         sessionsByChannel.put(session.getClientChannel(), session);
+        SessionOpenEvent.record(session.getSessionId(), session.getClientAddress());
 
         LOGGER.info("Session registered: {}", session.getSessionId());
     }
@@ -92,6 +116,60 @@ public final class SessionManager {
         sessionsByUuid.put(uuid, session);
     }
 
+    /**
+     * Indexes a session by its username.
+     *
+     * <p>Must only be called once the player is authenticated: the username comes from
+     * the client's Connect packet, so indexing earlier would let any client take over
+     * an online player's entry. The index is authoritative, so the newly authenticated
+     * session always takes the entry. If it belongs to the same player, the previous
+     * session is being kicked by {@link #registerPlayerUuid(ProxySession, boolean)};
+     * otherwise the previous holder's name is stale and it stays reachable by UUID.
+     * A session removed concurrently is not left behind in the index.</p>
+     *
+     * @param session the authenticated session
+     */
+    public void registerUsername(@Nonnull ProxySession session) {
+        Objects.requireNonNull(session, "session");
+
+        String username = session.getUsername();
+        if (username == null || username.isEmpty()) {
+            return;
+        }
+        String key = usernameKey(username);
+        ProxySession existing = sessionsByName.put(key, session);
+        if (existing != null && existing != session && isLive(existing) && !isSamePlayer(existing, session)) {
+            LOGGER.warn("Session {}: username {} was indexed for session {}, replacing it",
+                session.getSessionId(), username, existing.getSessionId());
+        }
+
+        if (!sessionsById.containsKey(session.getSessionId())) {
+            unindexUsername(session, username);
+        }
+    }
+
+    /**
+     * Removes a session's username index entry, if it still points at the session.
+     */
+    void unindexUsername(@Nonnull ProxySession session, @Nonnull String username) {
+        String key = usernameKey(username);
+        // Only remove if it's still mapped to this session
+        sessionsByName.remove(key, session);
+    }
+
+    private static String usernameKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private boolean isLive(ProxySession session) {
+        return sessionsById.containsKey(session.getSessionId()) && session.getState().isActive();
+    }
+
+    private static boolean isSamePlayer(ProxySession a, ProxySession b) {
+        UUID uuid = a.getPlayerUuid();
+        return uuid != null && uuid.equals(b.getPlayerUuid());
+    }
+
     // ==================== Removal ====================
 
     /**
@@ -104,6 +182,8 @@ public final class SessionManager {
 
         sessionsById.remove(session.getSessionId());
         sessionsByChannel.remove(session.getClientChannel());
+        session.getMemory().release();
+        session.getCapture().stop();
 
         UUID uuid = session.getPlayerUuid();
         if (uuid != null) {
@@ -111,6 +191,13 @@ public final class SessionManager {
             sessionsByUuid.remove(uuid, session);
         }
 
+        String username = session.getUsername();
+        if (username != null) {
+            unindexUsername(session, username);
+        }
+
+        SessionCloseEvent.record(session.getSessionId(), username, session.getCurrentServerName(),
+            System.nanoTime() - session.getCreatedNanos());
         LOGGER.info("Session removed: {}", session.getSessionId());
     }
 
@@ -151,6 +238,39 @@ public final class SessionManager {
         return Optional.ofNullable(sessionsByUuid.get(uuid));
     }
 
+    /**
+     * Finds an authenticated session by username, ignoring case.
+     *
+     * @param username the username
+     * @return the session, or empty if not found
+     */
+    @Nonnull
+    public Optional<ProxySession> findByUsername(@Nonnull String username) {
+        Objects.requireNonNull(username, "username");
+        return Optional.ofNullable(sessionsByName.get(usernameKey(username)));
+    }
+
+    /**
+     * Finds sessions whose username starts with a prefix, ignoring case.
+     *
+     * @param prefix the start of the username
+     * @param limit the maximum number of sessions to return
+     * @return the matching sessions, ordered by username
+     */
+    @Nonnull
+    public List<ProxySession> findByUsernamePrefix(@Nonnull String prefix, int limit) {
+        Objects.requireNonNull(prefix, "prefix");
+        String from = usernameKey(prefix);
+        List<ProxySession> matches = new ArrayList<>();
+        for (ProxySession session : sessionsByName.subMap(from, true, from + Character.MAX_VALUE, true).values()) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            matches.add(session);
+        }
+        return matches;
+    }
+
     // Legacy methods for backward compatibility
 
     /**
@@ -207,6 +327,79 @@ public final class SessionManager {
         return !sessionsById.isEmpty();
     }
 
+    // ==================== Broadcast ====================
+
+    /**
+     * Sends a packet to every session with an active client stream.
+     *
+     * <p>The packet is encoded once into a pooled frame that is shared by all
+     * recipients, and writes are batched per event loop.</p>
+     *
+     * @param packet the packet to broadcast
+     * @return the number of sessions the packet was queued for
+     */
+    public int broadcast(@Nonnull Packet packet) {
+        return broadcast(packet, sessionsById.values());
+    }
+
+    /**
+     * Sends a packet to the given sessions, encoding it only once.
+     *
+     * @param packet the packet to broadcast
+     * @param targets the sessions to send to; sessions without an active client stream are skipped
+     * @return the number of sessions the packet was queued for
+     */
+    public int broadcast(@Nonnull Packet packet, @Nonnull Collection<ProxySession> targets) {
+        Objects.requireNonNull(packet, "packet");
+        Objects.requireNonNull(targets, "targets");
+
+        List<QuicStreamChannel> streams = new ArrayList<>(targets.size());
+        for (ProxySession session : targets) {
+            QuicStreamChannel stream = session.getClientStream();
+            if (stream != null) {
+                streams.add(stream);
+            }
+        }
+        return PacketBroadcaster.broadcast(packet, streams);
+    }
+
+    /**
+     * Sends a plain text chat message to every session.
+     *
+     * @param message the message to send
+     * @return the number of sessions the message was sent to immediately
+     */
+    public int broadcastChatMessage(@Nonnull String message) {
+        Objects.requireNonNull(message, "message");
+        return broadcastChatMessage(ChatMessageBuilder.create().white(message));
+    }
+
+    /**
+     * Sends a formatted chat message to every session.
+     *
+     * <p>The message is converted and encoded once for all connected sessions.
+     * Sessions that are not yet {@link SessionState#CONNECTED} have the same
+     * {@link ServerMessage} queued for delivery after connection, matching
+     * {@link ProxySession#sendChatMessage(ChatMessageBuilder)}.</p>
+     *
+     * @param builder the formatted message
+     * @return the number of sessions the message was sent to immediately
+     */
+    public int broadcastChatMessage(@Nonnull ChatMessageBuilder builder) {
+        Objects.requireNonNull(builder, "builder");
+        Packet message = ChatMessageConverter.toCachedServerMessage(builder, ChatType.Chat);
+
+        List<ProxySession> connected = new ArrayList<>(sessionsById.size());
+        for (ProxySession session : sessionsById.values()) {
+            if (session.getState() == SessionState.CONNECTED) {
+                connected.add(session);
+            } else {
+                session.queuePendingMessage(message);
+            }
+        }
+        return broadcast(message, connected);
+    }
+
     // ==================== Lifecycle ====================
 
     /**
@@ -230,6 +423,7 @@ public final class SessionManager {
         sessionsById.clear();
         sessionsByChannel.clear();
         sessionsByUuid.clear();
+        sessionsByName.clear();
     }
 
     private void closeSessionSafely(ProxySession session) {
@@ -5,11 +5,11 @@ package me.internalizable.numdrassl.session;
  *
  * <p>State transitions follow this flow:</p>
  * <pre>
- * HANDSHAKING → AUTHENTICATING → CONNECTING → CONNECTED
- *                                     ↓
- *                              TRANSFERRING → CONNECTED
- *                                     ↓
- *                              DISCONNECTED
+ * HANDSHAKING → QUEUED → AUTHENTICATING → CONNECTING → CONNECTED
+ *                                              ↓
+ *                                       TRANSFERRING → CONNECTED
+ *                                              ↓
+ *                                       DISCONNECTED
  * </pre>
  */
 public enum SessionState {
@@ -19,6 +19,11 @@ public enum SessionState {
      */
     HANDSHAKING,
 
+    /**
+     * Connect received, waiting in the login queue for admission.
+     */
+    QUEUED,
+
     /**
      * Connect received, authenticating with Hytale session service.
      */
@@ -62,6 +67,6 @@ public enum SessionState {
      * Checks if this state is during the connection setup phase.
      */
     public boolean isConnecting() {
-        return this == HANDSHAKING || this == AUTHENTICATING || this == CONNECTING;
+        return this == HANDSHAKING || this == QUEUED || this == AUTHENTICATING || this == CONNECTING;
     }
 }
@@ -0,0 +1,29 @@
+package me.internalizable.numdrassl.session.capture;
+
+import javax.annotation.Nullable;
+
+/**
+ * Where a captured frame was taken.
+ */
+public enum CaptureDirection {
+
+    /** Read from the client by the client stream's decoder. */
+    FROM_CLIENT,
+    /** Written to the backend by the backend stream's encoder. */
+    TO_BACKEND,
+    /** Read from the backend by the backend stream's decoder. */
+    FROM_BACKEND,
+    /** Written to the client by the client stream's encoder. */
+    TO_CLIENT;
+
+    private static final CaptureDirection[] VALUES = values();
+
+    public boolean isInbound() {
+        return this == FROM_CLIENT || this == FROM_BACKEND;
+    }
+
+    @Nullable
+    static CaptureDirection byId(int id) {
+        return id >= 0 && id < VALUES.length ? VALUES[id] : null;
+    }
+}
@@ -0,0 +1,199 @@
+package me.internalizable.numdrassl.session.capture;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Compact file format for captured frames.
+ *
+ * <pre>
+ * file   := magic "NCAP" | version (byte) | frame*
+ * frame  := direction (byte) | nanos since previous frame (varint) | length (varint) | bytes
+ * </pre>
+ *
+ * <p>Frames are stored with their 8-byte protocol header, so they can be fed straight
+ * back into a {@code ProxyPacketDecoder}.</p>
+ */
+public final class CaptureFile {
+
+    private static final int MAGIC = 0x4E434150; // "NCAP"
+    private static final int VERSION = 1;
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+    private CaptureFile() {
+    }
+
+    /**
+     * Creates a capture file. On POSIX file systems the file is only readable and
+     * writable by its owner, since captures contain players' traffic.
+     */
+    @Nonnull
+    public static Writer writer(@Nonnull Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.deleteIfExists(file);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        }
+        return new Writer(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))));
+    }
+
+    @Nonnull
+    public static Reader reader(@Nonnull Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported capture file version " + version + ": " + file);
+            }
+            return new Reader(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * A captured frame.
+     *
+     * @param direction where the frame was captured
+     * @param nanos time since the first frame of the capture
+     * @param data the frame, including its header
+     */
+    public record Frame(@Nonnull CaptureDirection direction, long nanos, @Nonnull byte[] data) {
+    }
+
+    // ==================== Writing ====================
+
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private long firstNanos;
+        private long lastNanos;
+        private int frames;
+
+        private Writer(DataOutputStream out) throws IOException {
+            this.out = out;
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+        }
+
+        /**
+         * Appends a frame. Frames must be written in capture order.
+         *
+         * @param nanos the {@link System#nanoTime()} at which the frame was captured
+         */
+        public void write(@Nonnull CaptureDirection direction, long nanos, @Nonnull byte[] data) throws IOException {
+            if (frames == 0) {
+                firstNanos = nanos;
+                lastNanos = nanos;
+            }
+            out.writeByte(direction.ordinal());
+            writeVarLong(Math.max(0, nanos - lastNanos));
+            writeVarLong(data.length);
+            out.write(data);
+            lastNanos = nanos;
+            frames++;
+        }
+
+        public int getFrames() {
+            return frames;
+        }
+
+        /**
+         * Gets the time between the first and the last frame written.
+         */
+        public long getDurationNanos() {
+            return lastNanos - firstNanos;
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    // ==================== Reading ====================
+
+    public static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private long nanos;
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads the next frame.
+         *
+         * @return the frame, or null at the end of the file
+         */
+        @Nullable
+        public Frame next() throws IOException {
+            int directionId = in.read();
+            if (directionId < 0) {
+                return null;
+            }
+            CaptureDirection direction = CaptureDirection.byId(directionId);
+            if (direction == null) {
+                throw new IOException("Invalid frame direction: " + directionId);
+            }
+            nanos += readVarLong();
+            long length = readVarLong();
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            byte[] data = new byte[(int) length];
+            in.readFully(data);
+            return new Frame(direction, nanos, data);
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Truncated capture file");
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
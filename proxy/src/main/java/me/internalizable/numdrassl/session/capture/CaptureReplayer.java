@@ -0,0 +1,162 @@
+package me.internalizable.numdrassl.session.capture;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import me.internalizable.numdrassl.pipeline.codec.ProxyPacketDecoder;
+import me.internalizable.numdrassl.pipeline.codec.ProxyPacketEncoder;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a {@link CaptureFile} through {@link ProxyPacketDecoder}, a chain of handlers
+ * and {@link ProxyPacketEncoder} in an {@link EmbeddedChannel}.
+ *
+ * <p>The inbound frames of one side are written to the channel at their captured pace
+ * divided by the speed. Every message that reaches the end of the handler chain is
+ * written back through the encoder. The result counts frames and bytes on both ends,
+ * so a replay works as a benchmark of the handlers and as a check that a capture
+ * still round-trips.</p>
+ *
+ * <p>Run it from the command line with
+ * {@code java -cp <proxy jar> me.internalizable.numdrassl.session.capture.CaptureReplayer <file> [speed]}
+ * or from the console with {@code capture replay}.</p>
+ */
+public final class CaptureReplayer {
+
+    public static final double MAX_SPEED = 100;
+
+    private final Path file;
+    private final CaptureDirection direction;
+    private final double speed;
+
+    /**
+     * @param file the capture to replay
+     * @param direction the inbound frames to replay, {@link CaptureDirection#FROM_CLIENT}
+     *                  or {@link CaptureDirection#FROM_BACKEND}
+     * @param speed how many times faster than captured, up to {@link #MAX_SPEED};
+     *              0 to replay as fast as possible
+     */
+    public CaptureReplayer(@Nonnull Path file, @Nonnull CaptureDirection direction, double speed) {
+        this.file = Objects.requireNonNull(file, "file");
+        this.direction = Objects.requireNonNull(direction, "direction");
+        if (!direction.isInbound()) {
+            throw new IllegalArgumentException("Only inbound frames can be replayed: " + direction);
+        }
+        if (!(speed >= 0 && speed <= MAX_SPEED)) {
+            throw new IllegalArgumentException("Speed must be between 0 and " + MAX_SPEED + ": " + speed);
+        }
+        this.speed = speed;
+    }
+
+    /**
+     * Replays the capture.
+     *
+     * @param handlers handlers to place between the decoder and the encoder
+     * @return counts and timing of the replay
+     * @throws IOException if the capture cannot be read
+     */
+    @Nonnull
+    public Result replay(@Nonnull ChannelHandler... handlers) throws IOException {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.pipeline().addLast(new ProxyPacketEncoder("replay", false));
+        channel.pipeline().addLast(new ProxyPacketDecoder(ProxyPacketDecoder.options("replay", false)));
+        channel.pipeline().addLast(handlers);
+        channel.pipeline().addLast(new Loopback());
+
+        int framesIn = 0;
+        long bytesIn = 0;
+        int framesOut = 0;
+        long bytesOut = 0;
+        long start = System.nanoTime();
+
+        try (CaptureFile.Reader reader = CaptureFile.reader(file)) {
+            CaptureFile.Frame frame;
+            long firstNanos = -1;
+            while ((frame = reader.next()) != null) {
+                if (frame.direction() != direction) {
+                    continue;
+                }
+                if (firstNanos < 0) {
+                    firstNanos = frame.nanos();
+                }
+                if (speed > 0) {
+                    long due = start + (long) ((frame.nanos() - firstNanos) / speed);
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+
+                channel.writeInbound(Unpooled.wrappedBuffer(frame.data()));
+                framesIn++;
+                bytesIn += frame.data().length;
+
+                ByteBuf out;
+                while ((out = channel.readOutbound()) != null) {
+                    framesOut++;
+                    bytesOut += out.readableBytes();
+                    out.release();
+                }
+            }
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+
+        return new Result(framesIn, bytesIn, framesOut, bytesOut, System.nanoTime() - start);
+    }
+
+    /**
+     * Outcome of a replay.
+     */
+    public record Result(int framesIn, long bytesIn, int framesOut, long bytesOut, long elapsedNanos) {
+
+        public double framesPerSecond() {
+            return elapsedNanos > 0 ? framesIn * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d frames (%d bytes) in, %d frames (%d bytes) out in %.1f ms, %.0f frames/s",
+                framesIn, bytesIn, framesOut, bytesOut, elapsedNanos / 1e6, framesPerSecond());
+        }
+    }
+
+    /**
+     * Writes every message that reaches the end of the pipeline back out through the encoder.
+     */
+    private static final class Loopback extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.writeAndFlush(msg);
+        }
+    }
+
+    /**
+     * Replays the client frames of a capture file without extra handlers.
+     *
+     * <p>Arguments: {@code <file> [speed] [from_client|from_backend]}</p>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CaptureReplayer <file> [speed] [from_client|from_backend]");
+            System.exit(1);
+        }
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+        CaptureDirection direction = args.length > 2
+            ? CaptureDirection.valueOf(args[2].toUpperCase(Locale.ROOT))
+            : CaptureDirection.FROM_CLIENT;
+        Result result = new CaptureReplayer(Paths.get(args[0]), direction, speed).replay();
+        System.out.println(result);
+    }
+}
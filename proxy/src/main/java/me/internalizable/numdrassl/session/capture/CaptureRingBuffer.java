@@ -0,0 +1,145 @@
+package me.internalizable.numdrassl.session.capture;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Bounded off-heap ring of captured frames. When full, the oldest frames are evicted.
+ *
+ * <p>Each record is laid out as {@code [int length][long nanos][byte direction][bytes]}
+ * and may wrap around the end of the buffer. Not thread-safe; {@link SessionCapture}
+ * synchronizes access.</p>
+ */
+final class CaptureRingBuffer {
+
+    static final int RECORD_HEADER_BYTES = Integer.BYTES + Long.BYTES + 1;
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+
+    // Absolute positions; offsets in the buffer are taken modulo capacity
+    private long head;
+    private long tail;
+    private int frames;
+    private long evictedFrames;
+
+    CaptureRingBuffer(int capacity) {
+        if (capacity <= RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("capacity too small: " + capacity);
+        }
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Appends a frame, evicting old frames to make room.
+     *
+     * @return false if the frame is larger than the whole buffer
+     */
+    boolean append(CaptureDirection direction, long nanos, ByteBuf frame, int index, int length) {
+        int recordSize = RECORD_HEADER_BYTES + length;
+        if (recordSize > capacity) {
+            return false;
+        }
+        while (tail + recordSize - head > capacity) {
+            head += RECORD_HEADER_BYTES + readInt(head);
+            frames--;
+            evictedFrames++;
+        }
+
+        long pos = tail;
+        pos = writeInt(pos, length);
+        pos = writeLong(pos, nanos);
+        buffer.put(offset(pos), (byte) direction.ordinal());
+        pos++;
+
+        int offset = offset(pos);
+        int firstPart = Math.min(length, capacity - offset);
+        frame.getBytes(index, buffer.slice(offset, firstPart));
+        if (firstPart < length) {
+            frame.getBytes(index + firstPart, buffer.slice(0, length - firstPart));
+        }
+
+        tail += recordSize;
+        frames++;
+        return true;
+    }
+
+    /**
+     * Visits the retained frames, oldest first.
+     */
+    void forEach(FrameVisitor visitor) throws IOException {
+        long pos = head;
+        while (pos < tail) {
+            int length = readInt(pos);
+            long nanos = readLong(pos + Integer.BYTES);
+            CaptureDirection direction = CaptureDirection.byId(buffer.get(offset(pos + Integer.BYTES + Long.BYTES)));
+            byte[] bytes = new byte[length];
+            long dataPos = pos + RECORD_HEADER_BYTES;
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(offset(dataPos + i));
+            }
+            visitor.visit(direction, nanos, bytes);
+            pos = dataPos + length;
+        }
+    }
+
+    int getFrames() {
+        return frames;
+    }
+
+    long getEvictedFrames() {
+        return evictedFrames;
+    }
+
+    long getUsedBytes() {
+        return tail - head;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    // ==================== Wrapping Access ====================
+
+    private int offset(long pos) {
+        return (int) (pos % capacity);
+    }
+
+    private long writeInt(long pos, int value) {
+        for (int i = 0; i < Integer.BYTES; i++) {
+            buffer.put(offset(pos + i), (byte) (value >>> (8 * i)));
+        }
+        return pos + Integer.BYTES;
+    }
+
+    private long writeLong(long pos, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            buffer.put(offset(pos + i), (byte) (value >>> (8 * i)));
+        }
+        return pos + Long.BYTES;
+    }
+
+    private int readInt(long pos) {
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value |= (buffer.get(offset(pos + i)) & 0xFF) << (8 * i);
+        }
+        return value;
+    }
+
+    private long readLong(long pos) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value |= (buffer.get(offset(pos + i)) & 0xFFL) << (8 * i);
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    interface FrameVisitor {
+        void visit(CaptureDirection direction, long nanos, byte[] frame) throws IOException;
+    }
+}
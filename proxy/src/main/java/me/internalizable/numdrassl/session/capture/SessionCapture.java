@@ -0,0 +1,191 @@
+package me.internalizable.numdrassl.session.capture;
+
+import com.hypixel.hytale.protocol.Packet;
+import com.hypixel.hytale.protocol.PacketRegistry;
+import com.hypixel.hytale.protocol.packets.auth.AuthGrant;
+import com.hypixel.hytale.protocol.packets.auth.AuthToken;
+import com.hypixel.hytale.protocol.packets.auth.ClientReferral;
+import com.hypixel.hytale.protocol.packets.auth.PasswordResponse;
+import com.hypixel.hytale.protocol.packets.auth.ServerAuthToken;
+import com.hypixel.hytale.protocol.packets.connection.Connect;
+import io.netty.buffer.ByteBuf;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in capture of one session's framed packets in both directions.
+ *
+ * <p>Capturing is off until {@link #start(int)}. While it is off, a {@link Tap} costs a
+ * volatile read per frame. While it is on, every frame read by the primary streams'
+ * decoders and written by their encoders is copied into a bounded off-heap
+ * {@link CaptureRingBuffer}. Once the buffer is full, the oldest frames are dropped.
+ * {@link #dump(Path)} writes the retained frames as a {@link CaptureFile}.</p>
+ *
+ * <p>Frames of packets that carry credentials are never recorded: Connect (identity
+ * token and signed referral data), AuthGrant, AuthToken, ServerAuthToken,
+ * PasswordResponse and ClientReferral. They are only counted, so the rest of a capture
+ * still replays.</p>
+ */
+public final class SessionCapture {
+
+    public static final int DEFAULT_CAPACITY_BYTES = 8 * 1024 * 1024;
+    public static final int MAX_CAPACITY_BYTES = 256 * 1024 * 1024;
+
+    private static final int[] SENSITIVE_PACKET_IDS = packetIds(
+        Connect.class, AuthGrant.class, AuthToken.class, ServerAuthToken.class,
+        PasswordResponse.class, ClientReferral.class);
+
+    private static final int PACKET_ID_OFFSET = 4;
+
+    private volatile CaptureRingBuffer ring;
+    private final LongAdder skippedFrames = new LongAdder();
+
+    /**
+     * Starts capturing, discarding any previous capture.
+     *
+     * @param capacityBytes off-heap bytes to retain frames in
+     */
+    public synchronized void start(int capacityBytes) {
+        if (capacityBytes <= CaptureRingBuffer.RECORD_HEADER_BYTES || capacityBytes > MAX_CAPACITY_BYTES) {
+            throw new IllegalArgumentException("Capture capacity must be up to " + MAX_CAPACITY_BYTES + " bytes");
+        }
+        ring = new CaptureRingBuffer(capacityBytes);
+        skippedFrames.reset();
+    }
+
+    /**
+     * Stops capturing and discards the captured frames.
+     */
+    public synchronized void stop() {
+        ring = null;
+    }
+
+    public boolean isActive() {
+        return ring != null;
+    }
+
+    /**
+     * Gets the number of frames currently retained.
+     */
+    public synchronized int getFrames() {
+        CaptureRingBuffer r = ring;
+        return r != null ? r.getFrames() : 0;
+    }
+
+    /**
+     * Gets the number of frames evicted to make room for newer ones.
+     */
+    public synchronized long getEvictedFrames() {
+        CaptureRingBuffer r = ring;
+        return r != null ? r.getEvictedFrames() : 0;
+    }
+
+    /**
+     * Gets the number of credential-carrying frames left out of the capture.
+     */
+    public long getSkippedFrames() {
+        return skippedFrames.sum();
+    }
+
+    /**
+     * Gets the bytes of the ring buffer in use.
+     */
+    public synchronized long getUsedBytes() {
+        CaptureRingBuffer r = ring;
+        return r != null ? r.getUsedBytes() : 0;
+    }
+
+    /**
+     * Writes the retained frames to a file. Capturing continues.
+     *
+     * @param file the file to write
+     * @return the number of frames written
+     * @throws IllegalStateException if not capturing
+     * @throws IOException if writing fails
+     */
+    public synchronized int dump(@Nonnull Path file) throws IOException {
+        Objects.requireNonNull(file, "file");
+        CaptureRingBuffer r = ring;
+        if (r == null) {
+            throw new IllegalStateException("Not capturing");
+        }
+        try (CaptureFile.Writer writer = CaptureFile.writer(file)) {
+            r.forEach(writer::write);
+            return writer.getFrames();
+        }
+    }
+
+    /**
+     * Creates the tap of one capture point.
+     */
+    @Nonnull
+    public Tap tap(@Nonnull CaptureDirection direction) {
+        return new Tap(this, direction);
+    }
+
+    private static boolean isSensitive(ByteBuf frame, int index, int length) {
+        if (length < PACKET_ID_OFFSET + Integer.BYTES) {
+            return false;
+        }
+        int packetId = frame.getIntLE(index + PACKET_ID_OFFSET);
+        for (int id : SENSITIVE_PACKET_IDS) {
+            if (id == packetId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SafeVarargs
+    private static int[] packetIds(Class<? extends Packet>... types) {
+        int[] ids = new int[types.length];
+        for (int i = 0; i < types.length; i++) {
+            ids[i] = Objects.requireNonNull(PacketRegistry.getId(types[i]), types[i].getSimpleName());
+        }
+        return ids;
+    }
+
+    private synchronized void record(CaptureDirection direction, ByteBuf frame, int index, int length) {
+        CaptureRingBuffer r = ring;
+        if (r != null) {
+            r.append(direction, System.nanoTime(), frame, index, length);
+        }
+    }
+
+    /**
+     * Records the frames passing one point of the pipeline.
+     */
+    public static final class Tap {
+
+        private final SessionCapture capture;
+        private final CaptureDirection direction;
+
+        private Tap(SessionCapture capture, CaptureDirection direction) {
+            this.capture = capture;
+            this.direction = Objects.requireNonNull(direction, "direction");
+        }
+
+        /**
+         * Records a frame if capturing, unless it carries credentials. The frame is
+         * copied; the buffer is not retained or modified.
+         *
+         * @param frame the buffer holding the frame
+         * @param index the index of the frame's first byte
+         * @param length the frame's length, including its header
+         */
+        public void record(@Nonnull ByteBuf frame, int index, int length) {
+            if (capture.ring == null) {
+                return;
+            }
+            if (isSensitive(frame, index, length)) {
+                capture.skippedFrames.increment();
+                return;
+            }
+            capture.record(direction, frame, index, length);
+        }
+    }
+}
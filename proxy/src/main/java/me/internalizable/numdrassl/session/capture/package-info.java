@@ -0,0 +1,18 @@
+/**
+ * Packet capture and replay of individual sessions.
+ *
+ * <p>Captures are opt-in per session and kept off-heap in a bounded ring buffer. They
+ * can be dumped to a compact file and replayed through the packet codec at the
+ * captured pace or faster, to reproduce protocol bugs and measure codec throughput.</p>
+ *
+ * <h2>Key Classes</h2>
+ * <ul>
+ *   <li>{@link me.internalizable.numdrassl.session.capture.SessionCapture} - One session's
+ *       capture and the taps the codecs record frames through.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.capture.CaptureFile} - The {@code .ncap}
+ *       file format of dumped captures.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.capture.CaptureReplayer} - Feeds a
+ *       capture through the decoder and encoder on an embedded channel.</li>
+ * </ul>
+ */
+package me.internalizable.numdrassl.session.capture;
@@ -0,0 +1,143 @@
+package me.internalizable.numdrassl.session.channel;
+
+import com.hypixel.hytale.protocol.Packet;
+import com.hypixel.hytale.protocol.io.PacketIO;
+import com.hypixel.hytale.protocol.io.PacketStatsRecorder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.EventLoop;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import me.internalizable.numdrassl.pipeline.codec.ProxyPacketEncoder;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Writes one packet to many client streams while encoding it only once.
+ *
+ * <p>The packet is serialized into a single pooled, pre-framed {@link ByteBuf}
+ * (length + packet ID header included). Each target stream receives a
+ * {@link ByteBuf#retainedDuplicate() retained duplicate} of that buffer, so the
+ * payload bytes are shared and the encoder simply forwards them as a raw frame.</p>
+ *
+ * <p>Streams are grouped by event loop: every loop receives exactly one task that
+ * writes to all of its streams and flushes them, instead of one task per player.</p>
+ *
+ * <p>Ownership: the broadcaster owns the encoded frame. One reference is held per
+ * scheduled event loop group and released once that group has been written, and the
+ * initial reference is released before {@link #broadcast} returns.</p>
+ */
+public final class PacketBroadcaster {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PacketBroadcaster.class);
+
+    private PacketBroadcaster() {
+    }
+
+    /**
+     * Encodes a packet once and writes it to every active stream.
+     *
+     * @param packet the packet to broadcast
+     * @param streams the target client streams; inactive or {@code null} entries are skipped
+     * @return the number of streams the packet was queued for
+     */
+    public static int broadcast(@Nonnull Packet packet, @Nonnull Iterable<QuicStreamChannel> streams) {
+        Objects.requireNonNull(packet, "packet");
+        Objects.requireNonNull(streams, "streams");
+
+        Map<EventLoop, List<QuicStreamChannel>> byLoop = groupByEventLoop(streams);
+        if (byLoop.isEmpty()) {
+            return 0;
+        }
+
+        ByteBuf frame = encode(packet, byLoop.values().iterator().next().get(0).alloc());
+        int frameSize = frame.readableBytes();
+        int queued = 0;
+        try {
+            for (Map.Entry<EventLoop, List<QuicStreamChannel>> entry : byLoop.entrySet()) {
+                if (dispatch(entry.getKey(), entry.getValue(), frame)) {
+                    queued += entry.getValue().size();
+                }
+            }
+        } finally {
+            frame.release();
+        }
+
+        recordMetrics(packet, frameSize, queued);
+        return queued;
+    }
+
+    // ==================== Internal ====================
+
+    private static Map<EventLoop, List<QuicStreamChannel>> groupByEventLoop(Iterable<QuicStreamChannel> streams) {
+        Map<EventLoop, List<QuicStreamChannel>> byLoop = new IdentityHashMap<>();
+        for (QuicStreamChannel stream : streams) {
+            if (stream == null || !stream.isActive()) {
+                continue;
+            }
+            byLoop.computeIfAbsent(stream.eventLoop(), loop -> new ArrayList<>()).add(stream);
+        }
+        return byLoop;
+    }
+
+    private static ByteBuf encode(Packet packet, ByteBufAllocator alloc) {
+        // The pipelines' allocator, so the shared frame shows up in its metrics
+        ByteBuf frame = alloc.directBuffer();
+        try {
+            PacketIO.writeFramedPacket(packet, ProxyPacketEncoder.packetClass(packet), frame, PacketStatsRecorder.NOOP);
+            return frame;
+        } catch (RuntimeException e) {
+            frame.release();
+            throw e;
+        }
+    }
+
+    private static boolean dispatch(EventLoop loop, List<QuicStreamChannel> streams, ByteBuf frame) {
+        ByteBuf shared = frame.retainedDuplicate();
+
+        if (loop.inEventLoop()) {
+            writeAll(streams, shared);
+            return true;
+        }
+
+        try {
+            loop.execute(() -> writeAll(streams, shared));
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Broadcast rejected by event loop, dropping {} recipient(s)", streams.size());
+            shared.release();
+            return false;
+        }
+    }
+
+    private static void writeAll(List<QuicStreamChannel> streams, ByteBuf shared) {
+        try {
+            for (QuicStreamChannel stream : streams) {
+                if (!stream.isActive()) {
+                    continue;
+                }
+                stream.write(shared.retainedDuplicate()).addListener(future -> {
+                    if (!future.isSuccess()) {
+                        LOGGER.debug("Broadcast write failed on stream {}", stream.id(), future.cause());
+                    }
+                });
+                stream.flush();
+            }
+        } finally {
+            shared.release();
+        }
+    }
+
+    private static void recordMetrics(Packet packet, int bytes, int recipients) {
+        String packetType = ProxyPacketEncoder.packetClass(packet).getSimpleName();
+        ProxyMetrics.getInstance().recordPacketsToClient(packetType, bytes, recipients);
+    }
+}
@@ -2,7 +2,10 @@ package me.internalizable.numdrassl.session.channel;
 
 import com.hypixel.hytale.protocol.Packet;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.incubator.codec.quic.QuicStreamChannel;
+import io.netty.util.Recycler;
+import me.internalizable.numdrassl.pipeline.codec.ProxyPacketEncoder;
 import me.internalizable.numdrassl.profiling.ProxyMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +20,10 @@ import java.util.Objects;
  * preventing race conditions and ensuring proper Netty channel handling.</p>
  *
  * <p>ByteBuf resources are properly released if sending fails.</p>
+ *
+ * <p>Sending does not allocate per packet: the write listeners are created once per
+ * sender, and a send from another thread is handed to the event loop as a pooled
+ * {@link WriteTask}.</p>
  */
 public final class PacketSender {
 
@@ -24,10 +31,14 @@ public final class PacketSender {
 
     private final long sessionId;
     private final SessionChannels channels;
+    private final ChannelFutureListener clientWriteListener;
+    private final ChannelFutureListener backendWriteListener;
 
     public PacketSender(long sessionId, @Nonnull SessionChannels channels) {
         this.sessionId = sessionId;
         this.channels = Objects.requireNonNull(channels, "channels");
+        this.clientWriteListener = writeListener("client");
+        this.backendWriteListener = writeListener("backend");
     }
 
     // ==================== Send to Client ====================
@@ -42,9 +53,9 @@ public final class PacketSender {
     public boolean sendToClient(@Nonnull Packet packet) {
         Objects.requireNonNull(packet, "packet");
         QuicStreamChannel stream = channels.clientStream();
-        boolean result = sendToStream(stream, packet, "client");
+        boolean result = sendToStream(stream, packet, "client", clientWriteListener);
         if (result) {
-            ProxyMetrics.getInstance().recordPacketToClient(packet.getClass().getSimpleName(), 0);
+            ProxyMetrics.getInstance().recordPacketToClient(ProxyPacketEncoder.packetClass(packet).getSimpleName(), 0);
         }
         return result;
     }
@@ -60,7 +71,7 @@ public final class PacketSender {
         Objects.requireNonNull(data, "data");
         QuicStreamChannel stream = channels.clientStream();
         int bytes = data.readableBytes();
-        boolean result = sendToStream(stream, data, "client");
+        boolean result = sendToStream(stream, data, "client", clientWriteListener);
         if (result) {
             ProxyMetrics.getInstance().recordPacketToClient("RawPacket", bytes);
         }
@@ -79,9 +90,9 @@ public final class PacketSender {
     public boolean sendToBackend(@Nonnull Packet packet) {
         Objects.requireNonNull(packet, "packet");
         QuicStreamChannel stream = channels.backendStream();
-        boolean result = sendToStream(stream, packet, "backend");
+        boolean result = sendToStream(stream, packet, "backend", backendWriteListener);
         if (result) {
-            ProxyMetrics.getInstance().recordPacketToBackend(packet.getClass().getSimpleName(), 0);
+            ProxyMetrics.getInstance().recordPacketToBackend(ProxyPacketEncoder.packetClass(packet).getSimpleName(), 0);
         }
         return result;
     }
@@ -97,7 +108,7 @@ public final class PacketSender {
         Objects.requireNonNull(data, "data");
         QuicStreamChannel stream = channels.backendStream();
         int bytes = data.readableBytes();
-        boolean result = sendToStream(stream, data, "backend");
+        boolean result = sendToStream(stream, data, "backend", backendWriteListener);
         if (result) {
             ProxyMetrics.getInstance().recordPacketToBackend("RawPacket", bytes);
         }
@@ -106,7 +117,8 @@ public final class PacketSender {
 
     // ==================== Internal ====================
 
-    private boolean sendToStream(QuicStreamChannel stream, Object message, String target) {
+    private boolean sendToStream(QuicStreamChannel stream, Object message, String target,
+                                 ChannelFutureListener listener) {
         if (stream == null || !stream.isActive()) {
             LOGGER.warn("Session {}: Cannot send to {} - stream not active", sessionId, target);
             releaseIfByteBuf(message);
@@ -114,35 +126,83 @@ public final class PacketSender {
         }
 
         if (stream.eventLoop().inEventLoop()) {
-            doWrite(stream, message, target);
+            stream.writeAndFlush(message).addListener(listener);
         } else {
 
             //bytebuf released by SimpleChannelInbound so no need to track
 
-            stream.eventLoop().execute(() -> {
-                if (stream.isActive()) {
-                    doWrite(stream, message, target);
-                } else {
-                    LOGGER.warn("Session {}: Stream became inactive before send to {}", sessionId, target);
-                    releaseIfByteBuf(message);
-                }
-            });
+            stream.eventLoop().execute(WriteTask.obtain(this, stream, message, target, listener));
         }
         return true;
     }
 
-    private void doWrite(QuicStreamChannel stream, Object message, String target) {
-        stream.writeAndFlush(message).addListener(future -> {
+    private ChannelFutureListener writeListener(String target) {
+        return future -> {
             if (!future.isSuccess()) {
                 LOGGER.warn("Session {}: Failed to send to {}", sessionId, target, future.cause());
             }
-        });
+        };
     }
 
-    private void releaseIfByteBuf(Object obj) {
+    private static void releaseIfByteBuf(Object obj) {
         if (obj instanceof ByteBuf buf && buf.refCnt() > 0) {
             buf.release();
         }
     }
+
+    /**
+     * A send handed to a stream's event loop. Tasks are pooled: the sending thread takes
+     * one, and the event loop returns it once the write is issued.
+     */
+    private static final class WriteTask implements Runnable {
+
+        private static final Recycler<WriteTask> RECYCLER = new Recycler<>() {
+            @Override
+            protected WriteTask newObject(Handle<WriteTask> handle) {
+                return new WriteTask(handle);
+            }
+        };
+
+        private final Recycler.Handle<WriteTask> handle;
+        private PacketSender sender;
+        private QuicStreamChannel stream;
+        private Object message;
+        private String target;
+        private ChannelFutureListener listener;
+
+        private WriteTask(Recycler.Handle<WriteTask> handle) {
+            this.handle = handle;
+        }
+
+        static WriteTask obtain(PacketSender sender, QuicStreamChannel stream, Object message,
+                                String target, ChannelFutureListener listener) {
+            WriteTask task = RECYCLER.get();
+            task.sender = sender;
+            task.stream = stream;
+            task.message = message;
+            task.target = target;
+            task.listener = listener;
+            return task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (stream.isActive()) {
+                    stream.writeAndFlush(message).addListener(listener);
+                } else {
+                    LOGGER.warn("Session {}: Stream became inactive before send to {}", sender.sessionId, target);
+                    releaseIfByteBuf(message);
+                }
+            } finally {
+                sender = null;
+                stream = null;
+                message = null;
+                target = null;
+                listener = null;
+                handle.recycle(this);
+            }
+        }
+    }
 }
 
@@ -52,6 +52,15 @@ public final class SessionChannels {
         clientStream.set(stream);
     }
 
+    /**
+     * Sets the primary client stream unless one is already set.
+     *
+     * @return true if {@code stream} became the primary stream
+     */
+    public boolean setClientStreamIfAbsent(@Nonnull QuicStreamChannel stream) {
+        return clientStream.compareAndSet(null, stream);
+    }
+
     public boolean isClientActive() {
         return clientChannel.isActive();
     }
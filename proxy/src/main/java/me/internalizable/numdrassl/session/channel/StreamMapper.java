@@ -0,0 +1,154 @@
+package me.internalizable.numdrassl.session.channel;
+
+import io.netty.channel.ChannelInitializer;
+import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import me.internalizable.numdrassl.pipeline.codec.RawFrameDecoder;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.profiling.TrafficHeavyHitters;
+import me.internalizable.numdrassl.session.memory.SessionMemory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps additional QUIC streams 1:1 between the client and backend connections.
+ *
+ * <p>The first bidirectional client stream is the session's primary stream; it is
+ * decoded, dispatched to event listeners and paired with the backend stream the
+ * proxy opens for login. Every further stream, whichever side opens it, gets a
+ * matching stream of the same type on the other connection. The pair is relayed
+ * frame by frame through {@link StreamRelayHandler}, with a {@link RawFrameDecoder}
+ * per stream, so bulk transfers on one stream cannot head-of-line block gameplay
+ * traffic on another.</p>
+ *
+ * <p>A newly opened stream does not read until its peer exists. Closing either
+ * stream of a pair closes the other; pairs on the backend side disappear with
+ * the backend connection on a server transfer.</p>
+ */
+public final class StreamMapper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamMapper.class);
+
+    static final String CLIENT_TO_BACKEND = "client_to_backend";
+    static final String BACKEND_TO_CLIENT = "backend_to_client";
+
+    private final long sessionId;
+    private final SessionChannels channels;
+    private final SessionMemory memory;
+    private final TrafficHeavyHitters.Source clientTraffic;
+    private final TrafficHeavyHitters.Source backendTraffic;
+    private final AtomicInteger activePairs = new AtomicInteger();
+
+    public StreamMapper(long sessionId, @Nonnull SessionChannels channels, @Nonnull SessionMemory memory,
+                        @Nonnull TrafficHeavyHitters.Source clientTraffic,
+                        @Nonnull TrafficHeavyHitters.Source backendTraffic) {
+        this.sessionId = sessionId;
+        this.channels = Objects.requireNonNull(channels, "channels");
+        this.memory = Objects.requireNonNull(memory, "memory");
+        this.clientTraffic = Objects.requireNonNull(clientTraffic, "clientTraffic");
+        this.backendTraffic = Objects.requireNonNull(backendTraffic, "backendTraffic");
+    }
+
+    /**
+     * Pairs a stream opened by the client (other than the primary stream) with a new backend stream.
+     * Must be called from the stream's channel initializer.
+     */
+    public void mapClientStream(@Nonnull QuicStreamChannel clientStream) {
+        Objects.requireNonNull(clientStream, "clientStream");
+        QuicChannel backend = channels.backendChannel();
+        if (backend == null || !backend.isActive()) {
+            LOGGER.warn("Session {}: Client opened stream {} with no backend connection, closing it",
+                sessionId, clientStream.streamId());
+            clientStream.close();
+            return;
+        }
+        openPeer(clientStream, backend, CLIENT_TO_BACKEND, BACKEND_TO_CLIENT, "client", "backend-server");
+    }
+
+    /**
+     * Pairs a stream opened by the backend with a new client stream.
+     * Must be called from the stream's channel initializer.
+     */
+    public void mapBackendStream(@Nonnull QuicStreamChannel backendStream) {
+        Objects.requireNonNull(backendStream, "backendStream");
+        QuicChannel client = channels.clientChannel();
+        if (!client.isActive()) {
+            backendStream.close();
+            return;
+        }
+        openPeer(backendStream, client, BACKEND_TO_CLIENT, CLIENT_TO_BACKEND, "backend-server", "client");
+    }
+
+    /**
+     * Gets the number of stream pairs currently relayed for this session.
+     */
+    public int getActivePairs() {
+        return activePairs.get();
+    }
+
+    // ==================== Internal ====================
+
+    private void openPeer(QuicStreamChannel source, QuicChannel target,
+                          String sourceDirection, String peerDirection,
+                          String sourceType, String peerType) {
+        // Hold inbound data until the peer stream exists
+        source.config().setAutoRead(false);
+        source.pipeline().addLast(new RawFrameDecoder(sourceType, memory));
+
+        target.createStream(source.type(), new ChannelInitializer<QuicStreamChannel>() {
+            @Override
+            protected void initChannel(QuicStreamChannel peer) {
+                // Locally opened streams don't inherit the pipeline allocator
+                peer.config().setAllocator(source.alloc());
+                peer.pipeline().addLast(new RawFrameDecoder(peerType, memory));
+                peer.pipeline().addLast(new StreamRelayHandler(sessionId, peerDirection, source, trafficFor(peerDirection)));
+            }
+        }).addListener(future -> {
+            if (!future.isSuccess()) {
+                LOGGER.warn("Session {}: Failed to open peer for stream {}, closing it",
+                    sessionId, source.streamId(), future.cause());
+                source.close();
+                return;
+            }
+
+            // The listener runs on the target connection's event loop. Adding the relay from
+            // there would leave it pending while the source already reads, dropping frames.
+            QuicStreamChannel peer = (QuicStreamChannel) future.getNow();
+            if (source.eventLoop().inEventLoop()) {
+                startRelay(source, peer, sourceDirection, sourceType);
+            } else {
+                source.eventLoop().execute(() -> startRelay(source, peer, sourceDirection, sourceType));
+            }
+        });
+    }
+
+    private void startRelay(QuicStreamChannel source, QuicStreamChannel peer, String sourceDirection, String sourceType) {
+        if (!source.isActive()) {
+            peer.close();
+            return;
+        }
+        source.pipeline().addLast(new StreamRelayHandler(sessionId, sourceDirection, peer, trafficFor(sourceDirection)));
+        track(source);
+        source.config().setAutoRead(true);
+
+        LOGGER.debug("Session {}: Mapped {} stream {} to stream {}",
+            sessionId, sourceType, source.streamId(), peer.streamId());
+    }
+
+    private TrafficHeavyHitters.Source trafficFor(String direction) {
+        return CLIENT_TO_BACKEND.equals(direction) ? clientTraffic : backendTraffic;
+    }
+
+    private void track(QuicStreamChannel source) {
+        activePairs.incrementAndGet();
+        ProxyMetrics.getInstance().incrementRelayedStreams();
+        source.closeFuture().addListener(f -> {
+            activePairs.decrementAndGet();
+            ProxyMetrics.getInstance().decrementRelayedStreams();
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package me.internalizable.numdrassl.session.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.ChannelInputShutdownReadComplete;
+import io.netty.incubator.codec.quic.DefaultQuicStreamFrame;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import io.netty.util.ReferenceCountUtil;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.profiling.TrafficHeavyHitters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Forwards raw frames from one stream to its paired stream on the other connection.
+ *
+ * <p>Frame order within a stream is preserved because each stream has exactly one
+ * relay and writes go to exactly one peer. Streams never share decoder state or
+ * buffers, so a slow bulk stream cannot delay frames on other streams.</p>
+ *
+ * <p>Backpressure: when the peer stops being writable, this stream stops reading
+ * (and a stall is recorded). The peer's relay resumes reading here once the peer
+ * drains, see {@link #channelWritabilityChanged}.</p>
+ *
+ * <p>QUIC streams are half-closed by default: when one side finishes sending, the
+ * FIN is forwarded after the frames already relayed, and the stream closes once
+ * both directions are finished.</p>
+ */
+final class StreamRelayHandler extends ChannelInboundHandlerAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamRelayHandler.class);
+
+    private final long sessionId;
+    private final String direction;
+    private final QuicStreamChannel peer;
+    private final TrafficHeavyHitters.Source traffic;
+
+    // Only touched from this stream's event loop
+    private long frames;
+    private long bytes;
+    private long stalls;
+
+    StreamRelayHandler(long sessionId, @Nonnull String direction, @Nonnull QuicStreamChannel peer,
+                       @Nonnull TrafficHeavyHitters.Source traffic) {
+        this.sessionId = sessionId;
+        this.direction = Objects.requireNonNull(direction, "direction");
+        this.peer = Objects.requireNonNull(peer, "peer");
+        this.traffic = Objects.requireNonNull(traffic, "traffic");
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof ByteBuf frame) || !peer.isActive()) {
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+
+        int size = frame.readableBytes();
+        frames++;
+        bytes += size;
+        ProxyMetrics.getInstance().recordStreamFrame(direction, size);
+        traffic.record(1, size);
+
+        peer.write(frame).addListener(future -> {
+            if (!future.isSuccess()) {
+                LOGGER.debug("Session {}: Relay write failed on stream {} ({})",
+                    sessionId, peer.streamId(), direction, future.cause());
+            }
+        });
+
+        if (!peer.isWritable() && ctx.channel().config().isAutoRead()) {
+            ctx.channel().config().setAutoRead(false);
+            stalls++;
+            ProxyMetrics.getInstance().recordStreamStall(direction);
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        peer.flush();
+        ctx.fireChannelReadComplete();
+    }
+
+    /**
+     * This stream is the peer of the opposite relay: once it drains, let the
+     * opposite stream read again.
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (ctx.channel().isWritable() && !peer.config().isAutoRead()) {
+            peer.config().setAutoRead(true);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+        if (evt instanceof ChannelInputShutdownReadComplete && peer.isActive()) {
+            peer.writeAndFlush(new DefaultQuicStreamFrame(Unpooled.EMPTY_BUFFER, true)).addListener(future -> {
+                if (peer.isInputShutdown()) {
+                    peer.close();
+                }
+            });
+        }
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        LOGGER.debug("Session {}: Relayed stream {} closed ({}: {} frames, {} bytes, {} stalls)",
+            sessionId, ((QuicStreamChannel) ctx.channel()).streamId(), direction, frames, bytes, stalls);
+        if (peer.isActive()) {
+            peer.close();
+        }
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOGGER.warn("Session {}: Error on relayed stream ({})", sessionId, direction, cause);
+        ctx.close();
+    }
+}
@@ -12,6 +12,12 @@
  *   <li>{@link me.internalizable.numdrassl.session.channel.PacketSender} - Handles
  *       thread-safe packet sending by ensuring writes execute on the correct Netty
  *       event loop thread. Properly releases ByteBuf resources on failure.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.channel.PacketBroadcaster} - Encodes a
+ *       packet once into a pooled, pre-framed buffer and writes shared duplicates to many
+ *       streams, with one task per event loop.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.channel.StreamMapper} - Pairs every
+ *       additional stream opened by the client or backend with a stream of its own on
+ *       the other side, relaying raw frames so streams never block each other.</li>
  * </ul>
  *
  * <h2>Channel Architecture</h2>
@@ -0,0 +1,48 @@
+package me.internalizable.numdrassl.session.login;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The phases of a login, in order. Each phase ends where the next one starts, so
+ * together they cover the whole time from the client's connection to
+ * {@code CONNECTED}.
+ */
+public enum LoginPhase {
+
+    /** QUIC handshake until the client's {@code Connect} arrives. */
+    HANDSHAKE("handshake"),
+    /** Waiting in the login admission queue. */
+    QUEUE("queue"),
+    /** Requesting the client's authorization grant from the session service. */
+    AUTH_GRANT("auth_grant"),
+    /** {@code AuthGrant} sent until the client's {@code AuthToken} arrives. */
+    CLIENT_AUTH("client_auth"),
+    /**
+     * Exchanging the server authorization grant for an access token with the session
+     * service ({@code BackendAuthHandler.exchangeAuthGrant}). On an identity cache hit
+     * this is only the cache lookup.
+     */
+    GRANT_EXCHANGE("grant_exchange"),
+    /** {@code AsyncLoginEvent} and {@code LoginEvent} handlers. */
+    LOGIN_EVENTS("login_events"),
+    /** Pre-connect event, bind, QUIC handshake and stream to the backend. */
+    BACKEND_CONNECT("backend_connect"),
+    /** Signed {@code Connect} forwarded until the backend's {@code ConnectAccept}. */
+    BACKEND_ACCEPT("backend_accept");
+
+    static final LoginPhase[] VALUES = values();
+
+    private final String tag;
+
+    LoginPhase(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Gets the phase's name as used in metric tags and logs.
+     */
+    @Nonnull
+    public String tag() {
+        return tag;
+    }
+}
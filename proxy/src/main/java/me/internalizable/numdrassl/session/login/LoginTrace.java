@@ -0,0 +1,102 @@
+package me.internalizable.numdrassl.session.login;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timestamps the phase boundaries of one session's login.
+ *
+ * <p>Each {@link LoginPhase} is marked when it ends. A phase that was skipped or never
+ * marked gets a duration of 0 and its time goes to the next marked phase, so the
+ * phases always add up to the total. The last phase ends with {@link #finish(long)}.
+ * Only the first login of a session is traced: marks after finishing are ignored.</p>
+ *
+ * <p>Thread-safe: phases are marked on event loops and session service threads.</p>
+ */
+public final class LoginTrace {
+
+    private final long startNanos;
+    private final AtomicLongArray marks = new AtomicLongArray(LoginPhase.VALUES.length);
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    /**
+     * @param startNanos the {@link System#nanoTime()} at which the client connected
+     */
+    public LoginTrace(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Marks the end of a phase now.
+     */
+    public void mark(@Nonnull LoginPhase phase) {
+        mark(phase, System.nanoTime());
+    }
+
+    /**
+     * Marks the end of a phase. A phase keeps its first mark.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     */
+    public void mark(@Nonnull LoginPhase phase, long nowNanos) {
+        if (!finished.get()) {
+            marks.compareAndSet(phase.ordinal(), 0, nowNanos);
+        }
+    }
+
+    /**
+     * Ends the login and computes its breakdown.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return the breakdown, or null if the login was already finished
+     */
+    @Nullable
+    public Breakdown finish(long nowNanos) {
+        if (!finished.compareAndSet(false, true)) {
+            return null;
+        }
+
+        LoginPhase[] phases = LoginPhase.VALUES;
+        long[] durations = new long[phases.length];
+        long previous = startNanos;
+        for (int i = 0; i < phases.length; i++) {
+            long end = i == phases.length - 1 ? nowNanos : marks.get(i);
+            if (end != 0 && end - previous >= 0) {
+                durations[i] = end - previous;
+                previous = end;
+            }
+        }
+        return new Breakdown(durations, previous - startNanos);
+    }
+
+    /**
+     * Durations of a login's phases.
+     *
+     * @param totalNanos the sum of all phases
+     */
+    public record Breakdown(long[] phaseNanos, long totalNanos) {
+
+        public long get(@Nonnull LoginPhase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        /**
+         * Formats the breakdown as {@code total 1234 ms (handshake 12 ms, queue 0 ms, ...)}.
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("total ").append(TimeUnit.NANOSECONDS.toMillis(totalNanos)).append(" ms (");
+            for (LoginPhase phase : LoginPhase.VALUES) {
+                if (phase.ordinal() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(phase.tag()).append(' ').append(TimeUnit.NANOSECONDS.toMillis(get(phase))).append(" ms");
+            }
+            return sb.append(')').toString();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Login phase tracing.
+ *
+ * <p>Breaks each session's time-to-join down into phases, from the client's QUIC
+ * handshake to the backend's {@code ConnectAccept}. Finished traces feed the login
+ * phase histograms, and logins slower than {@code slowLoginThresholdMillis} are
+ * logged with their breakdown.</p>
+ *
+ * <h2>Key Classes</h2>
+ * <ul>
+ *   <li>{@link me.internalizable.numdrassl.session.login.LoginTrace} - Phase boundary
+ *       timestamps of one session's login.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.login.LoginPhase} - The phases of a
+ *       login, in order.</li>
+ * </ul>
+ */
+package me.internalizable.numdrassl.session.login;
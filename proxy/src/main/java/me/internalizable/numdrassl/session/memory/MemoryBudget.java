@@ -0,0 +1,62 @@
+package me.internalizable.numdrassl.session.memory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global budget for the bytes retained by all sessions.
+ *
+ * <p>Every {@link SessionMemory} adds its changes to this budget. Above
+ * {@link #PRESSURE_RATIO} of the limit the budget is under pressure: sessions stop
+ * queueing pending messages and the primary streams stop reading while their peer
+ * is not writable. Above the limit, {@link SessionMemoryMonitor} disconnects the
+ * heaviest sessions.</p>
+ */
+public final class MemoryBudget {
+
+    public static final double PRESSURE_RATIO = 0.8;
+
+    private final long limitBytes;
+    private final long pressureBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * @param limitBytes the budget in bytes, or 0 for unlimited
+     */
+    public MemoryBudget(long limitBytes) {
+        if (limitBytes < 0) {
+            throw new IllegalArgumentException("limitBytes must be >= 0: " + limitBytes);
+        }
+        this.limitBytes = limitBytes;
+        this.pressureBytes = (long) (limitBytes * PRESSURE_RATIO);
+    }
+
+    void add(long delta) {
+        usedBytes.addAndGet(delta);
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Gets the budget in bytes, or 0 if unlimited.
+     */
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    /**
+     * Gets the usage above which the budget is under pressure, or 0 if unlimited.
+     */
+    public long getPressureBytes() {
+        return pressureBytes;
+    }
+
+    public boolean isUnderPressure() {
+        return limitBytes > 0 && usedBytes.get() >= pressureBytes;
+    }
+
+    public boolean isExceeded() {
+        return limitBytes > 0 && usedBytes.get() > limitBytes;
+    }
+}
@@ -0,0 +1,133 @@
+package me.internalizable.numdrassl.session.memory;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Bytes retained on behalf of one session.
+ *
+ * <p>Three places are accounted:</p>
+ * <ul>
+ *   <li><b>Decoder</b> - cumulation buffers of the session's frame decoders, which hold
+ *       incomplete frames. Reported by the decoders after every read.</li>
+ *   <li><b>Write queue</b> - bytes written to the primary client and backend streams but
+ *       not yet sent. Sampled by {@link SessionMemoryMonitor}.</li>
+ *   <li><b>Pending messages</b> - chat messages queued until the player is connected.</li>
+ * </ul>
+ *
+ * <p>Every change is also applied to the global {@link MemoryBudget}. After
+ * {@link #release()} the session no longer counts and further updates are ignored.</p>
+ */
+public final class SessionMemory {
+
+    /**
+     * Pending messages a single session may queue, in bytes.
+     */
+    public static final long MAX_PENDING_MESSAGE_BYTES = 256 * 1024;
+
+    private final MemoryBudget budget;
+
+    // Guarded by this
+    private long decoderBytes;
+    private long writeQueueBytes;
+    private long pendingMessageBytes;
+    private boolean released;
+
+    public SessionMemory(@Nonnull MemoryBudget budget) {
+        this.budget = Objects.requireNonNull(budget, "budget");
+    }
+
+    // ==================== Decoder ====================
+
+    /**
+     * Adds to the bytes held by decoder cumulation buffers.
+     *
+     * @param delta the change since the decoder's last report
+     */
+    public synchronized void addDecoderBytes(long delta) {
+        if (released || delta == 0) {
+            return;
+        }
+        decoderBytes += delta;
+        budget.add(delta);
+    }
+
+    // ==================== Write Queue ====================
+
+    /**
+     * Sets the bytes queued for writing on the session's streams.
+     */
+    public synchronized void setWriteQueueBytes(long bytes) {
+        if (released) {
+            return;
+        }
+        budget.add(bytes - writeQueueBytes);
+        writeQueueBytes = bytes;
+    }
+
+    // ==================== Pending Messages ====================
+
+    /**
+     * Reserves room for a pending message. Fails if the session's queue is full or
+     * the global budget is under pressure.
+     *
+     * @param bytes the encoded size of the message
+     * @return true if the message may be queued
+     */
+    public synchronized boolean tryReservePendingMessage(long bytes) {
+        if (released
+                || pendingMessageBytes + bytes > MAX_PENDING_MESSAGE_BYTES
+                || budget.isUnderPressure()) {
+            return false;
+        }
+        pendingMessageBytes += bytes;
+        budget.add(bytes);
+        return true;
+    }
+
+    /**
+     * Releases a reservation once the pending message has been sent.
+     */
+    public synchronized void releasePendingMessage(long bytes) {
+        if (released) {
+            return;
+        }
+        pendingMessageBytes -= bytes;
+        budget.add(-bytes);
+    }
+
+    // ==================== Lifecycle ====================
+
+    /**
+     * Removes everything this session holds from the global budget. Called when the
+     * session is removed.
+     */
+    public synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        budget.add(-(decoderBytes + writeQueueBytes + pendingMessageBytes));
+        decoderBytes = 0;
+        writeQueueBytes = 0;
+        pendingMessageBytes = 0;
+    }
+
+    // ==================== Accessors ====================
+
+    public synchronized long getDecoderBytes() {
+        return decoderBytes;
+    }
+
+    public synchronized long getWriteQueueBytes() {
+        return writeQueueBytes;
+    }
+
+    public synchronized long getPendingMessageBytes() {
+        return pendingMessageBytes;
+    }
+
+    public synchronized long getTotalBytes() {
+        return decoderBytes + writeQueueBytes + pendingMessageBytes;
+    }
+}
@@ -0,0 +1,147 @@
+package me.internalizable.numdrassl.session.memory;
+
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.session.ProxySession;
+import me.internalizable.numdrassl.session.SessionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the write queues of all sessions and enforces the {@link MemoryBudget}.
+ *
+ * <p>When the budget is exceeded, the sessions retaining the most bytes are
+ * disconnected until the usage falls back below the pressure threshold. A session
+ * that does not take its disconnect packet is closed shortly after.</p>
+ */
+public final class SessionMemoryMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionMemoryMonitor.class);
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    private static final String DISCONNECT_REASON = "Connection is not keeping up";
+    private static final long FORCE_CLOSE_DELAY_MILLIS = 1000;
+
+    private final SessionManager sessionManager;
+    private final MemoryBudget budget;
+    private final ScheduledExecutorService scheduler;
+
+    public SessionMemoryMonitor(@Nonnull SessionManager sessionManager, @Nonnull MemoryBudget budget) {
+        this.sessionManager = Objects.requireNonNull(sessionManager, "sessionManager");
+        this.budget = Objects.requireNonNull(budget, "budget");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Session-Memory");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::checkAll,
+            DEFAULT_INTERVAL_MILLIS, DEFAULT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        LOGGER.debug("SessionMemoryMonitor shut down");
+    }
+
+    @Nonnull
+    public MemoryBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Gets the sessions retaining the most bytes.
+     *
+     * @param limit the maximum number of sessions to return
+     * @return usage of the heaviest sessions, heaviest first
+     */
+    @Nonnull
+    public List<Usage> getTopSessions(int limit) {
+        List<Usage> usages = new ArrayList<>();
+        for (ProxySession session : sessionManager.getAllSessions()) {
+            Usage usage = Usage.of(session);
+            if (usage.totalBytes() > 0) {
+                usages.add(usage);
+            }
+        }
+        usages.sort(Comparator.comparingLong(Usage::totalBytes).reversed());
+        return usages.size() > limit ? usages.subList(0, limit) : usages;
+    }
+
+    // ==================== Enforcement ====================
+
+    private void checkAll() {
+        try {
+            for (ProxySession session : sessionManager.getAllSessions()) {
+                session.getMemory().setWriteQueueBytes(
+                    pendingWriteBytes(session.getClientStream()) + pendingWriteBytes(session.getBackendStream()));
+            }
+            if (budget.isExceeded()) {
+                disconnectHeaviest();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error checking session memory", e);
+        }
+    }
+
+    private void disconnectHeaviest() {
+        LOGGER.warn("Session memory budget exceeded: {} of {} bytes retained",
+            budget.getUsedBytes(), budget.getLimitBytes());
+
+        long excess = budget.getUsedBytes() - budget.getPressureBytes();
+        for (Usage usage : getTopSessions(Integer.MAX_VALUE)) {
+            if (excess <= 0) {
+                break;
+            }
+            ProxySession session = sessionManager.findById(usage.sessionId()).orElse(null);
+            if (session == null) {
+                continue;
+            }
+            LOGGER.warn("Session {} ({}) disconnected for retaining {} bytes",
+                usage.sessionId(), usage.username(), usage.totalBytes());
+            excess -= usage.totalBytes();
+            session.disconnect(DISCONNECT_REASON);
+            scheduler.schedule(session::close, FORCE_CLOSE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            ProxyMetrics.getInstance().recordMemoryBudgetDisconnect();
+        }
+    }
+
+    private static long pendingWriteBytes(@Nullable QuicStreamChannel stream) {
+        if (stream == null || !stream.isActive()) {
+            return 0;
+        }
+        ChannelOutboundBuffer buffer = stream.unsafe().outboundBuffer();
+        return buffer != null ? buffer.totalPendingWriteBytes() : 0;
+    }
+
+    /**
+     * Bytes retained by one session.
+     */
+    public record Usage(long sessionId, @Nullable String username,
+                        long decoderBytes, long writeQueueBytes, long pendingMessageBytes) {
+
+        static Usage of(ProxySession session) {
+            SessionMemory memory = session.getMemory();
+            return new Usage(session.getSessionId(), session.getUsername(),
+                memory.getDecoderBytes(), memory.getWriteQueueBytes(), memory.getPendingMessageBytes());
+        }
+
+        public long totalBytes() {
+            return decoderBytes + writeQueueBytes + pendingMessageBytes;
+        }
+    }
+}
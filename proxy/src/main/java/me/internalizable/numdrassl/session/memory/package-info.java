@@ -0,0 +1,17 @@
+/**
+ * Per-session memory accounting.
+ *
+ * <p>Tracks the bytes each session holds in decoder buffers, stream write queues and
+ * pending messages, and keeps their sum within a global budget.</p>
+ *
+ * <h2>Key Classes</h2>
+ * <ul>
+ *   <li>{@link me.internalizable.numdrassl.session.memory.SessionMemory} - Bytes retained
+ *       by one session.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.memory.MemoryBudget} - Global limit and
+ *       pressure threshold for all sessions.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.memory.SessionMemoryMonitor} - Samples
+ *       write queues and disconnects the heaviest sessions when the budget is exceeded.</li>
+ * </ul>
+ */
+package me.internalizable.numdrassl.session.memory;
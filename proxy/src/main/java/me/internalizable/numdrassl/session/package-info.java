@@ -19,10 +19,18 @@
  * <ul>
  *   <li>{@link me.internalizable.numdrassl.session.auth} - Authentication state during
  *       the handshake phase.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.capture} - Opt-in packet capture and
+ *       replay of a session.</li>
  *   <li>{@link me.internalizable.numdrassl.session.channel} - QUIC channel management
  *       and thread-safe packet sending.</li>
  *   <li>{@link me.internalizable.numdrassl.session.identity} - Immutable player identity
  *       information.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.login} - Phase breakdown of each
+ *       session's time-to-join.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.memory} - Per-session memory accounting
+ *       and the global buffer budget.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.quality} - Ping, RTT and loss tracking
+ *       of client and backend connections.</li>
  * </ul>
  *
  * <h2>Session Lifecycle</h2>
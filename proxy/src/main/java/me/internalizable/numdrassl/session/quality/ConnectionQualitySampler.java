@@ -0,0 +1,98 @@
+package me.internalizable.numdrassl.session.quality;
+
+import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicConnectionPathStats;
+import me.internalizable.numdrassl.config.BackendServer;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.session.ProxySession;
+import me.internalizable.numdrassl.session.SessionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically reads the QUIC path stats of every session's client and backend
+ * connections into its {@link ConnectionQualityTracker}, and records the RTTs in
+ * {@link ProxyMetrics}.
+ *
+ * <p>Stats are collected on each connection's event loop; this thread only starts
+ * the collection.</p>
+ */
+public final class ConnectionQualitySampler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionQualitySampler.class);
+
+    public static final long DEFAULT_INTERVAL_SECONDS = 5;
+
+    private final SessionManager sessionManager;
+    private final ScheduledExecutorService scheduler;
+
+    public ConnectionQualitySampler(@Nonnull SessionManager sessionManager) {
+        this.sessionManager = Objects.requireNonNull(sessionManager, "sessionManager");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Connection-Quality");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::sampleAll,
+            DEFAULT_INTERVAL_SECONDS, DEFAULT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        LOGGER.debug("ConnectionQualitySampler shut down");
+    }
+
+    // ==================== Sampling ====================
+
+    /**
+     * Starts collecting the stats of every session. They arrive asynchronously, on each
+     * connection's event loop.
+     */
+    void sampleAll() {
+        try {
+            for (ProxySession session : sessionManager.getAllSessions()) {
+                sample(session);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error sampling connection quality", e);
+        }
+    }
+
+    private void sample(ProxySession session) {
+        ConnectionQualityTracker tracker = session.getQualityTracker();
+
+        QuicChannel client = session.getChannels().clientChannel();
+        if (client.isActive()) {
+            client.collectPathStats(0).addListener(future -> {
+                if (future.isSuccess()) {
+                    QuicConnectionPathStats stats = (QuicConnectionPathStats) future.getNow();
+                    tracker.updateClientTransport(stats.rtt(), stats.cwnd(), stats.sent(), stats.lost());
+                    ProxyMetrics.getInstance().recordClientRtt(stats.rtt());
+                }
+            });
+        }
+
+        QuicChannel backend = session.getChannels().backendChannel();
+        BackendServer server = session.getCurrentBackend();
+        if (backend == null || !backend.isActive() || server == null) {
+            tracker.resetBackendTransport();
+            return;
+        }
+        backend.collectPathStats(0).addListener(future -> {
+            if (future.isSuccess()) {
+                QuicConnectionPathStats stats = (QuicConnectionPathStats) future.getNow();
+                tracker.updateBackendTransport(backend, stats.rtt(), stats.cwnd(), stats.sent(), stats.lost());
+                ProxyMetrics.getInstance().recordBackendRtt(server.getName(), stats.rtt());
+            }
+        });
+    }
+}
@@ -0,0 +1,193 @@
+package me.internalizable.numdrassl.session.quality;
+
+import me.internalizable.numdrassl.api.player.ConnectionQuality;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks latency and transport statistics of one session.
+ *
+ * <p>Two sources feed it:</p>
+ * <ul>
+ *   <li>The game's own Ping/Pong exchange. When the backend's {@code Ping} is forwarded
+ *       to the client, its ID and send time are remembered; the client's {@code Raw}
+ *       {@code Pong} with the same ID yields one RTT sample between proxy and client.
+ *       Samples are smoothed as in RFC 6298.</li>
+ *   <li>QUIC connection stats of the client and backend connections, sampled
+ *       periodically by {@link ConnectionQualitySampler}.</li>
+ * </ul>
+ *
+ * <p>Thread-safe: pings and pongs arrive on different event loops.</p>
+ */
+public final class ConnectionQualityTracker {
+
+    private static final int MAX_PENDING_PINGS = 8;
+
+    // Guarded by pendingIds
+    private final int[] pendingIds = new int[MAX_PENDING_PINGS];
+    private final long[] pendingSentNanos = new long[MAX_PENDING_PINGS];
+    private int nextPending;
+
+    // Guarded by this
+    private long smoothedPingNanos = -1;
+    private long pingVarianceNanos;
+
+    private volatile TransportStats client = TransportStats.UNKNOWN;
+    private volatile TransportStats backend = TransportStats.UNKNOWN;
+    private volatile Object backendConnection;
+
+    public ConnectionQualityTracker() {
+        Arrays.fill(pendingSentNanos, -1);
+    }
+
+    // ==================== Ping/Pong ====================
+
+    /**
+     * Records a {@code Ping} forwarded to the client.
+     *
+     * @param pingId the ping ID
+     * @param nowNanos the current {@link System#nanoTime()}
+     */
+    public void onPingToClient(int pingId, long nowNanos) {
+        synchronized (pendingIds) {
+            pendingIds[nextPending] = pingId;
+            pendingSentNanos[nextPending] = nowNanos;
+            nextPending = (nextPending + 1) % MAX_PENDING_PINGS;
+        }
+    }
+
+    /**
+     * Matches a {@code Raw} {@code Pong} from the client with its ping.
+     *
+     * @param pingId the ID the pong answers
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return the RTT sample in nanoseconds, or -1 if no matching ping was forwarded
+     */
+    public long onPongFromClient(int pingId, long nowNanos) {
+        long sentNanos = -1;
+        synchronized (pendingIds) {
+            for (int i = 0; i < MAX_PENDING_PINGS; i++) {
+                if (pendingSentNanos[i] >= 0 && pendingIds[i] == pingId) {
+                    sentNanos = pendingSentNanos[i];
+                    pendingSentNanos[i] = -1;
+                    break;
+                }
+            }
+        }
+        if (sentNanos < 0) {
+            return -1;
+        }
+
+        long sample = nowNanos - sentNanos;
+        synchronized (this) {
+            if (smoothedPingNanos < 0) {
+                smoothedPingNanos = sample;
+                pingVarianceNanos = sample / 2;
+            } else {
+                pingVarianceNanos = (3 * pingVarianceNanos + Math.abs(smoothedPingNanos - sample)) / 4;
+                smoothedPingNanos = (7 * smoothedPingNanos + sample) / 8;
+            }
+        }
+        return sample;
+    }
+
+    // ==================== Transport Stats ====================
+
+    /**
+     * Updates the client connection's QUIC stats.
+     *
+     * @param rttNanos path round-trip time
+     * @param congestionWindow congestion window in bytes
+     * @param sentPackets packets sent over the connection's lifetime
+     * @param lostPackets packets lost over the connection's lifetime
+     */
+    public void updateClientTransport(long rttNanos, long congestionWindow, long sentPackets, long lostPackets) {
+        client = client.next(rttNanos, congestionWindow, sentPackets, lostPackets);
+    }
+
+    /**
+     * Updates the backend connection's QUIC stats.
+     *
+     * @param connection the backend connection; stats start over when it changes
+     * @see #updateClientTransport(long, long, long, long)
+     */
+    public void updateBackendTransport(@Nonnull Object connection, long rttNanos, long congestionWindow,
+                                       long sentPackets, long lostPackets) {
+        TransportStats previous = connection == backendConnection ? backend : TransportStats.UNKNOWN;
+        backendConnection = connection;
+        backend = previous.next(rttNanos, congestionWindow, sentPackets, lostPackets);
+    }
+
+    /**
+     * Forgets the backend connection's stats, e.g. when there is no backend connection.
+     */
+    public void resetBackendTransport() {
+        backendConnection = null;
+        backend = TransportStats.UNKNOWN;
+    }
+
+    // ==================== Accessors ====================
+
+    /**
+     * Gets the smoothed ping in milliseconds. Falls back to the client connection's QUIC
+     * RTT until the first Pong arrives.
+     *
+     * @return the ping, or -1 if nothing has been measured yet
+     */
+    public long getPingMillis() {
+        long smoothed;
+        synchronized (this) {
+            smoothed = smoothedPingNanos;
+        }
+        if (smoothed >= 0) {
+            return TimeUnit.NANOSECONDS.toMillis(smoothed);
+        }
+        return toMillis(client.rttNanos());
+    }
+
+    /**
+     * Gets the variation of ping samples in milliseconds, or -1 if unknown.
+     */
+    public synchronized long getPingVarianceMillis() {
+        return smoothedPingNanos >= 0 ? TimeUnit.NANOSECONDS.toMillis(pingVarianceNanos) : -1;
+    }
+
+    @Nonnull
+    public ConnectionQuality snapshot() {
+        TransportStats c = client;
+        TransportStats b = backend;
+        return new ConnectionQuality(
+            getPingMillis(),
+            toMillis(c.rttNanos()), c.lossRate(), c.congestionWindow(),
+            toMillis(b.rttNanos()), b.lossRate(), b.congestionWindow()
+        );
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos >= 0 ? TimeUnit.NANOSECONDS.toMillis(nanos) : -1;
+    }
+
+    /**
+     * QUIC stats of one connection. The loss rate covers the packets sent since the
+     * previous sample.
+     */
+    private record TransportStats(long rttNanos, long congestionWindow, double lossRate,
+                                  long sentPackets, long lostPackets) {
+
+        static final TransportStats UNKNOWN = new TransportStats(-1, -1, -1, 0, 0);
+
+        TransportStats next(long rtt, long cwnd, long sent, long lost) {
+            long sentDelta = sent - sentPackets;
+            long lostDelta = lost - lostPackets;
+            double loss = lossRate;
+            if (sentDelta < 0 || lostDelta < 0) {
+                loss = sent > 0 ? (double) lost / sent : -1;
+            } else if (sentDelta > 0) {
+                loss = Math.min(1.0, (double) lostDelta / sentDelta);
+            }
+            return new TransportStats(rtt, cwnd, loss, sent, lost);
+        }
+    }
+}
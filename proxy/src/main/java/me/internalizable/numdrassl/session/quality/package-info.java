@@ -0,0 +1,15 @@
+/**
+ * Connection quality tracking.
+ *
+ * <p>Measures latency, loss and congestion window of each session's client and
+ * backend connections, for {@code Player#getPing()} and the latency metrics.</p>
+ *
+ * <h2>Key Classes</h2>
+ * <ul>
+ *   <li>{@link me.internalizable.numdrassl.session.quality.ConnectionQualityTracker} - Per-session
+ *       smoothed Ping/Pong RTT and QUIC transport stats.</li>
+ *   <li>{@link me.internalizable.numdrassl.session.quality.ConnectionQualitySampler} - Periodically
+ *       collects QUIC path stats for all sessions.</li>
+ * </ul>
+ */
+package me.internalizable.numdrassl.session.quality;
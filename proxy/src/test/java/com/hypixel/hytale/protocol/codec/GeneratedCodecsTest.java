@@ -0,0 +1,158 @@
+package com.hypixel.hytale.protocol.codec;
+
+import com.hypixel.hytale.protocol.Packet;
+import com.hypixel.hytale.protocol.io.ProtocolException;
+import com.hypixel.hytale.protocol.io.ValidationResult;
+import com.hypixel.hytale.protocol.packets.auth.AuthGrant;
+import com.hypixel.hytale.protocol.packets.auth.AuthToken;
+import com.hypixel.hytale.protocol.packets.auth.ConnectAccept;
+import com.hypixel.hytale.protocol.packets.auth.PasswordResponse;
+import com.hypixel.hytale.protocol.packets.auth.ServerAuthToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import me.internalizable.numdrassl.testing.Allocations;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the codecs generated from packets.schema against the hand-written packet classes.
+ */
+class GeneratedCodecsTest {
+
+    private static final byte[] CHALLENGE = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    @Test
+    void authGrantMatchesHandWrittenCodec() {
+        for (AuthGrant packet : List.of(
+                new AuthGrant(),
+                new AuthGrant("grant", null),
+                new AuthGrant(null, "identity"),
+                new AuthGrant("grant", "identity-é"))) {
+            assertRoundTrip(packet, AuthGrant::deserialize, AuthGrantCodec::deserialize, AuthGrantCodec::validateStructure);
+        }
+    }
+
+    @Test
+    void authTokenMatchesHandWrittenCodec() {
+        for (AuthToken packet : List.of(
+                new AuthToken(),
+                new AuthToken("access", null),
+                new AuthToken(null, "grant"),
+                new AuthToken("access", "grant"))) {
+            assertRoundTrip(packet, AuthToken::deserialize, AuthTokenCodec::deserialize, AuthTokenCodec::validateStructure);
+        }
+    }
+
+    @Test
+    void serverAuthTokenMatchesHandWrittenCodec() {
+        for (ServerAuthToken packet : List.of(
+                new ServerAuthToken(),
+                new ServerAuthToken("access", null),
+                new ServerAuthToken(null, CHALLENGE),
+                new ServerAuthToken("access", CHALLENGE))) {
+            assertRoundTrip(packet, ServerAuthToken::deserialize, ServerAuthTokenCodec::deserialize, ServerAuthTokenCodec::validateStructure);
+        }
+    }
+
+    @Test
+    void singleFieldPacketsMatchHandWrittenCodec() {
+        assertRoundTrip(new ConnectAccept(), ConnectAccept::deserialize, ConnectAcceptCodec::deserialize, ConnectAcceptCodec::validateStructure);
+        assertRoundTrip(new ConnectAccept(CHALLENGE), ConnectAccept::deserialize, ConnectAcceptCodec::deserialize, ConnectAcceptCodec::validateStructure);
+        assertRoundTrip(new PasswordResponse(), PasswordResponse::deserialize, PasswordResponseCodec::deserialize, PasswordResponseCodec::validateStructure);
+        assertRoundTrip(new PasswordResponse(CHALLENGE), PasswordResponse::deserialize, PasswordResponseCodec::deserialize, PasswordResponseCodec::validateStructure);
+    }
+
+    @Test
+    void authTokenLayoutIsPinned() {
+        // Null bits, two offset slots, then the length-prefixed strings
+        byte[] golden = ByteBufUtil.decodeHexDump("03" + "00000000" + "04000000" + "03616263" + "027879");
+
+        ByteBuf encoded = Unpooled.buffer();
+        new AuthToken("abc", "xy").serialize(encoded);
+        assertEquals(ByteBufUtil.hexDump(golden), ByteBufUtil.hexDump(encoded));
+
+        AuthToken decoded = AuthTokenCodec.deserialize(Unpooled.wrappedBuffer(golden), 0);
+        assertEquals("abc", decoded.accessToken);
+        assertEquals("xy", decoded.serverAuthorizationGrant);
+    }
+
+    @Test
+    void truncatedPacketIsRejectedByBothCodecs() {
+        ByteBuf encoded = Unpooled.buffer();
+        new AuthToken("access", "grant").serialize(encoded);
+        ByteBuf truncated = encoded.slice(0, encoded.writerIndex() - 2);
+
+        assertFalse(AuthToken.validateStructure(truncated, 0).isValid());
+        assertFalse(AuthTokenCodec.validateStructure(truncated, 0).isValid());
+        assertThrows(ProtocolException.class, () -> AuthTokenCodec.deserialize(truncated, 0));
+    }
+
+    @Test
+    void oversizedFieldIsRejected() {
+        // Null bits, then a 65-byte challenge where at most 64 are allowed
+        ByteBuf encoded = Unpooled.buffer();
+        encoded.writeByte(1).writeByte(65).writeZero(65);
+
+        assertFalse(ConnectAccept.validateStructure(encoded, 0).isValid());
+        assertFalse(ConnectAcceptCodec.validateStructure(encoded, 0).isValid());
+    }
+
+    @Test
+    void validatorAgreesWithDecoderOnCorruptInput() {
+        ByteBuf encoded = Unpooled.buffer();
+        new ServerAuthToken("access", CHALLENGE).serialize(encoded);
+        byte[] valid = ByteBufUtil.getBytes(encoded);
+        Random random = new Random(29);
+
+        for (int i = 0; i < 10_000; i++) {
+            byte[] corrupt = valid.clone();
+            corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt(256);
+            ByteBuf buf = Unpooled.wrappedBuffer(corrupt, 0, 1 + random.nextInt(corrupt.length));
+
+            boolean generatedValid = ServerAuthTokenCodec.validateStructure(buf, 0).isValid();
+            assertEquals(ServerAuthToken.validateStructure(buf, 0).isValid(), generatedValid, () -> ByteBufUtil.hexDump(buf));
+            assertEquals(decodes(buf), generatedValid, () -> ByteBufUtil.hexDump(buf));
+        }
+    }
+
+    @Test
+    void validationDoesNotDecode() {
+        ByteBuf encoded = Unpooled.buffer();
+        new AuthToken("access", "grant").serialize(encoded);
+
+        // Decoding would allocate both strings on every call
+        Allocations.assertNoPerOpAllocation(() -> AuthTokenCodec.validateStructure(encoded, 0));
+    }
+
+    private static boolean decodes(ByteBuf buf) {
+        try {
+            ServerAuthTokenCodec.deserialize(buf, 0);
+            return true;
+        } catch (ProtocolException e) {
+            return false;
+        }
+    }
+
+    private static <T extends Packet> void assertRoundTrip(T packet,
+                                                           BiFunction<ByteBuf, Integer, T> handWritten,
+                                                           BiFunction<ByteBuf, Integer, T> generated,
+                                                           BiFunction<ByteBuf, Integer, ValidationResult> validator) {
+        ByteBuf encoded = Unpooled.buffer();
+        packet.serialize(encoded);
+        assertEquals(packet.computeSize(), encoded.readableBytes());
+
+        T expected = handWritten.apply(encoded, 0);
+        assertEquals(packet, expected);
+        assertEquals(expected, generated.apply(encoded, 0));
+        assertTrue(validator.apply(encoded, 0).isValid());
+    }
+}
@@ -0,0 +1,105 @@
+package com.hypixel.hytale.protocol.io;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import me.internalizable.numdrassl.testing.Allocations;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StringInternerTest {
+
+    @Test
+    void hitReturnsTheCachedInstance() {
+        StringInterner interner = new StringInterner(64);
+        String first = interner.intern(ascii("server.chat.welcome"), 0, 19);
+
+        // Same bytes at another offset of another buffer
+        ByteBuf other = ascii("xxserver.chat.welcomeyy");
+        String second = interner.intern(other, 2, 19);
+
+        assertEquals("server.chat.welcome", first);
+        assertSame(first, second);
+    }
+
+    @Test
+    void missDecodesTheBytes() {
+        StringInterner interner = new StringInterner(64);
+
+        assertEquals("#ff5555", interner.intern(ascii("#ff5555"), 0, 7));
+        assertEquals("#55ff55", interner.intern(ascii("#55ff55"), 0, 7));
+        assertEquals("", interner.intern(ascii(""), 0, 0));
+    }
+
+    @Test
+    void collidingStringReplacesTheEntry() {
+        // One slot: every string collides with every other
+        StringInterner interner = new StringInterner(1);
+        String a = interner.intern(ascii("alpha"), 0, 5);
+        String b = interner.intern(ascii("bravo"), 0, 5);
+        String again = interner.intern(ascii("alpha"), 0, 5);
+
+        assertEquals("bravo", b);
+        assertEquals("alpha", again);
+        assertNotSame(a, again);
+    }
+
+    @Test
+    void cacheHoldsAtMostCapacityStrings() {
+        int capacity = 16;
+        StringInterner interner = new StringInterner(capacity);
+        String[] first = new String[1000];
+        for (int i = 0; i < first.length; i++) {
+            String value = "key." + i;
+            first[i] = interner.intern(ascii(value), 0, value.length());
+            assertEquals(value, first[i]);
+        }
+
+        int hits = 0;
+        for (int i = 0; i < first.length; i++) {
+            String value = "key." + i;
+            if (interner.intern(ascii(value), 0, value.length()) == first[i]) {
+                hits++;
+            }
+        }
+        assertTrue(hits <= capacity, hits + " hits");
+    }
+
+    @Test
+    void nonAsciiAndLongStringsAreLeftToTheCaller() {
+        StringInterner interner = new StringInterner(64);
+        byte[] utf8 = "café".getBytes(StandardCharsets.UTF_8);
+        String max = "x".repeat(StringInterner.MAX_LENGTH);
+
+        assertNull(interner.intern(Unpooled.wrappedBuffer(utf8), 0, utf8.length));
+        assertNull(interner.intern(ascii(max + "x"), 0, max.length() + 1));
+        assertEquals(max, interner.intern(ascii(max), 0, max.length()));
+    }
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new StringInterner(0));
+        assertThrows(IllegalArgumentException.class, () -> new StringInterner(100));
+    }
+
+    @Test
+    void hitDoesNotAllocate() {
+        StringInterner interner = new StringInterner(64);
+        ByteBuf buf = Unpooled.directBuffer().writeBytes("server.chat.welcome".getBytes(StandardCharsets.US_ASCII));
+        interner.intern(buf, 0, buf.readableBytes());
+
+        Allocations.assertNoPerOpAllocation(() -> interner.intern(buf, 0, 19));
+        buf.release();
+    }
+
+    private static ByteBuf ascii(String value) {
+        return Unpooled.wrappedBuffer(value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
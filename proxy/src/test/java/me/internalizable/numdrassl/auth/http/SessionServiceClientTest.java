@@ -0,0 +1,302 @@
+package me.internalizable.numdrassl.auth.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionServiceClientTest {
+
+    private final List<SessionServiceClient> clients = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        clients.forEach(SessionServiceClient::close);
+    }
+
+    @Test
+    void requestsBeyondTheLimitWaitInOrder() {
+        StubHttpClient http = new StubHttpClient(request -> new CompletableFuture<>());
+        SessionServiceClient client = client(http, 2);
+
+        List<CompletableFuture<HttpResponse<String>>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(client.send("test", request("/" + i)));
+        }
+
+        assertEquals(2, client.getInFlight());
+        assertEquals(3, client.getWaiting());
+        assertEquals(List.of("/0", "/1"), http.paths());
+
+        http.pending(0).complete(response(200, http.request(0)));
+        assertEquals(List.of("/0", "/1", "/2"), http.paths());
+        assertEquals(2, client.getInFlight());
+        assertEquals(2, client.getWaiting());
+        assertEquals(200, results.get(0).join().statusCode());
+
+        for (int i = 1; i < 5; i++) {
+            http.pending(i).complete(response(200, http.request(i)));
+        }
+        assertEquals(List.of("/0", "/1", "/2", "/3", "/4"), http.paths());
+        assertEquals(0, client.getInFlight());
+        assertEquals(0, client.getWaiting());
+    }
+
+    @Test
+    void queuedRequestsThatFailWhileSendingDoNotRecurse() {
+        int queued = 50_000;
+        CompletableFuture<HttpResponse<String>> first = new CompletableFuture<>();
+        StubHttpClient http = new StubHttpClient(request -> {
+            if (request.uri().getPath().equals("/first")) {
+                return first;
+            }
+            throw new IllegalStateException("closed");
+        });
+        SessionServiceClient client = client(http, 1);
+        client.send("test", request("/first"));
+        List<CompletableFuture<HttpResponse<String>>> results = new ArrayList<>();
+        for (int i = 0; i < queued; i++) {
+            results.add(client.send("test", request("/queued")));
+        }
+
+        // Each queued request fails inside sendAsync and hands its slot on right away
+        first.complete(response(200, http.request(0)));
+
+        for (CompletableFuture<HttpResponse<String>> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        assertEquals(queued + 1, http.paths().size());
+        assertEquals(0, client.getInFlight());
+        assertEquals(0, client.getWaiting());
+    }
+
+    @Test
+    void serverErrorIsRetried() throws Exception {
+        StubHttpClient http = new StubHttpClient(request -> null);
+        http.responder = request -> CompletableFuture.completedFuture(
+            response(http.paths().size() == 1 ? 503 : 200, request));
+        SessionServiceClient client = client(http, 1);
+
+        HttpResponse<String> response = client.send("test", request("/grant")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(2, http.paths().size());
+    }
+
+    @Test
+    void ioErrorIsRetried() throws Exception {
+        StubHttpClient http = new StubHttpClient(request -> null);
+        http.responder = request -> http.paths().size() == 1
+            ? CompletableFuture.failedFuture(new IOException("reset"))
+            : CompletableFuture.completedFuture(response(200, request));
+        SessionServiceClient client = client(http, 1);
+
+        assertEquals(200, client.send("test", request("/grant")).get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(2, http.paths().size());
+    }
+
+    @Test
+    void retriesStopAfterTheLastAttempt() throws Exception {
+        StubHttpClient http = new StubHttpClient(request -> CompletableFuture.completedFuture(response(500, request)));
+        SessionServiceClient client = client(http, 1);
+
+        assertEquals(500, client.send("test", request("/grant")).get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(3, http.paths().size());
+    }
+
+    @Test
+    void clientErrorIsNotRetried() throws Exception {
+        StubHttpClient http = new StubHttpClient(request -> CompletableFuture.completedFuture(response(400, request)));
+        SessionServiceClient client = client(http, 1);
+
+        assertEquals(400, client.send("test", request("/grant")).get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(1, http.paths().size());
+    }
+
+    @Test
+    void retryBudgetLimitsRetriesDuringAnOutage() {
+        StubHttpClient http = new StubHttpClient(request -> CompletableFuture.completedFuture(response(503, request)));
+        SessionServiceClient client = client(http, 100);
+
+        List<CompletableFuture<HttpResponse<String>>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(client.send("test", request("/grant")));
+        }
+        results.forEach(CompletableFuture::join);
+
+        // 100 requests earn 10 retries on top of the starting budget of 10
+        assertTrue(http.paths().size() <= 100 + 20, http.paths().size() + " requests");
+    }
+
+    private SessionServiceClient client(HttpClient http, int maxConcurrentRequests) {
+        SessionServiceClient client = new SessionServiceClient(http, maxConcurrentRequests);
+        clients.add(client);
+        return client;
+    }
+
+    private static HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create("https://sessions.test" + path))
+            .timeout(Duration.ofSeconds(1))
+            .GET().build();
+    }
+
+    private static HttpResponse<String> response(int status, HttpRequest request) {
+        return new Response(status, request);
+    }
+
+    private record Response(int statusCode, HttpRequest request) implements HttpResponse<String> {
+
+        @Override
+        public Optional<HttpResponse<String>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(Map.of(), (name, value) -> true);
+        }
+
+        @Override
+        public String body() {
+            return "";
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return request.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_2;
+        }
+    }
+
+    /**
+     * Answers requests through a function and records them in the order they were sent.
+     */
+    private static final class StubHttpClient extends HttpClient {
+
+        private final ConcurrentLinkedQueue<HttpRequest> requests = new ConcurrentLinkedQueue<>();
+        private final List<CompletableFuture<HttpResponse<String>>> pending = new ArrayList<>();
+        private Function<HttpRequest, CompletableFuture<HttpResponse<String>>> responder;
+
+        StubHttpClient(Function<HttpRequest, CompletableFuture<HttpResponse<String>>> responder) {
+            this.responder = responder;
+        }
+
+        List<String> paths() {
+            return requests.stream().map(request -> request.uri().getPath()).toList();
+        }
+
+        HttpRequest request(int index) {
+            return List.copyOf(requests).get(index);
+        }
+
+        synchronized CompletableFuture<HttpResponse<String>> pending(int index) {
+            return pending.get(index);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                                HttpResponse.BodyHandler<T> handler) {
+            requests.add(request);
+            CompletableFuture<HttpResponse<String>> response = responder.apply(request);
+            synchronized (this) {
+                pending.add(response);
+            }
+            return (CompletableFuture<HttpResponse<T>>) (CompletableFuture<?>) response;
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                                HttpResponse.BodyHandler<T> handler,
+                                                                HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+            return sendAsync(request, handler);
+        }
+
+        @Override
+        public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+            return sendAsync(request, handler).join();
+        }
+
+        @Override
+        public Optional<CookieHandler> cookieHandler() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<Duration> connectTimeout() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Redirect followRedirects() {
+            return Redirect.NEVER;
+        }
+
+        @Override
+        public Optional<ProxySelector> proxy() {
+            return Optional.empty();
+        }
+
+        @Override
+        public SSLContext sslContext() {
+            return null;
+        }
+
+        @Override
+        public SSLParameters sslParameters() {
+            return new SSLParameters();
+        }
+
+        @Override
+        public Optional<Authenticator> authenticator() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Version version() {
+            return Version.HTTP_2;
+        }
+
+        @Override
+        public Optional<Executor> executor() {
+            return Optional.empty();
+        }
+    }
+}
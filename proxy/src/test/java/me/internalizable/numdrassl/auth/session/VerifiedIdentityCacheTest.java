@@ -0,0 +1,80 @@
+package me.internalizable.numdrassl.auth.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VerifiedIdentityCacheTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+    private static final String FINGERPRINT = "fingerprint";
+    private static final UUID PLAYER = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID OTHER = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    private final VerifiedIdentityCache cache =
+        new VerifiedIdentityCache(Duration.ofMinutes(1), 16, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void hitReturnsCachedServerToken() {
+        String serverToken = jwt(PLAYER, NOW.plusSeconds(600));
+        cache.put(FINGERPRINT, PLAYER, serverToken);
+
+        assertEquals(serverToken, cache.lookup(FINGERPRINT, PLAYER));
+    }
+
+    @Test
+    void differentCertificateMisses() {
+        cache.put(FINGERPRINT, PLAYER, jwt(PLAYER, NOW.plusSeconds(600)));
+
+        assertNull(cache.lookup("other", PLAYER));
+        assertNull(cache.lookup(null, PLAYER));
+    }
+
+    @Test
+    void expiredServerTokenIsEvicted() {
+        cache.put(FINGERPRINT, PLAYER, jwt(PLAYER, NOW));
+
+        assertNull(cache.lookup(FINGERPRINT, PLAYER));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void revokeDropsEveryEntryOfThePlayer() {
+        cache.put(FINGERPRINT, PLAYER, jwt(PLAYER, NOW.plusSeconds(600)));
+        cache.put("second-device", PLAYER, jwt(PLAYER, NOW.plusSeconds(600)));
+        cache.put(FINGERPRINT, OTHER, jwt(OTHER, NOW.plusSeconds(600)));
+
+        cache.invalidate(PLAYER);
+
+        assertNull(cache.lookup(FINGERPRINT, PLAYER));
+        assertNull(cache.lookup("second-device", PLAYER));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void zeroTtlDisablesCaching() {
+        VerifiedIdentityCache disabled = new VerifiedIdentityCache(Duration.ZERO, 16);
+        disabled.put(FINGERPRINT, PLAYER, jwt(PLAYER, NOW.plusSeconds(600)));
+
+        assertFalse(disabled.isEnabled());
+        assertEquals(0, disabled.size());
+    }
+
+    private static String jwt(UUID subject, Instant expiresAt) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"EdDSA\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(("{\"sub\":\"" + subject + "\",\"exp\":" + expiresAt.getEpochSecond() + "}")
+            .getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".signature";
+    }
+}
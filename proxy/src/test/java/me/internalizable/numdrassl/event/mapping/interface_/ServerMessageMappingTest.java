@@ -0,0 +1,151 @@
+package me.internalizable.numdrassl.event.mapping.interface_;
+
+import com.hypixel.hytale.protocol.FormattedMessage;
+import com.hypixel.hytale.protocol.MaybeBool;
+import com.hypixel.hytale.protocol.Packet;
+import com.hypixel.hytale.protocol.StringParamValue;
+import com.hypixel.hytale.protocol.packets.interface_.ChatType;
+import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
+import com.hypixel.hytale.protocol.packets.interface_.ServerMessageView;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import me.internalizable.numdrassl.api.event.server.ServerMessageEvent;
+import me.internalizable.numdrassl.api.player.Player;
+import me.internalizable.numdrassl.config.ProxyConfig;
+import me.internalizable.numdrassl.event.mapping.PacketContext;
+import me.internalizable.numdrassl.event.mapping.PacketEventMapping;
+import me.internalizable.numdrassl.server.ProxyCore;
+import me.internalizable.numdrassl.session.ProxySession;
+import me.internalizable.numdrassl.testing.LoopbackQuic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Decodes each message both eagerly and lazily and checks that both mappings expose the
+ * same text and apply the same edits.
+ */
+class ServerMessageMappingTest {
+
+    private final ServerMessageMapping eager = new ServerMessageMapping();
+    private final ServerMessageViewMapping lazy = new ServerMessageViewMapping();
+
+    private LoopbackQuic quic;
+    private PacketContext context;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        quic = new LoopbackQuic();
+        ProxySession session = new ProxySession(new ProxyCore(new ProxyConfig()), quic.connect());
+        Player player = (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] {Player.class},
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+        context = new PacketContext(session, player, PacketContext.Direction.SERVER_TO_CLIENT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        quic.close();
+    }
+
+    @Test
+    void bothPathsExposeThePlainText() {
+        assertEquals("hello", text(styled("hello")));
+        assertEquals("", text(styled("")));
+        assertEquals("", text(null));
+        assertEquals("Welcome, Steve!", text(nested()));
+        assertEquals("", text(translated()));
+    }
+
+    @Test
+    void bothPathsApplyTheSameEdits() {
+        for (FormattedMessage message : messages()) {
+            for (String edit : List.of("edited", "", "hello")) {
+                byte[] encoded = encode(new ServerMessage(ChatType.Chat, message));
+                byte[] eagerResult = edit(eager, ServerMessage.deserialize(Unpooled.wrappedBuffer(encoded), 0), edit);
+                byte[] lazyResult = edit(lazy, ServerMessageView.deserialize(Unpooled.wrappedBuffer(encoded), 0), edit);
+                assertArrayEquals(eagerResult, lazyResult, "edit '" + edit + "' of " + text(message));
+            }
+        }
+    }
+
+    @Test
+    void flatMessageTakesTheNewTextAndKeepsItsStyle() {
+        byte[] encoded = encode(new ServerMessage(ChatType.Chat, styled("hello")));
+
+        byte[] result = edit(eager, ServerMessage.deserialize(Unpooled.wrappedBuffer(encoded), 0), "edited");
+
+        FormattedMessage expected = styled("edited");
+        assertEquals(expected, ServerMessage.deserialize(Unpooled.wrappedBuffer(result), 0).message);
+    }
+
+    @Test
+    void richMessagesPassThroughUnchanged() {
+        for (FormattedMessage message : List.of(nested(), translated())) {
+            byte[] encoded = encode(new ServerMessage(ChatType.Chat, message));
+
+            assertArrayEquals(encoded, edit(eager, ServerMessage.deserialize(Unpooled.wrappedBuffer(encoded), 0), "edited"));
+        }
+    }
+
+    private String text(FormattedMessage message) {
+        byte[] encoded = encode(new ServerMessage(ChatType.Chat, message));
+        ServerMessageEvent eagerEvent = eager.createEvent(context, ServerMessage.deserialize(Unpooled.wrappedBuffer(encoded), 0));
+        ServerMessageEvent lazyEvent = lazy.createEvent(context, ServerMessageView.deserialize(Unpooled.wrappedBuffer(encoded), 0));
+        assertNotNull(eagerEvent);
+        assertNotNull(lazyEvent);
+        assertEquals(eagerEvent.getMessage(), lazyEvent.getMessage());
+        return eagerEvent.getMessage();
+    }
+
+    private <P extends Packet> byte[] edit(PacketEventMapping<P, ServerMessageEvent> mapping, P packet, String text) {
+        ServerMessageEvent event = mapping.createEvent(context, packet);
+        assertNotNull(event);
+        event.setMessage(text);
+        return encode(mapping.applyChanges(context, packet, event));
+    }
+
+    private static byte[] encode(Packet packet) {
+        ByteBuf buf = Unpooled.buffer();
+        packet.serialize(buf);
+        return ByteBufUtil.getBytes(buf);
+    }
+
+    private static List<FormattedMessage> messages() {
+        return Arrays.asList(styled("hello"), styled(""), null, nested(), translated());
+    }
+
+    private static FormattedMessage styled(String text) {
+        return new FormattedMessage(text, null, null, null, null, "#ff5555",
+            MaybeBool.True, MaybeBool.Null, MaybeBool.False, MaybeBool.Null, "https://example.com", true);
+    }
+
+    private static FormattedMessage nested() {
+        FormattedMessage name = styled("Steve");
+        FormattedMessage translatedPart = new FormattedMessage(null, "chat.suffix", null, null, null, null,
+            MaybeBool.Null, MaybeBool.Null, MaybeBool.Null, MaybeBool.Null, null, false);
+        return new FormattedMessage("Welcome, ", null, new FormattedMessage[] {name, translatedPart, plain("!")},
+            null, null, null, MaybeBool.Null, MaybeBool.Null, MaybeBool.Null, MaybeBool.Null, null, false);
+    }
+
+    private static FormattedMessage translated() {
+        return new FormattedMessage(null, "server.welcome", null, Map.of("name", new StringParamValue("Steve")),
+            Map.of("server", plain("Lobby")), null, MaybeBool.Null, MaybeBool.Null, MaybeBool.Null, MaybeBool.Null, null, false);
+    }
+
+    private static FormattedMessage plain(String text) {
+        return new FormattedMessage(text, null, null, null, null, null,
+            MaybeBool.Null, MaybeBool.Null, MaybeBool.Null, MaybeBool.Null, null, false);
+    }
+}
@@ -0,0 +1,87 @@
+package me.internalizable.numdrassl.event.packet;
+
+import com.hypixel.hytale.protocol.Packet;
+import com.hypixel.hytale.protocol.packets.connection.Pong;
+import me.internalizable.numdrassl.config.ProxyConfig;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import me.internalizable.numdrassl.server.ProxyCore;
+import me.internalizable.numdrassl.session.ProxySession;
+import me.internalizable.numdrassl.testing.Allocations;
+import me.internalizable.numdrassl.testing.LoopbackQuic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks the per-packet work of the forwarding path, metrics and event dispatch, for
+ * allocations. The session runs on a loopback QUIC connection since it needs a real channel;
+ * its core is never started, so it binds no sockets of its own.
+ */
+class PacketEventManagerTest {
+
+    private LoopbackQuic quic;
+    private ProxySession session;
+
+    private final PacketEventManager events = new PacketEventManager();
+    private final Pong packet = new Pong();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        quic = new LoopbackQuic();
+        session = new ProxySession(new ProxyCore(new ProxyConfig()), quic.connect());
+    }
+
+    @AfterEach
+    void tearDown() {
+        quic.close();
+    }
+
+    @Test
+    void forwardingWithoutListenersDoesNotAllocate() {
+        ProxyMetrics metrics = ProxyMetrics.getInstance();
+        Allocations.assertNoPerOpAllocation(() -> {
+            metrics.recordPacketFromClient(packet.getClass().getSimpleName(), 0);
+            events.dispatchClientPacket(session, packet);
+            metrics.recordPacketFromBackend(packet.getClass().getSimpleName(), 0);
+            events.dispatchServerPacket(session, packet);
+        });
+
+        assertSame(packet, events.dispatchClientPacket(session, packet));
+    }
+
+    @Test
+    void listenerEventsArePooled() {
+        // The default callbacks pass every packet through
+        events.registerListener(new PacketListener() {
+        });
+
+        Allocations.assertNoPerOpAllocation(() -> {
+            events.dispatchClientPacket(session, packet);
+            events.dispatchServerPacket(session, packet);
+        });
+    }
+
+    @Test
+    void listenerCanReplaceOrCancelPacket() {
+        Pong replacement = new Pong();
+        events.registerListener(new PacketListener() {
+            @Override
+            public <T extends Packet> T onClientPacket(PacketEvent<T> event) {
+                event.setCancelled(true);
+                return event.getPacket();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends Packet> T onServerPacket(PacketEvent<T> event) {
+                return (T) replacement;
+            }
+        });
+
+        assertNull(events.dispatchClientPacket(session, packet));
+        assertSame(replacement, events.dispatchServerPacket(session, packet));
+    }
+}
@@ -0,0 +1,66 @@
+package me.internalizable.numdrassl.pipeline.codec;
+
+import com.hypixel.hytale.protocol.PacketRegistry;
+import com.hypixel.hytale.protocol.packets.connection.Pong;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import me.internalizable.numdrassl.session.capture.CaptureDirection;
+import me.internalizable.numdrassl.session.capture.SessionCapture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks which frames the decoder hands to a session capture.
+ */
+class ProxyPacketDecoderTest {
+
+    private final SessionCapture capture = new SessionCapture();
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        capture.start(SessionCapture.DEFAULT_CAPACITY_BYTES);
+        channel = new EmbeddedChannel(new ProxyPacketDecoder(ProxyPacketDecoder.options("client", false)
+            .capture(capture.tap(CaptureDirection.FROM_CLIENT))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+        capture.stop();
+    }
+
+    @Test
+    void decodedFrameIsCaptured() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new ProxyPacketEncoder("client", false));
+        encoder.writeOutbound(new Pong());
+        ByteBuf frame = encoder.readOutbound();
+
+        channel.writeInbound(frame);
+
+        assertInstanceOf(Pong.class, channel.readInbound());
+        assertEquals(1, capture.getFrames());
+        encoder.finishAndReleaseAll();
+    }
+
+    @Test
+    void oversizedFrameOfKnownPacketIsNotCaptured() {
+        int pongId = PacketRegistry.getId(Pong.class);
+        int payloadLength = 64 * 1024;
+        ByteBuf frame = Unpooled.buffer(8 + payloadLength);
+        frame.writeIntLE(payloadLength).writeIntLE(pongId).writeZero(payloadLength);
+
+        channel.writeInbound(frame);
+
+        assertNull(channel.readInbound());
+        assertFalse(channel.isOpen());
+        assertEquals(0, capture.getFrames());
+    }
+}
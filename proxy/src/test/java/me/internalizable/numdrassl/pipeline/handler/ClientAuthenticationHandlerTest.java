@@ -0,0 +1,285 @@
+package me.internalizable.numdrassl.pipeline.handler;
+
+import com.hypixel.hytale.protocol.packets.auth.AuthGrant;
+import com.hypixel.hytale.protocol.packets.auth.AuthToken;
+import com.hypixel.hytale.protocol.packets.auth.ServerAuthToken;
+import com.hypixel.hytale.protocol.packets.connection.ClientType;
+import com.hypixel.hytale.protocol.packets.connection.Connect;
+import com.hypixel.hytale.protocol.packets.connection.Disconnect;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import io.netty.incubator.codec.quic.QuicStreamType;
+import io.netty.util.ReferenceCountUtil;
+import me.internalizable.numdrassl.auth.http.HytaleEndpoints;
+import me.internalizable.numdrassl.config.ProxyConfig;
+import me.internalizable.numdrassl.server.ProxyCore;
+import me.internalizable.numdrassl.session.ProxySession;
+import me.internalizable.numdrassl.session.login.LoginPhase;
+import me.internalizable.numdrassl.session.login.LoginTrace;
+import me.internalizable.numdrassl.testing.LoopbackQuic;
+import me.internalizable.numdrassl.testing.MockSessionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Logs clients in over loopback QUIC against a mock session service, acting as the
+ * client for the AuthGrant/AuthToken round trip.
+ *
+ * <p>Logins are timed until the proxy sends ServerAuthToken. Everything after that
+ * (login events, backend connection, the backend's ConnectAccept) runs the same way for
+ * cold and cached logins, so the difference to ServerAuthToken is the difference in
+ * time-to-ConnectAccept.</p>
+ */
+class ClientAuthenticationHandlerTest {
+
+    private static final long SERVICE_DELAY_MILLIS = 20;
+    // How long the client takes to answer AuthGrant
+    private static final long CLIENT_DELAY_MILLIS = 30;
+    private static final int LOGINS = 5;
+
+    @TempDir
+    Path dir;
+
+    private MockSessionService service;
+    private LoopbackQuic quic;
+    private ProxyCore core;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new MockSessionService(SERVICE_DELAY_MILLIS);
+        quic = new LoopbackQuic();
+        core = new ProxyCore(new ProxyConfig(), service.authenticator(dir, Duration.ofSeconds(30)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        quic.close();
+        core.getAuthenticator().close();
+        service.close();
+    }
+
+    @Test
+    void reconnectSkipsOnlyTheServerGrantExchange() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        Login cold = login(quic, uuid);
+        assertEquals(List.of(AuthGrant.class, ServerAuthToken.class), cold.sent());
+        assertEquals(1, service.requests(HytaleEndpoints.AUTH_GRANT_PATH));
+        assertEquals(1, service.requests(HytaleEndpoints.AUTH_TOKEN_PATH));
+
+        Login cached = login(quic, uuid);
+
+        // The client still gets a fresh grant and answers it before the cached token is sent
+        assertEquals(List.of(AuthGrant.class, ServerAuthToken.class), cached.sent());
+        assertEquals(cold.serverAccessToken(), cached.serverAccessToken());
+        assertEquals(2, service.requests(HytaleEndpoints.AUTH_GRANT_PATH));
+        assertEquals(1, service.requests(HytaleEndpoints.AUTH_TOKEN_PATH));
+    }
+
+    @Test
+    void reconnectReachesServerAuthTokenSooner() throws Exception {
+        long[] cold = new long[LOGINS];
+        long[] cached = new long[LOGINS];
+        for (int i = 0; i < LOGINS; i++) {
+            UUID uuid = UUID.randomUUID();
+            cold[i] = login(quic, uuid).nanos();
+            cached[i] = login(quic, uuid).nanos();
+        }
+
+        // The full exchange makes two session service round trips and waits for the client;
+        // a reconnect saves the second round trip
+        long coldMedian = median(cold);
+        long cachedMedian = median(cached);
+        assertTrue(coldMedian >= TimeUnit.MILLISECONDS.toNanos(2 * SERVICE_DELAY_MILLIS + CLIENT_DELAY_MILLIS),
+            "cold login took " + coldMedian + " ns");
+        assertTrue(cachedMedian >= TimeUnit.MILLISECONDS.toNanos(SERVICE_DELAY_MILLIS + CLIENT_DELAY_MILLIS),
+            "cached login took " + cachedMedian + " ns");
+        assertTrue(cachedMedian < coldMedian - TimeUnit.MILLISECONDS.toNanos(SERVICE_DELAY_MILLIS / 2),
+            "cached login took " + cachedMedian + " ns, cold " + coldMedian + " ns");
+    }
+
+    @Test
+    void reconnectWithRejectedIdentityTokenIsDisconnected() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        login(quic, uuid);
+        service.reject(HytaleEndpoints.AUTH_GRANT_PATH);
+
+        Client client = start(quic, uuid).client();
+
+        client.disconnect.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(Disconnect.class), client.sent);
+        assertEquals(1, service.requests(HytaleEndpoints.AUTH_TOKEN_PATH));
+    }
+
+    @Test
+    void loginTraceMarksEachAuthPhaseWhereItEnds() throws Exception {
+        Login login = login(quic, UUID.randomUUID());
+        LoginTrace.Breakdown breakdown = login.session().getLoginTrace().finish(System.nanoTime());
+        assertNotNull(breakdown);
+
+        // Each phase covers its own wait and nothing of the next one's
+        assertAtLeast(SERVICE_DELAY_MILLIS, breakdown.get(LoginPhase.AUTH_GRANT), "auth_grant");
+        assertAtLeast(CLIENT_DELAY_MILLIS, breakdown.get(LoginPhase.CLIENT_AUTH), "client_auth");
+        assertAtLeast(SERVICE_DELAY_MILLIS, breakdown.get(LoginPhase.GRANT_EXCHANGE), "grant_exchange");
+        // ... and together they fit between Connect and ServerAuthToken
+        long authPhases = breakdown.get(LoginPhase.QUEUE) + breakdown.get(LoginPhase.AUTH_GRANT)
+            + breakdown.get(LoginPhase.CLIENT_AUTH) + breakdown.get(LoginPhase.GRANT_EXCHANGE);
+        assertTrue(authPhases <= login.serverAuthTokenNanos() - login.connectNanos(), "auth phases " + authPhases);
+        // The handshake ends at Connect, which was sent after the session was created
+        assertTrue(breakdown.get(LoginPhase.HANDSHAKE) >= login.connectNanos() - login.createdNanos());
+        assertTrue(breakdown.get(LoginPhase.HANDSHAKE) <= login.serverAuthTokenNanos() - login.creatingNanos());
+    }
+
+    @Test
+    void cachedLoginTraceSkipsOnlyTheGrantExchange() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        login(quic, uuid);
+
+        Login login = login(quic, uuid);
+        LoginTrace.Breakdown breakdown = login.session().getLoginTrace().finish(System.nanoTime());
+        assertNotNull(breakdown);
+
+        assertAtLeast(SERVICE_DELAY_MILLIS, breakdown.get(LoginPhase.AUTH_GRANT), "auth_grant");
+        assertAtLeast(CLIENT_DELAY_MILLIS, breakdown.get(LoginPhase.CLIENT_AUTH), "client_auth");
+        // Only the cache lookup, with no session service round trip
+        long grantExchange = breakdown.get(LoginPhase.GRANT_EXCHANGE);
+        assertTrue(grantExchange < TimeUnit.MILLISECONDS.toNanos(SERVICE_DELAY_MILLIS),
+            "grant_exchange took " + grantExchange + " ns");
+    }
+
+    @Test
+    void otherCertificateGoesThroughTheFullExchange() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        login(quic, uuid);
+
+        try (LoopbackQuic other = new LoopbackQuic()) {
+            Login login = login(other, uuid);
+
+            assertEquals(List.of(AuthGrant.class, ServerAuthToken.class), login.sent());
+            assertEquals(2, service.requests(HytaleEndpoints.AUTH_TOKEN_PATH));
+        }
+    }
+
+    @Test
+    void revokedIdentityGoesThroughTheFullExchange() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        login(quic, uuid);
+        core.getAuthenticator().revokeVerifiedIdentity(uuid);
+
+        Login login = login(quic, uuid);
+
+        assertEquals(List.of(AuthGrant.class, ServerAuthToken.class), login.sent());
+    }
+
+    /**
+     * Connects a new session and runs its login until the proxy sends ServerAuthToken.
+     */
+    private Login login(LoopbackQuic server, UUID uuid) throws Exception {
+        Started started = start(server, uuid);
+        Client client = started.client();
+        ServerAuthToken token = client.serverAuthToken.get(5, TimeUnit.SECONDS);
+        return new Login(started.session(), started.creatingNanos(), started.createdNanos(), started.connectNanos(),
+            client.serverAuthTokenNanos, client.sent, token.serverAccessToken);
+    }
+
+    /**
+     * Connects a new session and sends its Connect.
+     */
+    private Started start(LoopbackQuic server, UUID uuid) throws Exception {
+        QuicChannel channel = server.connect();
+        long creating = System.nanoTime();
+        ProxySession session = new ProxySession(core, channel);
+        long created = System.nanoTime();
+        core.getSessionManager().addSession(session);
+        Client client = new Client(uuid);
+        ClientAuthenticationHandler handler = new ClientAuthenticationHandler(core, session, () -> {});
+        client.handler = handler;
+        QuicStreamChannel stream = session.getClientChannel()
+            .createStream(QuicStreamType.BIDIRECTIONAL, client).get(5, TimeUnit.SECONDS);
+        session.setClientStream(stream);
+
+        Instant expiry = Instant.now().plus(Duration.ofHours(1));
+        Connect connect = new Connect(0, 0, "test", ClientType.Game, uuid, "player",
+            MockSessionService.token(uuid.toString(), expiry), "en", null, null);
+
+        long start = System.nanoTime();
+        handler.handleConnect(connect);
+        return new Started(session, client, creating, created, start);
+    }
+
+    private static void assertAtLeast(long millis, long nanos, String phase) {
+        assertTrue(nanos >= TimeUnit.MILLISECONDS.toNanos(millis), phase + " took " + nanos + " ns");
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private record Started(ProxySession session, Client client, long creatingNanos, long createdNanos,
+                           long connectNanos) {}
+
+    private record Login(ProxySession session, long creatingNanos, long createdNanos, long connectNanos,
+                         long serverAuthTokenNanos, List<Class<?>> sent, String serverAccessToken) {
+
+        long nanos() {
+            return serverAuthTokenNanos - connectNanos;
+        }
+    }
+
+    /**
+     * Records the auth and disconnect packets the proxy sends and answers AuthGrant with AuthToken after
+     * {@link #CLIENT_DELAY_MILLIS}.
+     */
+    private static final class Client extends ChannelOutboundHandlerAdapter {
+
+        private final UUID uuid;
+        private final List<Class<?>> sent = new ArrayList<>();
+        private final CompletableFuture<ServerAuthToken> serverAuthToken = new CompletableFuture<>();
+        private final CompletableFuture<Void> disconnect = new CompletableFuture<>();
+        private ClientAuthenticationHandler handler;
+        private volatile long serverAuthTokenNanos;
+
+        Client(UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (msg instanceof AuthGrant) {
+                sent.add(AuthGrant.class);
+                String accessToken = MockSessionService.token(uuid.toString(), Instant.now().plus(Duration.ofHours(1)));
+                ctx.executor().schedule(() -> handler.handleAuthToken(new AuthToken(accessToken, "server-grant")),
+                    CLIENT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } else if (msg instanceof ServerAuthToken token) {
+                serverAuthTokenNanos = System.nanoTime();
+                sent.add(ServerAuthToken.class);
+                serverAuthToken.complete(token);
+            } else if (msg instanceof Disconnect) {
+                sent.add(Disconnect.class);
+                disconnect.complete(null);
+            }
+            ReferenceCountUtil.release(msg);
+            promise.setSuccess();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package me.internalizable.numdrassl.profiling;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ForwardingLatencyTest {
+
+    private final ForwardingLatency latency = ForwardingLatency.getInstance();
+
+    @AfterEach
+    void tearDown() {
+        latency.setSampleRate(ForwardingLatency.DEFAULT_SAMPLE_RATE);
+    }
+
+    @Test
+    void stampIsTakenOnceByTheSameMessage() {
+        latency.setSampleRate(1);
+        Object message = new Object();
+        latency.stamp(message);
+
+        assertEquals(-1, latency.complete(new Object()));
+        assertTrue(latency.complete(message) >= 0);
+        assertEquals(-1, latency.complete(message));
+    }
+
+    @Test
+    void nothingIsStampedWhenDisabled() {
+        latency.setSampleRate(0);
+        Object message = new Object();
+        latency.stamp(message);
+
+        latency.setSampleRate(1);
+        assertEquals(-1, latency.complete(message));
+    }
+
+    @Test
+    void slowSampleIsRecorded() throws Exception {
+        latency.setSampleRate(1);
+        Object message = new Object();
+        latency.stamp(message);
+
+        TimeUnit.MILLISECONDS.sleep(300);
+
+        assertTrue(latency.complete(message) >= TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    @Test
+    void sampledFrameIsForwardedAsAView() {
+        latency.setSampleRate(1);
+        ByteBuf frame = PooledByteBufAllocator.DEFAULT.buffer(16).writeLong(42);
+
+        ByteBuf forwarded = latency.stampFrame(frame);
+
+        assertNotSame(frame, forwarded);
+        assertEquals(42, forwarded.getLong(0));
+        assertEquals(-1, latency.complete(frame));
+        assertTrue(latency.complete(forwarded) >= 0);
+        assertTrue(forwarded.release());
+        assertEquals(0, frame.refCnt());
+    }
+
+    @Test
+    void recycledBufferDoesNotTakeAStaleStamp() {
+        latency.setSampleRate(1);
+        ByteBuf dropped = PooledByteBufAllocator.DEFAULT.buffer(16);
+        latency.stampFrame(dropped).release();
+
+        // The next allocation of the same size on this thread reuses the released buffer object
+        latency.setSampleRate(0);
+        ByteBuf reused = PooledByteBufAllocator.DEFAULT.buffer(16);
+        assertSame(reused, latency.stampFrame(reused));
+
+        latency.setSampleRate(1);
+        assertEquals(-1, latency.complete(reused));
+        reused.release();
+    }
+
+    @Test
+    void unsampledFrameIsForwardedAsIs() {
+        latency.setSampleRate(0);
+        ByteBuf frame = PooledByteBufAllocator.DEFAULT.buffer(16);
+
+        assertSame(frame, latency.stampFrame(frame));
+        frame.release();
+    }
+}
@@ -0,0 +1,131 @@
+package me.internalizable.numdrassl.profiling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHitterSketchTest {
+
+    private static final int CAPACITY = 32;
+    private static final int KEYS = 2_000;
+    private static final int EVENTS = 200_000;
+
+    @Test
+    void estimatesBoundTheExactCountsOnASkewedStream() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(CAPACITY);
+        Map<Long, Long> exact = feedZipf(sketch, 1.2, 41);
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+
+        for (int i = 0; i < sketch.size(); i++) {
+            long actual = exact.getOrDefault(sketch.key(i), 0L);
+            assertTrue(sketch.count(i) >= actual, "count underestimates key " + sketch.key(i));
+            assertTrue(sketch.count(i) - sketch.error(i) <= actual, "error bound misses key " + sketch.key(i));
+            assertTrue(sketch.error(i) <= total / CAPACITY, "error above total / capacity");
+        }
+    }
+
+    @Test
+    void everyKeyAboveTotalOverCapacityIsTracked() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(CAPACITY);
+        Map<Long, Long> exact = feedZipf(sketch, 1.2, 41);
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+
+        List<Long> tracked = IntStream.range(0, sketch.size()).mapToObj(sketch::key).toList();
+        exact.forEach((key, count) -> {
+            if (count > total / CAPACITY) {
+                assertTrue(tracked.contains(key), "heavy key " + key + " with " + count + " is not tracked");
+            }
+        });
+    }
+
+    @Test
+    void topKeysComeOutInOrder() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(CAPACITY);
+        Map<Long, Long> exact = feedZipf(sketch, 1.2, 41);
+
+        List<Long> exactTop = exact.entrySet().stream()
+            .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+            .limit(5).map(Map.Entry::getKey).toList();
+        List<Long> estimatedTop = IntStream.range(0, sketch.size()).boxed()
+            .sorted(Comparator.comparingLong(sketch::count).reversed())
+            .limit(5).map(sketch::key).toList();
+        assertEquals(exactTop, estimatedTop);
+    }
+
+    @Test
+    void weightsAreAddedPerKey() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(4);
+        sketch.add(1, "a", 1_500);
+        sketch.add(2, "b", 40);
+        sketch.add(1, "a", 500);
+
+        assertEquals(2, sketch.size());
+        assertEquals(2_000, sketch.count(0));
+        assertEquals("a", sketch.label(0));
+        assertEquals(0, sketch.error(0));
+    }
+
+    @Test
+    void newKeyTakesOverTheSmallestCounter() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(2);
+        sketch.add(1, "a", 10);
+        sketch.add(2, "b", 3);
+        sketch.add(3, "c", 1);
+
+        assertEquals(3, sketch.key(1));
+        assertEquals("c", sketch.label(1));
+        assertEquals(4, sketch.count(1));
+        assertEquals(3, sketch.error(1));
+    }
+
+    @Test
+    void clearEmptiesTheSketch() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(CAPACITY);
+        feedZipf(sketch, 1.2, 41);
+        sketch.clear();
+
+        assertEquals(0, sketch.size());
+        sketch.add(7, "g", 1);
+        assertEquals(1, sketch.size());
+        assertEquals(1, sketch.count(0));
+    }
+
+    @Test
+    void capacityMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitterSketch(0));
+    }
+
+    /**
+     * Feeds a Zipf-distributed stream of keys with random weights and returns the exact
+     * total per key.
+     */
+    private static Map<Long, Long> feedZipf(HeavyHitterSketch sketch, double exponent, long seed) {
+        double[] cumulative = new double[KEYS];
+        double sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+
+        Random random = new Random(seed);
+        Map<Long, Long> exact = new HashMap<>();
+        for (int i = 0; i < EVENTS; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            long key = index >= 0 ? index : -index - 1;
+            long weight = 1 + random.nextInt(1_500);
+            sketch.add(key, "key-" + key, weight);
+            exact.merge(key, weight, Long::sum);
+        }
+        return exact;
+    }
+}
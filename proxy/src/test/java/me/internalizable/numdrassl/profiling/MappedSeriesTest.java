@@ -0,0 +1,113 @@
+package me.internalizable.numdrassl.profiling;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedSeriesTest {
+
+    private static final int TIME = 0;
+    private static final int VALUE = 1;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void ringKeepsNewestRecords() {
+        MappedSeries series = MappedSeries.inMemory(2, 4);
+        for (int i = 0; i < 10; i++) {
+            append(series, i * 10L, i * 0.5);
+        }
+
+        assertEquals(10, series.count());
+        assertEquals(6, series.first());
+        assertEquals(4, series.size());
+        assertFalse(series.isRetained(5));
+        for (long seq = series.first(); seq < series.count(); seq++) {
+            assertTrue(series.isRetained(seq));
+            assertEquals(seq * 10, series.getLong(seq, TIME));
+            assertEquals(seq * 0.5, series.getDouble(seq, VALUE));
+        }
+
+        assertEquals(7, series.search(TIME, 61));
+        assertEquals(6, series.search(TIME, 0));
+        assertEquals(10, series.search(TIME, 91));
+    }
+
+    @Test
+    void recordsSurviveReopening() throws Exception {
+        Path file = directory.resolve("series.dat");
+        try (MappedSeries series = MappedSeries.open(file, 2, 8)) {
+            for (int i = 0; i < 3; i++) {
+                append(series, 1000L + i, i + 0.25);
+            }
+        }
+
+        try (MappedSeries series = MappedSeries.open(file, 2, 8)) {
+            assertEquals(3, series.count());
+            assertEquals(1002, series.getLong(2, TIME));
+            assertEquals(2.25, series.getDouble(2, VALUE));
+            append(series, 1003, 3.25);
+            assertEquals(4, series.count());
+        }
+
+        // A different layout starts over instead of misreading the old records
+        try (MappedSeries series = MappedSeries.open(file, 3, 8)) {
+            assertEquals(0, series.count());
+        }
+    }
+
+    @Test
+    void historyRollsUpThroughTiersAndPersists() {
+        long now = System.currentTimeMillis();
+        MetricsHistory history = new MetricsHistory(directory);
+        try {
+            for (int i = 0; i < 6; i++) {
+                history.writeSnapshot(snapshot(now - 50_000 + i * 10_000L, 10 + i, 100.0 * i));
+            }
+            history.rollupToTier2();
+            history.rollupToTier3();
+
+            List<MetricsHistory.PeriodSummary> minutes = history.getMinuteSummaries();
+            assertEquals(1, minutes.size());
+            assertEquals(15, minutes.get(0).maxSessions());
+            assertEquals(12.5, minutes.get(0).avgSessions(), 1e-9);
+            assertEquals(250.0, minutes.get(0).avgPacketsPerSecIn(), 1e-9);
+
+            List<MetricsHistory.PeriodSummary> tenMinutes = history.getTenMinuteSummaries();
+            assertEquals(1, tenMinutes.size());
+            assertEquals(15, tenMinutes.get(0).maxSessions());
+            assertEquals(12.5, tenMinutes.get(0).avgSessions(), 1e-9);
+        } finally {
+            history.shutdown();
+        }
+
+        MetricsHistory reopened = new MetricsHistory(directory);
+        try {
+            List<MetricsHistory.HistoricalSnapshot> recent = reopened.getRecentHistory();
+            assertEquals(6, recent.size());
+            assertEquals(15, recent.get(5).activeSessions());
+            assertEquals(1, reopened.getMinuteSummaries().size());
+            assertEquals(1, reopened.getTenMinuteSummaries().size());
+        } finally {
+            reopened.shutdown();
+        }
+    }
+
+    private static void append(MappedSeries series, long time, double value) {
+        series.put(TIME, time);
+        series.put(VALUE, value);
+        series.append();
+    }
+
+    private static MetricsHistory.HistoricalSnapshot snapshot(long timestamp, long sessions, double packetsPerSec) {
+        return new MetricsHistory.HistoricalSnapshot(timestamp, sessions, 0, 0, 0, 0,
+            packetsPerSec, packetsPerSec, 0, 0, 0, 0, 1.0, 0, 0, 0);
+    }
+}
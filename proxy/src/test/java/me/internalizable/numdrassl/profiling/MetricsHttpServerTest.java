@@ -0,0 +1,105 @@
+package me.internalizable.numdrassl.profiling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads {@code /stream} over HTTP from a server on a free local port.
+ */
+class MetricsHttpServerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private MetricsHttpServer server;
+    private int port;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new MetricsHttpServer(port);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void streamSendsOnlyTheRequestedGroups() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            HttpResponse<InputStream> response = get("/stream?groups=sessions,errors");
+            assertEquals(200, response.statusCode());
+            assertEquals("text/event-stream; charset=utf-8",
+                response.headers().firstValue("Content-Type").orElseThrow());
+
+            try (BufferedReader reader = reader(response)) {
+                assertEquals(": heartbeat", reader.readLine());
+                assertEquals("", reader.readLine());
+                // One tick, in group order
+                assertEquals("event: sessions", reader.readLine());
+                assertTrue(reader.readLine().startsWith("data: {\"t\":"));
+                assertEquals("", reader.readLine());
+                assertEquals("event: errors", reader.readLine());
+                assertTrue(reader.readLine().contains("\"authFailures\":"));
+            }
+        });
+    }
+
+    @Test
+    void unknownGroupIsRejected() throws Exception {
+        HttpResponse<InputStream> response = get("/stream?groups=sessions,latency");
+
+        assertEquals(400, response.statusCode());
+        response.body().close();
+    }
+
+    @Test
+    void stoppingTheServerEndsTheStream() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            HttpResponse<InputStream> response = get("/stream");
+            try (BufferedReader reader = reader(response)) {
+                assertEquals(": heartbeat", reader.readLine());
+                assertEquals("", reader.readLine());
+
+                server.stop();
+
+                String line;
+                do {
+                    line = reader.readLine();
+                } while (line != null && (line.isEmpty() || line.startsWith("event: ") || line.startsWith("data: ")));
+                assertNull(line);
+            }
+        });
+    }
+
+    private HttpResponse<InputStream> get(String path) throws Exception {
+        URI uri = URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ':' + port + path);
+        return client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private static BufferedReader reader(HttpResponse<InputStream> response) {
+        return new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,237 @@
+package me.internalizable.numdrassl.profiling;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import me.internalizable.numdrassl.profiling.MetricsStream.Group;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ticks the stream by hand on its scheduler thread. The interval is long enough that the
+ * stream never ticks on its own during a test.
+ */
+class MetricsStreamTest {
+
+    private static final long INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private ScheduledThreadPoolExecutor scheduler;
+    private MetricsStream stream;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        stream = new MetricsStream(scheduler, INTERVAL_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void tickerOnlyRunsWhileSubscribed() throws Exception {
+        assertEquals(0, scheduler.getQueue().size());
+
+        MetricsStream.Subscriber first = stream.subscribe(Group.ALL, new Exchange());
+        MetricsStream.Subscriber second = stream.subscribe(Group.ALL, new Exchange());
+        tick();
+        assertEquals(1, scheduler.getQueue().size());
+
+        stream.unsubscribe(first);
+        assertEquals(1, scheduler.getQueue().size());
+        stream.unsubscribe(second);
+        assertEquals(0, scheduler.getQueue().size());
+
+        stream.subscribe(Group.ALL, new Exchange());
+        tick();
+        assertEquals(1, scheduler.getQueue().size());
+    }
+
+    @Test
+    void subscriberWithoutTicksTimesOut() throws Exception {
+        MetricsStream.Subscriber subscriber = stream.subscribe(Group.ALL, new Exchange());
+
+        assertEquals(0, subscriber.next(1).length);
+    }
+
+    @Test
+    void eachGroupIsEncodedOnceForEverySubscriber() throws Exception {
+        MetricsStream.Subscriber sessions = stream.subscribe(Group.SESSIONS.mask(), new Exchange());
+        MetricsStream.Subscriber both = stream.subscribe(Group.SESSIONS.mask() | Group.PACKETS.mask(), new Exchange());
+        tick();
+
+        byte[][] events = sessions.next(0);
+        assertSame(events, both.next(0));
+        assertTrue(event(events, Group.SESSIONS).startsWith("event: sessions\ndata: {\"t\":"));
+        assertTrue(event(events, Group.PACKETS).startsWith("event: packets\ndata: {\"t\":"));
+        // Nobody asked for the rest
+        assertNull(events[Group.BYTES.ordinal()]);
+        assertNull(events[Group.JVM.ordinal()]);
+
+        assertTrue(sessions.wants(Group.SESSIONS));
+        assertFalse(sessions.wants(Group.PACKETS));
+    }
+
+    @Test
+    void groupNamesParseToAMask() {
+        assertEquals(Group.SESSIONS.mask() | Group.PACKETS.mask(), Group.parse("sessions, Packets"));
+        assertEquals(Group.ALL, Group.parse(null));
+        assertEquals(Group.ALL, Group.parse(" "));
+        assertThrows(IllegalArgumentException.class, () -> Group.parse("sessions,latency"));
+    }
+
+    @Test
+    void subscriberThatFallsBehindIsDropped() throws Exception {
+        Exchange slowExchange = new Exchange();
+        MetricsStream.Subscriber slow = stream.subscribe(Group.ALL, slowExchange);
+        MetricsStream.Subscriber fast = stream.subscribe(Group.ALL, new Exchange());
+
+        for (int i = 0; i < MetricsStream.MAX_QUEUED_TICKS; i++) {
+            tick();
+            assertEquals(Group.VALUES.length, fast.next(0).length);
+        }
+        assertFalse(slowExchange.closed.isDone());
+
+        tick();
+
+        slowExchange.closed.get(5, TimeUnit.SECONDS);
+        assertNull(slow.next(0));
+        assertNotNull(fast.next(0));
+        // The ticker keeps running for the subscriber that kept up
+        assertEquals(1, scheduler.getQueue().size());
+    }
+
+    @Test
+    void shutdownClosesEverySubscriber() throws Exception {
+        Exchange exchange = new Exchange();
+        MetricsStream.Subscriber subscriber = stream.subscribe(Group.ALL, exchange);
+        tick();
+
+        stream.shutdown();
+
+        exchange.closed.get(5, TimeUnit.SECONDS);
+        assertNull(subscriber.next(0));
+    }
+
+    private void tick() throws Exception {
+        scheduler.submit(stream::tick).get(5, TimeUnit.SECONDS);
+    }
+
+    private static String event(byte[][] events, Group group) {
+        return new String(events[group.ordinal()], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An exchange that only records being closed.
+     */
+    private static final class Exchange extends HttpExchange {
+
+        private final CompletableFuture<Void> closed = new CompletableFuture<>();
+
+        @Override
+        public void close() {
+            closed.complete(null);
+        }
+
+        @Override
+        public Headers getRequestHeaders() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public URI getRequestURI() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getRequestMethod() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sendResponseHeaders(int rCode, long responseLength) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getResponseCode() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getProtocol() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setStreams(InputStream i, OutputStream o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
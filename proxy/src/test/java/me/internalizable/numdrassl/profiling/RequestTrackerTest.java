@@ -0,0 +1,130 @@
+package me.internalizable.numdrassl.profiling;
+
+import me.internalizable.numdrassl.profiling.RequestTracker.Kind;
+import me.internalizable.numdrassl.profiling.RequestTracker.Request;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives the timing wheel with a manual clock, starting at 0, and explicit ticks of one
+ * second on a wheel of eight slots.
+ */
+class RequestTrackerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final int SLOTS = 8;
+
+    private long now;
+
+    @Test
+    void pendingRequestBecomesStuckOnTheTickAfterItsDeadline() {
+        RequestTracker tracker = tracker(3);
+        advanceTo(tracker, SECOND / 2);
+        tracker.start(Kind.BACKEND_CONNECT, "backend");
+
+        // The deadline of 3.5s falls in the fourth tick, which ends at 4s
+        advanceTo(tracker, 3 * SECOND + SECOND / 2);
+        assertEquals(0, tracker.getStuckCount());
+        advanceTo(tracker, 4 * SECOND);
+        assertEquals(1, tracker.getStuckCount(Kind.BACKEND_CONNECT));
+        assertEquals(1, tracker.getStuckTotal(Kind.BACKEND_CONNECT));
+    }
+
+    @Test
+    void completedRequestIsNeverStuck() {
+        RequestTracker tracker = tracker(3);
+        Request request = tracker.start(Kind.AUTH_GRANT, "player");
+        advanceTo(tracker, SECOND);
+
+        assertEquals(SECOND, request.complete());
+        assertEquals(-1, request.complete());
+        advanceTo(tracker, 20 * SECOND);
+
+        assertEquals(0, tracker.getStuckCount());
+        assertEquals(0, tracker.getStuckTotal(Kind.AUTH_GRANT));
+    }
+
+    @Test
+    void requestCompletedBeforeTheFirstTickIsNeverStuck() {
+        RequestTracker tracker = tracker(3);
+        tracker.start(Kind.AUTH_GRANT, "player").complete();
+
+        advanceTo(tracker, 20 * SECOND);
+
+        assertEquals(0, tracker.getStuckTotal(Kind.AUTH_GRANT));
+    }
+
+    @Test
+    void thresholdLongerThanTheWheelWrapsAround() {
+        RequestTracker tracker = tracker(20);
+        tracker.start(Kind.AUTH_TOKEN, "grant");
+
+        // The request's slot comes round at 5s and 13s before its deadline does
+        for (long second = 1; second <= 20; second++) {
+            advanceTo(tracker, second * SECOND);
+            assertEquals(0, tracker.getStuckCount(), "stuck at " + second + "s");
+        }
+        advanceTo(tracker, 21 * SECOND);
+        assertEquals(1, tracker.getStuckCount(Kind.AUTH_TOKEN));
+    }
+
+    @Test
+    void lateTickCatchesUpOnEveryMissedTick() {
+        RequestTracker tracker = tracker(3);
+        tracker.start(Kind.BACKEND_CONNECT, "first");
+        advanceTo(tracker, 2 * SECOND);
+        tracker.start(Kind.BACKEND_CONNECT, "second");
+
+        advanceTo(tracker, 100 * SECOND);
+
+        assertEquals(2, tracker.getStuckCount(Kind.BACKEND_CONNECT));
+    }
+
+    @Test
+    void stuckRequestThatCompletesLeavesTheStuckSet() {
+        RequestTracker tracker = tracker(3);
+        Request request = tracker.start(Kind.BACKEND_CONNECT, "backend");
+        advanceTo(tracker, 4 * SECOND);
+        assertEquals(1, tracker.getStuckCount());
+
+        advanceTo(tracker, 6 * SECOND);
+        assertEquals(6 * SECOND, request.complete());
+
+        assertEquals(0, tracker.getStuckCount());
+        assertEquals(0, tracker.getOldestStuckAgeNanos(Kind.BACKEND_CONNECT));
+        assertEquals(1, tracker.getStuckTotal(Kind.BACKEND_CONNECT));
+    }
+
+    @Test
+    void stuckCountsAndAgesArePerKind() {
+        RequestTracker tracker = tracker(3);
+        tracker.start(Kind.BACKEND_CONNECT, "first");
+        advanceTo(tracker, SECOND);
+        tracker.start(Kind.BACKEND_CONNECT, "second");
+        tracker.start(Kind.AUTH_GRANT, "player");
+        advanceTo(tracker, 2 * SECOND);
+        tracker.start(Kind.AUTH_TOKEN, "grant").complete();
+
+        advanceTo(tracker, 10 * SECOND);
+
+        assertEquals(2, tracker.getStuckCount(Kind.BACKEND_CONNECT));
+        assertEquals(1, tracker.getStuckCount(Kind.AUTH_GRANT));
+        assertEquals(0, tracker.getStuckCount(Kind.AUTH_TOKEN));
+        assertEquals(3, tracker.getStuckCount());
+        assertEquals(10 * SECOND, tracker.getOldestStuckAgeNanos(Kind.BACKEND_CONNECT));
+        assertEquals(9 * SECOND, tracker.getOldestStuckAgeNanos(Kind.AUTH_GRANT));
+        assertEquals(0, tracker.getOldestStuckAgeNanos(Kind.AUTH_TOKEN));
+    }
+
+    private RequestTracker tracker(long thresholdSeconds) {
+        return new RequestTracker(thresholdSeconds, TimeUnit.SECONDS, SECOND, SLOTS, () -> now);
+    }
+
+    private void advanceTo(RequestTracker tracker, long nanos) {
+        now = nanos;
+        tracker.tick();
+    }
+}
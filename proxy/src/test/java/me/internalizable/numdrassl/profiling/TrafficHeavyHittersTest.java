@@ -0,0 +1,87 @@
+package me.internalizable.numdrassl.profiling;
+
+import me.internalizable.numdrassl.testing.Allocations;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Records through the shared instance, so every test uses session ids and backend names
+ * of its own and ignores the traffic of others.
+ */
+class TrafficHeavyHittersTest {
+
+    private static final TrafficHeavyHitters HITTERS = TrafficHeavyHitters.getInstance();
+    private static final TrafficHeavyHitters.Direction DIRECTION = TrafficHeavyHitters.Direction.BACKEND_TO_CLIENT;
+
+    @Test
+    void heaviestSessionsComeFirst() {
+        long base = 9_100_000;
+        long[] exact = recordSkewed(base, "hh-session-");
+
+        List<TrafficHeavyHitters.HeavyHitter> top = ours(
+            HITTERS.topSessions(DIRECTION, TrafficHeavyHitters.Measure.BYTES, 1_000), "hh-session-");
+
+        assertEquals("hh-session-0 (#" + base + ")", top.get(0).name());
+        assertEquals("hh-session-1 (#" + (base + 1) + ")", top.get(1).name());
+        assertTrue(top.get(0).count() >= exact[0]);
+        assertTrue(top.get(0).count() - top.get(0).maxError() <= exact[0]);
+    }
+
+    @Test
+    void backendsAreCountedAcrossSessions() {
+        long base = 9_200_000;
+        for (int i = 0; i < 50; i++) {
+            HITTERS.record(DIRECTION, base + i, null, i % 5 == 0 ? "hh-backend-minigames" : "hh-backend-lobby", 2, 1_000);
+        }
+
+        List<TrafficHeavyHitters.HeavyHitter> top = ours(
+            HITTERS.topBackends(DIRECTION, TrafficHeavyHitters.Measure.PACKETS, 1_000), "hh-backend-");
+
+        assertEquals(List.of("hh-backend-lobby", "hh-backend-minigames"),
+            top.stream().map(TrafficHeavyHitters.HeavyHitter::name).toList());
+        assertEquals(80, top.get(0).count());
+        assertEquals(20, top.get(1).count());
+    }
+
+    @Test
+    void sessionsWithoutAUsernameAreNamedById() {
+        HITTERS.record(DIRECTION, 9_300_000, null, null, 1, 1L << 40);
+
+        List<TrafficHeavyHitters.HeavyHitter> top = HITTERS.topSessions(DIRECTION, TrafficHeavyHitters.Measure.BYTES, 1);
+
+        assertEquals("#9300000", top.get(0).name());
+    }
+
+    @Test
+    void recordingDoesNotAllocate() {
+        TrafficHeavyHitters.Source source = HITTERS.source(DIRECTION, 9_400_000, () -> "hh-alloc", () -> "hh-backend-alloc");
+
+        Allocations.assertNoPerOpAllocation(() -> source.record(1, 1_200));
+    }
+
+    /**
+     * Records a Zipf-like stream over 200 sessions, where session {@code i} gets weight
+     * proportional to {@code 1 / (i + 1)}, and returns the exact bytes per session.
+     */
+    private static long[] recordSkewed(long base, String prefix) {
+        int sessions = 200;
+        long[] exact = new long[sessions];
+        Random random = new Random(41);
+        for (int n = 0; n < 50_000; n++) {
+            int i = (int) Math.min(sessions - 1, Math.floor(1 / random.nextDouble()) - 1);
+            long bytes = 100 + random.nextInt(1_000);
+            HITTERS.record(DIRECTION, base + i, prefix + i, null, 1, bytes);
+            exact[i] += bytes;
+        }
+        return exact;
+    }
+
+    private static List<TrafficHeavyHitters.HeavyHitter> ours(List<TrafficHeavyHitters.HeavyHitter> all, String prefix) {
+        return all.stream().filter(hitter -> hitter.name().startsWith(prefix)).toList();
+    }
+}
@@ -0,0 +1,334 @@
+package me.internalizable.numdrassl.server.admission;
+
+import com.hypixel.hytale.protocol.packets.auth.Status;
+import com.hypixel.hytale.protocol.packets.connection.Disconnect;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import io.netty.incubator.codec.quic.QuicStreamType;
+import io.netty.util.ReferenceCountUtil;
+import me.internalizable.numdrassl.config.ProxyConfig;
+import me.internalizable.numdrassl.server.ProxyCore;
+import me.internalizable.numdrassl.session.ProxySession;
+import me.internalizable.numdrassl.testing.LoopbackQuic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the controller with a manual clock and explicit ticks. Sessions run on loopback
+ * QUIC connections, and each client stream records the packets the proxy sends it.
+ */
+class LoginAdmissionControllerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long[] now = {0};
+    private LoopbackQuic quic;
+    private ProxyCore core;
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        quic = new LoopbackQuic();
+        core = new ProxyCore(new ProxyConfig());
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+        quic.close();
+    }
+
+    @Test
+    void tokenBucketAdmitsABurstThenRefills() throws Exception {
+        LoginAdmissionController controller = controller(2, 0, 0);
+        Login first = admit(controller);
+        Login second = admit(controller);
+        Login third = admit(controller);
+
+        // The burst of one second is admitted on the calling thread
+        assertTrue(first.admitted.isDone());
+        assertTrue(second.admitted.isDone());
+        assertTrue(third.ticket.isWaiting());
+
+        controller.tick();
+        assertTrue(third.ticket.isWaiting());
+
+        now[0] += SECOND / 2;
+        controller.tick();
+        third.admitted.get(5, TimeUnit.SECONDS);
+        assertEquals(0, controller.getQueueDepth());
+    }
+
+    @Test
+    void handshakeCapHoldsLoginsUntilASlotIsReleased() throws Exception {
+        LoginAdmissionController controller = controller(0, 1, 0);
+        Login first = admit(controller);
+        Login second = admit(controller);
+
+        controller.tick();
+        assertTrue(second.ticket.isWaiting());
+        assertEquals(1, controller.getActiveHandshakes());
+
+        // Releasing the slot drains the queue without waiting for the next tick
+        first.ticket.release();
+        second.admitted.get(5, TimeUnit.SECONDS);
+        assertEquals(1, controller.getActiveHandshakes());
+
+        second.ticket.release();
+        second.ticket.release();
+        assertEquals(0, controller.getActiveHandshakes());
+    }
+
+    @Test
+    void queuedLoginsAreAdmittedInArrivalOrder() throws Exception {
+        LoginAdmissionController controller = controller(1, 0, 0);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        admit(controller);
+        for (int i = 0; i < 3; i++) {
+            int id = i;
+            admit(controller, () -> order.add(id));
+        }
+
+        for (int i = 1; i <= 3; i++) {
+            now[0] += SECOND;
+            controller.tick();
+            awaitSize(order, i);
+        }
+
+        assertEquals(List.of(0, 1, 2), order);
+    }
+
+    @Test
+    void newLoginsQueueBehindWaitingOnes() throws Exception {
+        LoginAdmissionController controller = controller(1, 0, 0);
+        admit(controller);
+        Login waiting = admit(controller);
+
+        // A token is available again, but it belongs to the client that has been waiting
+        now[0] += SECOND;
+        Login late = admit(controller);
+
+        assertTrue(late.ticket.isWaiting());
+        controller.tick();
+        waiting.admitted.get(5, TimeUnit.SECONDS);
+        assertTrue(late.ticket.isWaiting());
+    }
+
+    @Test
+    void queuedClientsReceiveTheirPosition() throws Exception {
+        LoginAdmissionController controller = controller(0, 1, 0);
+        Login first = admit(controller);
+        Login second = admit(controller);
+        Login third = admit(controller);
+
+        assertStatus(second.client.statuses.get(5, TimeUnit.SECONDS), 1, 1);
+        assertStatus(third.client.statuses.get(5, TimeUnit.SECONDS), 2, 2);
+
+        // Positions are refreshed once the status interval has passed
+        second.ticket.release();
+        third.client.next();
+        controller.tick();
+        assertFalse(third.client.statuses.isDone());
+        now[0] += SECOND;
+        controller.tick();
+        assertStatus(third.client.statuses.get(5, TimeUnit.SECONDS), 1, 1);
+        assertTrue(first.admitted.isDone());
+    }
+
+    @Test
+    void fullQueueRejectsWithARetryHint() throws Exception {
+        LoginAdmissionController controller = controller(1, 0, 1);
+        admit(controller);
+        admit(controller);
+
+        Login rejected = admit(controller);
+
+        Disconnect disconnect = rejected.client.disconnect.get(5, TimeUnit.SECONDS);
+        assertEquals("Server is busy, please retry in 1 seconds", disconnect.reason);
+        assertFalse(rejected.ticket.isWaiting());
+        assertEquals(1, controller.getQueueDepth());
+    }
+
+    @Test
+    void zeroQueueSizeLeavesTheQueueUnbounded() throws Exception {
+        LoginAdmissionController controller = controller(1, 0, 0);
+        admit(controller);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(admit(controller).ticket.isWaiting());
+        }
+
+        assertEquals(10, controller.getQueueDepth());
+    }
+
+    @Test
+    void queuedLoginStartsOnItsSessionEventLoop() throws Exception {
+        LoginAdmissionController controller = controller(1, 0, 0);
+        admit(controller);
+        CompletableFuture<Boolean> onEventLoop = new CompletableFuture<>();
+        ProxySession[] session = new ProxySession[1];
+        Login login = admit(controller, () -> onEventLoop.complete(session[0].getClientChannel().eventLoop().inEventLoop()));
+        session[0] = login.session;
+
+        now[0] += SECOND;
+        controller.tick();
+
+        assertTrue(onEventLoop.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void releaseWhileWaitingLeavesTheQueue() throws Exception {
+        LoginAdmissionController controller = controller(1, 0, 0);
+        admit(controller);
+        Login left = admit(controller);
+        Login stayed = admit(controller);
+
+        left.session.close();
+        assertEquals(1, controller.getQueueDepth());
+
+        now[0] += SECOND;
+        controller.tick();
+        stayed.admitted.get(5, TimeUnit.SECONDS);
+        assertFalse(left.admitted.isDone());
+    }
+
+    @Test
+    void releaseDuringDrainGivesTheSlotBack() throws Exception {
+        LoginAdmissionController controller = controller(0, 1, 0);
+        Login first = admit(controller);
+        Login second = admit(controller);
+
+        Thread closing;
+        synchronized (controller) {
+            // The ticket is released, but its removal from the queue waits for the lock
+            closing = new Thread(second.ticket::release);
+            closing.start();
+            while (second.ticket.isWaiting()) {
+                Thread.onSpinWait();
+            }
+            first.ticket.release();
+            controller.tick();
+
+            assertEquals(0, controller.getActiveHandshakes());
+            assertEquals(0, controller.getQueueDepth());
+        }
+        closing.join();
+
+        Login next = admit(controller);
+        assertTrue(next.admitted.isDone());
+        assertFalse(second.admitted.isDone());
+        assertEquals(1, controller.getActiveHandshakes());
+    }
+
+    @Test
+    void closeBeforeHandOffFreesTheSlotOnce() throws Exception {
+        LoginAdmissionController controller = controller(0, 1, 0);
+        Login first = admit(controller);
+        Login second = admit(controller);
+
+        // Hold the event loop so the admitted session closes before it can start
+        CountDownLatch gate = new CountDownLatch(1);
+        second.session.getClientChannel().eventLoop().execute(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        first.ticket.release();
+        controller.tick();
+        while (!second.ticket.isAdmitted()) {
+            Thread.onSpinWait();
+        }
+        second.session.close();
+        gate.countDown();
+        second.session.getClientChannel().eventLoop().submit(() -> {}).get(5, TimeUnit.SECONDS);
+
+        assertFalse(second.admitted.isDone());
+        assertEquals(0, controller.getActiveHandshakes());
+        admit(controller);
+        assertEquals(1, controller.getActiveHandshakes());
+    }
+
+    private LoginAdmissionController controller(int loginsPerSecond, int maxConcurrentHandshakes, int maxQueueSize) {
+        return new LoginAdmissionController(loginsPerSecond, maxConcurrentHandshakes, maxQueueSize, 1,
+            () -> now[0], scheduler);
+    }
+
+    private Login admit(LoginAdmissionController controller) throws Exception {
+        return admit(controller, () -> {});
+    }
+
+    private Login admit(LoginAdmissionController controller, Runnable onAdmitted) throws Exception {
+        ProxySession session = new ProxySession(core, quic.connect());
+        Client client = new Client();
+        QuicStreamChannel stream = session.getClientChannel()
+            .createStream(QuicStreamType.BIDIRECTIONAL, client).get(5, TimeUnit.SECONDS);
+        session.setClientStream(stream);
+
+        CompletableFuture<Void> admitted = new CompletableFuture<>();
+        AdmissionTicket ticket = controller.admit(session, () -> {
+            onAdmitted.run();
+            admitted.complete(null);
+        });
+        return new Login(session, ticket, client, admitted);
+    }
+
+    private static void assertStatus(Status status, int position, int depth) {
+        assertEquals(position, status.playerCount);
+        assertEquals(depth, status.maxPlayers);
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (list.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(size, list.size());
+    }
+
+    private record Login(ProxySession session, AdmissionTicket ticket, Client client,
+                         CompletableFuture<Void> admitted) {}
+
+    /**
+     * Records the latest Status and the Disconnect the proxy sends.
+     */
+    private static final class Client extends ChannelOutboundHandlerAdapter {
+
+        private volatile CompletableFuture<Status> statuses = new CompletableFuture<>();
+        private final CompletableFuture<Disconnect> disconnect = new CompletableFuture<>();
+
+        /**
+         * Waits for the next Status from now on.
+         */
+        void next() {
+            statuses = new CompletableFuture<>();
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (msg instanceof Status status) {
+                statuses.complete(status);
+            } else if (msg instanceof Disconnect packet) {
+                disconnect.complete(packet);
+            }
+            ReferenceCountUtil.release(msg);
+            promise.setSuccess();
+        }
+    }
+}
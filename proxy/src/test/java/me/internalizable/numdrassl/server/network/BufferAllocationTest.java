@@ -0,0 +1,111 @@
+package me.internalizable.numdrassl.server.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.internal.PlatformDependent;
+import me.internalizable.numdrassl.config.ProxyConfig;
+import me.internalizable.numdrassl.server.ProxyCore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BufferAllocationTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void pooledSharesNettysDefaultPool() {
+        boolean nettyDefault = PlatformDependent.directBufferPreferred();
+
+        assertSame(PooledByteBufAllocator.DEFAULT, BufferAllocation.createAllocator("pooled", nettyDefault));
+        assertSame(PooledByteBufAllocator.DEFAULT, BufferAllocation.createAllocator("POOLED", nettyDefault));
+    }
+
+    @Test
+    void pooledWithOtherPreferenceGetsAPoolOfItsOwn() {
+        boolean other = !PlatformDependent.directBufferPreferred();
+
+        ByteBufAllocator allocator = BufferAllocation.createAllocator("pooled", other);
+
+        assertInstanceOf(PooledByteBufAllocator.class, allocator);
+        assertNotSame(PooledByteBufAllocator.DEFAULT, allocator);
+        assertAllocates(allocator, other);
+    }
+
+    @Test
+    void unpooledAllocatesHeapOrDirectAsAsked() {
+        ByteBufAllocator heap = BufferAllocation.createAllocator("unpooled", false);
+        assertInstanceOf(UnpooledByteBufAllocator.class, heap);
+        assertAllocates(heap, false);
+
+        assumeTrue(PlatformDependent.hasUnsafe(), "direct buffers are only preferred with Unsafe");
+        ByteBufAllocator direct = BufferAllocation.createAllocator("Unpooled", true);
+        assertInstanceOf(UnpooledByteBufAllocator.class, direct);
+        assertAllocates(direct, true);
+    }
+
+    @Test
+    void unknownKindIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> BufferAllocation.createAllocator("arena", true));
+    }
+
+    @Test
+    void proxyUsesTheConfiguredAllocator() {
+        ProxyConfig config = new ProxyConfig();
+        config.setBufferAllocator("unpooled");
+        config.setPreferDirectBuffers(false);
+
+        ByteBufAllocator allocator = new ProxyCore(config).getBufferAllocator();
+
+        assertInstanceOf(UnpooledByteBufAllocator.class, allocator);
+        assertAllocates(allocator, false);
+    }
+
+    @Test
+    void unknownConfiguredKindFallsBackToPooled() throws Exception {
+        Path file = dir.resolve("config.yml");
+        Files.writeString(file, "bufferAllocator: arena\n");
+
+        ProxyConfig config = ProxyConfig.load(file);
+
+        assertEquals("pooled", config.getBufferAllocator());
+        config.setPreferDirectBuffers(PlatformDependent.directBufferPreferred());
+        assertSame(PooledByteBufAllocator.DEFAULT, new ProxyCore(config).getBufferAllocator());
+    }
+
+    @Test
+    void unknownLeakDetectionLevelFallsBackToSimple() {
+        ResourceLeakDetector.Level previous = ResourceLeakDetector.getLevel();
+        try {
+            BufferAllocation.configureLeakDetection("paranoid");
+            assertEquals(ResourceLeakDetector.Level.PARANOID, ResourceLeakDetector.getLevel());
+
+            BufferAllocation.configureLeakDetection("everything");
+            assertEquals(ResourceLeakDetector.Level.SIMPLE, ResourceLeakDetector.getLevel());
+        } finally {
+            ResourceLeakDetector.setLevel(previous);
+        }
+    }
+
+    private static void assertAllocates(ByteBufAllocator allocator, boolean direct) {
+        ByteBuf buf = allocator.buffer(64);
+        try {
+            assertEquals(direct, buf.isDirect());
+        } finally {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package me.internalizable.numdrassl.server.network;
+
+import com.hypixel.hytale.protocol.CachedPacket;
+import com.hypixel.hytale.protocol.packets.interface_.ChatType;
+import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import me.internalizable.numdrassl.api.chat.ChatMessageBuilder;
+import me.internalizable.numdrassl.api.chat.ChatMessageTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ChatMessageConverterTest {
+
+    @Test
+    void cachedMessageEncodesLikeUncached() {
+        ChatMessageBuilder builder = motd();
+        CachedPacket<ServerMessage> cached = ChatMessageConverter.toCachedServerMessage(builder, ChatType.Chat);
+
+        assertSame(cached, ChatMessageConverter.toCachedServerMessage(motd(), ChatType.Chat));
+        assertEquals(encode(ChatMessageConverter.toServerMessage(builder, ChatType.Chat)), encode(cached));
+    }
+
+    @Test
+    void frequentMessageSurvivesOneOffMessages() {
+        CachedPacket<ServerMessage> hot = ChatMessageConverter.toCachedServerMessage(motd(), ChatType.Chat);
+        CachedPacket<ServerMessage> cold = ChatMessageConverter.toCachedServerMessage(cold(), ChatType.Chat);
+
+        // A full clear would drop the hot message; an LRU keeps it while it is in use
+        for (int i = 0; i < ChatMessageConverter.CACHE_CAPACITY * 4; i++) {
+            ChatMessageConverter.toCachedServerMessage(ChatMessageBuilder.create().white("one-off " + i), ChatType.Chat);
+            assertSame(hot, ChatMessageConverter.toCachedServerMessage(motd(), ChatType.Chat));
+        }
+
+        assertNotSame(cold, ChatMessageConverter.toCachedServerMessage(cold(), ChatType.Chat));
+    }
+
+    @Test
+    void renderedTemplateEncodesLikeResolvedMessage() {
+        Map<String, String> values = Map.of("player", "Alice", "server", "lobby-é");
+        for (ChatMessageBuilder builder : List.of(
+                ChatMessageBuilder.create(),
+                motd(),
+                ChatMessageBuilder.create().white("Welcome, {player}!"),
+                ChatMessageBuilder.create().gold("[{server}] ").white("Welcome, {player}").gray(" - have fun"),
+                ChatMessageBuilder.create().white("{missing} is left as written"))) {
+            ChatMessageTemplate template = ChatMessageTemplate.of(builder);
+
+            assertEquals(encode(ChatMessageConverter.toServerMessage(template.resolve(values), ChatType.Chat)),
+                encode(ChatMessageConverter.toServerMessage(template, values)));
+        }
+    }
+
+    private static ChatMessageBuilder motd() {
+        return ChatMessageBuilder.create()
+            .gold("Welcome to ")
+            .bold("Numdrassl", "#55FFFF")
+            .white("! Type /help to get started.");
+    }
+
+    private static ChatMessageBuilder cold() {
+        return ChatMessageBuilder.create().white("Sent once");
+    }
+
+    private static String encode(ServerMessage packet) {
+        ByteBuf buf = Unpooled.buffer();
+        packet.serialize(buf);
+        return ByteBufUtil.hexDump(buf);
+    }
+
+    private static String encode(CachedPacket<ServerMessage> packet) {
+        ByteBuf buf = Unpooled.buffer();
+        packet.serialize(buf);
+        return ByteBufUtil.hexDump(buf);
+    }
+}
@@ -0,0 +1,67 @@
+package me.internalizable.numdrassl.server.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryTokenHandlerTest {
+
+    private static final InetSocketAddress CLIENT = new InetSocketAddress("10.0.0.1", 40000);
+    private static final InetSocketAddress OTHER = new InetSocketAddress("10.0.0.2", 40000);
+    private static final int HEADER_SIZE = 1 + Long.BYTES + 16;
+
+    @Test
+    void tokenValidatesOnlyForTheClientItWasIssuedTo() {
+        RetryTokenHandler handler = new RetryTokenHandler(0);
+        ByteBuf token = token(handler, CLIENT);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(HEADER_SIZE, handler.validateToken(token.duplicate(), CLIENT));
+        }
+        assertEquals(-1, handler.validateToken(token.duplicate(), OTHER));
+
+        token.setByte(HEADER_SIZE, token.getByte(HEADER_SIZE) ^ 1);
+        assertEquals(-1, handler.validateToken(token, CLIENT));
+    }
+
+    @Test
+    void handlersOnOneThreadKeepTheirOwnKeys() {
+        RetryTokenHandler first = new RetryTokenHandler(0);
+        RetryTokenHandler second = new RetryTokenHandler(0);
+        ByteBuf firstToken = token(first, CLIENT);
+        ByteBuf secondToken = token(second, CLIENT);
+
+        // Both start with key ID 0, so a cached MAC must not be reused across keys
+        assertEquals(-1, second.validateToken(firstToken.duplicate(), CLIENT));
+        assertEquals(HEADER_SIZE, first.validateToken(firstToken, CLIENT));
+        assertEquals(-1, first.validateToken(secondToken.duplicate(), CLIENT));
+        assertEquals(HEADER_SIZE, second.validateToken(secondToken, CLIENT));
+    }
+
+    @Test
+    void quietSecondsEndTheRetryPhase() throws Exception {
+        RetryTokenHandler handler = new RetryTokenHandler(1);
+        assertFalse(handler.writeToken(Unpooled.buffer(), dcid(), CLIENT));
+        assertTrue(handler.writeToken(Unpooled.buffer(), dcid(), CLIENT));
+
+        // The busy window is two windows ago, so it no longer counts
+        Thread.sleep(2_100);
+        assertFalse(handler.writeToken(Unpooled.buffer(), dcid(), CLIENT));
+    }
+
+    private static ByteBuf token(RetryTokenHandler handler, InetSocketAddress address) {
+        ByteBuf token = Unpooled.buffer();
+        assertTrue(handler.writeToken(token, dcid(), address));
+        return token;
+    }
+
+    private static ByteBuf dcid() {
+        return Unpooled.wrappedBuffer(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    }
+}
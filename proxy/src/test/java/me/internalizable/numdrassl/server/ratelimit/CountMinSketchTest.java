@@ -0,0 +1,71 @@
+package me.internalizable.numdrassl.server.ratelimit;
+
+import me.internalizable.numdrassl.testing.Allocations;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the sketch with explicit timestamps, starting at 0.
+ */
+class CountMinSketchTest {
+
+    private static final long WINDOW = Duration.ofSeconds(1).toNanos();
+    private static final long KEY = 0x0A000001L;
+
+    @Test
+    void countsWithinTheWindow() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024, Duration.ofNanos(WINDOW), 0);
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, sketch.incrementAndEstimate(KEY, i));
+        }
+        assertEquals(1, sketch.incrementAndEstimate(KEY + 1, 10));
+    }
+
+    @Test
+    void previousWindowDecaysWithItsOverlap() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024, Duration.ofNanos(WINDOW), 0);
+        increment(sketch, 10, 0);
+
+        // Half of the previous window still overlaps
+        assertEquals(1 + 5, sketch.incrementAndEstimate(KEY, WINDOW + WINDOW / 2));
+    }
+
+    @Test
+    void retiredWindowIsClearedBeforeReuse() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024, Duration.ofNanos(WINDOW), 0);
+        increment(sketch, 10, 0);
+        increment(sketch, 4, WINDOW);
+
+        // The first window's table now holds the third window, without its old counts
+        assertEquals(1 + 4, sketch.incrementAndEstimate(KEY, 2 * WINDOW));
+    }
+
+    @Test
+    void idleWindowsForgetEverything() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024, Duration.ofNanos(WINDOW), 0);
+        increment(sketch, 10, 0);
+        increment(sketch, 10, WINDOW);
+
+        assertEquals(1, sketch.incrementAndEstimate(KEY, 3 * WINDOW + WINDOW / 2));
+    }
+
+    @Test
+    void rotationReusesTheTables() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024, Duration.ofNanos(WINDOW), 0);
+        long[] now = {0};
+
+        // Every call starts a new window; a fresh table would be 16 KB each
+        long bytes = Allocations.allocatedBytes(() -> sketch.incrementAndEstimate(KEY, now[0] += WINDOW));
+        assertTrue(bytes < 64L * Allocations.ITERATIONS, () -> bytes + " B over " + Allocations.ITERATIONS + " rotations");
+    }
+
+    private static void increment(CountMinSketch sketch, int times, long now) {
+        for (int i = 0; i < times; i++) {
+            sketch.incrementAndEstimate(KEY, now);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package me.internalizable.numdrassl.server.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SourceRateLimiterTest {
+
+    private static final long SOURCE = 0x0A000001L;
+
+    @Test
+    void disabledBudgetsAllowEverything() {
+        SourceRateLimiter limiter = new SourceRateLimiter(0, 0, Map.of());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(SourceRateLimiter.Verdict.ALLOW, limiter.tryAcquirePacket(SOURCE, "ClientMovement"));
+        }
+    }
+
+    @Test
+    void chatOverBudgetIsDropped() {
+        SourceRateLimiter limiter = new SourceRateLimiter(0, 0, Map.of("ChatMessage", 10));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(SourceRateLimiter.Verdict.ALLOW, limiter.tryAcquirePacket(SOURCE, "ChatMessage"));
+        }
+        assertEquals(SourceRateLimiter.Verdict.DROP, limiter.tryAcquirePacket(SOURCE, "ChatMessage"));
+    }
+
+    @Test
+    void gamePacketsOverBudgetDisconnect() {
+        SourceRateLimiter limiter = new SourceRateLimiter(0, 5, Map.of());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(SourceRateLimiter.Verdict.ALLOW, limiter.tryAcquirePacket(SOURCE, "ClientMovement"));
+        }
+        assertEquals(SourceRateLimiter.Verdict.DISCONNECT, limiter.tryAcquirePacket(SOURCE, "ClientMovement"));
+    }
+
+    @Test
+    void typedPacketCountsOnceAgainstTotalBudget() {
+        SourceRateLimiter limiter = new SourceRateLimiter(0, 20, Map.of("ChatMessage", 10));
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquirePacket(SOURCE, "ChatMessage");
+        }
+        // Chat counted once against the total: 10 more packets fit, the next one does not
+        for (int i = 0; i < 10; i++) {
+            assertEquals(SourceRateLimiter.Verdict.ALLOW, limiter.tryAcquirePacket(SOURCE, "ClientMovement"));
+        }
+        assertEquals(SourceRateLimiter.Verdict.DISCONNECT, limiter.tryAcquirePacket(SOURCE, "ClientMovement"));
+    }
+
+    @Test
+    void sourcesHaveSeparateBudgets() {
+        SourceRateLimiter limiter = new SourceRateLimiter(0, 0, Map.of("ChatMessage", 1));
+        assertEquals(SourceRateLimiter.Verdict.ALLOW, limiter.tryAcquirePacket(SOURCE, "ChatMessage"));
+        assertEquals(SourceRateLimiter.Verdict.ALLOW, limiter.tryAcquirePacket(SOURCE + 1, "ChatMessage"));
+    }
+}
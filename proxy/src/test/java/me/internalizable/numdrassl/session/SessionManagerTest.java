@@ -0,0 +1,149 @@
+package me.internalizable.numdrassl.session;
+
+import com.hypixel.hytale.protocol.packets.connection.Connect;
+import me.internalizable.numdrassl.config.ProxyConfig;
+import me.internalizable.numdrassl.server.ProxyCore;
+import me.internalizable.numdrassl.testing.LoopbackQuic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks the username index of {@link SessionManager}. Sessions run on loopback QUIC
+ * connections since they need real channels; the core is never started.
+ */
+class SessionManagerTest {
+
+    private LoopbackQuic quic;
+    private ProxyCore core;
+    private SessionManager sessions;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        quic = new LoopbackQuic();
+        core = new ProxyCore(new ProxyConfig());
+        sessions = core.getSessionManager();
+    }
+
+    @AfterEach
+    void tearDown() {
+        quic.close();
+    }
+
+    @Test
+    void unknownNameIsAMiss() throws Exception {
+        sessions.registerUsername(authenticated("Alice", UUID.randomUUID()));
+
+        assertEquals(Optional.empty(), sessions.findByUsername("Bob"));
+        assertEquals(Optional.empty(), sessions.findByUsername("Alic"));
+    }
+
+    @Test
+    void findsNameIgnoringCase() throws Exception {
+        ProxySession alice = authenticated("Alice", UUID.randomUUID());
+        sessions.registerUsername(alice);
+
+        assertSame(alice, sessions.findByUsername("alice").orElseThrow());
+        assertSame(alice, sessions.findByUsername("ALICE").orElseThrow());
+        assertEquals(List.of(alice), sessions.findByUsernamePrefix("al", 10));
+    }
+
+    @Test
+    void unauthenticatedSessionIsNotFound() throws Exception {
+        // Identified from its Connect packet, but never registered by name
+        authenticated("Alice", UUID.randomUUID());
+
+        assertEquals(Optional.empty(), sessions.findByUsername("Alice"));
+    }
+
+    @Test
+    void disconnectRemovesName() throws Exception {
+        ProxySession alice = authenticated("Alice", UUID.randomUUID());
+        sessions.registerUsername(alice);
+
+        alice.disconnect("test");
+
+        assertEquals(Optional.empty(), sessions.findByUsername("alice"));
+        assertEquals(List.of(), sessions.findByUsernamePrefix("al", 10));
+    }
+
+    @Test
+    void newestSessionTakesDuplicateName() throws Exception {
+        ProxySession first = authenticated("Alice", UUID.randomUUID());
+        sessions.registerUsername(first);
+        ProxySession second = authenticated("ALICE", UUID.randomUUID());
+        sessions.registerUsername(second);
+
+        assertSame(second, sessions.findByUsername("alice").orElseThrow());
+
+        // The replaced session leaving does not drop the current holder's entry
+        first.disconnect("test");
+        assertSame(second, sessions.findByUsername("alice").orElseThrow());
+    }
+
+    @Test
+    void renamedSessionIsNotFoundByOldName() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        ProxySession session = authenticated("Alice", uuid);
+        sessions.registerUsername(session);
+
+        session.handleConnectPacket(connect("Alicia", uuid));
+
+        assertEquals(Optional.empty(), sessions.findByUsername("alice"));
+    }
+
+    @Test
+    void concurrentRegistrationsAgreeOnTheHolder() throws Exception {
+        List<ProxySession> contenders = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            contenders.add(authenticated(i % 2 == 0 ? "Alice" : "ALICE", UUID.randomUUID()));
+        }
+
+        for (int round = 0; round < 200; round++) {
+            CyclicBarrier start = new CyclicBarrier(contenders.size());
+            List<Thread> threads = new ArrayList<>();
+            for (ProxySession session : contenders) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    sessions.registerUsername(session);
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // Exact and prefix lookups see the same winner
+            ProxySession holder = sessions.findByUsername("alice").orElseThrow();
+            assertEquals(List.of(holder), sessions.findByUsernamePrefix("ali", 10));
+        }
+    }
+
+    private ProxySession authenticated(String username, UUID uuid) throws Exception {
+        ProxySession session = new ProxySession(core, quic.connect());
+        sessions.addSession(session);
+        session.handleConnectPacket(connect(username, uuid));
+        return session;
+    }
+
+    private static Connect connect(String username, UUID uuid) {
+        Connect connect = new Connect();
+        connect.username = username;
+        connect.uuid = uuid;
+        return connect;
+    }
+}
@@ -0,0 +1,71 @@
+package me.internalizable.numdrassl.session.capture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CaptureFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void framesRoundTrip() throws Exception {
+        Path file = dir.resolve("session.ncap");
+        byte[] large = new byte[70_000];
+        large[large.length - 1] = 7;
+
+        try (CaptureFile.Writer writer = CaptureFile.writer(file)) {
+            writer.write(CaptureDirection.FROM_CLIENT, 5_000, new byte[] {1, 2, 3});
+            writer.write(CaptureDirection.TO_CLIENT, 5_250, new byte[0]);
+            writer.write(CaptureDirection.FROM_BACKEND, 9_000_000_000L, large);
+            assertEquals(3, writer.getFrames());
+            assertEquals(9_000_000_000L - 5_000, writer.getDurationNanos());
+        }
+
+        try (CaptureFile.Reader reader = CaptureFile.reader(file)) {
+            // Times are relative to the first frame
+            assertFrame(reader.next(), CaptureDirection.FROM_CLIENT, 0, new byte[] {1, 2, 3});
+            assertFrame(reader.next(), CaptureDirection.TO_CLIENT, 250, new byte[0]);
+            assertFrame(reader.next(), CaptureDirection.FROM_BACKEND, 9_000_000_000L - 5_000, large);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void otherFilesAreRejected() throws Exception {
+        Path file = dir.resolve("other.bin");
+        Files.write(file, new byte[] {'N', 'O', 'P', 'E', 1});
+
+        assertThrows(IOException.class, () -> CaptureFile.reader(file));
+    }
+
+    @Test
+    void truncatedFileIsReported() throws Exception {
+        Path file = dir.resolve("truncated.ncap");
+        try (CaptureFile.Writer writer = CaptureFile.writer(file)) {
+            writer.write(CaptureDirection.FROM_CLIENT, 0, new byte[] {1, 2, 3});
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        try (CaptureFile.Reader reader = CaptureFile.reader(file)) {
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+
+    private static void assertFrame(CaptureFile.Frame frame, CaptureDirection direction, long nanos, byte[] data) {
+        assertEquals(direction, frame.direction());
+        assertEquals(nanos, frame.nanos());
+        assertArrayEquals(data, frame.data());
+    }
+}
@@ -0,0 +1,109 @@
+package me.internalizable.numdrassl.session.capture;
+
+import com.hypixel.hytale.protocol.Packet;
+import com.hypixel.hytale.protocol.packets.connection.Pong;
+import com.hypixel.hytale.protocol.packets.interface_.ChatMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import me.internalizable.numdrassl.pipeline.codec.ProxyPacketEncoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Replays captures of encoded packets through the decoder and encoder, as a regression
+ * test would replay a capture taken from a live session.
+ */
+class CaptureReplayerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayDecodesEveryClientFrame() throws Exception {
+        List<Packet> sent = List.of(new ChatMessage("hello"), new Pong(), new ChatMessage("/spawn"));
+        Path file = capture(sent);
+        List<Object> decoded = new ArrayList<>();
+
+        CaptureReplayer.Result result = new CaptureReplayer(file, CaptureDirection.FROM_CLIENT, 0)
+            .replay(new Collector(decoded));
+
+        assertEquals(sent, decoded);
+        assertEquals(sent.size(), result.framesIn());
+    }
+
+    @Test
+    void replayRoundTripsFramesUnchanged() throws Exception {
+        Path file = capture(List.of(new ChatMessage("hello"), new Pong()));
+
+        CaptureReplayer.Result result = new CaptureReplayer(file, CaptureDirection.FROM_CLIENT, 0).replay();
+
+        assertEquals(result.framesIn(), result.framesOut());
+        assertEquals(result.bytesIn(), result.bytesOut());
+    }
+
+    @Test
+    void otherDirectionsAreSkipped() throws Exception {
+        Path file = capture(List.of(new ChatMessage("hello")));
+
+        CaptureReplayer.Result result = new CaptureReplayer(file, CaptureDirection.FROM_BACKEND, 0).replay();
+
+        assertEquals(0, result.framesIn());
+    }
+
+    @Test
+    void outboundDirectionCannotBeReplayed() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new CaptureReplayer(dir.resolve("unused.ncap"), CaptureDirection.TO_CLIENT, 0));
+    }
+
+    /**
+     * Writes the packets as client frames, with the frames the proxy sent on to the
+     * backend in between, like a session capture.
+     */
+    private Path capture(List<Packet> packets) throws Exception {
+        Path file = dir.resolve("replay.ncap");
+        EmbeddedChannel encoder = new EmbeddedChannel(new ProxyPacketEncoder("capture", false));
+        try (CaptureFile.Writer writer = CaptureFile.writer(file)) {
+            long nanos = 0;
+            for (Packet packet : packets) {
+                encoder.writeOutbound(packet);
+                ByteBuf frame = encoder.readOutbound();
+                byte[] data = ByteBufUtil.getBytes(frame);
+                frame.release();
+                writer.write(CaptureDirection.FROM_CLIENT, nanos, data);
+                writer.write(CaptureDirection.TO_BACKEND, nanos + 1_000, data);
+                nanos += 1_000_000;
+            }
+        } finally {
+            encoder.finishAndReleaseAll();
+        }
+        return file;
+    }
+
+    private static final class Collector extends ChannelInboundHandlerAdapter {
+
+        private final List<Object> messages;
+
+        Collector(List<Object> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            assertInstanceOf(Packet.class, msg);
+            messages.add(msg);
+            ctx.fireChannelRead(msg);
+        }
+    }
+}
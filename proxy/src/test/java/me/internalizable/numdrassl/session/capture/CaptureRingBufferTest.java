@@ -0,0 +1,93 @@
+package me.internalizable.numdrassl.session.capture;
+
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptureRingBufferTest {
+
+    private static final int FRAME = 10;
+    private static final int RECORD = CaptureRingBuffer.RECORD_HEADER_BYTES + FRAME;
+
+    @Test
+    void framesAreVisitedOldestFirst() throws Exception {
+        CaptureRingBuffer ring = new CaptureRingBuffer(4 * RECORD);
+        append(ring, CaptureDirection.FROM_CLIENT, 1);
+        append(ring, CaptureDirection.TO_BACKEND, 2);
+
+        List<Visited> frames = visit(ring);
+
+        assertEquals(List.of(CaptureDirection.FROM_CLIENT, CaptureDirection.TO_BACKEND),
+            frames.stream().map(Visited::direction).toList());
+        assertEquals(1, frames.get(0).nanos());
+        assertArrayEquals(frame(2), frames.get(1).data());
+        assertEquals(2 * RECORD, ring.getUsedBytes());
+    }
+
+    @Test
+    void fullRingEvictsOldestFrames() throws Exception {
+        CaptureRingBuffer ring = new CaptureRingBuffer(3 * RECORD);
+        for (int i = 0; i < 5; i++) {
+            append(ring, CaptureDirection.FROM_CLIENT, i);
+        }
+
+        assertEquals(3, ring.getFrames());
+        assertEquals(2, ring.getEvictedFrames());
+        assertEquals(List.of(2L, 3L, 4L), visit(ring).stream().map(Visited::nanos).toList());
+    }
+
+    @Test
+    void recordsWrapAroundTheEnd() throws Exception {
+        // Not a multiple of the record size, so headers and data are split at the end
+        CaptureRingBuffer ring = new CaptureRingBuffer(2 * RECORD + 7);
+        for (int i = 0; i < 20; i++) {
+            append(ring, CaptureDirection.FROM_BACKEND, i);
+
+            List<Visited> frames = visit(ring);
+            Visited newest = frames.get(frames.size() - 1);
+            assertEquals(i, newest.nanos());
+            assertArrayEquals(frame(i), newest.data());
+            assertTrue(ring.getUsedBytes() <= ring.getCapacity());
+        }
+        assertEquals(2, ring.getFrames());
+    }
+
+    @Test
+    void frameLargerThanRingIsRejected() throws Exception {
+        CaptureRingBuffer ring = new CaptureRingBuffer(RECORD);
+        append(ring, CaptureDirection.FROM_CLIENT, 1);
+
+        byte[] large = new byte[RECORD];
+        assertFalse(ring.append(CaptureDirection.FROM_CLIENT, 2, Unpooled.wrappedBuffer(large), 0, large.length));
+        assertEquals(1, visit(ring).size());
+    }
+
+    private static void append(CaptureRingBuffer ring, CaptureDirection direction, int seed) {
+        byte[] data = frame(seed);
+        assertTrue(ring.append(direction, seed, Unpooled.wrappedBuffer(data), 0, data.length));
+    }
+
+    private static byte[] frame(int seed) {
+        byte[] data = new byte[FRAME];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (seed * 31 + i);
+        }
+        return data;
+    }
+
+    private static List<Visited> visit(CaptureRingBuffer ring) throws Exception {
+        List<Visited> frames = new ArrayList<>();
+        ring.forEach((direction, nanos, data) -> frames.add(new Visited(direction, nanos, data)));
+        return frames;
+    }
+
+    private record Visited(CaptureDirection direction, long nanos, byte[] data) {
+    }
+}
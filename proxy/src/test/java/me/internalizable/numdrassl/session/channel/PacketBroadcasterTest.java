@@ -0,0 +1,174 @@
+package me.internalizable.numdrassl.session.channel;
+
+import com.hypixel.hytale.protocol.packets.connection.Pong;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.DefaultChannelPromise;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import me.internalizable.numdrassl.profiling.ProxyMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Broadcasts to stand-in client streams on two event loops. The streams record what is
+ * written to them and on which thread.
+ */
+class PacketBroadcasterTest {
+
+    private final AtomicInteger buffers = new AtomicInteger();
+    private final ByteBufAllocator alloc = (ByteBufAllocator) Proxy.newProxyInstance(
+        ByteBufAllocator.class.getClassLoader(), new Class<?>[] {ByteBufAllocator.class}, (proxy, method, args) -> {
+            if (ByteBuf.class.isAssignableFrom(method.getReturnType())) {
+                buffers.incrementAndGet();
+            }
+            return method.invoke(UnpooledByteBufAllocator.DEFAULT, args);
+        });
+    private final CountingLoop first = new CountingLoop();
+    private final CountingLoop second = new CountingLoop();
+
+    @AfterEach
+    void tearDown() {
+        first.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        second.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void encodesOnceAndWritesOneDuplicatePerRecipient() throws Exception {
+        List<Stream> streams = List.of(
+            new Stream(first, true), new Stream(second, true), new Stream(first, true),
+            new Stream(second, true), new Stream(first, true), new Stream(first, false));
+        long sentBefore = ProxyMetrics.getInstance().createSnapshot().packetsToClient();
+
+        int queued = PacketBroadcaster.broadcast(new Pong(), channels(streams));
+        first.drain();
+        second.drain();
+
+        assertEquals(5, queued);
+        assertEquals(1, buffers.get());
+        // One task per event loop, however many of its streams receive the packet
+        assertEquals(1, first.tasks.get());
+        assertEquals(1, second.tasks.get());
+
+        List<ByteBuf> written = new ArrayList<>();
+        for (Stream stream : streams) {
+            assertEquals(stream.active ? 1 : 0, stream.written.size());
+            assertEquals(stream.active ? 1 : 0, stream.flushes);
+            for (ByteBuf buf : stream.written) {
+                assertSame(stream.loop.thread, stream.writer);
+                written.add(buf);
+            }
+        }
+        ByteBuf frame = written.get(0).unwrap();
+        for (ByteBuf buf : written) {
+            assertNotSame(frame, buf);
+            assertSame(frame, buf.unwrap());
+            assertEquals(0, buf.readerIndex());
+            assertEquals(frame.writerIndex(), buf.readableBytes());
+        }
+        // Only the written duplicates still hold the frame
+        assertEquals(written.size(), frame.refCnt());
+        written.forEach(ByteBuf::release);
+        assertEquals(0, frame.refCnt());
+
+        assertEquals(5, ProxyMetrics.getInstance().createSnapshot().packetsToClient() - sentBefore);
+    }
+
+    @Test
+    void nothingIsEncodedWithoutActiveStreams() {
+        List<Stream> streams = List.of(new Stream(first, false));
+
+        assertEquals(0, PacketBroadcaster.broadcast(new Pong(), channels(streams)));
+        assertEquals(0, buffers.get());
+    }
+
+    private static List<QuicStreamChannel> channels(List<Stream> streams) {
+        List<QuicStreamChannel> channels = new ArrayList<>();
+        for (Stream stream : streams) {
+            channels.add(stream.channel);
+        }
+        return channels;
+    }
+
+    /**
+     * Counts the tasks handed to it from other threads.
+     */
+    private static final class CountingLoop extends DefaultEventLoop {
+
+        private final AtomicInteger tasks = new AtomicInteger();
+        private volatile Thread thread;
+
+        CountingLoop() {
+            super.execute(() -> thread = Thread.currentThread());
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.incrementAndGet();
+            super.execute(task);
+        }
+
+        /**
+         * Waits for every task queued so far, without counting the wait itself.
+         */
+        void drain() throws InterruptedException {
+            CountDownLatch done = new CountDownLatch(1);
+            super.execute(done::countDown);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * A client stream on a loop that records its writes and flushes.
+     */
+    private final class Stream {
+
+        private final CountingLoop loop;
+        private final boolean active;
+        private final List<ByteBuf> written = new ArrayList<>();
+        private final QuicStreamChannel channel;
+        private volatile Thread writer;
+        private int flushes;
+
+        Stream(CountingLoop loop, boolean active) {
+            this.loop = loop;
+            this.active = active;
+            this.channel = (QuicStreamChannel) Proxy.newProxyInstance(QuicStreamChannel.class.getClassLoader(),
+                new Class<?>[] {QuicStreamChannel.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "isActive" -> this.active;
+                    case "eventLoop" -> loop;
+                    case "alloc" -> alloc;
+                    case "write" -> {
+                        writer = Thread.currentThread();
+                        written.add((ByteBuf) args[0]);
+                        yield new DefaultChannelPromise((QuicStreamChannel) proxy, loop).setSuccess();
+                    }
+                    case "flush" -> {
+                        flushes++;
+                        yield proxy;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "stream";
+                    default -> {
+                        Class<?> type = method.getReturnType();
+                        yield type.isPrimitive() && type != void.class ? Array.get(Array.newInstance(type, 1), 0) : null;
+                    }
+                });
+        }
+    }
+}
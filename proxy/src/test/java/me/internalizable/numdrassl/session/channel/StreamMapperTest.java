@@ -0,0 +1,280 @@
+package me.internalizable.numdrassl.session.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ChannelInputShutdownReadComplete;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicClientCodecBuilder;
+import io.netty.incubator.codec.quic.QuicServerCodecBuilder;
+import io.netty.incubator.codec.quic.QuicSslContext;
+import io.netty.incubator.codec.quic.QuicSslContextBuilder;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import io.netty.incubator.codec.quic.QuicStreamType;
+import me.internalizable.numdrassl.profiling.TrafficHeavyHitters;
+import me.internalizable.numdrassl.session.memory.MemoryBudget;
+import me.internalizable.numdrassl.session.memory.SessionMemory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Relays a secondary stream through a {@link StreamMapper} over loopback QUIC: a client
+ * connects to a proxy, which pairs the client's stream with a stream to an echo backend.
+ */
+class StreamMapperTest {
+
+    private static final long SESSION_ID = 1;
+    private static final String PROTOCOL = "hytale/1";
+    private static final long TIMEOUT_SECONDS = 10;
+    // The default socket buffer overflows on bursts and the retransmit backoff outlasts the timeout
+    private static final int SOCKET_BUFFER = 4 * 1024 * 1024;
+
+    private EventLoopGroup group;
+    private SelfSignedCertificate certificate;
+    private final List<Channel> sockets = new ArrayList<>();
+
+    private QuicChannel proxyToBackend;
+    private QuicChannel client;
+    private final AtomicReference<StreamMapper> mapper = new AtomicReference<>();
+    private final CountDownLatch backendStreamClosed = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        group = new NioEventLoopGroup(2);
+        certificate = new SelfSignedCertificate();
+
+        InetSocketAddress backend = bindServer(new ChannelInitializer<QuicStreamChannel>() {
+            @Override
+            protected void initChannel(QuicStreamChannel ch) {
+                ch.pipeline().addLast(new EchoHandler());
+                ch.closeFuture().addListener(f -> backendStreamClosed.countDown());
+            }
+        }, null);
+        proxyToBackend = connect(backend);
+
+        InetSocketAddress proxy = bindServer(new ChannelInitializer<QuicStreamChannel>() {
+            @Override
+            protected void initChannel(QuicStreamChannel ch) {
+                mapper.get().mapClientStream(ch);
+            }
+        }, new ChannelInitializer<QuicChannel>() {
+            @Override
+            protected void initChannel(QuicChannel ch) {
+                SessionChannels channels = new SessionChannels(SESSION_ID, ch);
+                channels.setBackendChannel(proxyToBackend);
+                TrafficHeavyHitters hitters = TrafficHeavyHitters.getInstance();
+                mapper.set(new StreamMapper(SESSION_ID, channels, new SessionMemory(new MemoryBudget(0)),
+                    hitters.source(TrafficHeavyHitters.Direction.CLIENT_TO_BACKEND, SESSION_ID, () -> "test", () -> "echo"),
+                    hitters.source(TrafficHeavyHitters.Direction.BACKEND_TO_CLIENT, SESSION_ID, () -> "test", () -> "echo")));
+            }
+        });
+        client = connect(proxy);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (client != null) {
+            client.close().awaitUninterruptibly();
+        }
+        if (proxyToBackend != null) {
+            proxyToBackend.close().awaitUninterruptibly();
+        }
+        // Closing every socket frees the native QUIC state before the loops shut down
+        for (Channel socket : sockets) {
+            socket.close().awaitUninterruptibly();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+        certificate.delete();
+    }
+
+    @Test
+    void relaysFramesInOrderBothWays() throws Exception {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        for (int i = 0; i < 64; i++) {
+            sent.writeBytes(frame(i, 1 + ThreadLocalRandom.current().nextInt(2048)));
+        }
+        // Larger than the per-stream flow control window, so the relay has to wait for the peer
+        sent.writeBytes(frame(64, 3 * 1024 * 1024));
+        byte[] expected = sent.toByteArray();
+
+        Collector received = new Collector(expected.length);
+        QuicStreamChannel stream = client.createStream(QuicStreamType.BIDIRECTIONAL, received).sync().getNow();
+
+        // Split writes across frame boundaries, the relay must only forward whole frames
+        int offset = 0;
+        while (offset < expected.length) {
+            int chunk = Math.min(expected.length - offset, 1 + ThreadLocalRandom.current().nextInt(64 * 1024));
+            stream.write(Unpooled.wrappedBuffer(expected, offset, chunk));
+            offset += chunk;
+        }
+        stream.flush();
+
+        assertTrue(received.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "echo did not arrive");
+        assertArrayEquals(expected, received.bytes());
+        assertEquals(1, mapper.get().getActivePairs());
+    }
+
+    @Test
+    void closingClientStreamClosesBackendStream() throws Exception {
+        Collector received = new Collector(16);
+        QuicStreamChannel stream = client.createStream(QuicStreamType.BIDIRECTIONAL, received).sync().getNow();
+        stream.writeAndFlush(Unpooled.wrappedBuffer(frame(1, 8)));
+        assertTrue(received.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "echo did not arrive");
+
+        stream.close().sync();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (mapper.get().getActivePairs() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, mapper.get().getActivePairs());
+        assertTrue(backendStreamClosed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "backend stream stayed open");
+    }
+
+    // ==================== Helpers ====================
+
+    private static byte[] frame(int packetId, int payloadLength) {
+        ByteBuf buf = Unpooled.buffer(8 + payloadLength);
+        buf.writeIntLE(payloadLength);
+        buf.writeIntLE(packetId);
+        for (int i = 0; i < payloadLength; i++) {
+            buf.writeByte(packetId + i);
+        }
+        return ByteBufUtil.getBytes(buf);
+    }
+
+    private InetSocketAddress bindServer(ChannelHandler streamHandler, ChannelHandler connectionHandler) throws Exception {
+        QuicSslContext ssl = QuicSslContextBuilder.forServer(certificate.key(), null, certificate.cert())
+            .applicationProtocols(PROTOCOL)
+            .build();
+        QuicServerCodecBuilder codec = new QuicServerCodecBuilder()
+            .sslContext(ssl)
+            .maxIdleTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .initialMaxData(10_000_000)
+            .initialMaxStreamDataBidirectionalLocal(1_000_000)
+            .initialMaxStreamDataBidirectionalRemote(1_000_000)
+            .initialMaxStreamsBidirectional(100)
+            .tokenHandler(io.netty.incubator.codec.quic.InsecureQuicTokenHandler.INSTANCE)
+            .handler(connectionHandler != null ? connectionHandler : new ChannelInboundHandlerAdapter())
+            .streamHandler(streamHandler);
+        Channel channel = new Bootstrap()
+            .group(group)
+            .channel(NioDatagramChannel.class)
+            .option(ChannelOption.SO_RCVBUF, SOCKET_BUFFER)
+            .handler(codec.build())
+            .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        sockets.add(channel);
+        return (InetSocketAddress) channel.localAddress();
+    }
+
+    private QuicChannel connect(InetSocketAddress address) throws Exception {
+        QuicSslContext ssl = QuicSslContextBuilder.forClient()
+            .trustManager(InsecureTrustManagerFactory.INSTANCE)
+            .applicationProtocols(PROTOCOL)
+            .build();
+        ChannelHandler codec = new QuicClientCodecBuilder()
+            .sslContext(ssl)
+            .maxIdleTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .initialMaxData(10_000_000)
+            .initialMaxStreamDataBidirectionalLocal(1_000_000)
+            .initialMaxStreamDataBidirectionalRemote(1_000_000)
+            .initialMaxStreamsBidirectional(100)
+            .build();
+        Channel udp = new Bootstrap()
+            .group(group)
+            .channel(NioDatagramChannel.class)
+            .option(ChannelOption.SO_RCVBUF, SOCKET_BUFFER)
+            .handler(codec)
+            .bind(0).sync().channel();
+        sockets.add(udp);
+        return QuicChannel.newBootstrap(udp)
+            .streamHandler(new ChannelInboundHandlerAdapter())
+            .remoteAddress(address)
+            .connect()
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes back everything it reads, as the backend side of the relay.
+     */
+    private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.write(msg);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            // The sender is done, so is the echo
+            if (evt instanceof ChannelInputShutdownReadComplete) {
+                ctx.close();
+            }
+            ctx.fireUserEventTriggered(evt);
+        }
+    }
+
+    /**
+     * Collects the bytes a client stream receives until the expected amount arrived.
+     */
+    private static final class Collector extends ChannelInboundHandlerAdapter {
+
+        private final int expected;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private Collector(int expected) {
+            this.expected = expected;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            try {
+                synchronized (received) {
+                    received.writeBytes(ByteBufUtil.getBytes(buf));
+                    if (received.size() >= expected) {
+                        done.countDown();
+                    }
+                }
+            } finally {
+                buf.release();
+            }
+        }
+
+        private byte[] bytes() {
+            synchronized (received) {
+                return received.toByteArray();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package me.internalizable.numdrassl.session.login;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LoginTraceTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void eachPhaseEndsAtItsMark() {
+        LoginTrace trace = new LoginTrace(START);
+        long now = START;
+        for (LoginPhase phase : LoginPhase.VALUES) {
+            now += (phase.ordinal() + 1) * 1_000L;
+            trace.mark(phase, now);
+        }
+
+        LoginTrace.Breakdown breakdown = trace.finish(now + 500);
+        assertNotNull(breakdown);
+        for (LoginPhase phase : LoginPhase.VALUES) {
+            long expected = (phase.ordinal() + 1) * 1_000L;
+            if (phase == LoginPhase.BACKEND_ACCEPT) {
+                // The last phase ends at finish, not at its own mark
+                expected += 500;
+            }
+            assertEquals(expected, breakdown.get(phase), phase.tag());
+        }
+        assertEquals(now + 500 - START, breakdown.totalNanos());
+    }
+
+    @Test
+    void skippedPhaseMovesItsTimeToTheNextPhase() {
+        LoginTrace trace = new LoginTrace(START);
+        trace.mark(LoginPhase.HANDSHAKE, START + 10);
+        trace.mark(LoginPhase.QUEUE, START + 20);
+        trace.mark(LoginPhase.AUTH_GRANT, START + 30);
+        trace.mark(LoginPhase.CLIENT_AUTH, START + 40);
+        // No grant exchange
+        trace.mark(LoginPhase.LOGIN_EVENTS, START + 70);
+        trace.mark(LoginPhase.BACKEND_CONNECT, START + 80);
+
+        LoginTrace.Breakdown breakdown = trace.finish(START + 100);
+        assertNotNull(breakdown);
+        assertEquals(10, breakdown.get(LoginPhase.CLIENT_AUTH));
+        assertEquals(0, breakdown.get(LoginPhase.GRANT_EXCHANGE));
+        assertEquals(30, breakdown.get(LoginPhase.LOGIN_EVENTS));
+        assertEquals(20, breakdown.get(LoginPhase.BACKEND_ACCEPT));
+        assertEquals(100, breakdown.totalNanos());
+    }
+
+    @Test
+    void outOfOrderMarkIsIgnored() {
+        LoginTrace trace = new LoginTrace(START);
+        trace.mark(LoginPhase.HANDSHAKE, START + 50);
+        trace.mark(LoginPhase.QUEUE, START + 40);
+        trace.mark(LoginPhase.AUTH_GRANT, START + 60);
+
+        LoginTrace.Breakdown breakdown = trace.finish(START + 90);
+        assertNotNull(breakdown);
+        assertEquals(50, breakdown.get(LoginPhase.HANDSHAKE));
+        assertEquals(0, breakdown.get(LoginPhase.QUEUE));
+        assertEquals(10, breakdown.get(LoginPhase.AUTH_GRANT));
+        // Nothing marked after AUTH_GRANT, so the rest lands on the last phase
+        assertEquals(30, breakdown.get(LoginPhase.BACKEND_ACCEPT));
+        assertEquals(90, breakdown.totalNanos());
+    }
+
+    @Test
+    void firstMarkWinsAndFinishOnlyOnce() {
+        LoginTrace trace = new LoginTrace(START);
+        trace.mark(LoginPhase.HANDSHAKE, START + 10);
+        trace.mark(LoginPhase.HANDSHAKE, START + 30);
+
+        LoginTrace.Breakdown breakdown = trace.finish(START + 40);
+        assertNotNull(breakdown);
+        assertEquals(10, breakdown.get(LoginPhase.HANDSHAKE));
+        assertNull(trace.finish(START + 50));
+    }
+}
@@ -0,0 +1,163 @@
+package me.internalizable.numdrassl.session.memory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import io.netty.incubator.codec.quic.QuicStreamType;
+import io.netty.util.ReferenceCountUtil;
+import me.internalizable.numdrassl.config.ProxyConfig;
+import me.internalizable.numdrassl.pipeline.codec.ProxyPacketDecoder;
+import me.internalizable.numdrassl.server.ProxyCore;
+import me.internalizable.numdrassl.session.ProxySession;
+import me.internalizable.numdrassl.testing.LoopbackQuic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Accounts the memory of a session on loopback QUIC. The session's primary stream is set
+ * up like the proxy's, with its decoder reporting to the session, and a client sends it
+ * real frames. The core is never started.
+ */
+class ProxySessionMemoryTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+    // Not a registered packet, so the decoder forwards it whole
+    private static final int PACKET_ID = 0x7FFF_0000;
+    private static final int PAYLOAD = 200_000;
+    private static final int PARTIAL = 16 * 1024;
+
+    private ProxyCore core;
+    private MemoryBudget budget;
+    private LoopbackQuic quic;
+    private QuicStreamChannel stream;
+    private final CompletableFuture<ProxySession> session = new CompletableFuture<>();
+    private final CountDownLatch frameDecoded = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        core = new ProxyCore(new ProxyConfig());
+        budget = core.getMemoryBudget();
+        quic = new LoopbackQuic(new ChannelInitializer<QuicStreamChannel>() {
+            @Override
+            protected void initChannel(QuicStreamChannel ch) {
+                ProxySession accepted = new ProxySession(core, (QuicChannel) ch.parent());
+                core.getSessionManager().addSession(accepted);
+                accepted.setClientStream(ch);
+                ch.pipeline().addLast(new ProxyPacketDecoder(ProxyPacketDecoder.options("client", false)
+                    .memory(accepted.getMemory())));
+                ch.pipeline().addLast(new Sink());
+                session.complete(accepted);
+            }
+        });
+        stream = quic.connect().createStream(QuicStreamType.BIDIRECTIONAL, new ChannelInboundHandlerAdapter())
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        quic.close();
+    }
+
+    @Test
+    void incompleteFrameCountsUntilItIsDecoded() throws Exception {
+        byte[] frame = frame();
+        stream.writeAndFlush(Unpooled.wrappedBuffer(frame, 0, PARTIAL));
+
+        ProxySession accepted = session.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        SessionMemory memory = accepted.getMemory();
+        await(() -> memory.getDecoderBytes() >= PARTIAL, "partial frame was not accounted");
+        assertEquals(memory.getTotalBytes(), budget.getUsedBytes());
+
+        List<SessionMemoryMonitor.Usage> top = core.getMemoryMonitor().getTopSessions(1);
+        assertEquals(1, top.size());
+        assertEquals(accepted.getSessionId(), top.get(0).sessionId());
+        assertEquals(memory.getDecoderBytes(), top.get(0).decoderBytes());
+
+        stream.writeAndFlush(Unpooled.wrappedBuffer(frame, PARTIAL, frame.length - PARTIAL));
+        assertTrue(frameDecoded.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "frame was not decoded");
+        await(() -> memory.getDecoderBytes() == 0, "decoded frame is still accounted");
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(List.of(), core.getMemoryMonitor().getTopSessions(1));
+    }
+
+    @Test
+    void pendingMessagesCountUntilFlushed() throws Exception {
+        stream.writeAndFlush(Unpooled.wrappedBuffer(frame(), 0, 8));
+        ProxySession accepted = session.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        SessionMemory memory = accepted.getMemory();
+        await(() -> memory.getDecoderBytes() > 0, "header was not accounted");
+        long decoderBytes = memory.getDecoderBytes();
+
+        // Not connected yet, so the messages wait on the session
+        accepted.sendChatMessage("Welcome");
+        accepted.sendChatMessage("to the server");
+        assertTrue(memory.getPendingMessageBytes() > 0);
+        assertEquals(decoderBytes + memory.getPendingMessageBytes(), budget.getUsedBytes());
+
+        accepted.flushPendingMessages();
+        assertEquals(0, memory.getPendingMessageBytes());
+        assertEquals(decoderBytes, budget.getUsedBytes());
+    }
+
+    @Test
+    void removedSessionStopsCounting() throws Exception {
+        stream.writeAndFlush(Unpooled.wrappedBuffer(frame(), 0, PARTIAL));
+        ProxySession accepted = session.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        SessionMemory memory = accepted.getMemory();
+        await(() -> memory.getDecoderBytes() >= PARTIAL, "partial frame was not accounted");
+        accepted.sendChatMessage("Welcome");
+        assertTrue(budget.getUsedBytes() > PARTIAL);
+
+        core.getSessionManager().removeSession(accepted);
+        assertEquals(0, budget.getUsedBytes());
+
+        // The decoder still holds the partial frame and reports it once more when the stream
+        // closes, which must not go negative on the budget
+        accepted.getClientStream().close().sync();
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(0, memory.getTotalBytes());
+    }
+
+    // ==================== Helpers ====================
+
+    private static byte[] frame() {
+        ByteBuf buf = Unpooled.buffer(8 + PAYLOAD);
+        buf.writeIntLE(PAYLOAD);
+        buf.writeIntLE(PACKET_ID);
+        buf.writeZero(PAYLOAD);
+        return buf.array();
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Stands in for the packet handler and drops what the decoder forwards.
+     */
+    private final class Sink extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ReferenceCountUtil.release(msg);
+            frameDecoded.countDown();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package me.internalizable.numdrassl.session.memory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import me.internalizable.numdrassl.pipeline.codec.RawFrameDecoder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionMemoryTest {
+
+    private static final long LIMIT = 1024 * 1024;
+
+    @Test
+    void pressureStopsPendingMessagesUntilSessionsRelease() {
+        MemoryBudget budget = new MemoryBudget(LIMIT);
+        List<SessionMemory> sessions = new ArrayList<>();
+
+        // Slow sessions pile up queued writes until the budget is under pressure
+        while (!budget.isUnderPressure()) {
+            SessionMemory memory = new SessionMemory(budget);
+            memory.setWriteQueueBytes(LIMIT / 16);
+            sessions.add(memory);
+        }
+        assertEquals(sessions.size() * (LIMIT / 16), budget.getUsedBytes());
+        assertFalse(budget.isExceeded());
+
+        SessionMemory idle = new SessionMemory(budget);
+        assertFalse(idle.tryReservePendingMessage(64));
+        assertEquals(0, idle.getPendingMessageBytes());
+
+        // The write queues drain, so the budget recovers
+        for (SessionMemory memory : sessions) {
+            memory.setWriteQueueBytes(0);
+        }
+        assertEquals(0, budget.getUsedBytes());
+        assertTrue(idle.tryReservePendingMessage(64));
+        idle.releasePendingMessage(64);
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    void budgetIsExceededAboveTheLimitAndReleasedSessionsStopCounting() {
+        MemoryBudget budget = new MemoryBudget(LIMIT);
+        SessionMemory heavy = new SessionMemory(budget);
+        SessionMemory light = new SessionMemory(budget);
+
+        heavy.addDecoderBytes(LIMIT);
+        light.setWriteQueueBytes(1);
+        assertTrue(budget.isExceeded());
+
+        heavy.release();
+        assertFalse(budget.isUnderPressure());
+        assertEquals(1, budget.getUsedBytes());
+
+        // Late reports from a removed session are ignored
+        heavy.addDecoderBytes(LIMIT);
+        heavy.setWriteQueueBytes(LIMIT);
+        assertEquals(1, budget.getUsedBytes());
+        assertEquals(0, heavy.getTotalBytes());
+    }
+
+    @Test
+    void pendingMessagesAreCappedPerSession() {
+        MemoryBudget budget = new MemoryBudget(0);
+        SessionMemory memory = new SessionMemory(budget);
+
+        assertTrue(memory.tryReservePendingMessage(SessionMemory.MAX_PENDING_MESSAGE_BYTES));
+        assertFalse(memory.tryReservePendingMessage(1));
+        assertFalse(budget.isUnderPressure());
+    }
+
+    @Test
+    void decoderReportsIncompleteFrames() {
+        MemoryBudget budget = new MemoryBudget(LIMIT);
+        SessionMemory memory = new SessionMemory(budget);
+        EmbeddedChannel channel = new EmbeddedChannel(new RawFrameDecoder("test", memory));
+
+        // Header of a 64 KB frame plus a few bytes of its payload
+        ByteBuf partial = Unpooled.buffer();
+        partial.writeIntLE(64 * 1024).writeIntLE(1).writeZero(16);
+        channel.writeInbound(partial);
+        assertNull(channel.readInbound());
+        assertTrue(memory.getDecoderBytes() >= 24);
+        assertEquals(memory.getDecoderBytes(), budget.getUsedBytes());
+
+        channel.writeInbound(Unpooled.buffer().writeZero(64 * 1024 - 16));
+        ByteBuf frame = channel.readInbound();
+        assertNotNull(frame);
+        assertEquals(8 + 64 * 1024, frame.readableBytes());
+        frame.release();
+
+        channel.pipeline().removeFirst();
+        assertEquals(0, memory.getDecoderBytes());
+        assertEquals(0, budget.getUsedBytes());
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,87 @@
+package me.internalizable.numdrassl.session.quality;
+
+import me.internalizable.numdrassl.config.ProxyConfig;
+import me.internalizable.numdrassl.server.ProxyCore;
+import me.internalizable.numdrassl.session.ProxySession;
+import me.internalizable.numdrassl.testing.LoopbackQuic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Samples sessions on loopback QUIC connections, without a backend.
+ */
+class ConnectionQualitySamplerTest {
+
+    private LoopbackQuic quic;
+    private ProxyCore core;
+    private ConnectionQualitySampler sampler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        quic = new LoopbackQuic();
+        core = new ProxyCore(new ProxyConfig());
+        sampler = new ConnectionQualitySampler(core.getSessionManager());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sampler.shutdown();
+        quic.close();
+    }
+
+    @Test
+    void sessionPingFallsBackToTheSampledQuicRtt() throws Exception {
+        ProxySession session = session();
+        assertEquals(-1, session.getPing());
+
+        sampler.sampleAll();
+        awaitClientRtt(session);
+
+        long rtt = session.getQualityTracker().snapshot().clientRttMillis();
+        assertEquals(rtt, session.getPing());
+        assertTrue(session.getQualityTracker().snapshot().clientCongestionWindow() > 0);
+    }
+
+    @Test
+    void sessionPingPrefersPongsOverQuicRtt() throws Exception {
+        ProxySession session = session();
+        sampler.sampleAll();
+        awaitClientRtt(session);
+
+        ConnectionQualityTracker tracker = session.getQualityTracker();
+        tracker.onPingToClient(7, 0);
+        tracker.onPongFromClient(7, TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertEquals(500, session.getPing());
+    }
+
+    @Test
+    void sessionWithoutBackendHasNoBackendStats() throws Exception {
+        ProxySession session = session();
+        session.getQualityTracker().updateBackendTransport(new Object(), 1_000_000, 12_000, 10, 0);
+
+        sampler.sampleAll();
+
+        assertEquals(-1, session.getQualityTracker().snapshot().backendRttMillis());
+    }
+
+    private ProxySession session() throws Exception {
+        ProxySession session = new ProxySession(core, quic.connect());
+        core.getSessionManager().addSession(session);
+        return session;
+    }
+
+    private static void awaitClientRtt(ProxySession session) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (session.getQualityTracker().snapshot().clientRttMillis() < 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(session.getQualityTracker().snapshot().clientRttMillis() >= 0, "no client RTT sampled");
+    }
+}
@@ -0,0 +1,134 @@
+package me.internalizable.numdrassl.session.quality;
+
+import me.internalizable.numdrassl.api.player.ConnectionQuality;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConnectionQualityTrackerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ConnectionQualityTracker tracker = new ConnectionQualityTracker();
+
+    @Test
+    void firstSampleSeedsThePing() {
+        tracker.onPingToClient(1, 0);
+
+        assertEquals(40 * MS, tracker.onPongFromClient(1, 40 * MS));
+        assertEquals(40, tracker.getPingMillis());
+        assertEquals(20, tracker.getPingVarianceMillis());
+    }
+
+    @Test
+    void laterSamplesAreSmoothed() {
+        sample(1, 40);
+        sample(2, 80);
+
+        // RFC 6298: variance moves a quarter and the ping an eighth towards the sample
+        assertEquals(45, tracker.getPingMillis());
+        assertEquals(25, tracker.getPingVarianceMillis());
+    }
+
+    @Test
+    void pongWithoutItsPingIsIgnored() {
+        tracker.onPingToClient(1, 0);
+
+        assertEquals(-1, tracker.onPongFromClient(2, 10 * MS));
+        assertEquals(-1, tracker.getPingMillis());
+        assertEquals(-1, tracker.getPingVarianceMillis());
+    }
+
+    @Test
+    void pongsMatchTheirPingsInAnyOrder() {
+        tracker.onPingToClient(1, 0);
+        tracker.onPingToClient(2, 10 * MS);
+
+        assertEquals(20 * MS, tracker.onPongFromClient(2, 30 * MS));
+        assertEquals(50 * MS, tracker.onPongFromClient(1, 50 * MS));
+    }
+
+    @Test
+    void pingIsMatchedOnlyOnce() {
+        tracker.onPingToClient(1, 0);
+        tracker.onPongFromClient(1, 40 * MS);
+
+        assertEquals(-1, tracker.onPongFromClient(1, 90 * MS));
+        assertEquals(40, tracker.getPingMillis());
+    }
+
+    @Test
+    void oldestPendingPingIsForgotten() {
+        for (int id = 0; id <= 8; id++) {
+            tracker.onPingToClient(id, id * MS);
+        }
+
+        assertEquals(-1, tracker.onPongFromClient(0, 20 * MS));
+        assertEquals(12 * MS, tracker.onPongFromClient(8, 20 * MS));
+    }
+
+    @Test
+    void pingFallsBackToClientQuicRttUntilTheFirstPong() {
+        tracker.updateClientTransport(25 * MS, 12_000, 10, 0);
+        assertEquals(25, tracker.getPingMillis());
+
+        sample(1, 40);
+
+        assertEquals(40, tracker.getPingMillis());
+        assertEquals(25, tracker.snapshot().clientRttMillis());
+    }
+
+    @Test
+    void lossRateCoversPacketsSinceThePreviousSample() {
+        tracker.updateClientTransport(MS, 12_000, 100, 10);
+        assertEquals(0.1, tracker.snapshot().clientLossRate());
+
+        tracker.updateClientTransport(MS, 12_000, 200, 10);
+        assertEquals(0.0, tracker.snapshot().clientLossRate());
+
+        // Nothing sent since, so the last rate stands
+        tracker.updateClientTransport(MS, 12_000, 200, 10);
+        assertEquals(0.0, tracker.snapshot().clientLossRate());
+    }
+
+    @Test
+    void backendStatsStartOverOnANewConnection() {
+        Object first = new Object();
+        Object second = new Object();
+        tracker.updateBackendTransport(first, 5 * MS, 20_000, 100, 50);
+        tracker.updateBackendTransport(first, 5 * MS, 20_000, 200, 50);
+        assertEquals(0.0, tracker.snapshot().backendLossRate());
+
+        // Counted against the first connection this would be 10 lost of 100
+        tracker.updateBackendTransport(second, 7 * MS, 30_000, 300, 60);
+
+        ConnectionQuality quality = tracker.snapshot();
+        assertEquals(0.2, quality.backendLossRate());
+        assertEquals(7, quality.backendRttMillis());
+        assertEquals(30_000, quality.backendCongestionWindow());
+    }
+
+    @Test
+    void resetForgetsTheBackend() {
+        tracker.updateBackendTransport(new Object(), 5 * MS, 20_000, 100, 0);
+
+        tracker.resetBackendTransport();
+
+        ConnectionQuality quality = tracker.snapshot();
+        assertEquals(-1, quality.backendRttMillis());
+        assertEquals(-1, quality.backendLossRate());
+        assertEquals(-1, quality.backendCongestionWindow());
+    }
+
+    @Test
+    void nothingMeasuredIsUnknown() {
+        assertEquals(ConnectionQuality.UNKNOWN, tracker.snapshot());
+    }
+
+    private void sample(int pingId, long rttMillis) {
+        tracker.onPingToClient(pingId, 0);
+        tracker.onPongFromClient(pingId, rttMillis * MS);
+    }
+}
@@ -0,0 +1,44 @@
+package me.internalizable.numdrassl.testing;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures heap allocation of the current thread, for tests that check a path does not allocate.
+ */
+public final class Allocations {
+
+    public static final int WARMUP = 20_000;
+    public static final int ITERATIONS = 100_000;
+
+    private Allocations() {
+    }
+
+    /**
+     * Runs {@code op} {@link #WARMUP} times, then returns the bytes allocated by
+     * {@link #ITERATIONS} further runs. The total is returned rather than a per-op average, so
+     * a few bytes per op are not rounded away.
+     */
+    public static long allocatedBytes(Runnable op) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            op.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            op.run();
+        }
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    /**
+     * Asserts that {@code op} does not allocate per call. The bound is on the total: one object
+     * every few calls adds up to far more than one byte per iteration, while one-off allocation
+     * by the JIT or a pool growing during the run stays well below it.
+     */
+    public static void assertNoPerOpAllocation(Runnable op) {
+        long bytes = allocatedBytes(op);
+        assertTrue(bytes < ITERATIONS, () -> bytes + " B allocated over " + ITERATIONS + " iterations");
+    }
+}
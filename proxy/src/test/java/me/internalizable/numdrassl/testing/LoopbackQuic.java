@@ -0,0 +1,111 @@
+package me.internalizable.numdrassl.testing;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.incubator.codec.quic.InsecureQuicTokenHandler;
+import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicClientCodecBuilder;
+import io.netty.incubator.codec.quic.QuicServerCodecBuilder;
+import io.netty.incubator.codec.quic.QuicSslContextBuilder;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A QUIC server on loopback that accepts connections and ignores their streams, for tests
+ * that need real {@link QuicChannel}s, such as the client channel of a session. Tests that
+ * read what a client sends can install a handler of their own for accepted streams.
+ */
+public final class LoopbackQuic implements AutoCloseable {
+
+    private static final String PROTOCOL = "hytale/1";
+    private static final long TIMEOUT_SECONDS = 10;
+    // Added to every accepted connection, so it has to be sharable
+    private static final ChannelHandler IGNORE = new Ignore();
+
+    private final EventLoopGroup group = new NioEventLoopGroup(1);
+    private final SelfSignedCertificate certificate;
+    private final List<Channel> channels = new ArrayList<>();
+    private final InetSocketAddress address;
+
+    public LoopbackQuic() throws Exception {
+        this(IGNORE);
+    }
+
+    /**
+     * @param streamHandler added to every stream a client opens, so it has to be sharable
+     */
+    public LoopbackQuic(ChannelHandler streamHandler) throws Exception {
+        certificate = new SelfSignedCertificate();
+        Channel server = new Bootstrap()
+            .group(group)
+            .channel(NioDatagramChannel.class)
+            .handler(new QuicServerCodecBuilder()
+                .sslContext(QuicSslContextBuilder.forServer(certificate.key(), null, certificate.cert())
+                    .applicationProtocols(PROTOCOL)
+                    .build())
+                .maxIdleTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .initialMaxData(1_000_000)
+                .initialMaxStreamDataBidirectionalRemote(1_000_000)
+                .initialMaxStreamsBidirectional(1)
+                .tokenHandler(InsecureQuicTokenHandler.INSTANCE)
+                .handler(IGNORE)
+                .streamHandler(streamHandler)
+                .build())
+            .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        channels.add(server);
+        address = (InetSocketAddress) server.localAddress();
+    }
+
+    /**
+     * Opens a new connection to the server, from a socket of its own.
+     */
+    public QuicChannel connect() throws Exception {
+        Channel udp = new Bootstrap()
+            .group(group)
+            .channel(NioDatagramChannel.class)
+            .handler(new QuicClientCodecBuilder()
+                .sslContext(QuicSslContextBuilder.forClient()
+                    .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                    .applicationProtocols(PROTOCOL)
+                    .build())
+                .maxIdleTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .initialMaxData(1_000_000)
+                .build())
+            .bind(0).sync().channel();
+        channels.add(udp);
+        QuicChannel connection = QuicChannel.newBootstrap(udp)
+            .streamHandler(IGNORE)
+            .remoteAddress(address)
+            .connect()
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        channels.add(0, connection);
+        return connection;
+    }
+
+    /**
+     * Closes connections before their sockets, which frees the native QUIC state before
+     * the loop shuts down.
+     */
+    @Override
+    public void close() {
+        for (Channel channel : channels) {
+            channel.close().awaitUninterruptibly();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+        certificate.delete();
+    }
+
+    @ChannelHandler.Sharable
+    private static final class Ignore extends ChannelInboundHandlerAdapter {
+    }
+}
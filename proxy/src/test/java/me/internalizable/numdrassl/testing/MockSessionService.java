@@ -0,0 +1,261 @@
+package me.internalizable.numdrassl.testing;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import me.internalizable.numdrassl.auth.ProxyAuthenticator;
+import me.internalizable.numdrassl.auth.http.HytaleEndpoints;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A session service on loopback that answers every request the proxy makes during
+ * startup and client login, after a fixed delay standing in for the round trip to the
+ * real service.
+ */
+public final class MockSessionService implements AutoCloseable {
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+
+    private final long delayMillis;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "Mock-Session-Service");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final HttpServer server;
+    private final SelfSignedCertificate certificate;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+
+    public MockSessionService(long delayMillis) throws Exception {
+        this.delayMillis = delayMillis;
+        this.certificate = new SelfSignedCertificate();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+
+        JsonObject profile = new JsonObject();
+        profile.addProperty("uuid", UUID.randomUUID().toString());
+        profile.addProperty("username", "proxy");
+        JsonArray list = new JsonArray();
+        list.add(profile);
+        JsonObject profiles = new JsonObject();
+        profiles.add("profiles", list);
+        respond(HytaleEndpoints.PROFILES_PATH, profiles);
+
+        JsonObject session = new JsonObject();
+        session.addProperty("sessionToken", "session-token");
+        session.addProperty("identityToken", "proxy-identity-token");
+        respond(HytaleEndpoints.GAME_SESSION_PATH, session);
+
+        JsonObject grant = new JsonObject();
+        grant.addProperty("authorizationGrant", "client-grant");
+        respond(HytaleEndpoints.AUTH_GRANT_PATH, grant);
+
+        JsonObject token = new JsonObject();
+        token.addProperty("accessToken", token("proxy", Instant.now().plus(Duration.ofHours(1))));
+        respond(HytaleEndpoints.AUTH_TOKEN_PATH, token);
+
+        server.start();
+    }
+
+    /**
+     * Creates an authenticator whose requests all go to this service, and logs it in with
+     * stored credentials the way the proxy does at startup.
+     *
+     * @param dir directory for the credential store
+     * @param identityCacheTtl how long verified client identities are cached
+     */
+    public ProxyAuthenticator authenticator(Path dir, Duration identityCacheTtl) throws IOException {
+        JsonObject credentials = new JsonObject();
+        credentials.addProperty("oauth_access_token", "oauth-access-token");
+        credentials.addProperty("oauth_refresh_token", "oauth-refresh-token");
+        credentials.addProperty("oauth_expiry", Instant.now().plus(Duration.ofDays(1)).getEpochSecond());
+        Path store = dir.resolve("proxy_credentials.json");
+        Files.writeString(store, credentials.toString());
+
+        ProxyAuthenticator authenticator = new ProxyAuthenticator(
+            certificate.certificate().getPath(), certificate.privateKey().getPath(), store.toString(),
+            identityCacheTtl, new Redirecting(server.getAddress()));
+        authenticator.initialize();
+        if (!authenticator.isAuthenticated()) {
+            authenticator.close();
+            throw new IllegalStateException("Proxy did not log in to the mock session service");
+        }
+        return authenticator;
+    }
+
+    /**
+     * Gets the number of requests made to an endpoint.
+     */
+    public int requests(String path) {
+        AtomicInteger count = requests.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Answers every further request to an endpoint with 401, as the real service does for
+     * an identity token it cannot verify.
+     */
+    public void reject(String path) {
+        rejected.add(path);
+    }
+
+    /**
+     * Creates an unsigned JWT with a subject and expiry, like the tokens the real service
+     * issues.
+     */
+    public static String token(String subject, Instant expiresAt) {
+        JsonObject claims = new JsonObject();
+        claims.addProperty("sub", subject);
+        claims.addProperty("exp", expiresAt.getEpochSecond());
+        return BASE64.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + '.'
+            + BASE64.encodeToString(claims.toString().getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        certificate.delete();
+    }
+
+    private void respond(String path, JsonObject body) {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        server.createContext(path, exchange -> {
+            requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            try (exchange) {
+                exchange.getRequestBody().readAllBytes();
+                Thread.sleep(delayMillis);
+                if (rejected.contains(path)) {
+                    exchange.sendResponseHeaders(401, -1);
+                } else {
+                    send(exchange, bytes);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private static void send(HttpExchange exchange, byte[] bytes) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Sends requests for any Hytale host to the mock service instead.
+     */
+    private static final class Redirecting extends HttpClient {
+
+        private final HttpClient delegate = HttpClient.newBuilder().version(Version.HTTP_1_1).build();
+        private final InetSocketAddress address;
+
+        Redirecting(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        private HttpRequest redirect(HttpRequest request) {
+            URI uri = URI.create("http://" + address.getHostString() + ':' + address.getPort()
+                + request.uri().getRawPath());
+            return HttpRequest.newBuilder(request, (name, value) -> true).uri(uri).build();
+        }
+
+        @Override
+        public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+                throws IOException, InterruptedException {
+            return delegate.send(redirect(request), handler);
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                                HttpResponse.BodyHandler<T> handler) {
+            return delegate.sendAsync(redirect(request), handler);
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                                HttpResponse.BodyHandler<T> handler,
+                                                                HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+            return delegate.sendAsync(redirect(request), handler, pushPromiseHandler);
+        }
+
+        @Override
+        public Optional<CookieHandler> cookieHandler() {
+            return delegate.cookieHandler();
+        }
+
+        @Override
+        public Optional<Duration> connectTimeout() {
+            return delegate.connectTimeout();
+        }
+
+        @Override
+        public Redirect followRedirects() {
+            return delegate.followRedirects();
+        }
+
+        @Override
+        public Optional<ProxySelector> proxy() {
+            return delegate.proxy();
+        }
+
+        @Override
+        public SSLContext sslContext() {
+            return delegate.sslContext();
+        }
+
+        @Override
+        public SSLParameters sslParameters() {
+            return delegate.sslParameters();
+        }
+
+        @Override
+        public Optional<Authenticator> authenticator() {
+            return delegate.authenticator();
+        }
+
+        @Override
+        public Version version() {
+            return delegate.version();
+        }
+
+        @Override
+        public Optional<Executor> executor() {
+            return delegate.executor();
+        }
+    }
+}